@@ -226,8 +226,8 @@ public class TemplateEngine implements ITemplateEngine {
     private final Set<IMessageResolver> messageResolvers = new LinkedHashSet<IMessageResolver>(3);
     private ICacheManager cacheManager = null;
 
-    // TODO Make this configurable!
-    private final ITextRepository textRepository = TextRepositories.createLimitedSizeCacheRepository();
+    private ITextRepository textRepository = TextRepositories.createLimitedSizeCacheRepository();
+    private boolean localeSpecializationEnabled = false;
 
 
     private IEngineConfiguration configuration = null;
@@ -310,7 +310,7 @@ private void initialize() {
 
                     this.configuration =
                             new EngineConfiguration(this.templateResolvers, this.messageResolvers, this.dialectConfigurations, this.cacheManager, this.textRepository, this.absentMessageFormatter);
-                    this.templateManager = new TemplateManager(this.configuration);
+                    this.templateManager = new TemplateManager(this.configuration, this.localeSpecializationEnabled);
 
                     initializeSpecific();
 
@@ -705,6 +705,96 @@ public void setCacheManager(final ICacheManager cacheManager) {
         this.cacheManager = cacheManager;
     }
 
+
+    /**
+     * <p>
+     *   Returns the text repository in effect. This repository is in charge of providing
+     *   unique instances of the texts (element names, attribute names, etc.) used by
+     *   the engine.
+     * </p>
+     * <p>
+     *   By default, a limited-size repository is set (see
+     *   {@link TextRepositories#createLimitedSizeCacheRepository()}).
+     * </p>
+     *
+     * @return the text repository
+     * @since 3.0.0
+     */
+    public ITextRepository getTextRepository() {
+        if (this.initialized.get()) {
+            return this.configuration.getTextRepository();
+        }
+        return this.textRepository;
+    }
+
+    /**
+     * <p>
+     *   Sets the text repository to be used. Implementations are available by means of
+     *   the {@link TextRepositories} class, for example
+     *   {@link TextRepositories#createConcurrentCacheRepository()} for highly
+     *   concurrent environments.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param textRepository the text repository to be set.
+     * @since 3.0.0
+     */
+    public void setTextRepository(final ITextRepository textRepository) {
+        Validate.notNull(textRepository, "Text Repository cannot be null");
+        checkNotInitialized();
+        this.textRepository = textRepository;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether cached templates are specialized for each locale they are processed with.
+     * </p>
+     *
+     * @return true if locale specialization is enabled, false if not.
+     * @since 3.0.0
+     */
+    public boolean isLocaleSpecializationEnabled() {
+        return this.localeSpecializationEnabled;
+    }
+
+    /**
+     * <p>
+     *   Sets whether cached templates should be specialized for each locale they are processed with. When enabled,
+     *   elements whose body is a constant externalized message (e.g. <tt>th:text="#{title}"</tt>) will get that
+     *   message resolved only once per template and locale, and output as static text afterwards.
+     * </p>
+     * <p>
+     *   Specialization is only effective if both the template and the message caches are enabled, and if all the
+     *   configured message resolvers are instances of {@link StandardMessageResolver} itself (not subclasses), as
+     *   only in that case can all the sources of messages be tracked. Specialized templates are discarded when the
+     *   template, its cached messages or the default messages of any message resolver change. The specialized
+     *   versions of templates are kept at the
+     *   {@link org.thymeleaf.cache.StandardCacheManager#LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME} specific cache.
+     * </p>
+     * <p>
+     *   By default, locale specialization is disabled.
+     * </p>
+     * <p>
+     *   This operation can only be executed before processing templates for the first
+     *   time. Once a template is processed, the template engine is considered to be
+     *   <i>initialized</i>, and from then on any attempt to change its configuration
+     *   will result in an exception.
+     * </p>
+     *
+     * @param localeSpecializationEnabled whether locale specialization should be enabled or not.
+     * @since 3.0.0
+     */
+    public void setLocaleSpecializationEnabled(final boolean localeSpecializationEnabled) {
+        checkNotInitialized();
+        this.localeSpecializationEnabled = localeSpecializationEnabled;
+    }
+
     
     /**
      * <p>
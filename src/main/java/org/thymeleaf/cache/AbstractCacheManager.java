@@ -21,10 +21,10 @@
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Properties;
 
 import org.thymeleaf.engine.ParsedFragmentMarkup;
 import org.thymeleaf.engine.ParsedTemplateMarkup;
+import org.thymeleaf.message.resolver.MessageBundle;
 
 
 /**
@@ -49,10 +49,10 @@ public abstract class AbstractCacheManager implements ICacheManager {
     private volatile ICache<String,ParsedFragmentMarkup> fragmentCache;
     private volatile boolean fragmentCacheInitialized = false;
     
-    private volatile ICache<String,Object> expressionCache;
+    private volatile ICache<ExpressionCacheKey,Object> expressionCache;
     private volatile boolean expressionCacheInitialized = false;
     
-    private volatile ICache<String,Properties> messageCache;
+    private volatile ICache<String,MessageBundle> messageCache;
     private volatile boolean messageCacheInitialized = false;
 
     
@@ -87,7 +87,7 @@ public final ICache<String, ParsedFragmentMarkup> getFragmentCache() {
     }
 
     
-    public final ICache<String, Properties> getMessageCache() {
+    public final ICache<String, MessageBundle> getMessageCache() {
         if (!this.messageCacheInitialized) {
             synchronized(this) {
                 if (!this.messageCacheInitialized) {
@@ -99,7 +99,7 @@ public final ICache<String, Properties> getMessageCache() {
         return this.messageCache;
     }
 
-    public final ICache<String, Object> getExpressionCache() {
+    public final ICache<ExpressionCacheKey, Object> getExpressionCache() {
         if (!this.expressionCacheInitialized) {
             synchronized(this) {
                 if (!this.expressionCacheInitialized) {
@@ -136,12 +136,12 @@ public void clearAllCaches() {
             fragmentCacheObj.clear();
         }
         
-        final ICache<String, Properties> messageCacheObj = getMessageCache();
+        final ICache<String, MessageBundle> messageCacheObj = getMessageCache();
         if (messageCacheObj != null) {
             messageCacheObj.clear();
         }
         
-        final ICache<String, Object> expressionCacheObj = getExpressionCache();
+        final ICache<ExpressionCacheKey, Object> expressionCacheObj = getExpressionCache();
         if (expressionCacheObj != null) {
             expressionCacheObj.clear();
         }
@@ -163,8 +163,8 @@ public void clearAllCaches() {
 
     protected abstract ICache<String,ParsedFragmentMarkup> initializeFragmentCache();
     
-    protected abstract ICache<String,Properties> initializeMessageCache();
+    protected abstract ICache<String,MessageBundle> initializeMessageCache();
     
-    protected abstract ICache<String,Object> initializeExpressionCache();
+    protected abstract ICache<ExpressionCacheKey,Object> initializeExpressionCache();
     
 }
@@ -0,0 +1,178 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.io.File;
+
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheEntryValidity} that considers template
+ *   resolutions valid for as long as the file they were read from is not
+ *   modified (or removed).
+ * </p>
+ * <p>
+ *   The file's last modification date and length are recorded when this object is
+ *   created, and compared with the current ones when validity is checked. In order
+ *   to avoid querying the filesystem on every cache hit, checks are performed at most
+ *   once every <tt>checkIntervalMs</tt> milliseconds (a value of <tt>0</tt> means
+ *   every time). Once a modification is detected, the entry will be considered
+ *   invalid from then on.
+ * </p>
+ * <p>
+ *   An (optional) additional validity can be specified, so that entries are only
+ *   considered valid if both the file remains unmodified and the additional validity
+ *   says so (for example, a {@link TTLCacheEntryValidity}).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public class FileModificationCacheEntryValidity
+        implements ICacheEntryValidity {
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final long checkIntervalMs;
+    private final ICacheEntryValidity additionalValidity;
+
+    private volatile long nextCheckTimeInMillis;
+    private volatile boolean modified;
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this validity implementation.
+     * </p>
+     *
+     * @param file the file the template resolution will be read from.
+     * @param checkIntervalMs the minimum time (in milliseconds) between two checks on the file.
+     */
+    public FileModificationCacheEntryValidity(final File file, final long checkIntervalMs) {
+        this(file, checkIntervalMs, null);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this validity implementation.
+     * </p>
+     *
+     * @param file the file the template resolution will be read from.
+     * @param checkIntervalMs the minimum time (in milliseconds) between two checks on the file.
+     * @param additionalValidity an additional validity to be checked (can be null).
+     */
+    public FileModificationCacheEntryValidity(
+            final File file, final long checkIntervalMs, final ICacheEntryValidity additionalValidity) {
+
+        super();
+
+        Validate.notNull(file, "File cannot be null");
+        Validate.isTrue(checkIntervalMs >= 0L, "Check interval must be >= 0");
+
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.checkIntervalMs = checkIntervalMs;
+        this.additionalValidity = additionalValidity;
+
+        this.nextCheckTimeInMillis = System.currentTimeMillis() + checkIntervalMs;
+        this.modified = false;
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns the file being checked for modifications.
+     * </p>
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the minimum time in milliseconds between two checks on the file.
+     * </p>
+     *
+     * @return the check interval in milliseconds
+     */
+    public long getCheckIntervalMs() {
+        return this.checkIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Returns true, unless an additional validity has been specified and it
+     *   considers the template resolution non-cacheable.
+     * </p>
+     *
+     * @return whether the template resolution is cacheable or not.
+     */
+    public boolean isCacheable() {
+        return (this.additionalValidity == null || this.additionalValidity.isCacheable());
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether the template resolution can still be considered valid. This
+     *   will be true if the file has not been modified since this object was created
+     *   (and the additional validity, if any, is also valid).
+     * </p>
+     *
+     * @return whether the (cached) template resolution can still be considered valid.
+     */
+    public boolean isCacheStillValid() {
+
+        if (this.modified) {
+            return false;
+        }
+
+        if (this.additionalValidity != null && !this.additionalValidity.isCacheStillValid()) {
+            return false;
+        }
+
+        final long currentTimeInMillis = System.currentTimeMillis();
+        if (currentTimeInMillis < this.nextCheckTimeInMillis) {
+            return true;
+        }
+
+        // Note a removed file will have lastModified == 0
+        if (this.file.lastModified() != this.lastModified || this.file.length() != this.length) {
+            this.modified = true;
+            return false;
+        }
+
+        this.nextCheckTimeInMillis = currentTimeInMillis + this.checkIntervalMs;
+        return true;
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+
+
+/**
+ * <p>
+ *   Converts cache values to and from a compact binary form, so that they can be stored out of the Java heap
+ *   (see {@link TwoTierCache}).
+ * </p>
+ * <p>
+ *   Values are split into two parts: a small piece of <i>metadata</i> that is kept on-heap (e.g. the template
+ *   resolution a parsed template was created from, which can contain references to resolvers and validity
+ *   objects that cannot be serialized), and a <tt>byte[]</tt> containing the bulk of the value.
+ * </p>
+ * <p>
+ *   Implementations of this interface must be <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ * @param <V> the type of the values being serialized
+ */
+public interface ICacheEntrySerializer<V> {
+
+    /**
+     * <p>
+     *   Extract the part of the value that will be kept on-heap and passed back to
+     *   {@link #deserialize(Object, byte[], int, int)} when the value has to be rebuilt.
+     * </p>
+     *
+     * @param value the value being stored.
+     * @return the metadata object (can be null).
+     */
+    public Object extractMetadata(final V value);
+
+    /**
+     * <p>
+     *   Serialize the value into a byte array.
+     * </p>
+     *
+     * @param value the value being stored.
+     * @return the serialized form of the value.
+     */
+    public byte[] serialize(final V value);
+
+    /**
+     * <p>
+     *   Rebuild a value from its metadata and its serialized form.
+     * </p>
+     *
+     * @param metadata the metadata returned by {@link #extractMetadata(Object)} when the value was stored.
+     * @param data the buffer containing the serialized form of the value.
+     * @param offset the offset of the serialized value in <tt>data</tt>.
+     * @param len the length of the serialized value.
+     * @return the rebuilt value.
+     */
+    public V deserialize(final Object metadata, final byte[] data, final int offset, final int len);
+
+}
@@ -20,10 +20,10 @@
 package org.thymeleaf.cache;
 
 import java.util.List;
-import java.util.Properties;
 
 import org.thymeleaf.engine.ParsedFragmentMarkup;
 import org.thymeleaf.engine.ParsedTemplateMarkup;
+import org.thymeleaf.message.resolver.MessageBundle;
 
 
 /**
@@ -115,12 +115,12 @@ public interface ICacheManager {
      *   This cache uses as keys the template names (as specified at
      *   {@link org.thymeleaf.TemplateEngine#process(String, org.thymeleaf.context.IContext)})
      *   along with the locale the messages refer to (like "main_gl_ES"), and
-     *   as values the <tt>Properties</tt> object containing the messages.
+     *   as values the {@link MessageBundle} object containing the messages.
      * </p>
      * 
      * @return the message cache
      */
-    public ICache<String,Properties> getMessageCache();
+    public ICache<String,MessageBundle> getMessageCache();
     
     
     /**
@@ -137,14 +137,15 @@ public interface ICacheManager {
      *   that represents the expression, and this is what this cache usually stores.
      * </p>
      * <p>
-     *   Keys are the expressions themselves (their String representation), along with
-     *   a prefix that is normally used for identifying the nature of the object being
-     *   cached (for example <tt>"{OGNL}person.name"</tt>).
+     *   Keys are {@link ExpressionCacheKey} objects, formed by the expressions themselves
+     *   (their String representation) along with a type that is normally used for
+     *   identifying the nature of the object being cached (for example
+     *   <tt>{ognl}person.name</tt>).
      * </p>
      * 
      * @return the cache of expression artifacts
      */
-    public ICache<String,Object> getExpressionCache();
+    public ICache<ExpressionCacheKey,Object> getExpressionCache();
 
     
     /**
@@ -0,0 +1,330 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Monitors heap memory usage and sheds entries from registered {@link StandardCache} objects when
+ *   memory runs low, as a replacement for soft references.
+ * </p>
+ * <p>
+ *   Usage is monitored by setting <em>collection usage thresholds</em> on the tenured heap memory pools
+ *   (see {@link MemoryPoolMXBean#setCollectionUsageThreshold(long)}) and listening for the notifications
+ *   the JVM sends each time a garbage collection finishes with a pool still above its threshold. On each of
+ *   these notifications only a fraction of the entries of each cache is removed (oldest first), so that
+ *   caches shrink gradually for as long as memory pressure persists, instead of being completely wiped
+ *   out by the garbage collector as happens with soft references.
+ * </p>
+ * <p>
+ *   The JVM-wide listener and the modified thresholds only exist while there are registered caches: once
+ *   the last cache is deregistered (or garbage collected), the listener is removed and the thresholds are
+ *   restored to their previous values. Caches are referenced weakly, and the monitor itself is only
+ *   referenced strongly by the cache managers using it (the listener registered at the JVM references it
+ *   weakly), so that neither caches nor the monitor are kept alive once their cache managers are discarded.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class MemoryPressureEvictionMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryPressureEvictionMonitor.class);
+
+    // All cache managers share the same monitor for as long as any of them is using it
+    private static WeakReference<MemoryPressureEvictionMonitor> currentMonitor = null;
+
+    private final List<Registration> registrations;
+    private MemoryListener listener;
+
+
+
+
+    static synchronized MemoryPressureEvictionMonitor getInstance() {
+        MemoryPressureEvictionMonitor monitor = (currentMonitor == null? null : currentMonitor.get());
+        if (monitor == null) {
+            monitor = new MemoryPressureEvictionMonitor();
+            currentMonitor = new WeakReference<MemoryPressureEvictionMonitor>(monitor);
+        }
+        return monitor;
+    }
+
+
+
+
+    private MemoryPressureEvictionMonitor() {
+        super();
+        this.registrations = new CopyOnWriteArrayList<Registration>();
+        this.listener = null;
+    }
+
+
+
+
+    synchronized void register(final StandardCache<?,?> cache, final float usageThreshold, final float shedRatio) {
+
+        Validate.notNull(cache, "Cache cannot be null");
+        Validate.isTrue(usageThreshold > 0.0f && usageThreshold < 1.0f, "Usage threshold must be > 0.0 and < 1.0");
+        Validate.isTrue(shedRatio > 0.0f && shedRatio <= 1.0f, "Shed ratio must be > 0.0 and <= 1.0");
+
+        if (this.listener == null) {
+            this.listener = new MemoryListener(this);
+            this.listener.attach();
+        }
+        this.listener.lowerThresholds(usageThreshold);
+
+        this.registrations.add(new Registration(cache, shedRatio));
+        pruneRegistrations();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(
+                    "[THYMELEAF][CACHE_INITIALIZE] Memory pressure eviction enabled for cache {}. Usage threshold: {}. Shed ratio: {}.",
+                    new Object[] {cache.getName(), Float.valueOf(usageThreshold), Float.valueOf(shedRatio)});
+        }
+
+    }
+
+
+
+
+    synchronized void deregister(final StandardCache<?,?> cache) {
+
+        for (final Registration registration : this.registrations) {
+            if (registration.cacheReference.get() == cache) {
+                this.registrations.remove(registration);
+            }
+        }
+        pruneRegistrations();
+
+        if (logger.isDebugEnabled()) {
+            logger.debug(
+                    "[THYMELEAF][CACHE_INITIALIZE] Memory pressure eviction disabled for cache {}.", cache.getName());
+        }
+
+    }
+
+
+
+
+    /*
+     * Removes the registrations of caches that have been garbage collected and, if no registrations are
+     * left, stops listening for memory notifications. Must be called with the monitor's lock held.
+     */
+    private void pruneRegistrations() {
+
+        for (final Registration registration : this.registrations) {
+            if (registration.cacheReference.get() == null) {
+                this.registrations.remove(registration);
+            }
+        }
+
+        if (this.registrations.isEmpty() && this.listener != null) {
+            this.listener.detach();
+            this.listener = null;
+        }
+
+    }
+
+
+
+
+    private void shed(final MemoryNotificationInfo info) {
+
+        final MemoryUsage usage = info.getUsage();
+
+        boolean collectedCaches = false;
+        for (final Registration registration : this.registrations) {
+
+            final StandardCache<?,?> cache = registration.cacheReference.get();
+            if (cache == null) {
+                // The cache has been garbage collected, so there is nothing to monitor any more
+                collectedCaches = true;
+                continue;
+            }
+
+            final int size = cache.size();
+            if (size == 0) {
+                continue;
+            }
+
+            final int toBeShed = Math.max(1, (int) (size * registration.shedRatio));
+            final int shedCount = cache.shed(toBeShed);
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(
+                        "[THYMELEAF][CACHE_SHED] Memory pool \"{}\" above threshold after collection ({} of {} bytes used, " +
+                        "exceeded {} times). Shed {} entries from cache \"{}\" ({} shed events, {} entries shed in total).",
+                        new Object[] {
+                                info.getPoolName(), Long.valueOf(usage.getUsed()), Long.valueOf(usage.getMax()),
+                                Long.valueOf(info.getCount()), Integer.valueOf(shedCount), cache.getName(),
+                                Long.valueOf(cache.getShedEventCount()), Long.valueOf(cache.getShedEntryCount())});
+            }
+
+        }
+
+        if (collectedCaches) {
+            synchronized (this) {
+                pruneRegistrations();
+            }
+        }
+
+    }
+
+
+
+
+    /*
+     * Listener registered at the JVM's MemoryMXBean. It references the monitor only weakly, and removes itself
+     * (restoring thresholds) if it finds the monitor has been garbage collected without deregistering its caches.
+     */
+    private static final class MemoryListener implements NotificationListener {
+
+        private final WeakReference<MemoryPressureEvictionMonitor> monitorReference;
+        // Thresholds of the modified pools before and after being modified, by pool name
+        private final Map<String,Long> previousThresholds;
+        private final Map<String,Long> appliedThresholds;
+
+        MemoryListener(final MemoryPressureEvictionMonitor monitor) {
+            super();
+            this.monitorReference = new WeakReference<MemoryPressureEvictionMonitor>(monitor);
+            this.previousThresholds = new HashMap<String, Long>(4);
+            this.appliedThresholds = new HashMap<String, Long>(4);
+        }
+
+
+        void attach() {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+        }
+
+
+        synchronized void lowerThresholds(final float usageThreshold) {
+
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+                // Tenured pools are the only heap pools supporting usage thresholds. Young generation pools are
+                // excluded because their post-collection usage says nothing about the amount of live data.
+                if (pool.getType() != MemoryType.HEAP ||
+                        !pool.isUsageThresholdSupported() || !pool.isCollectionUsageThresholdSupported()) {
+                    continue;
+                }
+
+                final long max = pool.getUsage().getMax();
+                if (max <= 0L) {
+                    // Undefined maximum: no way to compute a threshold
+                    continue;
+                }
+
+                final long threshold = (long) (max * usageThreshold);
+                final long currentThreshold = pool.getCollectionUsageThreshold();
+                if (currentThreshold == 0L || currentThreshold > threshold) {
+                    if (!this.previousThresholds.containsKey(pool.getName())) {
+                        this.previousThresholds.put(pool.getName(), Long.valueOf(currentThreshold));
+                    }
+                    pool.setCollectionUsageThreshold(threshold);
+                    this.appliedThresholds.put(pool.getName(), Long.valueOf(threshold));
+                }
+
+            }
+
+        }
+
+
+        synchronized void detach() {
+
+            try {
+                ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+            } catch (final ListenerNotFoundException ignored) {
+                // Already removed: nothing to do
+            }
+
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                final Long previousThreshold = this.previousThresholds.get(pool.getName());
+                final Long appliedThreshold = this.appliedThresholds.get(pool.getName());
+                // Thresholds changed by someone else since they were set here are left untouched
+                if (previousThreshold != null &&
+                        pool.getCollectionUsageThreshold() == appliedThreshold.longValue()) {
+                    pool.setCollectionUsageThreshold(previousThreshold.longValue());
+                }
+            }
+            this.previousThresholds.clear();
+            this.appliedThresholds.clear();
+
+        }
+
+
+        public void handleNotification(final Notification notification, final Object handback) {
+
+            if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                return;
+            }
+
+            final MemoryPressureEvictionMonitor monitor = this.monitorReference.get();
+            if (monitor == null) {
+                // All the cache managers using the monitor have been discarded without deregistering their caches
+                detach();
+                return;
+            }
+
+            monitor.shed(MemoryNotificationInfo.from((CompositeData) notification.getUserData()));
+
+        }
+
+    }
+
+
+
+
+    private static final class Registration {
+
+        final WeakReference<StandardCache<?,?>> cacheReference;
+        final float shedRatio;
+
+        Registration(final StandardCache<?,?> cache, final float shedRatio) {
+            super();
+            this.cacheReference = new WeakReference<StandardCache<?,?>>(cache);
+            this.shedRatio = shedRatio;
+        }
+
+    }
+
+
+}
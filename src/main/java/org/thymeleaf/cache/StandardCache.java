@@ -21,6 +21,7 @@
 
 import java.lang.ref.SoftReference;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -62,6 +63,8 @@
     private final AtomicLong putCount;
     private final AtomicLong hitCount;
     private final AtomicLong missCount;
+    private final AtomicLong shedEventCount;
+    private final AtomicLong shedEntryCount;
     
     
 
@@ -111,6 +114,8 @@ public StandardCache(final String name, final boolean useSoftReferences,
         this.putCount = new AtomicLong(0);
         this.hitCount = new AtomicLong(0);
         this.missCount = new AtomicLong(0);
+        this.shedEventCount = new AtomicLong(0);
+        this.shedEntryCount = new AtomicLong(0);
 
         if (this.logger != null) {
             if (this.maxSize < 0) {
@@ -249,6 +254,44 @@ public void clearKey(final K key) {
     
     
     
+    /**
+     * <p>
+     *   Removes up to <tt>maxEntries</tt> entries from this cache, in eviction order (i.e. oldest
+     *   entries first for size-limited caches, unspecified order for caches with no size limit).
+     * </p>
+     * <p>
+     *   This is meant to be used for explicitly shedding entries when memory is low, as an alternative
+     *   to soft references (see {@link StandardCacheManager#setMemoryPressureEvictionEnabled(boolean)}).
+     * </p>
+     *
+     * @param maxEntries the maximum number of entries to be removed.
+     * @return the number of entries actually removed.
+     * @since 3.0.0
+     */
+    public int shed(final int maxEntries) {
+
+        if (maxEntries <= 0) {
+            return 0;
+        }
+
+        final int shedCount = this.dataContainer.shed(maxEntries);
+
+        this.shedEventCount.incrementAndGet();
+        this.shedEntryCount.addAndGet(shedCount);
+
+        if (this.traceExecution) {
+            final Integer newSize = Integer.valueOf(this.dataContainer.size());
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_SHED][{}] Shed {} entries from cache \"{}\". New size is {}.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, newSize, Integer.valueOf(shedCount), this.name, newSize});
+        }
+
+        return shedCount;
+
+    }
+    
+    
+    
     // -----
 
     
@@ -273,6 +316,14 @@ public int size() {
         return this.dataContainer.size();
     }
 
+    public long getShedEventCount() {
+        return this.shedEventCount.get();
+    }
+
+    public long getShedEntryCount() {
+        return this.shedEntryCount.get();
+    }
+
     
     
     // -----
@@ -457,6 +508,40 @@ private synchronized int removeWithTracing(final K key) {
         }
 
 
+        public synchronized int shed(final int maxEntries) {
+
+            int shedCount = 0;
+
+            if (this.sizeLimit) {
+                synchronized (this.fifo) {
+                    // The oldest entry is always the one at the FIFO pointer (the next to be replaced)
+                    int i = this.fifoPointer;
+                    for (int n = 0; n < this.maxSize && shedCount < maxEntries; n++) {
+                        final Object key = this.fifo[i];
+                        if (key != null) {
+                            this.fifo[i] = null;
+                            if (this.container.remove(key) != null) {
+                                shedCount++;
+                            }
+                        }
+                        i = (i + 1) % this.maxSize;
+                    }
+                }
+                return shedCount;
+            }
+
+            // No size limit means no FIFO, so there is no specific eviction order to be followed
+            final Iterator<K> keyIterator = this.container.keySet().iterator();
+            while (shedCount < maxEntries && keyIterator.hasNext()) {
+                keyIterator.next();
+                keyIterator.remove();
+                shedCount++;
+            }
+            return shedCount;
+
+        }
+
+
         public void clear() {
             this.container.clear();
         }
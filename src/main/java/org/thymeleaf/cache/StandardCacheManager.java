@@ -19,13 +19,18 @@
  */
 package org.thymeleaf.cache;
 
-import java.util.Properties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.engine.ParsedFragmentMarkup;
 import org.thymeleaf.engine.ParsedTemplateMarkup;
+import org.thymeleaf.message.resolver.MessageBundle;
 
 
 /**
@@ -61,6 +66,30 @@
  *       which will be applied on each entry upon retrieval from cache in order to ensure
  *       it is still valid and can be used.
  * </ul>
+ * <p>
+ *   Besides the default caches, this cache manager also offers a set of <i>specific caches</i> (see
+ *   {@link #getSpecificCache(String)}) used internally by the Template Engine, which can be configured by
+ *   their initial and maximum size (<tt>0</tt> disabling them) and are cleared by {@link #clearAllCaches()} along
+ *   with the rest:
+ * </p>
+ * <ul>
+ *   <li>{@link #TEMPLATE_RESOLUTION_CACHE_NAME}: outcomes of asking each template resolver for a template.</li>
+ *   <li>{@link #LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME}: versions of cached templates specialized for each locale
+ *       (only used if locale specialization is enabled at the Template Engine). Uses soft references as
+ *       configured for the template cache.</li>
+ *   <li>{@link #FRAGMENT_INDEX_CACHE_NAME}: indexes of the fragments contained in templates, used for answering
+ *       simple fragment selections without parsing the template again. Uses soft references as configured for
+ *       the fragment cache.</li>
+ * </ul>
+ * <p>
+ *   Additionally, <i>memory pressure eviction</i> can be enabled for all caches. In this mode,
+ *   soft references are never used (regardless of the configuration of each cache) and, instead,
+ *   cache entries are explicitly and gradually shed (oldest first) whenever a garbage collection
+ *   finishes with the tenured heap above a configurable <i>usage threshold</i>. This avoids
+ *   the garbage collector clearing all soft-referenced entries at once when the JVM is already
+ *   under pressure. See {@link #setMemoryPressureEvictionEnabled(boolean)}. Cache managers using memory
+ *   pressure eviction should be shut down (see {@link #shutdown()}) when discarded.
+ * </p>
  *
  * @author Daniel Fern&aacute;ndez
  *
@@ -162,7 +191,7 @@ public class StandardCacheManager extends AbstractCacheManager {
     /**
      * Default message cache validity checker: null
      */
-    public static final ICacheEntryValidityChecker<String,Properties> DEFAULT_MESSAGE_CACHE_VALIDITY_CHECKER = null;
+    public static final ICacheEntryValidityChecker<String,MessageBundle> DEFAULT_MESSAGE_CACHE_VALIDITY_CHECKER = null;
 
     
     /**
@@ -193,7 +222,81 @@ public class StandardCacheManager extends AbstractCacheManager {
     /**
      * Default expression cache validity checker: null
      */
-    public static final ICacheEntryValidityChecker<String,Object> DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER = null;
+    public static final ICacheEntryValidityChecker<ExpressionCacheKey,Object> DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER = null;
+
+
+
+    /**
+     * Name of the template resolution cache (a specific cache): "TEMPLATE_RESOLUTION_CACHE"
+     * @since 3.0.0
+     */
+    public static final String TEMPLATE_RESOLUTION_CACHE_NAME = "TEMPLATE_RESOLUTION_CACHE";
+
+    /**
+     * Default template resolution cache initial size: 20
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_TEMPLATE_RESOLUTION_CACHE_INITIAL_SIZE = 20;
+
+    /**
+     * Default template resolution cache maximum size: 500
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_TEMPLATE_RESOLUTION_CACHE_MAX_SIZE = 500;
+
+    /**
+     * Name of the locale-specialized template cache (a specific cache): "LOCALE_SPECIALIZED_TEMPLATE_CACHE"
+     * @since 3.0.0
+     */
+    public static final String LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME = "LOCALE_SPECIALIZED_TEMPLATE_CACHE";
+
+    /**
+     * Default locale-specialized template cache initial size: 20
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_LOCALE_SPECIALIZED_TEMPLATE_CACHE_INITIAL_SIZE = 20;
+
+    /**
+     * Default locale-specialized template cache maximum size (in templates, each of them specialized for
+     * any number of locales): 50
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_LOCALE_SPECIALIZED_TEMPLATE_CACHE_MAX_SIZE = 50;
+
+    /**
+     * Name of the fragment index cache (a specific cache): "FRAGMENT_INDEX_CACHE"
+     * @since 3.0.0
+     */
+    public static final String FRAGMENT_INDEX_CACHE_NAME = "FRAGMENT_INDEX_CACHE";
+
+    /**
+     * Default fragment index cache initial size: 20
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_FRAGMENT_INDEX_CACHE_INITIAL_SIZE = 20;
+
+    /**
+     * Default fragment index cache maximum size: 100
+     * @since 3.0.0
+     */
+    public static final int DEFAULT_FRAGMENT_INDEX_CACHE_MAX_SIZE = 100;
+
+
+
+    /**
+     * Default "memory pressure eviction" flag: false (soft references are used as configured for each cache)
+     */
+    public static final boolean DEFAULT_MEMORY_PRESSURE_EVICTION_ENABLED = false;
+
+    /**
+     * Default memory pressure eviction usage threshold: 0.85 (85% of the maximum size of the tenured heap)
+     */
+    public static final float DEFAULT_MEMORY_PRESSURE_EVICTION_USAGE_THRESHOLD = 0.85f;
+
+    /**
+     * Default memory pressure eviction shed ratio: 0.25 (25% of the entries of each cache are shed on each event)
+     */
+    public static final float DEFAULT_MEMORY_PRESSURE_EVICTION_SHED_RATIO = 0.25f;
 
     
     
@@ -217,14 +320,34 @@ public class StandardCacheManager extends AbstractCacheManager {
     private int messageCacheMaxSize = DEFAULT_MESSAGE_CACHE_MAX_SIZE;
     private boolean messageCacheUseSoftReferences = DEFAULT_MESSAGE_CACHE_USE_SOFT_REFERENCES;
     private String messageCacheLoggerName = DEFAULT_MESSAGE_CACHE_LOGGER_NAME;
-    private ICacheEntryValidityChecker<String,Properties> messageCacheValidityChecker = DEFAULT_MESSAGE_CACHE_VALIDITY_CHECKER;
+    private ICacheEntryValidityChecker<String,MessageBundle> messageCacheValidityChecker = DEFAULT_MESSAGE_CACHE_VALIDITY_CHECKER;
     
     private String expressionCacheName = DEFAULT_EXPRESSION_CACHE_NAME;
     private int expressionCacheInitialSize = DEFAULT_EXPRESSION_CACHE_INITIAL_SIZE;
     private int expressionCacheMaxSize = DEFAULT_EXPRESSION_CACHE_MAX_SIZE;
     private boolean expressionCacheUseSoftReferences = DEFAULT_EXPRESSION_CACHE_USE_SOFT_REFERENCES;
     private String expressionCacheLoggerName = DEFAULT_EXPRESSION_CACHE_LOGGER_NAME;
-    private ICacheEntryValidityChecker<String,Object> expressionCacheValidityChecker = DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER;
+    private ICacheEntryValidityChecker<ExpressionCacheKey,Object> expressionCacheValidityChecker = DEFAULT_EXPRESSION_CACHE_VALIDITY_CHECKER;
+
+    private int templateResolutionCacheInitialSize = DEFAULT_TEMPLATE_RESOLUTION_CACHE_INITIAL_SIZE;
+    private int templateResolutionCacheMaxSize = DEFAULT_TEMPLATE_RESOLUTION_CACHE_MAX_SIZE;
+
+    private int localeSpecializedTemplateCacheInitialSize = DEFAULT_LOCALE_SPECIALIZED_TEMPLATE_CACHE_INITIAL_SIZE;
+    private int localeSpecializedTemplateCacheMaxSize = DEFAULT_LOCALE_SPECIALIZED_TEMPLATE_CACHE_MAX_SIZE;
+
+    private int fragmentIndexCacheInitialSize = DEFAULT_FRAGMENT_INDEX_CACHE_INITIAL_SIZE;
+    private int fragmentIndexCacheMaxSize = DEFAULT_FRAGMENT_INDEX_CACHE_MAX_SIZE;
+
+    // Specific caches are initialized on first request (null values meaning disabled caches)
+    private final Map<String,ICache<?,?>> specificCaches = new HashMap<String, ICache<?,?>>(4);
+
+    private boolean memoryPressureEvictionEnabled = DEFAULT_MEMORY_PRESSURE_EVICTION_ENABLED;
+    private float memoryPressureEvictionUsageThreshold = DEFAULT_MEMORY_PRESSURE_EVICTION_USAGE_THRESHOLD;
+    private float memoryPressureEvictionShedRatio = DEFAULT_MEMORY_PRESSURE_EVICTION_SHED_RATIO;
+
+    // Caches registered for memory pressure eviction, so that they can be deregistered at shutdown()
+    private final List<StandardCache<?,?>> memoryPressureEvictionCaches = new ArrayList<StandardCache<?,?>>(4);
+    private MemoryPressureEvictionMonitor memoryPressureEvictionMonitor = null;
     
     
     
@@ -240,10 +363,20 @@ protected final ICache<String, ParsedTemplateMarkup> initializeTemplateCache() {
         if (maxSize == 0) {
             return null;
         }
-        return new StandardCache<String, ParsedTemplateMarkup>(
-                getTemplateCacheName(), getTemplateCacheUseSoftReferences(), 
+        return createTemplateCache(maxSize);
+    }
+
+    /*
+     * Creates the (enabled) template cache. Package-private so that cache managers in this package can use
+     * a different cache implementation for it (see TwoTierCacheManager).
+     */
+    ICache<String, ParsedTemplateMarkup> createTemplateCache(final int maxSize) {
+        final StandardCache<String, ParsedTemplateMarkup> cache = new StandardCache<String, ParsedTemplateMarkup>(
+                getTemplateCacheName(), computeUseSoftReferences(getTemplateCacheUseSoftReferences()),
                 getTemplateCacheInitialSize(), maxSize, 
                 getTemplateCacheValidityChecker(), getTemplateCacheLogger());
+        registerForMemoryPressureEviction(cache);
+        return cache;
     }
     
     @Override
@@ -252,36 +385,181 @@ protected final ICache<String, ParsedFragmentMarkup> initializeFragmentCache() {
         if (maxSize == 0) {
             return null;
         }
-        return new StandardCache<String, ParsedFragmentMarkup>(
-                getFragmentCacheName(), getFragmentCacheUseSoftReferences(), 
+        return createFragmentCache(maxSize);
+    }
+
+    /*
+     * Creates the (enabled) fragment cache. Package-private so that cache managers in this package can use
+     * a different cache implementation for it (see TwoTierCacheManager).
+     */
+    ICache<String, ParsedFragmentMarkup> createFragmentCache(final int maxSize) {
+        final StandardCache<String, ParsedFragmentMarkup> cache = new StandardCache<String, ParsedFragmentMarkup>(
+                getFragmentCacheName(), computeUseSoftReferences(getFragmentCacheUseSoftReferences()),
                 getFragmentCacheInitialSize(), maxSize, 
                 getFragmentCacheValidityChecker(), getFragmentCacheLogger());
+        registerForMemoryPressureEviction(cache);
+        return cache;
     }
 
     
     @Override
-    protected final ICache<String, Properties> initializeMessageCache() {
+    protected final ICache<String, MessageBundle> initializeMessageCache() {
         final int maxSize = getMessageCacheMaxSize();
         if (maxSize == 0) {
             return null;
         }
-        return new StandardCache<String, Properties>(
-                getMessageCacheName(), getMessageCacheUseSoftReferences(), 
+        final StandardCache<String, MessageBundle> cache = new StandardCache<String, MessageBundle>(
+                getMessageCacheName(), computeUseSoftReferences(getMessageCacheUseSoftReferences()),
                 getMessageCacheInitialSize(), maxSize, 
                 getMessageCacheValidityChecker(), getMessageCacheLogger());
+        registerForMemoryPressureEviction(cache);
+        return cache;
     }
 
     
     @Override
-    protected final ICache<String, Object> initializeExpressionCache() {
+    protected final ICache<ExpressionCacheKey, Object> initializeExpressionCache() {
         final int maxSize = getExpressionCacheMaxSize();
         if (maxSize == 0) {
             return null;
         }
-        return new StandardCache<String, Object>(
-                getExpressionCacheName(), getExpressionCacheUseSoftReferences(), 
+        final StandardCache<ExpressionCacheKey, Object> cache = new StandardCache<ExpressionCacheKey, Object>(
+                getExpressionCacheName(), computeUseSoftReferences(getExpressionCacheUseSoftReferences()),
                 getExpressionCacheInitialSize(), maxSize, 
                 getExpressionCacheValidityChecker(), getExpressionCacheLogger());
+        registerForMemoryPressureEviction(cache);
+        return cache;
+    }
+    
+    
+    
+    
+    /**
+     * <p>
+     *   Returns the specific caches offered by this cache manager (see {@link #getAllSpecificCacheNames()}),
+     *   which will be <tt>null</tt> if they have been disabled by setting their maximum size to <tt>0</tt>.
+     * </p>
+     *
+     * @param name the name of the specific cache.
+     * @return the cache, or null if there is no such cache (or it is disabled).
+     * @since 3.0.0
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> ICache<K, V> getSpecificCache(final String name) {
+        // Specific caches are typed by the engine when used, as they contain objects of engine-internal classes
+        if (!TEMPLATE_RESOLUTION_CACHE_NAME.equals(name) && !LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME.equals(name) &&
+                !FRAGMENT_INDEX_CACHE_NAME.equals(name)) {
+            return super.getSpecificCache(name);
+        }
+        // Specific caches are only obtained once per Template Engine (and on clearing), so synchronizing is fine
+        synchronized(this.specificCaches) {
+            if (!this.specificCaches.containsKey(name)) {
+                this.specificCaches.put(name, initializeSpecificCache(name));
+            }
+            return (ICache<K, V>) this.specificCaches.get(name);
+        }
+    }
+
+
+    @Override
+    public List<String> getAllSpecificCacheNames() {
+        final List<String> specificCacheNames = new ArrayList<String>(super.getAllSpecificCacheNames());
+        specificCacheNames.add(TEMPLATE_RESOLUTION_CACHE_NAME);
+        specificCacheNames.add(LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME);
+        specificCacheNames.add(FRAGMENT_INDEX_CACHE_NAME);
+        return specificCacheNames;
+    }
+
+
+    private StandardCache<Object,Object> initializeSpecificCache(final String name) {
+        final int initialSize;
+        final int maxSize;
+        final boolean useSoftReferences;
+        if (TEMPLATE_RESOLUTION_CACHE_NAME.equals(name)) {
+            initialSize = getTemplateResolutionCacheInitialSize();
+            maxSize = getTemplateResolutionCacheMaxSize();
+            useSoftReferences = false; // entries are small
+        } else if (LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME.equals(name)) {
+            initialSize = getLocaleSpecializedTemplateCacheInitialSize();
+            maxSize = getLocaleSpecializedTemplateCacheMaxSize();
+            useSoftReferences = getTemplateCacheUseSoftReferences();
+        } else { // FRAGMENT_INDEX_CACHE_NAME
+            initialSize = getFragmentIndexCacheInitialSize();
+            maxSize = getFragmentIndexCacheMaxSize();
+            useSoftReferences = getFragmentCacheUseSoftReferences();
+        }
+        if (maxSize == 0) {
+            return null;
+        }
+        final StandardCache<Object, Object> cache = new StandardCache<Object, Object>(
+                name, computeUseSoftReferences(useSoftReferences), initialSize, maxSize,
+                LoggerFactory.getLogger(TemplateEngine.class.getName() + ".cache." + name));
+        registerForMemoryPressureEviction(cache);
+        return cache;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Computes whether a cache should use soft references, which will never be the case if
+     *   memory pressure eviction is enabled.
+     * </p>
+     *
+     * @param useSoftReferences whether the cache is configured to use soft references.
+     * @return whether the cache should actually use soft references.
+     * @since 3.0.0
+     */
+    protected final boolean computeUseSoftReferences(final boolean useSoftReferences) {
+        return useSoftReferences && !getMemoryPressureEvictionEnabled();
+    }
+
+
+    /**
+     * <p>
+     *   Registers a cache for being shed when memory runs low, if memory pressure eviction is enabled.
+     * </p>
+     *
+     * @param cache the cache to be registered.
+     * @since 3.0.0
+     */
+    protected final void registerForMemoryPressureEviction(final StandardCache<?,?> cache) {
+        if (getMemoryPressureEvictionEnabled()) {
+            synchronized (this.memoryPressureEvictionCaches) {
+                if (this.memoryPressureEvictionMonitor == null) {
+                    this.memoryPressureEvictionMonitor = MemoryPressureEvictionMonitor.getInstance();
+                }
+                this.memoryPressureEvictionMonitor.register(
+                        cache, getMemoryPressureEvictionUsageThreshold(), getMemoryPressureEvictionShedRatio());
+                this.memoryPressureEvictionCaches.add(cache);
+            }
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Deregisters all the caches created by this cache manager from memory pressure eviction. Once no
+     *   caches are registered (by any cache manager), the JVM-wide memory listener is removed and the
+     *   collection usage thresholds of the heap memory pools are restored to their previous values.
+     * </p>
+     * <p>
+     *   This should be called when the cache manager is discarded (e.g. when the application is undeployed).
+     *   Caches can still be used afterwards, but they will not be shed when memory runs low any more.
+     * </p>
+     *
+     * @since 3.0.0
+     */
+    public void shutdown() {
+        synchronized (this.memoryPressureEvictionCaches) {
+            for (final StandardCache<?,?> cache : this.memoryPressureEvictionCaches) {
+                this.memoryPressureEvictionMonitor.deregister(cache);
+            }
+            this.memoryPressureEvictionCaches.clear();
+            this.memoryPressureEvictionMonitor = null;
+        }
     }
     
     
@@ -377,7 +655,7 @@ public String getMessageCacheLoggerName() {
         return this.messageCacheLoggerName;
     }
     
-    public ICacheEntryValidityChecker<String,Properties> getMessageCacheValidityChecker() {
+    public ICacheEntryValidityChecker<String,MessageBundle> getMessageCacheValidityChecker() {
         return this.messageCacheValidityChecker;
     }
 
@@ -412,7 +690,7 @@ public String getExpressionCacheLoggerName() {
         return this.expressionCacheLoggerName;
     }
     
-    public ICacheEntryValidityChecker<String,Object> getExpressionCacheValidityChecker() {
+    public ICacheEntryValidityChecker<ExpressionCacheKey,Object> getExpressionCacheValidityChecker() {
         return this.expressionCacheValidityChecker;
     }
 
@@ -425,6 +703,44 @@ public final Logger getExpressionCacheLogger() {
     }
 
 
+    public int getTemplateResolutionCacheInitialSize() {
+        return this.templateResolutionCacheInitialSize;
+    }
+
+    public int getTemplateResolutionCacheMaxSize() {
+        return this.templateResolutionCacheMaxSize;
+    }
+
+    public int getLocaleSpecializedTemplateCacheInitialSize() {
+        return this.localeSpecializedTemplateCacheInitialSize;
+    }
+
+    public int getLocaleSpecializedTemplateCacheMaxSize() {
+        return this.localeSpecializedTemplateCacheMaxSize;
+    }
+
+    public int getFragmentIndexCacheInitialSize() {
+        return this.fragmentIndexCacheInitialSize;
+    }
+
+    public int getFragmentIndexCacheMaxSize() {
+        return this.fragmentIndexCacheMaxSize;
+    }
+
+
+    public boolean getMemoryPressureEvictionEnabled() {
+        return this.memoryPressureEvictionEnabled;
+    }
+
+    public float getMemoryPressureEvictionUsageThreshold() {
+        return this.memoryPressureEvictionUsageThreshold;
+    }
+
+    public float getMemoryPressureEvictionShedRatio() {
+        return this.memoryPressureEvictionShedRatio;
+    }
+
+
 
     
     
@@ -500,7 +816,7 @@ public void setMessageCacheLoggerName(final String messageCacheLoggerName) {
         this.messageCacheLoggerName = messageCacheLoggerName;
     }
     
-    public void setMessageCacheValidityChecker(final ICacheEntryValidityChecker<String, Properties> messageCacheValidityChecker) {
+    public void setMessageCacheValidityChecker(final ICacheEntryValidityChecker<String, MessageBundle> messageCacheValidityChecker) {
         this.messageCacheValidityChecker = messageCacheValidityChecker;
     }
 
@@ -526,10 +842,77 @@ public void setExpressionCacheLoggerName(final String expressionCacheLoggerName)
         this.expressionCacheLoggerName = expressionCacheLoggerName;
     }
 
-    public void setExpressionCacheValidityChecker(final ICacheEntryValidityChecker<String, Object> expressionCacheValidityChecker) {
+    public void setExpressionCacheValidityChecker(final ICacheEntryValidityChecker<ExpressionCacheKey, Object> expressionCacheValidityChecker) {
         this.expressionCacheValidityChecker = expressionCacheValidityChecker;
     }
 
+
+    
+    public void setTemplateResolutionCacheInitialSize(final int templateResolutionCacheInitialSize) {
+        this.templateResolutionCacheInitialSize = templateResolutionCacheInitialSize;
+    }
+
+    public void setTemplateResolutionCacheMaxSize(final int templateResolutionCacheMaxSize) {
+        this.templateResolutionCacheMaxSize = templateResolutionCacheMaxSize;
+    }
+
+    public void setLocaleSpecializedTemplateCacheInitialSize(final int localeSpecializedTemplateCacheInitialSize) {
+        this.localeSpecializedTemplateCacheInitialSize = localeSpecializedTemplateCacheInitialSize;
+    }
+
+    public void setLocaleSpecializedTemplateCacheMaxSize(final int localeSpecializedTemplateCacheMaxSize) {
+        this.localeSpecializedTemplateCacheMaxSize = localeSpecializedTemplateCacheMaxSize;
+    }
+
+    public void setFragmentIndexCacheInitialSize(final int fragmentIndexCacheInitialSize) {
+        this.fragmentIndexCacheInitialSize = fragmentIndexCacheInitialSize;
+    }
+
+    public void setFragmentIndexCacheMaxSize(final int fragmentIndexCacheMaxSize) {
+        this.fragmentIndexCacheMaxSize = fragmentIndexCacheMaxSize;
+    }
+
+
+    /**
+     * <p>
+     *   Sets whether <i>memory pressure eviction</i> should be used for all caches instead of
+     *   soft references. When enabled, the <tt>useSoftReferences</tt> configuration of each cache
+     *   is ignored.
+     * </p>
+     *
+     * @param memoryPressureEvictionEnabled whether memory pressure eviction should be enabled.
+     * @since 3.0.0
+     */
+    public void setMemoryPressureEvictionEnabled(final boolean memoryPressureEvictionEnabled) {
+        this.memoryPressureEvictionEnabled = memoryPressureEvictionEnabled;
+    }
+
+    /**
+     * <p>
+     *   Sets the ratio (0.0 to 1.0) of the maximum size of the tenured heap above which entries
+     *   will be shed from caches after each garbage collection.
+     * </p>
+     *
+     * @param memoryPressureEvictionUsageThreshold the usage threshold.
+     * @since 3.0.0
+     */
+    public void setMemoryPressureEvictionUsageThreshold(final float memoryPressureEvictionUsageThreshold) {
+        this.memoryPressureEvictionUsageThreshold = memoryPressureEvictionUsageThreshold;
+    }
+
+    /**
+     * <p>
+     *   Sets the ratio (0.0 to 1.0) of the entries of each cache that will be shed each time
+     *   memory usage is found to be above the threshold.
+     * </p>
+     *
+     * @param memoryPressureEvictionShedRatio the shed ratio.
+     * @since 3.0.0
+     */
+    public void setMemoryPressureEvictionShedRatio(final float memoryPressureEvictionShedRatio) {
+        this.memoryPressureEvictionShedRatio = memoryPressureEvictionShedRatio;
+    }
+
     
     
     
@@ -0,0 +1,603 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Two-tier implementation of {@link ICache}: a small on-heap <i>hot</i> tier (a {@link StandardCache})
+ *   backed by a larger <i>off-heap</i> tier that stores entries in serialized form inside direct
+ *   {@link ByteBuffer} slabs.
+ * </p>
+ * <p>
+ *   Every entry put into this cache is stored in both tiers. When an entry is not found at the hot tier
+ *   (because it was evicted or its soft reference was cleared), it is rebuilt from the off-heap tier by means
+ *   of the configured {@link ICacheEntrySerializer} and promoted back into the hot tier, without the need to
+ *   re-create it (e.g. re-parse a template) from scratch.
+ * </p>
+ * <p>
+ *   Eviction is size-based in both tiers: the hot tier is limited by number of entries (FIFO, as in
+ *   {@link StandardCache}), and the off-heap tier by number of bytes. The off-heap tier is written as a
+ *   circular log of fixed-size slabs, and when space is needed the oldest slab is recycled, evicting all
+ *   the entries it contained.
+ * </p>
+ * <p>
+ *   Each tier keeps its own statistics, available through the <tt>get*Count()</tt> methods and also
+ *   reported periodically in the cache logger when its <tt>TRACE</tt> level is enabled.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ * @param <K> The type of the cache keys
+ * @param <V> The type of the cache values
+ */
+public final class TwoTierCache<K, V> implements ICache<K,V> {
+
+
+    private static final long REPORT_INTERVAL = 300000L; // 5 minutes
+    private static final String REPORT_FORMAT =
+            "[THYMELEAF][*][*][*][CACHE_REPORT] HOT: %8s elements | %12s gets | %12s hits | %12s misses - " +
+            "OFF-HEAP: %8s elements | %12s bytes | %12s puts | %12s hits | %12s misses | %12s evictions | %12s rejected - [%s]";
+    private volatile long lastExecution = System.currentTimeMillis();
+
+    private final String name;
+    private final StandardCache<K,V> hotTier;
+    private final OffHeapDataContainer<K> offHeapDataContainer;
+    private final ICacheEntrySerializer<V> serializer;
+    private final ICacheEntryValidityChecker<? super K, ? super V> entryValidityChecker;
+
+    private final boolean traceExecution;
+    private final Logger logger;
+
+    private final AtomicLong hotGetCount;
+    private final AtomicLong hotHitCount;
+    private final AtomicLong hotMissCount;
+
+
+
+
+    public TwoTierCache(final String name, final boolean useSoftReferences,
+            final int initialCapacity, final int hotTierMaxSize,
+            final long offHeapMaxSizeBytes, final int offHeapSlabSizeBytes,
+            final ICacheEntrySerializer<V> serializer,
+            final ICacheEntryValidityChecker<? super K, ? super V> entryValidityChecker,
+            final Logger logger) {
+
+        super();
+
+        Validate.notEmpty(name, "Name cannot be null or empty");
+        Validate.isTrue(hotTierMaxSize != 0, "Hot tier max size must be either -1 (no limit) or > 0");
+        Validate.isTrue(offHeapSlabSizeBytes > 0, "Off-heap slab size must be > 0");
+        Validate.isTrue(offHeapMaxSizeBytes >= offHeapSlabSizeBytes, "Off-heap max size must be >= slab size");
+        Validate.notNull(serializer, "Serializer cannot be null");
+
+        this.name = name;
+        this.serializer = serializer;
+        this.entryValidityChecker = entryValidityChecker;
+
+        this.logger = logger;
+        this.traceExecution = (logger != null && logger.isTraceEnabled());
+
+        // The hot tier is not given the logger: its trace output would be mixed with (and confused with) ours
+        this.hotTier =
+                new StandardCache<K,V>(name, useSoftReferences, initialCapacity, hotTierMaxSize, entryValidityChecker, null);
+        this.offHeapDataContainer =
+                new OffHeapDataContainer<K>(
+                        this.name, offHeapMaxSizeBytes, offHeapSlabSizeBytes, this.traceExecution, this.logger);
+
+        this.hotGetCount = new AtomicLong(0);
+        this.hotHitCount = new AtomicLong(0);
+        this.hotMissCount = new AtomicLong(0);
+
+        if (this.logger != null) {
+            this.logger.debug(
+                    "[THYMELEAF][CACHE_INITIALIZE] Initializing two-tier cache {}. Hot tier max size: {}. Soft references {}. " +
+                    "Off-heap tier max size: {} bytes in slabs of {} bytes.",
+                    new Object[] {this.name, Integer.valueOf(hotTierMaxSize), (useSoftReferences? "are used" : "not used"),
+                                  Long.valueOf(this.offHeapDataContainer.getMaxSizeBytes()), Integer.valueOf(offHeapSlabSizeBytes)});
+        }
+
+    }
+
+
+
+
+    // -----
+
+
+
+    public void put(final K key, final V value) {
+
+        this.hotTier.put(key, value);
+
+        final byte[] data = this.serializer.serialize(value);
+        final Object metadata = this.serializer.extractMetadata(value);
+        this.offHeapDataContainer.put(key, metadata, data);
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][{}][CACHE_ADD] Adding cache entry in cache \"{}\" for key \"{}\" ({} bytes off-heap).",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key, Integer.valueOf(data.length)});
+            outputReportIfNeeded();
+        }
+
+    }
+
+
+
+    public V get(final K key) {
+        return get(key, this.entryValidityChecker);
+    }
+
+
+
+    public V get(final K key, final ICacheEntryValidityChecker<? super K, ? super V> validityChecker) {
+
+        this.hotGetCount.incrementAndGet();
+
+        final V hotValue = this.hotTier.get(key, validityChecker);
+        if (hotValue != null) {
+            this.hotHitCount.incrementAndGet();
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_HIT] Cache hit in cache \"{}\" (hot tier) for key \"{}\".",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+                outputReportIfNeeded();
+            }
+            return hotValue;
+        }
+        this.hotMissCount.incrementAndGet();
+
+        final OffHeapEntry offHeapEntry = this.offHeapDataContainer.get(key);
+        if (offHeapEntry == null) {
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_MISS] Cache miss in cache \"{}\" for key \"{}\".",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+                outputReportIfNeeded();
+            }
+            return null;
+        }
+
+        final V value =
+                this.serializer.deserialize(offHeapEntry.metadata, offHeapEntry.data, 0, offHeapEntry.data.length);
+
+        if (validityChecker != null &&
+                !validityChecker.checkIsValueStillValid(key, value, offHeapEntry.creationTimeInMillis)) {
+            this.offHeapDataContainer.remove(key);
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_REMOVE] Removing cache entry in cache \"{}\" (Entry \"{}\" is not valid anymore).",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+                outputReportIfNeeded();
+            }
+            return null;
+        }
+
+        // Promote the entry back into the hot tier
+        this.hotTier.put(key, value);
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][{}][CACHE_HIT] Cache hit in cache \"{}\" (off-heap tier) for key \"{}\". Entry promoted to hot tier.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+            outputReportIfNeeded();
+        }
+
+        return value;
+
+    }
+
+
+
+    public void clear() {
+
+        this.hotTier.clear();
+        this.offHeapDataContainer.clear();
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE][0] Removing ALL cache entries in cache \"{}\". New size is 0.",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name});
+        }
+
+    }
+
+
+
+    public void clearKey(final K key) {
+
+        this.hotTier.clearKey(key);
+        this.offHeapDataContainer.remove(key);
+
+        if (this.traceExecution) {
+            this.logger.trace(
+                    "[THYMELEAF][{}][*][{}][CACHE_REMOVE] Removed cache entry in cache \"{}\" for key \"{}\".",
+                    new Object[] {TemplateEngine.threadIndex(), this.name, this.name, key});
+        }
+
+    }
+
+
+
+    // -----
+
+
+
+    public String getName() {
+        return this.name;
+    }
+
+    StandardCache<K,V> getHotTier() {
+        return this.hotTier;
+    }
+
+    public int getHotTierMaxSize() {
+        return this.hotTier.getMaxSize();
+    }
+
+    public int getHotTierSize() {
+        return this.hotTier.size();
+    }
+
+    public long getHotTierGetCount() {
+        return this.hotGetCount.get();
+    }
+
+    public long getHotTierHitCount() {
+        return this.hotHitCount.get();
+    }
+
+    public long getHotTierMissCount() {
+        return this.hotMissCount.get();
+    }
+
+    public long getOffHeapMaxSizeBytes() {
+        return this.offHeapDataContainer.getMaxSizeBytes();
+    }
+
+    public long getOffHeapUsedBytes() {
+        return this.offHeapDataContainer.usedBytes.get();
+    }
+
+    public int getOffHeapSize() {
+        return this.offHeapDataContainer.size();
+    }
+
+    public long getOffHeapPutCount() {
+        return this.offHeapDataContainer.putCount.get();
+    }
+
+    public long getOffHeapHitCount() {
+        return this.offHeapDataContainer.hitCount.get();
+    }
+
+    public long getOffHeapMissCount() {
+        return this.offHeapDataContainer.missCount.get();
+    }
+
+    public long getOffHeapEvictionCount() {
+        return this.offHeapDataContainer.evictionCount.get();
+    }
+
+    public long getOffHeapRejectedCount() {
+        return this.offHeapDataContainer.rejectedCount.get();
+    }
+
+
+
+    // -----
+
+
+
+    private void outputReportIfNeeded() {
+
+        final long currentTime = System.currentTimeMillis();
+        if ((currentTime - this.lastExecution) >= REPORT_INTERVAL) { // first check without need to sync
+            synchronized (this) {
+                if ((currentTime - this.lastExecution) >= REPORT_INTERVAL) {
+                    this.logger.trace(
+                            String.format(REPORT_FORMAT,
+                                    Integer.valueOf(getHotTierSize()),
+                                    Long.valueOf(getHotTierGetCount()),
+                                    Long.valueOf(getHotTierHitCount()),
+                                    Long.valueOf(getHotTierMissCount()),
+                                    Integer.valueOf(getOffHeapSize()),
+                                    Long.valueOf(getOffHeapUsedBytes()),
+                                    Long.valueOf(getOffHeapPutCount()),
+                                    Long.valueOf(getOffHeapHitCount()),
+                                    Long.valueOf(getOffHeapMissCount()),
+                                    Long.valueOf(getOffHeapEvictionCount()),
+                                    Long.valueOf(getOffHeapRejectedCount()),
+                                    this.name));
+                    this.lastExecution = currentTime;
+                }
+            }
+        }
+
+    }
+
+
+
+
+    static final class OffHeapDataContainer<K> {
+
+        private final String name;
+        private final int slabSize;
+        private final int slabCount;
+        private final boolean traceExecution;
+        private final Logger logger;
+
+        private final ByteBuffer[] slabs;
+        private final List<List<Slot<K>>> slabSlots;
+        private int currentSlab;
+        private int currentSlabPos;
+
+        private final ConcurrentHashMap<K,Slot<K>> index;
+
+        // Readers copy data out of slabs holding the read lock. Slabs are only overwritten after being
+        // recycled, which requires the write lock (and removes all the slots pointing to them).
+        private final ReentrantReadWriteLock lock;
+
+        final AtomicLong usedBytes;
+        final AtomicLong putCount;
+        final AtomicLong hitCount;
+        final AtomicLong missCount;
+        final AtomicLong evictionCount;
+        final AtomicLong rejectedCount;
+
+
+        OffHeapDataContainer(final String name, final long maxSizeBytes, final int slabSize,
+                             final boolean traceExecution, final Logger logger) {
+
+            super();
+
+            this.name = name;
+            this.slabSize = slabSize;
+            this.slabCount = (int) Math.min(Integer.MAX_VALUE, maxSizeBytes / slabSize);
+            this.traceExecution = traceExecution;
+            this.logger = logger;
+
+            // Slabs will be allocated lazily, as they are needed
+            this.slabs = new ByteBuffer[this.slabCount];
+            this.slabSlots = new ArrayList<List<Slot<K>>>(this.slabCount);
+            for (int i = 0; i < this.slabCount; i++) {
+                this.slabSlots.add(new ArrayList<Slot<K>>());
+            }
+            this.currentSlab = 0;
+            this.currentSlabPos = 0;
+
+            this.index = new ConcurrentHashMap<K,Slot<K>>();
+            this.lock = new ReentrantReadWriteLock();
+
+            this.usedBytes = new AtomicLong(0);
+            this.putCount = new AtomicLong(0);
+            this.hitCount = new AtomicLong(0);
+            this.missCount = new AtomicLong(0);
+            this.evictionCount = new AtomicLong(0);
+            this.rejectedCount = new AtomicLong(0);
+
+        }
+
+
+        long getMaxSizeBytes() {
+            return (long) this.slabCount * (long) this.slabSize;
+        }
+
+
+        int size() {
+            return this.index.size();
+        }
+
+
+        OffHeapEntry get(final K key) {
+
+            this.lock.readLock().lock();
+            try {
+
+                final Slot<K> slot = this.index.get(key);
+                if (slot == null) {
+                    this.missCount.incrementAndGet();
+                    return null;
+                }
+
+                final byte[] data = new byte[slot.len];
+                final ByteBuffer view = this.slabs[slot.slab].duplicate();
+                view.position(slot.offset);
+                view.get(data);
+
+                this.hitCount.incrementAndGet();
+                return new OffHeapEntry(slot.metadata, data, slot.creationTimeInMillis);
+
+            } finally {
+                this.lock.readLock().unlock();
+            }
+
+        }
+
+
+        synchronized void put(final K key, final Object metadata, final byte[] data) {
+
+            final int len = data.length;
+
+            if (len > this.slabSize) {
+                // Entry will never fit in a slab. Make sure we don't keep an older version of it
+                remove(key);
+                this.rejectedCount.incrementAndGet();
+                if (this.traceExecution) {
+                    this.logger.trace(
+                            "[THYMELEAF][{}][{}][CACHE_REJECT] Entry for key \"{}\" in cache \"{}\" is too big for off-heap storage " +
+                            "({} bytes, slab size is {} bytes).",
+                            new Object[] {TemplateEngine.threadIndex(), this.name, key, this.name, Integer.valueOf(len), Integer.valueOf(this.slabSize)});
+                }
+                return;
+            }
+
+            if (this.currentSlabPos + len > this.slabSize) {
+                this.currentSlab = (this.currentSlab + 1) % this.slabCount;
+                this.currentSlabPos = 0;
+                recycleSlab(this.currentSlab);
+            }
+
+            ByteBuffer slab = this.slabs[this.currentSlab];
+            if (slab == null) {
+                slab = ByteBuffer.allocateDirect(this.slabSize);
+                this.slabs[this.currentSlab] = slab;
+            }
+
+            // No other thread can be reading this area: it is not referenced by any slot in the index yet
+            final ByteBuffer view = slab.duplicate();
+            view.position(this.currentSlabPos);
+            view.put(data);
+
+            final Slot<K> slot =
+                    new Slot<K>(key, metadata, this.currentSlab, this.currentSlabPos, len, System.currentTimeMillis());
+            this.currentSlabPos += len;
+            this.slabSlots.get(this.currentSlab).add(slot);
+
+            final Slot<K> previous = this.index.put(key, slot);
+            if (previous != null) {
+                this.usedBytes.addAndGet(-previous.len);
+            }
+            this.usedBytes.addAndGet(len);
+            this.putCount.incrementAndGet();
+
+        }
+
+
+        private void recycleSlab(final int slabIndex) {
+
+            final List<Slot<K>> slots = this.slabSlots.get(slabIndex);
+            if (slots.isEmpty()) {
+                return;
+            }
+
+            int evicted = 0;
+            this.lock.writeLock().lock();
+            try {
+                for (final Slot<K> slot : slots) {
+                    // Slots which key has been removed or replaced since will not be found
+                    if (this.index.remove(slot.key, slot)) {
+                        this.usedBytes.addAndGet(-slot.len);
+                        evicted++;
+                    }
+                }
+                slots.clear();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+
+            this.evictionCount.addAndGet(evicted);
+
+            if (this.traceExecution) {
+                this.logger.trace(
+                        "[THYMELEAF][{}][{}][CACHE_REMOVE][{}] Max off-heap size exceeded for cache \"{}\". Recycling slab {}, " +
+                        "{} entries evicted.",
+                        new Object[] {TemplateEngine.threadIndex(), this.name, Integer.valueOf(this.index.size()), this.name,
+                                      Integer.valueOf(slabIndex), Integer.valueOf(evicted)});
+            }
+
+        }
+
+
+        void remove(final K key) {
+            final Slot<K> removed = this.index.remove(key);
+            if (removed != null) {
+                // The slot will still be referenced from its slab until it is recycled, but it will be ignored then
+                this.usedBytes.addAndGet(-removed.len);
+            }
+        }
+
+
+        synchronized void clear() {
+            this.lock.writeLock().lock();
+            try {
+                this.index.clear();
+                for (int i = 0; i < this.slabCount; i++) {
+                    this.slabSlots.get(i).clear();
+                }
+                this.currentSlab = 0;
+                this.currentSlabPos = 0;
+                this.usedBytes.set(0);
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+
+    }
+
+
+
+
+    static final class Slot<K> {
+
+        final K key;
+        final Object metadata;
+        final int slab;
+        final int offset;
+        final int len;
+        final long creationTimeInMillis;
+
+        Slot(final K key, final Object metadata, final int slab, final int offset, final int len,
+             final long creationTimeInMillis) {
+            super();
+            this.key = key;
+            this.metadata = metadata;
+            this.slab = slab;
+            this.offset = offset;
+            this.len = len;
+            this.creationTimeInMillis = creationTimeInMillis;
+        }
+
+    }
+
+
+
+
+    static final class OffHeapEntry {
+
+        final Object metadata;
+        final byte[] data;
+        final long creationTimeInMillis;
+
+        OffHeapEntry(final Object metadata, final byte[] data, final long creationTimeInMillis) {
+            super();
+            this.metadata = metadata;
+            this.data = data;
+            this.creationTimeInMillis = creationTimeInMillis;
+        }
+
+    }
+
+
+}
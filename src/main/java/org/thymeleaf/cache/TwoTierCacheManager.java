@@ -0,0 +1,170 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.cache;
+
+import org.thymeleaf.engine.ParsedFragmentMarkup;
+import org.thymeleaf.engine.ParsedFragmentMarkupSerializer;
+import org.thymeleaf.engine.ParsedTemplateMarkup;
+import org.thymeleaf.engine.ParsedTemplateMarkupSerializer;
+
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheManager} that uses {@link TwoTierCache} instances for the <i>template</i>
+ *   and <i>fragment</i> caches: a small on-heap hot tier backed by a larger off-heap tier storing parsed
+ *   markup in serialized form. This allows keeping large numbers of parsed templates cached without
+ *   the need of a big Java heap.
+ * </p>
+ * <p>
+ *   All the configuration parameters of {@link StandardCacheManager} apply, with the <i>maximum size</i>
+ *   of the template and fragment caches being the maximum size of their hot tiers. Additionally, the
+ *   maximum size in bytes of their off-heap tiers and the size of the slabs these are allocated in can be
+ *   configured.
+ * </p>
+ * <p>
+ *   The <i>message</i> and <i>expression</i> caches are standard, on-heap caches.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public class TwoTierCacheManager extends StandardCacheManager {
+
+
+    /**
+     * Default template cache hot tier maximum size: 20
+     */
+    public static final int DEFAULT_TEMPLATE_CACHE_HOT_TIER_MAX_SIZE = 20;
+
+    /**
+     * Default template cache off-heap tier maximum size: 256 Mbytes
+     */
+    public static final long DEFAULT_TEMPLATE_CACHE_OFF_HEAP_MAX_SIZE_BYTES = 268435456L;
+
+    /**
+     * Default template cache off-heap tier slab size: 4 Mbytes
+     */
+    public static final int DEFAULT_TEMPLATE_CACHE_OFF_HEAP_SLAB_SIZE_BYTES = 4194304;
+
+
+    /**
+     * Default fragment cache hot tier maximum size: 100
+     */
+    public static final int DEFAULT_FRAGMENT_CACHE_HOT_TIER_MAX_SIZE = 100;
+
+    /**
+     * Default fragment cache off-heap tier maximum size: 64 Mbytes
+     */
+    public static final long DEFAULT_FRAGMENT_CACHE_OFF_HEAP_MAX_SIZE_BYTES = 67108864L;
+
+    /**
+     * Default fragment cache off-heap tier slab size: 1 Mbyte
+     */
+    public static final int DEFAULT_FRAGMENT_CACHE_OFF_HEAP_SLAB_SIZE_BYTES = 1048576;
+
+
+
+    private long templateCacheOffHeapMaxSizeBytes = DEFAULT_TEMPLATE_CACHE_OFF_HEAP_MAX_SIZE_BYTES;
+    private int templateCacheOffHeapSlabSizeBytes = DEFAULT_TEMPLATE_CACHE_OFF_HEAP_SLAB_SIZE_BYTES;
+
+    private long fragmentCacheOffHeapMaxSizeBytes = DEFAULT_FRAGMENT_CACHE_OFF_HEAP_MAX_SIZE_BYTES;
+    private int fragmentCacheOffHeapSlabSizeBytes = DEFAULT_FRAGMENT_CACHE_OFF_HEAP_SLAB_SIZE_BYTES;
+
+
+
+    public TwoTierCacheManager() {
+        super();
+        setTemplateCacheMaxSize(DEFAULT_TEMPLATE_CACHE_HOT_TIER_MAX_SIZE);
+        setFragmentCacheMaxSize(DEFAULT_FRAGMENT_CACHE_HOT_TIER_MAX_SIZE);
+    }
+
+
+
+    @Override
+    final ICache<String, ParsedTemplateMarkup> createTemplateCache(final int maxSize) {
+        final TwoTierCache<String, ParsedTemplateMarkup> cache = new TwoTierCache<String, ParsedTemplateMarkup>(
+                getTemplateCacheName(), computeUseSoftReferences(getTemplateCacheUseSoftReferences()),
+                getTemplateCacheInitialSize(), maxSize,
+                getTemplateCacheOffHeapMaxSizeBytes(), getTemplateCacheOffHeapSlabSizeBytes(),
+                new ParsedTemplateMarkupSerializer(),
+                getTemplateCacheValidityChecker(), getTemplateCacheLogger());
+        // Only the hot tier lives in the heap, and shedding its entries will simply make them be
+        // retrieved from the off-heap tier next time
+        registerForMemoryPressureEviction(cache.getHotTier());
+        return cache;
+    }
+
+    @Override
+    final ICache<String, ParsedFragmentMarkup> createFragmentCache(final int maxSize) {
+        final TwoTierCache<String, ParsedFragmentMarkup> cache = new TwoTierCache<String, ParsedFragmentMarkup>(
+                getFragmentCacheName(), computeUseSoftReferences(getFragmentCacheUseSoftReferences()),
+                getFragmentCacheInitialSize(), maxSize,
+                getFragmentCacheOffHeapMaxSizeBytes(), getFragmentCacheOffHeapSlabSizeBytes(),
+                new ParsedFragmentMarkupSerializer(),
+                getFragmentCacheValidityChecker(), getFragmentCacheLogger());
+        // Only the hot tier lives in the heap, and shedding its entries will simply make them be
+        // retrieved from the off-heap tier next time
+        registerForMemoryPressureEviction(cache.getHotTier());
+        return cache;
+    }
+
+
+
+
+    public long getTemplateCacheOffHeapMaxSizeBytes() {
+        return this.templateCacheOffHeapMaxSizeBytes;
+    }
+
+    public int getTemplateCacheOffHeapSlabSizeBytes() {
+        return this.templateCacheOffHeapSlabSizeBytes;
+    }
+
+    public long getFragmentCacheOffHeapMaxSizeBytes() {
+        return this.fragmentCacheOffHeapMaxSizeBytes;
+    }
+
+    public int getFragmentCacheOffHeapSlabSizeBytes() {
+        return this.fragmentCacheOffHeapSlabSizeBytes;
+    }
+
+
+
+
+    public void setTemplateCacheOffHeapMaxSizeBytes(final long templateCacheOffHeapMaxSizeBytes) {
+        this.templateCacheOffHeapMaxSizeBytes = templateCacheOffHeapMaxSizeBytes;
+    }
+
+    public void setTemplateCacheOffHeapSlabSizeBytes(final int templateCacheOffHeapSlabSizeBytes) {
+        this.templateCacheOffHeapSlabSizeBytes = templateCacheOffHeapSlabSizeBytes;
+    }
+
+    public void setFragmentCacheOffHeapMaxSizeBytes(final long fragmentCacheOffHeapMaxSizeBytes) {
+        this.fragmentCacheOffHeapMaxSizeBytes = fragmentCacheOffHeapMaxSizeBytes;
+    }
+
+    public void setFragmentCacheOffHeapSlabSizeBytes(final int fragmentCacheOffHeapSlabSizeBytes) {
+        this.fragmentCacheOffHeapSlabSizeBytes = fragmentCacheOffHeapSlabSizeBytes;
+    }
+
+
+
+}
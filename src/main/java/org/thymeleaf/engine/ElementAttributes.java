@@ -42,6 +42,29 @@ public final class ElementAttributes implements IElementAttributes {
 
     private static final int DEFAULT_ATTRIBUTES_SIZE = 4;
 
+    /*
+     * Layout of the records in the raw attribute index. Each record represents either an inner white space or an
+     * attribute, in the same order they appear in the raw attribute section. Offsets are relative to the beginning
+     * of the raw attribute section.
+     */
+    static final int RAW_RECORD_LEN = 10;
+    static final int RAW_KIND = 0;
+    static final int RAW_NAME_OFFSET = 1; // Also the offset of inner white spaces
+    static final int RAW_NAME_LEN = 2; // Also the length of inner white spaces
+    static final int RAW_OPERATOR_OFFSET = 3;
+    static final int RAW_OPERATOR_LEN = 4;
+    static final int RAW_VALUE_OFFSET = 5;
+    static final int RAW_VALUE_LEN = 6;
+    static final int RAW_VALUE_QUOTES = 7;
+    static final int RAW_LINE = 8;
+    static final int RAW_COL = 9;
+
+    static final int RAW_KIND_INNER_WHITE_SPACE = 0;
+    static final int RAW_KIND_ATTRIBUTE = 1;
+
+    static final int RAW_QUOTES_NULL = -1; // Otherwise, the ordinal of the ValueQuotes constant
+    static final ValueQuotes[] RAW_QUOTES_VALUES = ValueQuotes.values();
+
     private final TemplateMode templateMode;
     private final AttributeDefinitions attributeDefinitions;
 
@@ -54,6 +77,14 @@ public final class ElementAttributes implements IElementAttributes {
     private InnerWhiteSpace[] innerWhiteSpaces = null;
     private int innerWhiteSpacesSize = 0;
 
+    // Attributes of parsed elements with no processable attributes are kept in raw form (the attribute section
+    // exactly as it appeared in markup, plus an index of its structure) until something needs to query or modify
+    // them. These tags are usually only written to output, which can be done directly from the raw form. Both
+    // objects are immutable once set, so they can be shared between clones. Note materialization can happen on
+    // cached (shared) tags being read e.g. through ImmutableMarkup, so it is synchronized and the field is volatile.
+    private volatile String rawAttributes = null;
+    private int[] rawAttributeIndex = null;
+
     // Meant to cache the list of attribute names
     private List<String> allCompleteNames = null;
     private List<AttributeName> allAttributeNames = null;
@@ -70,6 +101,7 @@ public final class ElementAttributes implements IElementAttributes {
 
 
     public final int size() {
+        materializeRawAttributes();
         return this.attributesSize;
     }
 
@@ -77,6 +109,7 @@ public final int size() {
 
 
     private void updateNameLists() {
+        materializeRawAttributes();
         if (this.allCompleteNames == null || this.allAttributeNames == null || this.computedNamesVersion != this.version) {
             this.allCompleteNames = new ArrayList<String>(this.attributesSize + 1);
             this.allAttributeNames = new ArrayList<AttributeName>(this.attributesSize + 1);
@@ -104,6 +137,7 @@ public List<AttributeName> getAllAttributeNames() {
 
 
     private int searchAttribute(final String completeName) {
+        materializeRawAttributes();
         // We will first try exact match on the names with which the attributes appear on markup, as an optimization
         // on the base case (use the AttributeDefinition).
         int n = this.attributesSize;
@@ -127,6 +161,7 @@ private int searchAttribute(final String prefix, final String name) {
 
 
     private int searchAttribute(final AttributeName attributeName) {
+        materializeRawAttributes();
         int n = this.attributesSize;
         while (n-- != 0) {
             if (this.attributeNames[n].equals(attributeName)) {
@@ -344,6 +379,8 @@ public final int getCol(final AttributeName attributeName) {
 
 
     public final void clearAll() {
+        this.rawAttributes = null;
+        this.rawAttributeIndex = null;
         this.attributesSize = 0;
         this.innerWhiteSpacesSize = 0;
         this.version++;
@@ -377,6 +414,8 @@ final void setAttribute(
 
         Validate.isTrue(value != null || this.templateMode.isHTML(), "Cannot set null-value attributes when not in HTML mode");
 
+        materializeRawAttributes();
+
         if (this.attributes == null) {
             // We had no attributes array yet, create it
             this.attributes = new ElementAttribute[DEFAULT_ATTRIBUTES_SIZE];
@@ -455,6 +494,8 @@ public final void removeAttribute(final String prefix, final String name) {
 
         Validate.notNull(name, "Attribute name cannot be null");
 
+        materializeRawAttributes();
+
         if (this.attributes == null) {
             // We have no attribute array, nothing to remove
             return;
@@ -475,6 +516,8 @@ public final void removeAttribute(final String completeName) {
 
         Validate.notNull(completeName, "Attribute name cannot be null");
 
+        materializeRawAttributes();
+
         if (this.attributes == null) {
             // We have no attribute array, nothing to remove
             return;
@@ -495,6 +538,8 @@ public final void removeAttribute(final AttributeName attributeName) {
 
         Validate.notNull(attributeName, "Attribute name cannot be null");
 
+        materializeRawAttributes();
+
         if (this.attributes == null) {
             // We have no attribute array, nothing to remove
             return;
@@ -586,6 +631,8 @@ final void addInnerWhiteSpace(final String whiteSpace) {
 
     final void insertInnerWhiteSpace(final int pos, final String whiteSpace) {
 
+        materializeRawAttributes();
+
         if (this.innerWhiteSpaces == null) {
             // We had no whitespace array yet, create it
             this.innerWhiteSpaces = new InnerWhiteSpace[DEFAULT_ATTRIBUTES_SIZE];
@@ -631,6 +678,13 @@ final void insertInnerWhiteSpace(final int pos, final String whiteSpace) {
 
     public final void write(final Writer writer) throws IOException {
 
+        final String raw = this.rawAttributes;
+        if (raw != null) {
+            // Raw attributes are written exactly as they appeared in markup
+            writer.write(raw);
+            return;
+        }
+
         int n = this.attributesSize;
         int i = 0;
 
@@ -656,6 +710,170 @@ public final void write(final Writer writer) throws IOException {
 
 
 
+    /*
+     * Sets the attributes in raw form. Meant to be called only from the parser adapter, on an instance with no
+     * attributes. The index will not be copied, so it should not be modified after calling this method.
+     */
+    final void setRawAttributes(final String rawAttributes, final int[] rawAttributeIndex) {
+        this.attributesSize = 0;
+        this.innerWhiteSpacesSize = 0;
+        this.rawAttributeIndex = rawAttributeIndex;
+        this.rawAttributes = rawAttributes;
+        this.version++;
+    }
+
+
+
+
+    final String getRawAttributes() {
+        return this.rawAttributes;
+    }
+
+
+    final int[] getRawAttributeIndex() {
+        return this.rawAttributeIndex;
+    }
+
+
+
+
+    /*
+     * Inner white spaces are not part of the public API, but they are needed for serializing attributes
+     * (see MarkupSerializationUtil) exactly as they were parsed.
+     */
+    final int getInnerWhiteSpacesSize() {
+        materializeRawAttributes();
+        return this.innerWhiteSpacesSize;
+    }
+
+
+    final String getInnerWhiteSpace(final int pos) {
+        materializeRawAttributes();
+        return this.innerWhiteSpaces[pos].whiteSpace;
+    }
+
+
+
+
+    /*
+     * Equivalent to getValue(AttributeName), but if the attributes are still in raw form they are looked up by
+     * scanning the raw attribute names, without materializing them. Meant for read-only scans over many tags
+     * (e.g. fragment indexing) in which most tags will never be queried again.
+     */
+    final String getValueFromRaw(final AttributeName attributeName) {
+
+        final String raw = this.rawAttributes;
+        final int[] index = this.rawAttributeIndex;
+        if (raw == null || index == null) {
+            return getValue(attributeName);
+        }
+
+        final boolean ignoreCase = this.templateMode.isHTML();
+        final String[] completeNames = attributeName.getCompleteAttributeNames();
+
+        // Scanned backwards, as when materialized a repeated attribute keeps the last value
+        for (int i = index.length - RAW_RECORD_LEN; i >= 0; i -= RAW_RECORD_LEN) {
+
+            if (index[i + RAW_KIND] != RAW_KIND_ATTRIBUTE) {
+                continue;
+            }
+
+            final int offset = index[i + RAW_NAME_OFFSET];
+            final int len = index[i + RAW_NAME_LEN];
+
+            for (int j = 0; j < completeNames.length; j++) {
+                final String completeName = completeNames[j];
+                if (completeName.length() == len && raw.regionMatches(ignoreCase, offset, completeName, 0, len)) {
+                    if (index[i + RAW_OPERATOR_LEN] == 0) {
+                        // No operator means no value, same as when materialized
+                        return null;
+                    }
+                    final int valueOffset = index[i + RAW_VALUE_OFFSET];
+                    return raw.substring(valueOffset, valueOffset + index[i + RAW_VALUE_LEN]);
+                }
+            }
+
+        }
+
+        return null;
+
+    }
+
+
+
+
+    /*
+     * Builds the complete attribute structures from the raw form, in the same way the parser adapter would have
+     * built them. The version is not modified, as the attributes themselves do not change.
+     */
+    private void materializeRawAttributes() {
+
+        if (this.rawAttributes == null) {
+            return;
+        }
+
+        synchronized (this) {
+
+            final String raw = this.rawAttributes;
+            if (raw == null) {
+                // Another thread got here first
+                return;
+            }
+
+            // Structures are built on a separate instance and only then transferred, so that other threads
+            // never see them half-built
+            final ElementAttributes materialized = new ElementAttributes(this.templateMode, this.attributeDefinitions);
+
+            final int[] index = this.rawAttributeIndex;
+            for (int i = 0; i < index.length; i += RAW_RECORD_LEN) {
+
+                final int offset = index[i + RAW_NAME_OFFSET];
+                final int len = index[i + RAW_NAME_LEN];
+
+                if (index[i + RAW_KIND] == RAW_KIND_INNER_WHITE_SPACE) {
+                    materialized.addInnerWhiteSpace(raw.substring(offset, offset + len));
+                    continue;
+                }
+
+                final String name = raw.substring(offset, offset + len);
+
+                final int operatorOffset = index[i + RAW_OPERATOR_OFFSET];
+                final int operatorLen = index[i + RAW_OPERATOR_LEN];
+                final String operator =
+                        (operatorLen > 0 ?
+                                (operatorLen == 1 && raw.charAt(operatorOffset) == '=' ?
+                                        ElementAttribute.DEFAULT_OPERATOR :
+                                        raw.substring(operatorOffset, operatorOffset + operatorLen)) :
+                                null);
+
+                final int valueOffset = index[i + RAW_VALUE_OFFSET];
+                final String value =
+                        (operator != null ? raw.substring(valueOffset, valueOffset + index[i + RAW_VALUE_LEN]) : null);
+
+                final int valueQuotes = index[i + RAW_VALUE_QUOTES];
+
+                materialized.setAttribute(
+                        name, operator, value,
+                        (valueQuotes == RAW_QUOTES_NULL ? null : RAW_QUOTES_VALUES[valueQuotes]),
+                        index[i + RAW_LINE], index[i + RAW_COL], false);
+
+            }
+
+            this.attributes = materialized.attributes;
+            this.attributeNames = materialized.attributeNames;
+            this.attributesSize = materialized.attributesSize;
+            this.innerWhiteSpaces = materialized.innerWhiteSpaces;
+            this.innerWhiteSpacesSize = materialized.innerWhiteSpacesSize;
+            // The index is not cleared, as clones being created by other threads might still need it
+            this.rawAttributes = null;
+
+        }
+
+    }
+
+
+
+
     static final class InnerWhiteSpace {
 
         String whiteSpace;
@@ -704,6 +922,23 @@ void resetAsCloneOf(final ElementAttributes from) {
                     "happen.");
         }
 
+        final String raw = from.rawAttributes;
+        if (raw != null) {
+            // Raw attributes are immutable, so they can be shared
+            this.rawAttributeIndex = from.rawAttributeIndex;
+            this.rawAttributes = raw;
+            this.attributesSize = 0;
+            this.innerWhiteSpacesSize = 0;
+            this.allCompleteNames = null;
+            this.allAttributeNames = null;
+            this.version = from.version;
+            this.computedNamesVersion = from.computedNamesVersion;
+            return;
+        }
+
+        this.rawAttributes = null;
+        this.rawAttributeIndex = null;
+
         this.attributesSize = from.attributesSize;
         if (from.attributesSize > 0) {
 
@@ -0,0 +1,320 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.message.resolver.MessageBundle;
+import org.thymeleaf.model.IAutoCloseElementTag;
+import org.thymeleaf.model.IAutoOpenElementTag;
+import org.thymeleaf.model.ICDATASection;
+import org.thymeleaf.model.ICloseElementTag;
+import org.thymeleaf.model.IComment;
+import org.thymeleaf.model.IDocType;
+import org.thymeleaf.model.IOpenElementTag;
+import org.thymeleaf.model.IProcessingInstruction;
+import org.thymeleaf.model.IStandaloneElementTag;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.model.IUnmatchedCloseElementTag;
+import org.thymeleaf.model.IXMLDeclaration;
+import org.thymeleaf.processor.element.IElementProcessor;
+import org.thymeleaf.processor.element.ILocaleSpecializableTagProcessor;
+
+/**
+ * <p>
+ *   Version of a cached template specialized for a specific locale, used by {@link TemplateManager} when
+ *   locale specialization is enabled.
+ * </p>
+ * <p>
+ *   Specialization is performed by a single pass on the events of the (locale-independent) cached template, in
+ *   which every element whose only associated processor is an {@link ILocaleSpecializableTagProcessor} is
+ *   given the chance to resolve its body for the locale (e.g. <tt>th:text="#{key}"</tt>). Those elements are
+ *   stored with their body as static text and without the corresponding attributes, so that no processors will
+ *   have to be executed for them when the specialized template is processed.
+ * </p>
+ * <p>
+ *   A specialized template is valid for as long as the template it was built from is the one cached, the
+ *   message bundle cached for the template and locale is the same one that was used for building it, and the
+ *   rest of message sources (i.e. the default messages of the message resolvers) have not changed.
+ * </p>
+ * <p>
+ *   All specializations of a template are kept together (see {@link Specializations}), so that they can be
+ *   removed from cache at the same time as the template.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class LocaleSpecializedTemplate {
+
+    private final ParsedTemplateMarkup source;
+    private final ParsedTemplateMarkup template;
+    private final MessageBundle messages;
+    private final int messageSourcesVersion;
+
+
+
+
+    static LocaleSpecializedTemplate specialize(
+            final ITemplateProcessingContext processingContext, final ParsedTemplateMarkup source) {
+
+        final ParsedTemplateMarkup specialized =
+                new ParsedTemplateMarkup(processingContext.getConfiguration(), source.getTemplateResolution());
+
+        final SpecializationTemplateHandler specializationHandler = new SpecializationTemplateHandler(processingContext);
+        specializationHandler.setNext(new MarkupBuilderTemplateHandler(false, specialized.getInternalMarkup()));
+
+        source.getInternalMarkup().process(specializationHandler);
+
+        // If nothing could be specialized, there is no need to keep a copy of the template
+        return new LocaleSpecializedTemplate(
+                source, (specializationHandler.specializedCount > 0? specialized : source), null, -1);
+
+    }
+
+
+
+
+    private LocaleSpecializedTemplate(
+            final ParsedTemplateMarkup source, final ParsedTemplateMarkup template, final MessageBundle messages,
+            final int messageSourcesVersion) {
+        super();
+        this.source = source;
+        this.template = template;
+        this.messages = messages;
+        this.messageSourcesVersion = messageSourcesVersion;
+    }
+
+
+    LocaleSpecializedTemplate withMessages(final MessageBundle messages, final int messageSourcesVersion) {
+        return new LocaleSpecializedTemplate(this.source, this.template, messages, messageSourcesVersion);
+    }
+
+
+    ParsedTemplateMarkup getTemplate() {
+        return this.template;
+    }
+
+
+    boolean isValidFor(
+            final ParsedTemplateMarkup currentSource, final MessageBundle currentMessages,
+            final int currentMessageSourcesVersion) {
+        return this.source == currentSource && this.messages == currentMessages &&
+               this.messageSourcesVersion == currentMessageSourcesVersion;
+    }
+
+
+
+
+    /*
+     * Specializations of a template for each locale. The number of locales is limited, as they will usually come
+     * from requests.
+     */
+    static final class Specializations {
+
+        private static final int MAX_LOCALES = 20;
+
+        private final ConcurrentHashMap<Locale,LocaleSpecializedTemplate> byLocale;
+
+        Specializations() {
+            super();
+            this.byLocale = new ConcurrentHashMap<Locale, LocaleSpecializedTemplate>(4, 0.75f, 2);
+        }
+
+        LocaleSpecializedTemplate get(final Locale locale) {
+            return this.byLocale.get(locale);
+        }
+
+        void put(final Locale locale, final LocaleSpecializedTemplate specialized) {
+            if (this.byLocale.size() < MAX_LOCALES || this.byLocale.containsKey(locale)) {
+                this.byLocale.put(locale, specialized);
+            }
+        }
+
+    }
+
+
+
+
+    private static final class SpecializationTemplateHandler extends AbstractTemplateHandler {
+
+        private final ITemplateProcessingContext processingContext;
+
+        // Number of open elements inside the body of the element being specialized (-1 if not in such body)
+        private int skippedBodyLevel = -1;
+        private int specializedCount = 0;
+
+
+        SpecializationTemplateHandler(final ITemplateProcessingContext processingContext) {
+            super();
+            this.processingContext = processingContext;
+        }
+
+
+        @Override
+        public void handleOpenElement(final IOpenElementTag openElementTag) {
+
+            if (this.skippedBodyLevel >= 0) {
+                this.skippedBodyLevel++;
+                return;
+            }
+
+            if (!openElementTag.hasAssociatedProcessors()) {
+                super.handleOpenElement(openElementTag);
+                return;
+            }
+
+            final List<IElementProcessor> processors = openElementTag.getAssociatedProcessorsInOrder();
+            if (processors.size() != 1 || !(processors.get(0) instanceof ILocaleSpecializableTagProcessor)) {
+                super.handleOpenElement(openElementTag);
+                return;
+            }
+
+            // The tag we receive is a buffer from the cached template, so we specialize a copy of it
+            final IOpenElementTag specializedTag = openElementTag.cloneElementTag();
+            final String body =
+                    ((ILocaleSpecializableTagProcessor) processors.get(0)).specializeBody(this.processingContext, specializedTag);
+            if (body == null) {
+                super.handleOpenElement(openElementTag);
+                return;
+            }
+
+            super.handleOpenElement(specializedTag);
+            super.handleText(new Text(this.processingContext.getConfiguration().getTextRepository(), body));
+
+            this.skippedBodyLevel = 0;
+            this.specializedCount++;
+
+        }
+
+
+        @Override
+        public void handleAutoOpenElement(final IAutoOpenElementTag autoOpenElementTag) {
+            if (this.skippedBodyLevel >= 0) {
+                this.skippedBodyLevel++;
+                return;
+            }
+            super.handleAutoOpenElement(autoOpenElementTag);
+        }
+
+
+        @Override
+        public void handleCloseElement(final ICloseElementTag closeElementTag) {
+            if (this.skippedBodyLevel > 0) {
+                this.skippedBodyLevel--;
+                return;
+            }
+            // Either we are not skipping, or this closes the element whose body was specialized
+            this.skippedBodyLevel = -1;
+            super.handleCloseElement(closeElementTag);
+        }
+
+
+        @Override
+        public void handleAutoCloseElement(final IAutoCloseElementTag autoCloseElementTag) {
+            if (this.skippedBodyLevel > 0) {
+                this.skippedBodyLevel--;
+                return;
+            }
+            this.skippedBodyLevel = -1;
+            super.handleAutoCloseElement(autoCloseElementTag);
+        }
+
+
+        @Override
+        public void handleUnmatchedCloseElement(final IUnmatchedCloseElementTag unmatchedCloseElementTag) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleUnmatchedCloseElement(unmatchedCloseElementTag);
+        }
+
+
+        @Override
+        public void handleStandaloneElement(final IStandaloneElementTag standaloneElementTag) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleStandaloneElement(standaloneElementTag);
+        }
+
+
+        @Override
+        public void handleText(final IText text) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleText(text);
+        }
+
+
+        @Override
+        public void handleComment(final IComment comment) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleComment(comment);
+        }
+
+
+        @Override
+        public void handleCDATASection(final ICDATASection cdataSection) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleCDATASection(cdataSection);
+        }
+
+
+        @Override
+        public void handleDocType(final IDocType docType) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleDocType(docType);
+        }
+
+
+        @Override
+        public void handleXMLDeclaration(final IXMLDeclaration xmlDeclaration) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleXMLDeclaration(xmlDeclaration);
+        }
+
+
+        @Override
+        public void handleProcessingInstruction(final IProcessingInstruction processingInstruction) {
+            if (this.skippedBodyLevel >= 0) {
+                return;
+            }
+            super.handleProcessingInstruction(processingInstruction);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,654 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.model.IElementAttributes;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.text.ITextRepository;
+
+/**
+ * <p>
+ *   Converts the event queue of a {@link Markup} object into a compact byte form and back, without needing
+ *   to re-parse the original template.
+ * </p>
+ * <p>
+ *   Events are rebuilt the same way {@link TemplateHandlerAdapterMarkupHandler} builds them during parsing
+ *   (reusable buffer events that are cloned into the queue), so that texts are obtained from the
+ *   {@link ITextRepository} and processors are precomputed for element tags.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class MarkupSerializationUtil {
+
+    private static final byte EVENT_DOCUMENT_START = 1;
+    private static final byte EVENT_DOCUMENT_END = 2;
+    private static final byte EVENT_XML_DECLARATION = 3;
+    private static final byte EVENT_DOCTYPE = 4;
+    private static final byte EVENT_CDATA_SECTION = 5;
+    private static final byte EVENT_COMMENT = 6;
+    private static final byte EVENT_TEXT = 7;
+    private static final byte EVENT_STANDALONE_ELEMENT = 8;
+    private static final byte EVENT_OPEN_ELEMENT = 9;
+    private static final byte EVENT_AUTO_OPEN_ELEMENT = 10;
+    private static final byte EVENT_CLOSE_ELEMENT = 11;
+    private static final byte EVENT_AUTO_CLOSE_ELEMENT = 12;
+    private static final byte EVENT_UNMATCHED_CLOSE_ELEMENT = 13;
+    private static final byte EVENT_PROCESSING_INSTRUCTION = 14;
+
+    private static final byte QUOTES_NULL = 0;
+    private static final byte QUOTES_DOUBLE = 1;
+    private static final byte QUOTES_SINGLE = 2;
+    private static final byte QUOTES_NONE = 3;
+
+    private static final byte ATTRIBUTES_COMPLETE = 0;
+    private static final byte ATTRIBUTES_RAW = 1;
+
+
+
+
+    static byte[] serialize(final Markup markup) {
+
+        final EngineEventQueue queue = markup.getEventQueue();
+        final int queueSize = queue.size();
+
+        final Output output = new Output(Math.max(64, queueSize * 24));
+        output.writeInt(queueSize);
+
+        for (int i = 0; i < queueSize; i++) {
+
+            final IEngineTemplateHandlerEvent event = queue.get(i);
+
+            if (event instanceof Text) {
+                final Text text = (Text) event;
+                output.writeByte(EVENT_TEXT);
+                writeLocation(output, text.getTemplateName(), text.getLine(), text.getCol());
+                output.writeString(text.getText());
+            } else if (event instanceof OpenElementTag) {
+                final OpenElementTag tag = (OpenElementTag) event;
+                output.writeByte(EVENT_OPEN_ELEMENT);
+                writeElementTag(output, tag);
+                writeElementAttributes(output, tag.elementAttributes);
+            } else if (event instanceof CloseElementTag) {
+                output.writeByte(EVENT_CLOSE_ELEMENT);
+                writeElementTag(output, (CloseElementTag) event);
+            } else if (event instanceof StandaloneElementTag) {
+                final StandaloneElementTag tag = (StandaloneElementTag) event;
+                output.writeByte(EVENT_STANDALONE_ELEMENT);
+                writeElementTag(output, tag);
+                output.writeByte(tag.isMinimized()? (byte)1 : (byte)0);
+                writeElementAttributes(output, tag.elementAttributes);
+            } else if (event instanceof AutoOpenElementTag) {
+                final AutoOpenElementTag tag = (AutoOpenElementTag) event;
+                output.writeByte(EVENT_AUTO_OPEN_ELEMENT);
+                writeElementTag(output, tag);
+                writeElementAttributes(output, tag.elementAttributes);
+            } else if (event instanceof AutoCloseElementTag) {
+                output.writeByte(EVENT_AUTO_CLOSE_ELEMENT);
+                writeElementTag(output, (AutoCloseElementTag) event);
+            } else if (event instanceof UnmatchedCloseElementTag) {
+                output.writeByte(EVENT_UNMATCHED_CLOSE_ELEMENT);
+                writeElementTag(output, (UnmatchedCloseElementTag) event);
+            } else if (event instanceof Comment) {
+                final Comment comment = (Comment) event;
+                output.writeByte(EVENT_COMMENT);
+                writeLocation(output, comment.getTemplateName(), comment.getLine(), comment.getCol());
+                output.writeString(comment.getComment());
+            } else if (event instanceof CDATASection) {
+                final CDATASection cdataSection = (CDATASection) event;
+                output.writeByte(EVENT_CDATA_SECTION);
+                writeLocation(output, cdataSection.getTemplateName(), cdataSection.getLine(), cdataSection.getCol());
+                output.writeString(cdataSection.getCDATASection());
+            } else if (event instanceof DocType) {
+                final DocType docType = (DocType) event;
+                output.writeByte(EVENT_DOCTYPE);
+                output.writeString(docType.getDocType());
+                output.writeString(docType.getKeyword());
+                output.writeString(docType.getElementName());
+                output.writeString(docType.getType());
+                output.writeString(docType.getPublicId());
+                output.writeString(docType.getSystemId());
+                output.writeString(docType.getInternalSubset());
+                writeLocation(output, docType.getTemplateName(), docType.getLine(), docType.getCol());
+            } else if (event instanceof XMLDeclaration) {
+                final XMLDeclaration xmlDeclaration = (XMLDeclaration) event;
+                output.writeByte(EVENT_XML_DECLARATION);
+                output.writeString(xmlDeclaration.getXmlDeclaration());
+                output.writeString(xmlDeclaration.getKeyword());
+                output.writeString(xmlDeclaration.getVersion());
+                output.writeString(xmlDeclaration.getEncoding());
+                output.writeString(xmlDeclaration.getStandalone());
+                writeLocation(output, xmlDeclaration.getTemplateName(), xmlDeclaration.getLine(), xmlDeclaration.getCol());
+            } else if (event instanceof ProcessingInstruction) {
+                final ProcessingInstruction processingInstruction = (ProcessingInstruction) event;
+                output.writeByte(EVENT_PROCESSING_INSTRUCTION);
+                output.writeString(processingInstruction.getProcessingInstruction());
+                output.writeString(processingInstruction.getTarget());
+                output.writeString(processingInstruction.getContent());
+                writeLocation(output, processingInstruction.getTemplateName(), processingInstruction.getLine(), processingInstruction.getCol());
+            } else if (event instanceof DocumentStart) {
+                final DocumentStart documentStart = (DocumentStart) event;
+                output.writeByte(EVENT_DOCUMENT_START);
+                output.writeLong(documentStart.getStartTimeNanos());
+                writeLocation(output, documentStart.getTemplateName(), documentStart.getLine(), documentStart.getCol());
+            } else if (event instanceof DocumentEnd) {
+                final DocumentEnd documentEnd = (DocumentEnd) event;
+                output.writeByte(EVENT_DOCUMENT_END);
+                output.writeLong(documentEnd.getEndTimeNanos());
+                output.writeLong(documentEnd.getTotalTimeNanos());
+                writeLocation(output, documentEnd.getTemplateName(), documentEnd.getLine(), documentEnd.getCol());
+            } else {
+                throw new TemplateProcessingException(
+                        "Cannot serialize event of type: " + event.getClass().getName());
+            }
+
+        }
+
+        return output.toByteArray();
+
+    }
+
+
+    private static void writeLocation(final Output output, final String templateName, final int line, final int col) {
+        output.writeString(templateName);
+        output.writeInt(line);
+        output.writeInt(col);
+    }
+
+
+    private static void writeElementTag(final Output output, final AbstractElementTag tag) {
+        output.writeString(tag.getElementName());
+        writeLocation(output, tag.getTemplateName(), tag.getLine(), tag.getCol());
+    }
+
+
+    private static void writeElementAttributes(final Output output, final ElementAttributes attributes) {
+
+        // Raw attributes are kept raw, so that they don't need to be materialized in order to be serialized
+        final String rawAttributes = attributes.getRawAttributes();
+        if (rawAttributes != null) {
+            final int[] rawAttributeIndex = attributes.getRawAttributeIndex();
+            output.writeByte(ATTRIBUTES_RAW);
+            output.writeString(rawAttributes);
+            output.writeInt(rawAttributeIndex.length);
+            for (int i = 0; i < rawAttributeIndex.length; i++) {
+                output.writeInt(rawAttributeIndex[i]);
+            }
+            return;
+        }
+
+        output.writeByte(ATTRIBUTES_COMPLETE);
+
+        // Attributes and inner white spaces are written in the same order the parser would report them, so that
+        // rebuilding them by means of the same engine-internal methods results in exactly the same structures.
+        output.writeInt(attributes.attributesSize);
+        final int innerWhiteSpacesSize = attributes.getInnerWhiteSpacesSize();
+        output.writeInt(innerWhiteSpacesSize);
+
+        for (int i = 0; i < innerWhiteSpacesSize; i++) {
+            output.writeString(attributes.getInnerWhiteSpace(i));
+        }
+
+        for (int i = 0; i < attributes.attributesSize; i++) {
+            final ElementAttribute attribute = attributes.attributes[i];
+            output.writeString(attribute.name);
+            output.writeString(attribute.operator);
+            output.writeString(attribute.value);
+            if (attribute.valueQuotes == null) {
+                output.writeByte(QUOTES_NULL);
+            } else if (attribute.valueQuotes == IElementAttributes.ValueQuotes.DOUBLE) {
+                output.writeByte(QUOTES_DOUBLE);
+            } else if (attribute.valueQuotes == IElementAttributes.ValueQuotes.SINGLE) {
+                output.writeByte(QUOTES_SINGLE);
+            } else {
+                output.writeByte(QUOTES_NONE);
+            }
+            output.writeInt(attribute.line);
+            output.writeInt(attribute.col);
+        }
+
+    }
+
+
+
+
+    static void deserialize(final Markup markup, final byte[] data, final int offset, final int len) {
+
+        final IEngineConfiguration configuration = markup.getConfiguration();
+        final TemplateMode templateMode = markup.getTemplateMode();
+        final ITextRepository textRepository = configuration.getTextRepository();
+        final ElementDefinitions elementDefinitions = configuration.getElementDefinitions();
+        final AttributeDefinitions attributeDefinitions = configuration.getAttributeDefinitions();
+
+        final EngineEventQueue queue = markup.getEventQueue();
+        final Input input = new Input(data, offset, len, textRepository);
+
+        // These work as buffers in the same way they do at the TemplateHandlerAdapterMarkupHandler. The queue
+        // will clone them when adding.
+        DocumentStart documentStart = null;
+        DocumentEnd documentEnd = null;
+        Text text = null;
+        Comment comment = null;
+        CDATASection cdataSection = null;
+        DocType docType = null;
+        XMLDeclaration xmlDeclaration = null;
+        ProcessingInstruction processingInstruction = null;
+        OpenElementTag openElementTag = null;
+        StandaloneElementTag standaloneElementTag = null;
+        CloseElementTag closeElementTag = null;
+        AutoOpenElementTag autoOpenElementTag = null;
+        AutoCloseElementTag autoCloseElementTag = null;
+        UnmatchedCloseElementTag unmatchedCloseElementTag = null;
+
+        int n = input.readInt();
+        while (n-- != 0) {
+
+            final byte eventType = input.readByte();
+
+            switch (eventType) {
+
+                case EVENT_TEXT:
+                    if (text == null) {
+                        text = new Text(textRepository);
+                    }
+                    final String textTemplateName = input.readString();
+                    final int textLine = input.readInt();
+                    final int textCol = input.readInt();
+                    final int textLen = input.readChars();
+                    text.reset(input.chars, 0, textLen, textTemplateName, textLine, textCol);
+                    text.isWhitespace();
+                    queue.add(text, true);
+                    break;
+
+                case EVENT_OPEN_ELEMENT:
+                    if (openElementTag == null) {
+                        openElementTag = new OpenElementTag(templateMode, elementDefinitions, attributeDefinitions);
+                    }
+                    openElementTag.reset(input.readString(), input.readString(), input.readInt(), input.readInt());
+                    readElementAttributes(input, openElementTag.elementAttributes);
+                    openElementTag.precomputeAssociatedProcessors();
+                    queue.add(openElementTag, true);
+                    break;
+
+                case EVENT_CLOSE_ELEMENT:
+                    if (closeElementTag == null) {
+                        closeElementTag = new CloseElementTag(templateMode, elementDefinitions);
+                    }
+                    closeElementTag.reset(input.readString(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(closeElementTag, true);
+                    break;
+
+                case EVENT_STANDALONE_ELEMENT:
+                    if (standaloneElementTag == null) {
+                        standaloneElementTag = new StandaloneElementTag(templateMode, elementDefinitions, attributeDefinitions);
+                    }
+                    final String standaloneElementName = input.readString();
+                    final String standaloneTemplateName = input.readString();
+                    final int standaloneLine = input.readInt();
+                    final int standaloneCol = input.readInt();
+                    final boolean minimized = (input.readByte() != 0);
+                    standaloneElementTag.reset(
+                            standaloneElementName, minimized, standaloneTemplateName, standaloneLine, standaloneCol);
+                    readElementAttributes(input, standaloneElementTag.elementAttributes);
+                    standaloneElementTag.precomputeAssociatedProcessors();
+                    queue.add(standaloneElementTag, true);
+                    break;
+
+                case EVENT_AUTO_OPEN_ELEMENT:
+                    if (autoOpenElementTag == null) {
+                        autoOpenElementTag = new AutoOpenElementTag(templateMode, elementDefinitions, attributeDefinitions);
+                    }
+                    autoOpenElementTag.reset(input.readString(), input.readString(), input.readInt(), input.readInt());
+                    readElementAttributes(input, autoOpenElementTag.elementAttributes);
+                    autoOpenElementTag.precomputeAssociatedProcessors();
+                    queue.add(autoOpenElementTag, true);
+                    break;
+
+                case EVENT_AUTO_CLOSE_ELEMENT:
+                    if (autoCloseElementTag == null) {
+                        autoCloseElementTag = new AutoCloseElementTag(templateMode, elementDefinitions);
+                    }
+                    autoCloseElementTag.reset(input.readString(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(autoCloseElementTag, true);
+                    break;
+
+                case EVENT_UNMATCHED_CLOSE_ELEMENT:
+                    if (unmatchedCloseElementTag == null) {
+                        unmatchedCloseElementTag = new UnmatchedCloseElementTag(templateMode, elementDefinitions);
+                    }
+                    unmatchedCloseElementTag.setUnmatchedCloseElementTag(
+                            input.readString(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(unmatchedCloseElementTag, true);
+                    break;
+
+                case EVENT_COMMENT:
+                    if (comment == null) {
+                        comment = new Comment(textRepository);
+                    }
+                    final String commentTemplateName = input.readString();
+                    final int commentLine = input.readInt();
+                    final int commentCol = input.readInt();
+                    final int commentLen = input.readChars();
+                    comment.reset(input.chars, 0, commentLen, commentTemplateName, commentLine, commentCol);
+                    queue.add(comment, true);
+                    break;
+
+                case EVENT_CDATA_SECTION:
+                    if (cdataSection == null) {
+                        cdataSection = new CDATASection(textRepository);
+                    }
+                    final String cdataSectionTemplateName = input.readString();
+                    final int cdataSectionLine = input.readInt();
+                    final int cdataSectionCol = input.readInt();
+                    final int cdataSectionLen = input.readChars();
+                    cdataSection.reset(input.chars, 0, cdataSectionLen, cdataSectionTemplateName, cdataSectionLine, cdataSectionCol);
+                    queue.add(cdataSection, true);
+                    break;
+
+                case EVENT_DOCTYPE:
+                    if (docType == null) {
+                        docType = new DocType(textRepository);
+                    }
+                    docType.reset(
+                            input.readString(), input.readString(), input.readString(), input.readString(),
+                            input.readString(), input.readString(), input.readString(),
+                            input.readString(), input.readInt(), input.readInt());
+                    queue.add(docType, true);
+                    break;
+
+                case EVENT_XML_DECLARATION:
+                    if (xmlDeclaration == null) {
+                        xmlDeclaration = new XMLDeclaration(textRepository);
+                    }
+                    xmlDeclaration.reset(
+                            input.readString(), input.readString(), input.readString(), input.readString(),
+                            input.readString(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(xmlDeclaration, true);
+                    break;
+
+                case EVENT_PROCESSING_INSTRUCTION:
+                    if (processingInstruction == null) {
+                        processingInstruction = new ProcessingInstruction(textRepository);
+                    }
+                    processingInstruction.reset(
+                            input.readString(), input.readString(), input.readString(),
+                            input.readString(), input.readInt(), input.readInt());
+                    queue.add(processingInstruction, true);
+                    break;
+
+                case EVENT_DOCUMENT_START:
+                    if (documentStart == null) {
+                        documentStart = new DocumentStart();
+                    }
+                    documentStart.reset(input.readLong(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(documentStart, true);
+                    break;
+
+                case EVENT_DOCUMENT_END:
+                    if (documentEnd == null) {
+                        documentEnd = new DocumentEnd();
+                    }
+                    documentEnd.reset(
+                            input.readLong(), input.readLong(), input.readString(), input.readInt(), input.readInt());
+                    queue.add(documentEnd, true);
+                    break;
+
+                default:
+                    throw new TemplateProcessingException(
+                            "Cannot deserialize markup: unrecognized event type " + eventType);
+
+            }
+
+        }
+
+    }
+
+
+    private static void readElementAttributes(final Input input, final ElementAttributes attributes) {
+
+        if (input.readByte() == ATTRIBUTES_RAW) {
+            final String rawAttributes = input.readString();
+            final int[] rawAttributeIndex = new int[input.readInt()];
+            for (int i = 0; i < rawAttributeIndex.length; i++) {
+                rawAttributeIndex[i] = input.readInt();
+            }
+            attributes.setRawAttributes(rawAttributes, rawAttributeIndex);
+            return;
+        }
+
+        final int attributesSize = input.readInt();
+        final int innerWhiteSpacesSize = input.readInt();
+
+        for (int i = 0; i < innerWhiteSpacesSize; i++) {
+            attributes.addInnerWhiteSpace(input.readString());
+        }
+
+        for (int i = 0; i < attributesSize; i++) {
+            final String name = input.readString();
+            final String operator = input.readString();
+            final String value = input.readString();
+            final byte quotes = input.readByte();
+            final IElementAttributes.ValueQuotes valueQuotes;
+            if (quotes == QUOTES_NULL) {
+                valueQuotes = null;
+            } else if (quotes == QUOTES_DOUBLE) {
+                valueQuotes = IElementAttributes.ValueQuotes.DOUBLE;
+            } else if (quotes == QUOTES_SINGLE) {
+                valueQuotes = IElementAttributes.ValueQuotes.SINGLE;
+            } else {
+                valueQuotes = IElementAttributes.ValueQuotes.NONE;
+            }
+            final int line = input.readInt();
+            final int col = input.readInt();
+            // White spaces have already been set, so no need to let the attributes add them automatically
+            attributes.setAttribute(name, operator, value, valueQuotes, line, col, false);
+        }
+
+    }
+
+
+
+
+    /*
+     * Strings are written as a length (+1, so that 0 means null) followed by their chars, each one in
+     * 1 (ASCII), 2 or 3 bytes -- basically UTF-8 but without the 64K limit of DataOutput#writeUTF and
+     * without combining surrogate pairs, which keeps both encoding and decoding trivial.
+     */
+    static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(final int initialSize) {
+            super();
+            this.buffer = new byte[initialSize];
+            this.size = 0;
+        }
+
+        private void ensureCapacity(final int extra) {
+            if (this.size + extra > this.buffer.length) {
+                final byte[] newBuffer = new byte[Math.max(this.buffer.length * 2, this.size + extra)];
+                System.arraycopy(this.buffer, 0, newBuffer, 0, this.size);
+                this.buffer = newBuffer;
+            }
+        }
+
+        void writeByte(final byte b) {
+            ensureCapacity(1);
+            this.buffer[this.size++] = b;
+        }
+
+        void writeInt(final int value) {
+            // Zig-zag varint, so that small (and -1) values take only one byte
+            int v = (value << 1) ^ (value >> 31);
+            ensureCapacity(5);
+            while ((v & ~0x7F) != 0) {
+                this.buffer[this.size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            this.buffer[this.size++] = (byte) v;
+        }
+
+        void writeLong(final long value) {
+            ensureCapacity(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                this.buffer[this.size++] = (byte) (value >>> i);
+            }
+        }
+
+        void writeString(final String str) {
+            if (str == null) {
+                writeInt(0);
+                return;
+            }
+            final int len = str.length();
+            writeInt(len + 1);
+            ensureCapacity(len * 3);
+            final byte[] buf = this.buffer;
+            int pos = this.size;
+            for (int i = 0; i < len; i++) {
+                final char c = str.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            this.size = pos;
+        }
+
+        byte[] toByteArray() {
+            if (this.size == this.buffer.length) {
+                return this.buffer;
+            }
+            final byte[] result = new byte[this.size];
+            System.arraycopy(this.buffer, 0, result, 0, this.size);
+            return result;
+        }
+
+    }
+
+
+
+
+    static final class Input {
+
+        private final byte[] data;
+        private final int limit;
+        private final ITextRepository textRepository;
+        private int pos;
+
+        char[] chars;
+
+        Input(final byte[] data, final int offset, final int len, final ITextRepository textRepository) {
+            super();
+            this.data = data;
+            this.pos = offset;
+            this.limit = offset + len;
+            this.textRepository = textRepository;
+            this.chars = new char[256];
+        }
+
+        byte readByte() {
+            if (this.pos >= this.limit) {
+                throw new TemplateProcessingException("Cannot deserialize markup: unexpected end of data");
+            }
+            return this.data[this.pos++];
+        }
+
+        int readInt() {
+            int v = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = readByte();
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long readLong() {
+            long v = 0L;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (readByte() & 0xFFL);
+            }
+            return v;
+        }
+
+        /*
+         * Reads a string into the 'chars' buffer, returning its length (or -1 if null). Note the buffer is
+         * reused by every read, so its contents are only valid until the next call to readChars or readString.
+         */
+        int readChars() {
+            final int len = readInt() - 1;
+            if (len <= 0) {
+                return len;
+            }
+            if (this.chars.length < len) {
+                this.chars = new char[Math.max(len, this.chars.length * 2)];
+            }
+            final byte[] buf = this.data;
+            final char[] cbuf = this.chars;
+            int p = this.pos;
+            for (int i = 0; i < len; i++) {
+                if (p >= this.limit) {
+                    throw new TemplateProcessingException("Cannot deserialize markup: unexpected end of data");
+                }
+                final int b = buf[p++];
+                if (b >= 0) {
+                    cbuf[i] = (char) b;
+                } else if ((b & 0xE0) == 0xC0) {
+                    cbuf[i] = (char) (((b & 0x1F) << 6) | (buf[p++] & 0x3F));
+                } else {
+                    cbuf[i] = (char) (((b & 0x0F) << 12) | ((buf[p++] & 0x3F) << 6) | (buf[p++] & 0x3F));
+                }
+            }
+            this.pos = p;
+            return len;
+        }
+
+        String readString() {
+            final int len = readChars();
+            if (len < 0) {
+                return null;
+            }
+            return this.textRepository.getText(this.chars, 0, len);
+        }
+
+    }
+
+
+
+    private MarkupSerializationUtil() {
+        super();
+    }
+
+
+}
@@ -0,0 +1,86 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.ICacheEntrySerializer;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheEntrySerializer} for {@link ParsedFragmentMarkup} objects, used for storing
+ *   parsed fragments out of the Java heap.
+ * </p>
+ * <p>
+ *   The engine configuration, template mode and validity are kept on-heap as metadata. Events are
+ *   serialized into a compact byte form that can be turned back into markup without parsing the fragment again.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+public final class ParsedFragmentMarkupSerializer implements ICacheEntrySerializer<ParsedFragmentMarkup> {
+
+
+    public ParsedFragmentMarkupSerializer() {
+        super();
+    }
+
+
+    public Object extractMetadata(final ParsedFragmentMarkup value) {
+        return new Metadata(value.getConfiguration(), value.getTemplateMode(), value.getValidity());
+    }
+
+
+    public byte[] serialize(final ParsedFragmentMarkup value) {
+        return MarkupSerializationUtil.serialize(value.getInternalMarkup());
+    }
+
+
+    public ParsedFragmentMarkup deserialize(final Object metadata, final byte[] data, final int offset, final int len) {
+        final Metadata fragmentMetadata = (Metadata) metadata;
+        final ParsedFragmentMarkup parsedFragment =
+                new ParsedFragmentMarkup(fragmentMetadata.configuration, fragmentMetadata.templateMode, fragmentMetadata.validity);
+        MarkupSerializationUtil.deserialize(parsedFragment.getInternalMarkup(), data, offset, len);
+        return parsedFragment;
+    }
+
+
+
+
+    private static final class Metadata {
+
+        final IEngineConfiguration configuration;
+        final TemplateMode templateMode;
+        final ICacheEntryValidity validity;
+
+        Metadata(final IEngineConfiguration configuration, final TemplateMode templateMode,
+                 final ICacheEntryValidity validity) {
+            super();
+            this.configuration = configuration;
+            this.templateMode = templateMode;
+            this.validity = validity;
+        }
+
+    }
+
+}
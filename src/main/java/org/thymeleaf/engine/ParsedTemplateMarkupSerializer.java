@@ -0,0 +1,82 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.ICacheEntrySerializer;
+import org.thymeleaf.templateresolver.TemplateResolution;
+
+/**
+ * <p>
+ *   Implementation of {@link ICacheEntrySerializer} for {@link ParsedTemplateMarkup} objects, used for storing
+ *   parsed templates out of the Java heap.
+ * </p>
+ * <p>
+ *   The engine configuration and the {@link TemplateResolution} are kept on-heap as metadata. Events are
+ *   serialized into a compact byte form that can be turned back into markup without parsing the template again.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+public final class ParsedTemplateMarkupSerializer implements ICacheEntrySerializer<ParsedTemplateMarkup> {
+
+
+    public ParsedTemplateMarkupSerializer() {
+        super();
+    }
+
+
+    public Object extractMetadata(final ParsedTemplateMarkup value) {
+        return new Metadata(value.getConfiguration(), value.getTemplateResolution());
+    }
+
+
+    public byte[] serialize(final ParsedTemplateMarkup value) {
+        return MarkupSerializationUtil.serialize(value.getInternalMarkup());
+    }
+
+
+    public ParsedTemplateMarkup deserialize(final Object metadata, final byte[] data, final int offset, final int len) {
+        final Metadata templateMetadata = (Metadata) metadata;
+        final ParsedTemplateMarkup parsedTemplate =
+                new ParsedTemplateMarkup(templateMetadata.configuration, templateMetadata.templateResolution);
+        MarkupSerializationUtil.deserialize(parsedTemplate.getInternalMarkup(), data, offset, len);
+        return parsedTemplate;
+    }
+
+
+
+
+    private static final class Metadata {
+
+        final IEngineConfiguration configuration;
+        final TemplateResolution templateResolution;
+
+        Metadata(final IEngineConfiguration configuration, final TemplateResolution templateResolution) {
+            super();
+            this.configuration = configuration;
+            this.templateResolution = templateResolution;
+        }
+
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.thymeleaf.cache.ICacheEntryValidityChecker;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * <p>
+ *   Index of the fragments contained in a template, built from a single parse of the whole template (as a
+ *   fragment) and used by {@link TemplateManager} for answering fragment selections without parsing the
+ *   template again for each of them.
+ * </p>
+ * <p>
+ *   The index contains the ranges of events corresponding to every element with a fragment attribute
+ *   (<tt>th:fragment</tt>, <tt>data-th-fragment</tt>), indexed by fragment name, and also to every
+ *   element with an <tt>id</tt> attribute, indexed by id. Only the simplest forms of markup selectors
+ *   can be answered from the index: fragment references (<tt>%name</tt>) and ids (<tt>#id</tt>). As
+ *   with markup selectors, if several non-nested elements match, the resulting fragment will contain
+ *   all of them.
+ * </p>
+ * <p>
+ *   All fragments extracted from the same index share the (immutable) events of the parsed template.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class TemplateFragmentIndex {
+
+    private static final String FRAGMENT_ATTR_NAME = "fragment";
+    private static final String ID_ATTR_NAME = "id";
+
+    private final ParsedFragmentMarkup template;
+    private final Map<String,int[]> rangesByFragmentName;
+    private final Map<String,int[]> rangesById;
+
+
+
+
+    static boolean isIndexable(final String standardDialectPrefix, final String[] markupSelectors) {
+
+        if (standardDialectPrefix == null || markupSelectors == null || markupSelectors.length != 1) {
+            return false;
+        }
+
+        final String selector = markupSelectors[0];
+        if (selector == null || selector.length() < 2) {
+            return false;
+        }
+
+        final char c0 = selector.charAt(0);
+        if (c0 != '%' && c0 != '#') {
+            return false;
+        }
+
+        final int selectorLen = selector.length();
+        for (int i = 1; i < selectorLen; i++) {
+            final char c = selector.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_')) {
+                // Anything other than a simple name might have a meaning in markup selector syntax
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+
+
+
+    static TemplateFragmentIndex build(final ParsedFragmentMarkup template, final String standardDialectPrefix) {
+
+        final Map<String,int[]> rangesByFragmentName = new HashMap<String, int[]>(10);
+        final Map<String,int[]> rangesById = new HashMap<String, int[]>(10);
+
+        final TemplateMode templateMode = template.getTemplateMode();
+        final AttributeName fragmentAttributeName =
+                AttributeNames.forName(templateMode, standardDialectPrefix, FRAGMENT_ATTR_NAME);
+        final AttributeName idAttributeName = AttributeNames.forName(templateMode, ID_ATTR_NAME);
+
+        final EngineEventQueue queue = template.getInternalMarkup().getEventQueue();
+        final int queueSize = queue.size();
+
+        for (int i = 0; i < queueSize; i++) {
+
+            final IEngineTemplateHandlerEvent event = queue.get(i);
+
+            final ElementAttributes attributes;
+            if (event instanceof OpenElementTag) {
+                attributes = ((OpenElementTag) event).elementAttributes;
+            } else if (event instanceof StandaloneElementTag) {
+                attributes = ((StandaloneElementTag) event).elementAttributes;
+            } else {
+                continue;
+            }
+
+            // Most of these tags will only ever be written to output, so their raw attributes are not materialized
+            final String fragmentSignature = attributes.getValueFromRaw(fragmentAttributeName);
+            final String id = attributes.getValueFromRaw(idAttributeName);
+            if (fragmentSignature == null && id == null) {
+                continue;
+            }
+
+            final int end = (event instanceof OpenElementTag? computeElementEnd(queue, i) : i + 1);
+
+            if (fragmentSignature != null) {
+                final String fragmentName = computeFragmentName(fragmentSignature);
+                if (fragmentName != null) {
+                    addRange(rangesByFragmentName, fragmentName, i, end);
+                }
+            }
+            if (id != null) {
+                addRange(rangesById, id, i, end);
+            }
+
+        }
+
+        return new TemplateFragmentIndex(template, rangesByFragmentName, rangesById);
+
+    }
+
+
+
+
+    private TemplateFragmentIndex(
+            final ParsedFragmentMarkup template,
+            final Map<String,int[]> rangesByFragmentName, final Map<String,int[]> rangesById) {
+        super();
+        this.template = template;
+        this.rangesByFragmentName = rangesByFragmentName;
+        this.rangesById = rangesById;
+    }
+
+
+
+
+    ParsedFragmentMarkup getTemplate() {
+        return this.template;
+    }
+
+
+
+
+    /*
+     * Selector should have been checked to be indexable
+     */
+    ParsedFragmentMarkup extract(final String selector) {
+
+        final String name = selector.substring(1);
+        final int[] ranges =
+                (selector.charAt(0) == '%'? this.rangesByFragmentName.get(name) : this.rangesById.get(name));
+
+        final ParsedFragmentMarkup fragment =
+                new ParsedFragmentMarkup(
+                        this.template.getConfiguration(), this.template.getTemplateMode(), this.template.getValidity());
+
+        if (ranges == null) {
+            // Nothing selected, same as a markup selector that does not match any elements
+            return fragment;
+        }
+
+        final EngineEventQueue source = this.template.getInternalMarkup().getEventQueue();
+        final EngineEventQueue target = fragment.getInternalMarkup().getEventQueue();
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int j = ranges[i]; j < ranges[i + 1]; j++) {
+                // Events are not cloned: they are shared between the template and all its fragments (and never modified)
+                target.add(source.get(j), false);
+            }
+        }
+
+        return fragment;
+
+    }
+
+
+
+
+    private static int computeElementEnd(final EngineEventQueue queue, final int openPos) {
+        // Returns the position right after the (auto)close tag matching the open tag at openPos
+        final int queueSize = queue.size();
+        int depth = 0;
+        for (int i = openPos; i < queueSize; i++) {
+            final IEngineTemplateHandlerEvent event = queue.get(i);
+            if (event instanceof OpenElementTag || event instanceof AutoOpenElementTag) {
+                depth++;
+            } else if (event instanceof CloseElementTag || event instanceof AutoCloseElementTag) {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        return queueSize;
+    }
+
+
+    private static String computeFragmentName(final String fragmentSignature) {
+        // Same conditions as the fragment reference selectors: "name", "name(...)" or "name (...)"
+        final int parenthesisPos = fragmentSignature.indexOf('(');
+        if (parenthesisPos < 0) {
+            return fragmentSignature;
+        }
+        if (parenthesisPos > 1 && fragmentSignature.charAt(parenthesisPos - 1) == ' ') {
+            return fragmentSignature.substring(0, parenthesisPos - 1);
+        }
+        return fragmentSignature.substring(0, parenthesisPos);
+    }
+
+
+    private static void addRange(final Map<String,int[]> rangesMap, final String key, final int start, final int end) {
+        final int[] ranges = rangesMap.get(key);
+        if (ranges == null) {
+            rangesMap.put(key, new int[] { start, end });
+            return;
+        }
+        if (start < ranges[ranges.length - 1]) {
+            // Nested inside a previous match for the same key, so it is already included
+            return;
+        }
+        final int[] newRanges = new int[ranges.length + 2];
+        System.arraycopy(ranges, 0, newRanges, 0, ranges.length);
+        newRanges[ranges.length] = start;
+        newRanges[ranges.length + 1] = end;
+        rangesMap.put(key, newRanges);
+    }
+
+
+
+
+    static final class ValidityChecker implements ICacheEntryValidityChecker<String,TemplateFragmentIndex> {
+
+        private static final long serialVersionUID = 3214609238140924370L;
+
+        ValidityChecker() {
+            super();
+        }
+
+        public boolean checkIsValueStillValid(
+                final String key, final TemplateFragmentIndex value, final long entryCreationTimestamp) {
+            return value.template.getValidity().isCacheStillValid();
+        }
+
+    }
+
+
+}
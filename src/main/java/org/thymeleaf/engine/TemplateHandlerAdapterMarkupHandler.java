@@ -64,6 +64,17 @@ public final class TemplateHandlerAdapterMarkupHandler extends AbstractMarkupHan
 
     private ElementAttributes currentElementAttributes;
 
+    // Attributes and inner white spaces of the current element are first recorded here (as positions in the parsing
+    // buffer) so that, if none of the attributes has associated processors, they can be kept in raw form
+    private final boolean rawAttributesAllowed;
+    private boolean recordingAttributes;
+    private int[] attributeRecords;
+    private int attributeRecordsSize;
+    private char[] attributesBuffer;
+    private int attributesStart;
+    private int attributesEnd;
+    private boolean attributesProcessable;
+
     
     public TemplateHandlerAdapterMarkupHandler(final String templateName,
                                                final boolean topLevelTemplate,
@@ -72,6 +83,24 @@ public TemplateHandlerAdapterMarkupHandler(final String templateName,
                                                final ElementDefinitions elementDefinitions,
                                                final AttributeDefinitions attributeDefinitions,
                                                final TemplateMode templateMode) {
+        this(templateName, topLevelTemplate, templateHandler, textRepository,
+             elementDefinitions, attributeDefinitions, templateMode, false);
+    }
+
+
+    /*
+     * Attributes can only be kept in raw form if the attribute section of each element is reported as a contiguous
+     * fragment of a single buffer, which is the case when this handler is directly fed by the parser (but not e.g.
+     * when there is a block selector in between, which buffers and replays element events).
+     */
+    public TemplateHandlerAdapterMarkupHandler(final String templateName,
+                                               final boolean topLevelTemplate,
+                                               final ITemplateHandler templateHandler,
+                                               final ITextRepository textRepository,
+                                               final ElementDefinitions elementDefinitions,
+                                               final AttributeDefinitions attributeDefinitions,
+                                               final TemplateMode templateMode,
+                                               final boolean rawAttributesAllowed) {
         super();
 
         Validate.notNull(templateHandler, "Template handler cannot be null");
@@ -112,6 +141,11 @@ public TemplateHandlerAdapterMarkupHandler(final String templateName,
         this.unmatchedCloseElementTag = new UnmatchedCloseElementTag(this.templateMode, this.elementDefinitions);
 
         this.currentElementAttributes = null; // Will change as soon as we start processing an open or standalone tag
+
+        this.rawAttributesAllowed = rawAttributesAllowed;
+        this.recordingAttributes = false;
+        this.attributeRecords = new int[ElementAttributes.RAW_RECORD_LEN * 8];
+        this.attributeRecordsSize = 0;
         
         
     }
@@ -288,6 +322,9 @@ public void handleStandaloneElementStart(
         this.standaloneElementTag.reset(
                 this.textRepository.getText(buffer, nameOffset, nameLen), minimized, this.templateName, line, col);
         this.currentElementAttributes = (ElementAttributes) this.standaloneElementTag.getAttributes();
+        this.recordingAttributes = this.rawAttributesAllowed;
+        this.attributeRecordsSize = 0;
+        this.attributesProcessable = false;
 
     }
 
@@ -298,6 +335,8 @@ public void handleStandaloneElementEnd(
             final boolean minimized, final int line, final int col)
             throws ParseException {
 
+        // Set the attributes gathered since the element start
+        flushAttributes();
         // Precompute the associated processors - this might help performance, especially when using an event cache
         this.standaloneElementTag.precomputeAssociatedProcessors();
         // Call the template handler method with the gathered info
@@ -318,6 +357,9 @@ public void handleOpenElementStart(
         this.openElementTag.reset(
                 this.textRepository.getText(buffer, nameOffset, nameLen), this.templateName, line, col);
         this.currentElementAttributes = (ElementAttributes) this.openElementTag.getAttributes();
+        this.recordingAttributes = this.rawAttributesAllowed;
+        this.attributeRecordsSize = 0;
+        this.attributesProcessable = false;
 
     }
 
@@ -328,6 +370,8 @@ public void handleOpenElementEnd(
             final int line, final int col)
             throws ParseException {
 
+        // Set the attributes gathered since the element start
+        flushAttributes();
         // Precompute the associated processors - this might help performance, especially when using an event cache
         this.openElementTag.precomputeAssociatedProcessors();
         // Call the template handler method with the gathered info
@@ -348,6 +392,9 @@ public void handleAutoOpenElementStart(
         this.autoOpenElementTag.reset(
                 this.textRepository.getText(buffer, nameOffset, nameLen), this.templateName, line, col);
         this.currentElementAttributes = (ElementAttributes) this.autoOpenElementTag.getAttributes();
+        this.recordingAttributes = this.rawAttributesAllowed;
+        this.attributeRecordsSize = 0;
+        this.attributesProcessable = false;
 
     }
 
@@ -358,6 +405,8 @@ public void handleAutoOpenElementEnd(
             final int line, final int col)
             throws ParseException {
 
+        // Set the attributes gathered since the element start
+        flushAttributes();
         // Precompute the associated processors - this might help performance, especially when using an event cache
         this.autoOpenElementTag.precomputeAssociatedProcessors();
         // Call the template handler method with the gathered info
@@ -467,36 +516,46 @@ public void handleAttribute(
                     "Cannot process: attribute is not related to an open/standalone tag", this.templateName, nameLine, nameCol);
         }
 
-        final String attributeName = this.textRepository.getText(buffer, nameOffset, nameLen);
-
-        final String attributeOperator =
-                (operatorLen > 0 ?
-                        (operatorLen == 1 && buffer[operatorOffset] == '=' ?
-                                ATTRIBUTE_EQUALS_OPERATOR : // Shortcut for the most common case
-                                this.textRepository.getText(buffer, operatorOffset, operatorLen)) :
-                        null);
-
-        final String value =
-                (attributeOperator != null ?
-                        this.textRepository.getText(buffer, valueContentOffset, valueContentLen) :
-                        null);
-
-        final IElementAttributes.ValueQuotes valueQuotes;
-        if (value == null) {
-            valueQuotes = null;
+        final int valueQuotes;
+        if (operatorLen == 0) {
+            valueQuotes = ElementAttributes.RAW_QUOTES_NULL;
         } else if (valueOuterOffset == valueContentOffset) {
-            valueQuotes = IElementAttributes.ValueQuotes.NONE;
+            valueQuotes = IElementAttributes.ValueQuotes.NONE.ordinal();
         } else if (buffer[valueOuterOffset] == '"') {
-            valueQuotes = IElementAttributes.ValueQuotes.DOUBLE;
+            valueQuotes = IElementAttributes.ValueQuotes.DOUBLE.ordinal();
         } else if (buffer[valueOuterOffset] == '\'') {
-            valueQuotes = IElementAttributes.ValueQuotes.SINGLE;
+            valueQuotes = IElementAttributes.ValueQuotes.SINGLE.ordinal();
         } else {
-            valueQuotes = IElementAttributes.ValueQuotes.NONE;
+            valueQuotes = IElementAttributes.ValueQuotes.NONE.ordinal();
+        }
+
+        final int end = (operatorLen > 0 ? valueOuterOffset + valueOuterLen : nameOffset + nameLen);
+        checkAttributesContiguous(buffer, nameOffset);
+
+        if (this.recordingAttributes && !this.attributesProcessable) {
+            final AttributeDefinition attributeDefinition =
+                    (this.templateMode.isHTML() ?
+                            this.attributeDefinitions.forHTMLName(buffer, nameOffset, nameLen) :
+                            this.attributeDefinitions.forXMLName(buffer, nameOffset, nameLen));
+            this.attributesProcessable = attributeDefinition.hasAssociatedProcessors;
         }
 
-        // We can safely cast here, because we know the specific implementation classes we are using
-        this.currentElementAttributes.setAttribute(
-                attributeName, attributeOperator, value, valueQuotes, nameLine, nameCol, false);
+        final int[] record = addAttributeRecord(buffer, nameOffset, end);
+        final int i = this.attributeRecordsSize - ElementAttributes.RAW_RECORD_LEN;
+        record[i + ElementAttributes.RAW_KIND] = ElementAttributes.RAW_KIND_ATTRIBUTE;
+        record[i + ElementAttributes.RAW_NAME_OFFSET] = nameOffset;
+        record[i + ElementAttributes.RAW_NAME_LEN] = nameLen;
+        record[i + ElementAttributes.RAW_OPERATOR_OFFSET] = operatorOffset;
+        record[i + ElementAttributes.RAW_OPERATOR_LEN] = operatorLen;
+        record[i + ElementAttributes.RAW_VALUE_OFFSET] = valueContentOffset;
+        record[i + ElementAttributes.RAW_VALUE_LEN] = valueContentLen;
+        record[i + ElementAttributes.RAW_VALUE_QUOTES] = valueQuotes;
+        record[i + ElementAttributes.RAW_LINE] = nameLine;
+        record[i + ElementAttributes.RAW_COL] = nameCol;
+
+        if (!this.recordingAttributes) {
+            flushAttributes();
+        }
 
     }
 
@@ -514,11 +573,126 @@ public void handleInnerWhiteSpace(
                     "Cannot process: inner whitespace is not related to an open/standalone tag", this.templateName, line, col);
         }
 
-        final String elementWhiteSpace = this.textRepository.getText(buffer, offset,len);
+        checkAttributesContiguous(buffer, offset);
+
+        // Note line and col are discarded for white spaces
+        final int[] record = addAttributeRecord(buffer, offset, offset + len);
+        final int i = this.attributeRecordsSize - ElementAttributes.RAW_RECORD_LEN;
+        record[i + ElementAttributes.RAW_KIND] = ElementAttributes.RAW_KIND_INNER_WHITE_SPACE;
+        record[i + ElementAttributes.RAW_NAME_OFFSET] = offset;
+        record[i + ElementAttributes.RAW_NAME_LEN] = len;
+
+        if (!this.recordingAttributes) {
+            flushAttributes();
+        }
+
+    }
+
+
+
+
+    private void checkAttributesContiguous(final char[] buffer, final int start) {
+        if (this.recordingAttributes && this.attributeRecordsSize > 0 &&
+                (buffer != this.attributesBuffer || start != this.attributesEnd)) {
+            // This attribute section cannot be kept raw, so set what we have recorded until now and stop recording
+            this.recordingAttributes = false;
+            flushAttributes();
+        }
+    }
+
 
-        // We can safely cast here, because we know the specific implementation classes we are using
-        // Also note line and col are discarded for white spaces
-        this.currentElementAttributes.addInnerWhiteSpace(elementWhiteSpace);
+    private int[] addAttributeRecord(final char[] buffer, final int start, final int end) {
+
+        if (this.attributeRecordsSize == 0) {
+            this.attributesBuffer = buffer;
+            this.attributesStart = start;
+        }
+        this.attributesEnd = end;
+
+        if (this.attributeRecordsSize == this.attributeRecords.length) {
+            final int[] newAttributeRecords = new int[this.attributeRecords.length * 2];
+            System.arraycopy(this.attributeRecords, 0, newAttributeRecords, 0, this.attributeRecordsSize);
+            this.attributeRecords = newAttributeRecords;
+        }
+        this.attributeRecordsSize += ElementAttributes.RAW_RECORD_LEN;
+
+        return this.attributeRecords;
+
+    }
+
+
+    /*
+     * Attributes of elements in which no attribute has associated processors are only ever written to output
+     * verbatim (unless a processor or handler asks for them), so they are set in raw form, which is much cheaper
+     * both to create and to keep in cache. Otherwise, the complete attribute structures are built.
+     */
+    private void flushAttributes() {
+
+        if (this.attributeRecordsSize == 0) {
+            return;
+        }
+
+        final char[] buffer = this.attributesBuffer;
+        final int[] records = this.attributeRecords;
+        final int recordsSize = this.attributeRecordsSize;
+
+        this.attributesBuffer = null;
+        this.attributeRecordsSize = 0;
+
+        if (this.recordingAttributes && !this.attributesProcessable) {
+
+            final int start = this.attributesStart;
+            final int[] rawAttributeIndex = new int[recordsSize];
+            System.arraycopy(records, 0, rawAttributeIndex, 0, recordsSize);
+            for (int i = 0; i < recordsSize; i += ElementAttributes.RAW_RECORD_LEN) {
+                rawAttributeIndex[i + ElementAttributes.RAW_NAME_OFFSET] -= start;
+                rawAttributeIndex[i + ElementAttributes.RAW_OPERATOR_OFFSET] -= start;
+                rawAttributeIndex[i + ElementAttributes.RAW_VALUE_OFFSET] -= start;
+            }
+
+            this.currentElementAttributes.setRawAttributes(
+                    this.textRepository.getText(buffer, start, this.attributesEnd - start), rawAttributeIndex);
+
+            return;
+
+        }
+
+        for (int i = 0; i < recordsSize; i += ElementAttributes.RAW_RECORD_LEN) {
+
+            final int offset = records[i + ElementAttributes.RAW_NAME_OFFSET];
+            final int len = records[i + ElementAttributes.RAW_NAME_LEN];
+
+            if (records[i + ElementAttributes.RAW_KIND] == ElementAttributes.RAW_KIND_INNER_WHITE_SPACE) {
+                this.currentElementAttributes.addInnerWhiteSpace(this.textRepository.getText(buffer, offset, len));
+                continue;
+            }
+
+            final String attributeName = this.textRepository.getText(buffer, offset, len);
+
+            final int operatorOffset = records[i + ElementAttributes.RAW_OPERATOR_OFFSET];
+            final int operatorLen = records[i + ElementAttributes.RAW_OPERATOR_LEN];
+            final String attributeOperator =
+                    (operatorLen > 0 ?
+                            (operatorLen == 1 && buffer[operatorOffset] == '=' ?
+                                    ATTRIBUTE_EQUALS_OPERATOR : // Shortcut for the most common case
+                                    this.textRepository.getText(buffer, operatorOffset, operatorLen)) :
+                            null);
+
+            final String value =
+                    (attributeOperator != null ?
+                            this.textRepository.getText(
+                                    buffer, records[i + ElementAttributes.RAW_VALUE_OFFSET], records[i + ElementAttributes.RAW_VALUE_LEN]) :
+                            null);
+
+            final int valueQuotes = records[i + ElementAttributes.RAW_VALUE_QUOTES];
+
+            // We can safely cast here, because we know the specific implementation classes we are using
+            this.currentElementAttributes.setAttribute(
+                    attributeName, attributeOperator, value,
+                    (valueQuotes == ElementAttributes.RAW_QUOTES_NULL ? null : ElementAttributes.RAW_QUOTES_VALUES[valueQuotes]),
+                    records[i + ElementAttributes.RAW_LINE], records[i + ElementAttributes.RAW_COL], false);
+
+        }
 
     }
 
@@ -22,6 +22,7 @@
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -31,11 +32,15 @@
 import org.thymeleaf.cache.AlwaysValidCacheEntryValidity;
 import org.thymeleaf.cache.ICache;
 import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.cache.StandardCacheManager;
 import org.thymeleaf.context.IContext;
 import org.thymeleaf.context.ITemplateProcessingContext;
 import org.thymeleaf.context.TemplateProcessingContext;
 import org.thymeleaf.exceptions.TemplateInputException;
 import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.message.resolver.IMessageResolver;
+import org.thymeleaf.message.resolver.MessageBundle;
+import org.thymeleaf.message.resolver.StandardMessageResolver;
 import org.thymeleaf.resource.IResource;
 import org.thymeleaf.resource.StringResource;
 import org.thymeleaf.resourceresolver.IResourceResolver;
@@ -43,10 +48,12 @@
 import org.thymeleaf.templateparser.ITemplateParser;
 import org.thymeleaf.templateparser.markup.HTMLTemplateParser;
 import org.thymeleaf.templateparser.markup.XMLTemplateParser;
+import org.thymeleaf.templateparser.text.TextTemplateParser;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 import org.thymeleaf.templateresolver.StringTemplateResolver;
 import org.thymeleaf.templateresolver.TemplateResolution;
 import org.thymeleaf.text.ITextRepository;
+import org.thymeleaf.util.MessageResolutionUtils;
 import org.thymeleaf.util.Validate;
 
 
@@ -63,11 +70,19 @@ public final class TemplateManager {
 
     private static final ITemplateParser htmlParser = new HTMLTemplateParser(40,2048);
     private static final ITemplateParser xmlParser = new XMLTemplateParser(40, 2048);
+    private static final ITemplateParser textParser = new TextTemplateParser(4096);
 
     private static final StringTemplateResolver STRING_TEMPLATE_RESOLVER = new StringTemplateResolver();
 
+    private static final TemplateFragmentIndex.ValidityChecker FRAGMENT_INDEX_VALIDITY_CHECKER =
+            new TemplateFragmentIndex.ValidityChecker();
+
     private final ICache<String,ParsedTemplateMarkup> templateCache; // might be null! (= no cache)
     private final ICache<String,ParsedFragmentMarkup> fragmentCache; // might be null! (= no cache)
+    private final TemplateResolutionCache resolutionCache; // might be null! (= no cache)
+    private final ICache<String,TemplateFragmentIndex> fragmentIndexCache; // might be null! (= no cache)
+    private final ICache<String,MessageBundle> messageCache; // might be null! (= no cache)
+    private final ICache<String,LocaleSpecializedTemplate.Specializations> localeSpecializedCache; // might be null! (= no cache)
 
 
 
@@ -81,6 +96,22 @@ public final class TemplateManager {
      * @param configuration the configuration being currently used.
      */
     public TemplateManager(final IEngineConfiguration configuration) {
+        this(configuration, false);
+    }
+
+
+
+    /**
+     * <p>
+     *   This constructor should only be called directly for <strong>testing purposes</strong>.
+     * </p>
+     *
+     * @param configuration the configuration being currently used.
+     * @param localeSpecialization whether cached templates should be specialized for each locale they are
+     *                             processed with, resolving their constant messages (only effective if both
+     *                             the template and the message caches are enabled).
+     */
+    public TemplateManager(final IEngineConfiguration configuration, final boolean localeSpecialization) {
         
         super();
         
@@ -90,9 +121,27 @@ public TemplateManager(final IEngineConfiguration configuration) {
         if (cacheManager == null) {
             this.templateCache = null;
             this.fragmentCache = null;
+            this.resolutionCache = null;
+            this.fragmentIndexCache = null;
+            this.messageCache = null;
+            this.localeSpecializedCache = null;
         } else {
             this.templateCache = cacheManager.getTemplateCache();
             this.fragmentCache = cacheManager.getFragmentCache();
+            final ICache<String,TemplateResolutionCache.ResolverOutcome[]> resolutionCacheObj =
+                    (this.templateCache != null?
+                            cacheManager.<String,TemplateResolutionCache.ResolverOutcome[]>getSpecificCache(StandardCacheManager.TEMPLATE_RESOLUTION_CACHE_NAME) :
+                            null);
+            this.resolutionCache = (resolutionCacheObj != null? new TemplateResolutionCache(resolutionCacheObj) : null);
+            this.fragmentIndexCache =
+                    (this.fragmentCache != null?
+                            cacheManager.<String,TemplateFragmentIndex>getSpecificCache(StandardCacheManager.FRAGMENT_INDEX_CACHE_NAME) :
+                            null);
+            this.messageCache = cacheManager.getMessageCache();
+            this.localeSpecializedCache =
+                    (localeSpecialization && this.templateCache != null && this.messageCache != null?
+                            cacheManager.<String,LocaleSpecializedTemplate.Specializations>getSpecificCache(StandardCacheManager.LOCALE_SPECIALIZED_TEMPLATE_CACHE_NAME) :
+                            null);
         }
 
     }
@@ -110,6 +159,15 @@ public void clearTemplateCache() {
         if (this.templateCache != null) {
             this.templateCache.clear();
         }
+        if (this.resolutionCache != null) {
+            this.resolutionCache.clear();
+        }
+        if (this.fragmentIndexCache != null) {
+            this.fragmentIndexCache.clear();
+        }
+        if (this.localeSpecializedCache != null) {
+            this.localeSpecializedCache.clear();
+        }
     }
 
     
@@ -126,6 +184,15 @@ public void clearTemplateCacheFor(final String template) {
         if (this.templateCache != null) {
             this.templateCache.clearKey(template);
         }
+        if (this.resolutionCache != null) {
+            this.resolutionCache.clearKey(template);
+        }
+        if (this.fragmentIndexCache != null) {
+            this.fragmentIndexCache.clearKey(template);
+        }
+        if (this.localeSpecializedCache != null) {
+            this.localeSpecializedCache.clearKey(template);
+        }
     }
     
     
@@ -141,6 +208,9 @@ public void clearFragmentCache() {
         if (this.fragmentCache != null) {
             this.fragmentCache.clear();
         }
+        if (this.fragmentIndexCache != null) {
+            this.fragmentIndexCache.clear();
+        }
     }
 
     
@@ -332,6 +402,26 @@ public ParsedFragmentMarkup parseTemplateFragment(
         }
 
 
+        /*
+         * Simple selectors (fragment references and ids) can be answered from an index of the template's fragments,
+         * so that all the fragments of the same template share a single parse.
+         */
+        final boolean indexable =
+                this.fragmentIndexCache != null &&
+                TemplateFragmentIndex.isIndexable(configuration.getStandardDialectPrefix(), markupSelectors);
+
+        if (indexable) {
+            final TemplateFragmentIndex index = this.fragmentIndexCache.get(template, FRAGMENT_INDEX_VALIDITY_CHECKER);
+            if (index != null) {
+                final ParsedFragmentMarkup parsedFragment = index.extract(markupSelectors[0]);
+                if (parsedFragment.getValidity().isCacheable()) {
+                    this.fragmentCache.put(cacheKey, parsedFragment);
+                }
+                return parsedFragment;
+            }
+        }
+
+
         /*
          * Resolve the template, obtain the IResource and its metadata (TemplateResolution)
          */
@@ -339,21 +429,52 @@ public ParsedFragmentMarkup parseTemplateFragment(
                 resolveTemplate(configuration, context, template);
 
 
-        /*
-         *  Create the Template Handler that will be in charge of building a ParsedTemplateMarkup object as the result of reading the template
-         */
-        final ParsedFragmentMarkup parsedFragment =
-                new ParsedFragmentMarkup(configuration, resolution.templateResolution.getTemplateMode(), resolution.templateResolution.getValidity());
-        final MarkupBuilderTemplateHandler builderHandler =
-                new MarkupBuilderTemplateHandler(true, parsedFragment.getInternalMarkup());
+        final ParsedFragmentMarkup parsedFragment;
+        if (indexable && resolution.templateResolution.getValidity().isCacheable() &&
+                !resolution.templateResolution.getTemplateMode().isText()) {
 
+            /*
+             * Parse the whole template (as a fragment) and index it. The index is only built if it is going to be
+             * cached, as otherwise it would not be any cheaper than parsing with the selector. TEXT templates have
+             * no markup to be indexed, so selectors on them are left for the parser to reject.
+             */
+            final ParsedFragmentMarkup parsedTemplate =
+                    new ParsedFragmentMarkup(configuration, resolution.templateResolution.getTemplateMode(), resolution.templateResolution.getValidity());
+            final MarkupBuilderTemplateHandler builderHandler =
+                    new MarkupBuilderTemplateHandler(true, parsedTemplate.getInternalMarkup());
 
-        /*
-         * PROCESS THE TEMPLATE
-         */
-        processAsResource(
-                configuration, resolution.templateResolution.getTemplateMode(), true,
-                resolution.resource, markupSelectors, builderHandler);
+            processAsResource(
+                    configuration, resolution.templateResolution.getTemplateMode(), true,
+                    resolution.resource, null, builderHandler);
+
+            final TemplateFragmentIndex index =
+                    TemplateFragmentIndex.build(parsedTemplate, configuration.getStandardDialectPrefix());
+
+            // put() never replaces existing entries, so a stale one needs to be removed first
+            this.fragmentIndexCache.clearKey(template);
+            this.fragmentIndexCache.put(template, index);
+
+            parsedFragment = index.extract(markupSelectors[0]);
+
+        } else {
+
+            /*
+             *  Create the Template Handler that will be in charge of building a ParsedTemplateMarkup object as the result of reading the template
+             */
+            parsedFragment =
+                    new ParsedFragmentMarkup(configuration, resolution.templateResolution.getTemplateMode(), resolution.templateResolution.getValidity());
+            final MarkupBuilderTemplateHandler builderHandler =
+                    new MarkupBuilderTemplateHandler(true, parsedFragment.getInternalMarkup());
+
+
+            /*
+             * PROCESS THE TEMPLATE
+             */
+            processAsResource(
+                    configuration, resolution.templateResolution.getTemplateMode(), true,
+                    resolution.resource, markupSelectors, builderHandler);
+
+        }
 
 
         /*
@@ -405,8 +526,8 @@ public void processTemplate(final IEngineConfiguration configuration, final ICon
                         new TemplateProcessingContext(configuration, this, cached.getTemplateResolution(), context);
                 // Create the handler chain to process the data
                 final ITemplateHandler processingHandlerChain = createTemplateProcessingHandlerChain(processingContext, writer);
-                // Process the cached template itself
-                processAsObject(cached, processingHandlerChain);
+                // Process the cached template itself (or its locale-specialized version, if enabled)
+                processAsObject(specializeForLocale(processingContext, cacheKey, cached), processingHandlerChain);
                 return;
             }
         }
@@ -444,8 +565,8 @@ public void processTemplate(final IEngineConfiguration configuration, final ICon
                     resolution.resource, markupSelectors, builderHandler);
             // Put the new template into cache
             this.templateCache.put(cacheKey, parsedTemplate);
-            // Process the read (+cached) template itself
-            processAsObject(parsedTemplate, processingHandlerChain);
+            // Process the read (+cached) template itself (or its locale-specialized version, if enabled)
+            processAsObject(specializeForLocale(processingContext, cacheKey, parsedTemplate), processingHandlerChain);
             return;
         }
 
@@ -462,6 +583,81 @@ public void processTemplate(final IEngineConfiguration configuration, final ICon
 
 
 
+    private ParsedTemplateMarkup specializeForLocale(
+            final ITemplateProcessingContext processingContext, final String cacheKey,
+            final ParsedTemplateMarkup parsedTemplate) {
+
+        if (this.localeSpecializedCache == null) {
+            return parsedTemplate;
+        }
+
+        final Locale locale = processingContext.getLocale();
+        if (locale == null) {
+            return parsedTemplate;
+        }
+
+        final int messageSourcesVersion = computeMessageSourcesVersion(processingContext.getConfiguration());
+        if (messageSourcesVersion < 0) {
+            // Messages might be obtained from sources we cannot track, so specialized templates could become stale
+            return parsedTemplate;
+        }
+
+        final String messagesCacheKey =
+                MessageResolutionUtils.computeTemplateMessagesCacheKey(
+                        processingContext.getConfiguration().getTextRepository(),
+                        parsedTemplate.getTemplateResolution().getTemplateName(), locale);
+
+        LocaleSpecializedTemplate.Specializations specializations = this.localeSpecializedCache.get(cacheKey);
+        if (specializations != null) {
+            final LocaleSpecializedTemplate cached = specializations.get(locale);
+            if (cached != null &&
+                    cached.isValidFor(parsedTemplate, this.messageCache.get(messagesCacheKey), messageSourcesVersion)) {
+                return cached.getTemplate();
+            }
+        }
+
+        final LocaleSpecializedTemplate specialized =
+                LocaleSpecializedTemplate.specialize(processingContext, parsedTemplate);
+
+        // The messages used for specializing will have been loaded (and cached) by now. If they could not be cached,
+        // we would have no way to know when the specialized template becomes stale, so we don't keep it.
+        final MessageBundle messages = this.messageCache.get(messagesCacheKey);
+        if (messages != null) {
+            if (specializations == null) {
+                // put() never replaces existing entries, so we need to obtain whichever ended up in the cache
+                this.localeSpecializedCache.put(cacheKey, new LocaleSpecializedTemplate.Specializations());
+                specializations = this.localeSpecializedCache.get(cacheKey);
+            }
+            if (specializations != null) {
+                specializations.put(locale, specialized.withMessages(messages, messageSourcesVersion));
+            }
+        }
+
+        return specialized.getTemplate();
+
+    }
+
+
+    /*
+     * Messages for specialized templates can only be tracked if they are resolved by standard message resolvers
+     * (subclasses could resolve them in any other way), which obtain them from the message cache or from their
+     * default messages. The returned version will change whenever any of the default messages change, and will be
+     * -1 if messages cannot be tracked.
+     */
+    private static int computeMessageSourcesVersion(final IEngineConfiguration configuration) {
+        int version = 0;
+        for (final IMessageResolver messageResolver : configuration.getMessageResolvers()) {
+            if (messageResolver.getClass() != StandardMessageResolver.class) {
+                return -1;
+            }
+            version += ((StandardMessageResolver) messageResolver).getDefaultMessagesVersion();
+        }
+        return version;
+    }
+
+
+
+
     public void processTextualTemplate(final IEngineConfiguration configuration, final IContext context,
                                        final String textualTemplate, final Writer writer) {
         processTextualTemplate(configuration, context, textualTemplate, null, writer);
@@ -555,15 +751,51 @@ public void processTextualTemplate(final IEngineConfiguration configuration, fin
 
 
 
-    private static TemplateAndResourceResolution resolveTemplate(final IEngineConfiguration configuration, final IContext context, final String template) {
+    private TemplateAndResourceResolution resolveTemplate(final IEngineConfiguration configuration, final IContext context, final String template) {
 
         final Set<ITemplateResolver> templateResolvers = configuration.getTemplateResolvers();
         TemplateResolution templateResolution = null;
         IResource templateResource = null;
 
+        /*
+         * Outcomes of previous resolutions of this same template (if cached) allow us to skip the resolvers we already
+         * know will not be able to resolve it, and to reuse the TemplateResolution of the one that can.
+         */
+        final TemplateResolutionCache.ResolverOutcome[] cachedOutcomes =
+                (this.resolutionCache == null? null : this.resolutionCache.get(template));
+        final TemplateResolutionCache.ResolverOutcome[] outcomes =
+                (this.resolutionCache == null? null : new TemplateResolutionCache.ResolverOutcome[templateResolvers.size()]);
+        boolean outcomesChanged = false;
+
+        int i = 0;
         for (final ITemplateResolver templateResolver : templateResolvers) {
 
-            templateResolution = templateResolver.resolveTemplate(configuration, context, template);
+            final TemplateResolutionCache.ResolverOutcome cachedOutcome =
+                    TemplateResolutionCache.getValidOutcome(cachedOutcomes, i, templateResolver);
+
+            if (cachedOutcome != null) {
+
+                if (outcomes != null) {
+                    outcomes[i] = cachedOutcome;
+                }
+
+                if (cachedOutcome.templateResolution == null || !cachedOutcome.resourceExists) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("[THYMELEAF][{}] Skipping template resolver \"{}\" for template \"{}\" (known not to resolve it)", new Object[] {TemplateEngine.threadIndex(), templateResolver.getName(), template});
+                    }
+                    templateResolution = null;
+                    i++;
+                    continue;
+                }
+
+                templateResolution = cachedOutcome.templateResolution;
+
+            } else {
+
+                outcomesChanged = true;
+                templateResolution = templateResolver.resolveTemplate(configuration, context, template);
+
+            }
 
             if (templateResolution != null) {
 
@@ -577,6 +809,12 @@ private static TemplateAndResourceResolution resolveTemplate(final IEngineConfig
                 templateResource =
                         resourceResolver.resolveResource(configuration, context, resourceName, templateResolution.getCharacterEncoding());
 
+                if (outcomes != null && (cachedOutcome == null || templateResource == null)) {
+                    // A cached positive outcome whose resource cannot be read any more is replaced by a negative one
+                    outcomes[i] = TemplateResolutionCache.computeOutcome(templateResolver, templateResolution, (templateResource != null));
+                    outcomesChanged = true;
+                }
+
                 if (templateResource == null) {
                     if (logger.isTraceEnabled()) {
                         logger.trace("[THYMELEAF][{}] Template \"{}\" could not be resolved as resource \"{}\" with resource resolver \"{}\"", new Object[] {TemplateEngine.threadIndex(), template, resourceName, resourceResolver.getName()});
@@ -590,12 +828,22 @@ private static TemplateAndResourceResolution resolveTemplate(final IEngineConfig
 
             } else {
 
+                if (outcomes != null) {
+                    outcomes[i] = TemplateResolutionCache.computeOutcome(templateResolver, null, false);
+                }
+
                 if (logger.isTraceEnabled()) {
                     logger.trace("[THYMELEAF][{}] Skipping template resolver \"{}\" for template \"{}\"", new Object[] {TemplateEngine.threadIndex(), templateResolver.getName(), template});
                 }
 
             }
 
+            i++;
+
+        }
+
+        if (outcomes != null && outcomesChanged) {
+            this.resolutionCache.put(template, outcomes);
         }
 
         if (templateResolution == null || templateResource == null) {
@@ -694,6 +942,12 @@ private static void processAsResource(
             } else {
                 xmlParser.parseTemplate(configuration, templateMode, templateResource, markupSelectors, templateHandler);
             }
+        } else if (templateMode.isText()) {
+            if (fragment) {
+                textParser.parseFragment(configuration, templateMode, templateResource, markupSelectors, templateHandler);
+            } else {
+                textParser.parseTemplate(configuration, templateMode, templateResource, markupSelectors, templateHandler);
+            }
         } else {
             throw new IllegalArgumentException(
                 "Cannot process \"" + templateResource.getName() + "\" " +
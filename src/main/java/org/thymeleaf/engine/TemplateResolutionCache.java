@@ -0,0 +1,187 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.engine;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.cache.TTLCacheEntryValidity;
+import org.thymeleaf.resourceresolver.ClassLoaderResourceResolver;
+import org.thymeleaf.resourceresolver.FileResourceResolver;
+import org.thymeleaf.resourceresolver.UrlResourceResolver;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.ServletContextTemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
+import org.thymeleaf.templateresolver.TemplateResolver;
+import org.thymeleaf.templateresolver.UrlTemplateResolver;
+
+/**
+ * <p>
+ *   Cache of the outcomes of asking each of the configured template resolvers (and their
+ *   resource resolvers) for a specific template name, used by {@link TemplateManager} for
+ *   avoiding the repeated evaluation of template resolver patterns and, especially, repeated
+ *   failed attempts at reading resources from resolvers that are known not to have them.
+ * </p>
+ * <p>
+ *   As the cache is keyed only by template name, outcomes are only cached for the template resolvers
+ *   shipped with Thymeleaf ({@link TemplateResolver} and its standard subclasses, matched by their exact
+ *   class), whose resolution of a template is known not to depend on the context. For the same reason,
+ *   <em>resource not found</em> outcomes are only cached for the resource resolvers that do not use the
+ *   context either (i.e. not for servlet context resources).
+ * </p>
+ * <p>
+ *   Positive outcomes are considered valid for as long as the validity of their {@link TemplateResolution}
+ *   says the template is cacheable and still valid, so that they align with the cacheability of the resolver.
+ *   Negative outcomes (resolver not applicable, or resource not found) also expire after
+ *   {@link #NEGATIVE_OUTCOME_TTL_MS}, so that templates created after being looked up are eventually found.
+ * </p>
+ * <p>
+ *   Entries are kept in the {@link org.thymeleaf.cache.StandardCacheManager#TEMPLATE_RESOLUTION_CACHE_NAME}
+ *   specific cache of the configured cache manager.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class TemplateResolutionCache {
+
+    static final long NEGATIVE_OUTCOME_TTL_MS = 10000L;
+
+    private static final Set<Class<?>> CONTEXT_INDEPENDENT_TEMPLATE_RESOLVERS =
+            new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+                    TemplateResolver.class, ClassLoaderTemplateResolver.class, FileTemplateResolver.class,
+                    ServletContextTemplateResolver.class, UrlTemplateResolver.class));
+
+    private static final Set<Class<?>> CONTEXT_INDEPENDENT_RESOURCE_RESOLVERS =
+            new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+                    ClassLoaderResourceResolver.class, FileResourceResolver.class, UrlResourceResolver.class));
+
+    private final ICache<String,ResolverOutcome[]> cache;
+
+
+
+    TemplateResolutionCache(final ICache<String,ResolverOutcome[]> cache) {
+        super();
+        this.cache = cache;
+    }
+
+
+
+    ResolverOutcome[] get(final String template) {
+        return this.cache.get(template);
+    }
+
+
+    void put(final String template, final ResolverOutcome[] outcomes) {
+        // put() never replaces existing entries, so a stale one needs to be removed first
+        this.cache.clearKey(template);
+        this.cache.put(template, outcomes);
+    }
+
+
+    void clear() {
+        this.cache.clear();
+    }
+
+
+    void clearKey(final String template) {
+        this.cache.clearKey(template);
+    }
+
+
+
+
+    static ResolverOutcome computeOutcome(
+            final ITemplateResolver templateResolver, final TemplateResolution templateResolution,
+            final boolean resourceExists) {
+        if (!CONTEXT_INDEPENDENT_TEMPLATE_RESOLVERS.contains(templateResolver.getClass())) {
+            // We cannot be sure that the resolution of the template does not depend on the context
+            return null;
+        }
+        if (templateResolution != null) {
+            if (!templateResolution.getValidity().isCacheable()) {
+                return null;
+            }
+            if (!resourceExists &&
+                    !CONTEXT_INDEPENDENT_RESOURCE_RESOLVERS.contains(templateResolution.getResourceResolver().getClass())) {
+                // Whether the resource exists or not might depend on the context
+                return null;
+            }
+        }
+        return new ResolverOutcome(templateResolver, templateResolution, resourceExists);
+    }
+
+
+    static ResolverOutcome getValidOutcome(
+            final ResolverOutcome[] outcomes, final int index, final ITemplateResolver templateResolver) {
+        if (outcomes == null || index >= outcomes.length) {
+            return null;
+        }
+        final ResolverOutcome outcome = outcomes[index];
+        if (outcome == null || outcome.templateResolver != templateResolver || !outcome.isStillValid()) {
+            return null;
+        }
+        return outcome;
+    }
+
+
+
+
+    static final class ResolverOutcome {
+
+        final ITemplateResolver templateResolver;
+        final TemplateResolution templateResolution; // null if the resolver does not apply to the template
+        final boolean resourceExists;
+        private final ICacheEntryValidity negativeValidity; // null for positive outcomes
+
+
+        ResolverOutcome(
+                final ITemplateResolver templateResolver, final TemplateResolution templateResolution,
+                final boolean resourceExists) {
+            super();
+            this.templateResolver = templateResolver;
+            this.templateResolution = templateResolution;
+            this.resourceExists = resourceExists;
+            this.negativeValidity =
+                    (templateResolution != null && resourceExists? null : new TTLCacheEntryValidity(NEGATIVE_OUTCOME_TTL_MS));
+        }
+
+
+        boolean isStillValid() {
+            if (this.negativeValidity != null && !this.negativeValidity.isCacheStillValid()) {
+                return false;
+            }
+            if (this.templateResolution == null) {
+                return true;
+            }
+            final ICacheEntryValidity validity = this.templateResolution.getValidity();
+            return validity.isCacheable() && validity.isCacheStillValid();
+        }
+
+    }
+
+}
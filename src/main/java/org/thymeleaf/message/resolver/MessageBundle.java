@@ -0,0 +1,227 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.message.resolver;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Immutable set of externalized messages for a specific base name (template or class) and locale.
+ * </p>
+ * <p>
+ *   Messages that might contain parameter placeholders (or quotes) are parsed into {@link MessageFormat}
+ *   objects when the bundle is built, so that each formatting operation only needs to clone the already-parsed
+ *   format instead of parsing the message pattern again. The rest of messages are returned directly.
+ * </p>
+ * <p>
+ *   Once built, objects of this class are never modified, so they can be safely shared among threads
+ *   (e.g. by means of the message cache) without any kind of synchronization.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class MessageBundle {
+
+    private static final Object[] EMPTY_MESSAGE_PARAMETERS = new Object[0];
+
+    private final Locale locale;
+    // Values will be either a String (messages that need no formatting) or a ParsedMessage
+    private final Map<String,Object> messages;
+
+
+
+    public MessageBundle(final Locale locale, final Properties messages) {
+
+        super();
+
+        Validate.notNull(locale, "Locale cannot be null");
+        Validate.notNull(messages, "Messages cannot be null");
+
+        this.locale = locale;
+
+        // Note this will only take into account the entries directly contained in the Properties object,
+        // not those in its defaults.
+        this.messages = new HashMap<String, Object>(messages.size() + 1, 1.0f);
+        for (final Map.Entry<Object,Object> entry : messages.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
+                continue;
+            }
+            final String value = (String) entry.getValue();
+            this.messages.put(
+                    (String) entry.getKey(),
+                    (isFormatCandidate(value)? new ParsedMessage(value, parseMessageFormat(value, locale)) : value));
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the locale these messages were resolved for.
+     * </p>
+     *
+     * @return the locale
+     */
+    public Locale getLocale() {
+        return this.locale;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of messages contained in this bundle.
+     * </p>
+     *
+     * @return the number of messages
+     */
+    public int size() {
+        return this.messages.size();
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether this bundle contains a message with the specified key.
+     * </p>
+     *
+     * @param key the message key
+     * @return true if the message exists, false if not
+     */
+    public boolean containsMessage(final String key) {
+        return this.messages.containsKey(key);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the (unformatted) value of a message, or null if the message does not exist.
+     * </p>
+     *
+     * @param key the message key
+     * @return the message value, or null if not found
+     */
+    public String getMessage(final String key) {
+        final Object message = this.messages.get(key);
+        if (message == null) {
+            return null;
+        }
+        if (message instanceof ParsedMessage) {
+            return ((ParsedMessage) message).value;
+        }
+        return (String) message;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the value of a message formatted with the specified parameters (which can be null), or null if the
+     *   message does not exist.
+     * </p>
+     * <p>
+     *   Messages that contain no parameter placeholders and no quotes are returned without performing any
+     *   formatting operations.
+     * </p>
+     *
+     * @param key the message key
+     * @param messageParameters the message parameters (might be null)
+     * @return the formatted message, or null if not found
+     */
+    public String formatMessage(final String key, final Object[] messageParameters) {
+
+        final Object message = this.messages.get(key);
+        if (message == null) {
+            return null;
+        }
+        if (!(message instanceof ParsedMessage)) {
+            return (String) message;
+        }
+
+        final ParsedMessage parsedMessage = (ParsedMessage) message;
+        final Object[] parameters = (messageParameters != null? messageParameters : EMPTY_MESSAGE_PARAMETERS);
+
+        if (parsedMessage.format == null) {
+            // Pattern could not be parsed when building the bundle: parsing it now will raise the corresponding error
+            return new MessageFormat(parsedMessage.value, this.locale).format(parameters);
+        }
+
+        // MessageFormat objects are not thread-safe, so we will clone it (which is much cheaper than parsing
+        // the pattern again) in order to keep the formatting state local to this call.
+        return ((MessageFormat) parsedMessage.format.clone()).format(parameters);
+
+    }
+
+
+
+
+    /*
+     * This will allow us determine whether a message might actually contain parameter placeholders.
+     */
+    private static boolean isFormatCandidate(final String message) {
+        char c;
+        int n = message.length();
+        while (n-- != 0) {
+            c = message.charAt(n);
+            if (c == '}' || c == '\'') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static MessageFormat parseMessageFormat(final String message, final Locale locale) {
+        try {
+            return new MessageFormat(message, locale);
+        } catch (final IllegalArgumentException e) {
+            // We will not fail when loading the messages, but when (and if) this specific message is used
+            return null;
+        }
+    }
+
+
+
+
+    private static final class ParsedMessage {
+
+        final String value;
+        final MessageFormat format;
+
+        ParsedMessage(final String value, final MessageFormat format) {
+            super();
+            this.value = value;
+            this.format = format;
+        }
+
+    }
+
+
+}
@@ -20,6 +20,7 @@
 package org.thymeleaf.message.resolver;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.thymeleaf.context.ITemplateProcessingContext;
 import org.thymeleaf.standard.util.StandardMessageResolutionUtils;
@@ -52,11 +53,13 @@ public class StandardMessageResolver
 
     
     private final Properties defaultMessages;
+    private final AtomicInteger defaultMessagesVersion;
     
 
     public StandardMessageResolver() {
         super();
         this.defaultMessages = new Properties();
+        this.defaultMessagesVersion = new AtomicInteger(0);
     }
 
     
@@ -89,6 +92,21 @@ protected Properties unsafeGetDefaultMessages() {
     }
 
 
+    /**
+     * <p>
+     *   Returns a number that changes every time the default messages are modified by means of the methods
+     *   in this class, so that anything computed from these messages (e.g. locale-specialized templates) can
+     *   be known to be stale.
+     * </p>
+     * 
+     * @return the current version of the default messages
+     * @since 3.0.0
+     */
+    public final int getDefaultMessagesVersion() {
+        return this.defaultMessagesVersion.get();
+    }
+
+
     /**
      * <p>
      *   Sets the default messages. These messages will be used 
@@ -100,6 +118,7 @@ protected Properties unsafeGetDefaultMessages() {
     public void setDefaultMessages(final Properties defaultMessages) {
         if (defaultMessages != null) {
             this.defaultMessages.putAll(defaultMessages);
+            this.defaultMessagesVersion.incrementAndGet();
         }
     }
     
@@ -116,6 +135,7 @@ public void addDefaultMessage(final String key, final String value) {
         Validate.notNull(key, "Key for default message cannot be null");
         Validate.notNull(value, "Value for default message cannot be null");
         this.defaultMessages.put(key, value);
+        this.defaultMessagesVersion.incrementAndGet();
     }
 
     
@@ -126,6 +146,7 @@ public void addDefaultMessage(final String key, final String value) {
      */
     public void clearDefaultMessages() {
         this.defaultMessages.clear();
+        this.defaultMessagesVersion.incrementAndGet();
     }
 
     
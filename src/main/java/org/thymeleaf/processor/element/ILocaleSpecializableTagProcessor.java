@@ -0,0 +1,66 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.processor.element;
+
+import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.model.IProcessableElementTag;
+
+/**
+ * <p>
+ *   Element tag processors that, for some of their executions, produce a result that depends only on the
+ *   template being processed and the locale (e.g. the text of an externalized message with a constant key),
+ *   and which can therefore be executed just once per template and locale.
+ * </p>
+ * <p>
+ *   When locale specialization of cached templates is enabled at the
+ *   {@link org.thymeleaf.TemplateEngine#setLocaleSpecializationEnabled(boolean) template engine}, every element
+ *   that has a processor implementing this interface as its only associated processor will be asked to
+ *   specialize its body when the template is first processed for a locale. If the processor returns a body, the
+ *   element will be stored with that body (as static text) in the specialized template, and the processor will
+ *   not be executed for it any more.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ * 
+ */
+public interface ILocaleSpecializableTagProcessor extends IElementTagProcessor {
+
+
+    /**
+     * <p>
+     *   Computes the body an element would have after executing this processor on it, but only if this body
+     *   depends on nothing but the template and the locale of the specified processing context.
+     * </p>
+     * <p>
+     *   If a body is returned, the processor must also have removed from the tag the same attributes that it
+     *   would have removed during a normal execution. If <tt>null</tt> is returned, the tag must be left untouched.
+     * </p>
+     *
+     * @param processingContext the processing context (which specifies the locale)
+     * @param tag the element tag (a copy of the one in the cached template, so it can be modified)
+     * @return the body, as already-escaped text that will be output as is, or <tt>null</tt> if the result of
+     *         this processor cannot be specialized for this element.
+     */
+    public String specializeBody(
+            final ITemplateProcessingContext processingContext, final IProcessableElementTag tag);
+
+
+}
@@ -0,0 +1,179 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.resourceresolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.thymeleaf.resource.CharArrayResource;
+
+/**
+ * <p>
+ *   Reads and decodes whole files into {@link CharArrayResource} objects, using memory mapping for
+ *   large files and fast decoding paths for the most common (ASCII-compatible) encodings.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class FileContentDecoder {
+
+    /*
+     * Files smaller than this will be read into a heap buffer instead of being mapped, as mapping has
+     * a fixed cost that is not worth paying for small files.
+     */
+    static final int MEMORY_MAPPING_MIN_SIZE = 16384;
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+
+
+    /*
+     * Returns null if the file is too big to be decoded into a single char[] array
+     */
+    static CharArrayResource readFile(
+            final String resourceName, final File file, final Charset charset, final boolean memoryMapped)
+            throws IOException {
+
+        final FileInputStream inputStream = new FileInputStream(file);
+
+        try {
+
+            final FileChannel channel = inputStream.getChannel();
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            final ByteBuffer bytes;
+            if (memoryMapped && size >= MEMORY_MAPPING_MIN_SIZE) {
+                // Note mappings cannot be explicitly released, they will be once the buffer is garbage collected
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // Nothing to do, just keep reading
+                }
+                bytes.flip();
+            }
+
+            return decode(resourceName, bytes, charset);
+
+        } finally {
+            try {
+                inputStream.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
+
+    }
+
+
+
+
+    static CharArrayResource decode(final String resourceName, final ByteBuffer bytes, final Charset charset) {
+
+        final int len = bytes.remaining();
+        final int start = bytes.position();
+
+        if (ISO_8859_1.equals(charset)) {
+            // Every byte is exactly one char
+            final char[] chars = new char[len];
+            for (int i = 0; i < len; i++) {
+                chars[i] = (char) (bytes.get(start + i) & 0xFF);
+            }
+            return new CharArrayResource(resourceName, chars, 0, len);
+        }
+
+        if (UTF_8.equals(charset) || US_ASCII.equals(charset)) {
+
+            // Both encodings always produce at most one char per byte, so a char[] of the same size as the
+            // input will always be enough.
+            final char[] chars = new char[len];
+
+            int i = 0;
+            byte b;
+            while (i < len && (b = bytes.get(start + i)) >= 0) {
+                chars[i++] = (char) b;
+            }
+
+            if (i == len) {
+                // Pure ASCII content: no need for a decoder at all
+                return new CharArrayResource(resourceName, chars, 0, len);
+            }
+
+            // Non-ASCII content found: we will let a decoder take care of the rest, writing on the same array
+            bytes.position(start + i);
+            final CharBuffer out = CharBuffer.wrap(chars, i, len - i);
+            final CharsetDecoder decoder = createDecoder(charset);
+            final CoderResult result = decoder.decode(bytes, out, true);
+            if (!result.isOverflow() && !decoder.flush(out).isOverflow()) {
+                return new CharArrayResource(resourceName, chars, 0, out.position());
+            }
+
+            // Should never happen, but just in case we will start over with the general mechanism
+            bytes.position(start);
+
+        }
+
+        final CharBuffer out;
+        try {
+            out = createDecoder(charset).decode(bytes);
+        } catch (final IOException e) {
+            // Should never happen as decoders are configured to replace malformed input
+            throw new IllegalStateException("Could not decode resource \"" + resourceName + "\"", e);
+        }
+        return new CharArrayResource(resourceName, out.array(), out.arrayOffset() + out.position(), out.remaining());
+
+    }
+
+
+
+
+    private static CharsetDecoder createDecoder(final Charset charset) {
+        // Same behaviour as java.io.InputStreamReader
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+
+
+
+    private FileContentDecoder() {
+        super();
+    }
+
+
+}
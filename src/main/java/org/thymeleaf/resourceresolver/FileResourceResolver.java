@@ -23,12 +23,15 @@
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.StandardCache;
 import org.thymeleaf.context.IContext;
+import org.thymeleaf.resource.CharArrayResource;
 import org.thymeleaf.resource.IResource;
 import org.thymeleaf.resource.ReaderResource;
 import org.thymeleaf.util.StringUtils;
@@ -51,6 +54,17 @@
  *    (Note that a {@link java.io.Reader} will be created on top of the
  *    input stream, and the result will be encapsulated into a {@link ReaderResource}.
  *  </p>
+ *  <p>
+ *    Alternatively, this resolver can be created in <i>memory-mapped</i> mode, in which files
+ *    will be mapped into memory (if big enough) and decoded in bulk into a {@link CharArrayResource},
+ *    using fast decoding paths for ASCII, ISO-8859-1 and UTF-8 content. Note that, depending on the
+ *    platform, mapped files might not be modifiable until their mapping is garbage collected.
+ *  </p>
+ *  <p>
+ *    Additionally, the decoded contents of files can be cached (using soft references) and reused for as
+ *    long as their modification date and size do not change, so that reparsing a template after its
+ *    parsed representation has been evicted from the template cache does not require any disk reads.
+ *  </p>
  *
  * @author Daniel Fern&aacute;ndez
  *
@@ -63,18 +77,59 @@ public final class FileResourceResolver
     private static final Logger logger = LoggerFactory.getLogger(FileResourceResolver.class);
     
     public static final String NAME = "FILE";
-    
+
+    private static final String CONTENT_CACHE_NAME = "FILE_RESOURCE_CONTENT_CACHE";
+    private static final int CONTENT_CACHE_INITIAL_SIZE = 20;
+    private static final int CONTENT_CACHE_MAX_SIZE = 500;
+
+
+    private final boolean memoryMapped;
+    private final StandardCache<String,DecodedFileContent> contentCache;
+
 
     public FileResourceResolver() {
+        this(false, false);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this resource resolver.
+     * </p>
+     *
+     * @param memoryMapped whether files should be memory-mapped and decoded in bulk into {@link CharArrayResource}
+     *                     objects instead of being read as {@link ReaderResource} objects.
+     * @param cacheDecodedContent whether decoded file contents should be cached and reused for as long as
+     *                            files are not modified (implies bulk decoding).
+     * @since 3.0.0
+     */
+    public FileResourceResolver(final boolean memoryMapped, final boolean cacheDecodedContent) {
         super();
+        this.memoryMapped = memoryMapped;
+        this.contentCache =
+                (cacheDecodedContent?
+                        new StandardCache<String, DecodedFileContent>(
+                                CONTENT_CACHE_NAME, true, CONTENT_CACHE_INITIAL_SIZE, CONTENT_CACHE_MAX_SIZE,
+                                LoggerFactory.getLogger(TemplateEngine.class.getName() + ".cache." + CONTENT_CACHE_NAME)) :
+                        null);
     }
-    
+
     
     public String getName() {
         return NAME; 
     }
 
 
+    public boolean isMemoryMapped() {
+        return this.memoryMapped;
+    }
+
+
+    public boolean isDecodedContentCached() {
+        return this.contentCache != null;
+    }
+
+
     public IResource resolveResource(
             final IEngineConfiguration configuration, final IContext context,
             final String resource, final String characterEncoding) {
@@ -88,6 +143,14 @@ public IResource resolveResource(
                 return null;
             }
 
+            if (this.memoryMapped || this.contentCache != null) {
+                final IResource bulkResource = resolveBulkResource(resource, resourceFile, characterEncoding);
+                if (bulkResource != null) {
+                    return bulkResource;
+                }
+                // File is too big to be decoded in bulk, so we will just use a reader
+            }
+
             final InputStream inputStream = new FileInputStream(resourceFile);
 
             final InputStreamReader reader;
@@ -109,6 +172,42 @@ public IResource resolveResource(
 
 
 
+    private IResource resolveBulkResource(
+            final String resource, final File resourceFile, final String characterEncoding)
+            throws Exception {
+
+        final Charset charset =
+                (!StringUtils.isEmptyOrWhitespace(characterEncoding)?
+                        Charset.forName(characterEncoding) : Charset.defaultCharset());
+
+        if (this.contentCache == null) {
+            return FileContentDecoder.readFile(resource, resourceFile, charset, this.memoryMapped);
+        }
+
+        // Modification date and size are obtained before reading, so that modifications performed during
+        // the read will always be detected afterwards
+        final long lastModified = resourceFile.lastModified();
+        final long length = resourceFile.length();
+
+        final DecodedFileContent cached = this.contentCache.get(resource);
+        if (cached != null && cached.isValidFor(lastModified, length, charset)) {
+            return cached.resource;
+        }
+
+        final CharArrayResource decoded =
+                FileContentDecoder.readFile(resource, resourceFile, charset, this.memoryMapped);
+        if (decoded != null) {
+            // put() never replaces existing entries, so a stale one needs to be removed first
+            this.contentCache.clearKey(resource);
+            this.contentCache.put(resource, new DecodedFileContent(lastModified, length, charset, decoded));
+        }
+        return decoded;
+
+    }
+
+
+
+
     private static void showException(final String resourceName, final Throwable t) {
         if (logger.isDebugEnabled()) {
             if (logger.isTraceEnabled()) {
@@ -133,4 +232,33 @@ private static void showException(final String resourceName, final Throwable t)
     }
 
 
+
+
+    /*
+     * CharArrayResource objects are immutable (their content arrays are never modified by the parsers), so
+     * the same resource object can be safely returned for every resolution of the same unmodified file.
+     */
+    private static final class DecodedFileContent {
+
+        private final long lastModified;
+        private final long length;
+        private final Charset charset;
+        private final CharArrayResource resource;
+
+        DecodedFileContent(
+                final long lastModified, final long length, final Charset charset, final CharArrayResource resource) {
+            super();
+            this.lastModified = lastModified;
+            this.length = length;
+            this.charset = charset;
+            this.resource = resource;
+        }
+
+        boolean isValidFor(final long lastModified, final long length, final Charset charset) {
+            return this.lastModified == lastModified && this.length == length && this.charset.equals(charset);
+        }
+
+    }
+
+
 }
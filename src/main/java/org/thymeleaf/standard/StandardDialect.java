@@ -30,6 +30,7 @@
 import org.thymeleaf.expression.IExpressionObjectFactory;
 import org.thymeleaf.processor.IProcessor;
 import org.thymeleaf.standard.expression.IStandardConversionService;
+import org.thymeleaf.standard.expression.IStandardConverter;
 import org.thymeleaf.standard.expression.IStandardExpressionParser;
 import org.thymeleaf.standard.expression.IStandardVariableExpressionEvaluator;
 import org.thymeleaf.standard.expression.OGNLVariableExpressionEvaluator;
@@ -57,6 +58,7 @@
 import org.thymeleaf.standard.processor.StandardInlineEnablementDocumentProcessor;
 import org.thymeleaf.standard.processor.StandardInlineHTMLTagProcessor;
 import org.thymeleaf.standard.processor.StandardInlineXMLTagProcessor;
+import org.thymeleaf.standard.processor.StandardInlinedExpressionTextProcessor;
 import org.thymeleaf.standard.processor.StandardInliningTextProcessor;
 import org.thymeleaf.standard.processor.StandardInsertTagProcessor;
 import org.thymeleaf.standard.processor.StandardLangXmlLangTagProcessor;
@@ -265,6 +267,36 @@ public void setConversionService(final IStandardConversionService conversionServ
     }
 
 
+    /**
+     * <p>
+     *   Registers a converter at the Standard Conversion Service used by this dialect, so that it is applied when
+     *   converting objects of its source class into its target class.
+     * </p>
+     * <p>
+     *   Converters can only be registered if the conversion service in use is a {@link StandardConversionService}
+     *   (which is the default).
+     * </p>
+     * <p>
+     *   Note that, unlike most configuration methods in this dialect, this method does have an effect after the
+     *   Template Engine has been initialized: the converter is registered at the conversion service being used,
+     *   and will be applied to any conversions performed afterwards. Registering converters before
+     *   initialization is recommended, though.
+     * </p>
+     *
+     * @param converter the converter to be registered. Cannot be null.
+     * @since 3.0.0
+     */
+    public void addConverter(final IStandardConverter<?,?> converter) {
+        Validate.notNull(converter, "Converter cannot be null");
+        if (!(this.conversionService instanceof StandardConversionService)) {
+            throw new IllegalStateException(
+                    "Cannot register converter: converters can only be registered when the Standard Conversion " +
+                    "Service in use is an instance of " + StandardConversionService.class.getName());
+        }
+        ((StandardConversionService) this.conversionService).addConverter(converter);
+    }
+
+
 
 
 
@@ -443,6 +475,12 @@ public static Set<IProcessor> createStandardProcessorsSet(final String dialectPr
         processors.add(new StandardInlineEnablementDocumentProcessor(TemplateMode.XML));
 
 
+
+        /*
+         * TEXT: TEXT PROCESSORS
+         */
+        processors.add(new StandardInlinedExpressionTextProcessor(TemplateMode.TEXT));
+
         return processors;
 
     }
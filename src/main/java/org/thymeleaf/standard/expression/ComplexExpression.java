@@ -53,6 +53,9 @@ static Object executeComplex(final IProcessingContext processingContext,
         if (expression instanceof AdditionExpression) {
             return AdditionExpression.executeAddition(processingContext, (AdditionExpression)expression, expContext);
         }
+        if (expression instanceof LiteralSubstitutionExpression) {
+            return LiteralSubstitutionExpression.executeLiteralSubstitution(processingContext, (LiteralSubstitutionExpression)expression, expContext);
+        }
         if (expression instanceof SubtractionExpression) {
             return SubtractionExpression.executeSubtraction(processingContext, (SubtractionExpression)expression, expContext);
         }
@@ -65,6 +65,14 @@ static Expression parse(final String input) {
 
         Validate.notNull(input, "Input cannot be null");
 
+        /*
+         * Expressions made entirely of a literal substitution (|...|) are compiled into their own kind of expression
+         */
+        final Expression literalSubstitution = LiteralSubstitutionExpression.parseLiteralSubstitution(input);
+        if (literalSubstitution != null) {
+            return literalSubstitution;
+        }
+
         /*
          * PHASE 01: Decomposition (including unnesting parenthesis)
          */
@@ -0,0 +1,261 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import java.math.BigDecimal;
+
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.util.EvaluationUtil;
+
+/**
+ * <p>
+ *   Optimization pass applied on parsed expressions before they are cached, which folds constant sub-trees
+ *   (operations between literals and tokens, like <tt>'prefix-' + 'x'</tt> or <tt>3 * 4 &gt; 10</tt>) into the
+ *   literal or token expression they will always evaluate to, and prunes conditional and default expressions whose
+ *   deciding operand is constant.
+ * </p>
+ * <p>
+ *   Constant sub-trees are folded by executing them once, so that results are exactly the same as they would be
+ *   at execution time (including the distinction between text literals and unwrapped <tt>String</tt> values that
+ *   {@link AdditionExpression} relies on). Sub-trees whose execution fails are left unfolded, so that the error is
+ *   raised when (and if) they are actually executed.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class ExpressionFoldingUtil {
+
+
+
+
+    static Expression fold(final IProcessingContext processingContext, final Expression expression) {
+
+        if (!(expression instanceof ComplexExpression)) {
+            return expression;
+        }
+
+        if (expression instanceof BinaryOperationExpression) {
+
+            final BinaryOperationExpression operation = (BinaryOperationExpression) expression;
+            // Operands of 'and' and 'or' are only used after being evaluated as booleans
+            final boolean booleanOperands = (operation instanceof AndExpression || operation instanceof OrExpression);
+
+            final IStandardExpression left = foldOperand(processingContext, operation.getLeft(), booleanOperands);
+            final IStandardExpression right = foldOperand(processingContext, operation.getRight(), booleanOperands);
+
+            final Expression folded =
+                    (left == operation.getLeft() && right == operation.getRight()?
+                            operation : createBinaryOperation(operation.getClass(), left, right));
+
+            if (folded != null && isConstant(left) && isConstant(right)) {
+                return computeConstant(processingContext, folded);
+            }
+            return (folded != null? folded : operation);
+
+        }
+
+        if (expression instanceof ConditionalExpression) {
+
+            final ConditionalExpression conditional = (ConditionalExpression) expression;
+
+            final Expression condition = (Expression) foldOperand(processingContext, conditional.getConditionExpression(), true);
+            final Expression thenExpression = fold(processingContext, conditional.getThenExpression());
+            final Expression elseExpression = fold(processingContext, conditional.getElseExpression());
+
+            final ConditionalExpression folded =
+                    (condition == conditional.getConditionExpression() &&
+                     thenExpression == conditional.getThenExpression() &&
+                     elseExpression == conditional.getElseExpression()?
+                            conditional : new ConditionalExpression(condition, thenExpression, elseExpression));
+
+            if (isConstant(condition)) {
+                final boolean cond = EvaluationUtil.evaluateAsBoolean(condition.execute(processingContext));
+                return pruneTo(processingContext, folded, (cond? thenExpression : elseExpression));
+            }
+            return folded;
+
+        }
+
+        if (expression instanceof DefaultExpression) {
+
+            final DefaultExpression defaultExpression = (DefaultExpression) expression;
+
+            final Expression queried = fold(processingContext, defaultExpression.getQueriedExpression());
+            final Expression defaultValue = fold(processingContext, defaultExpression.getDefaultExpression());
+
+            final DefaultExpression folded =
+                    (queried == defaultExpression.getQueriedExpression() &&
+                     defaultValue == defaultExpression.getDefaultExpression()?
+                            defaultExpression : new DefaultExpression(queried, defaultValue));
+
+            if (isConstant(queried)) {
+                return pruneTo(processingContext, folded, (queried.execute(processingContext) == null? defaultValue : queried));
+            }
+            return folded;
+
+        }
+
+        if (expression instanceof MinusExpression) {
+
+            final MinusExpression minus = (MinusExpression) expression;
+            final Expression operand = fold(processingContext, minus.getOperand());
+            final MinusExpression folded = (operand == minus.getOperand()? minus : new MinusExpression(operand));
+            return (isConstant(operand)? computeConstant(processingContext, folded) : folded);
+
+        }
+
+        if (expression instanceof NegationExpression) {
+
+            final NegationExpression negation = (NegationExpression) expression;
+            final Expression operand = (Expression) foldOperand(processingContext, negation.getOperand(), true);
+            final NegationExpression folded = (operand == negation.getOperand()? negation : new NegationExpression(operand));
+            return (isConstant(operand)? computeConstant(processingContext, folded) : folded);
+
+        }
+
+        return expression;
+
+    }
+
+
+
+
+    private static IStandardExpression foldOperand(
+            final IProcessingContext processingContext, final IStandardExpression operand, final boolean booleanOperand) {
+
+        if (!(operand instanceof Expression)) {
+            return operand;
+        }
+
+        final Expression folded = fold(processingContext, (Expression) operand);
+
+        if (booleanOperand && folded instanceof VariableExpression) {
+            // '${true}' and '${false}' are boolean literals in any expression language, and when their result is
+            // only going to be evaluated as a boolean the only thing that could make a difference is the conversion
+            // service converting them into something else when type conversion is active, so we only fold them
+            // if such conversion keeps their boolean value. A StandardConversionService can have converters
+            // registered at any moment (see StandardDialect#addConverter()), which would not be applied to
+            // already folded (and cached) expressions, so these are never folded when using one.
+            final String variableExpression = ((VariableExpression) folded).getExpression().trim();
+            if ("true".equals(variableExpression) || "false".equals(variableExpression)) {
+                final Boolean value = Boolean.valueOf(variableExpression);
+                final IStandardConversionService conversionService =
+                        StandardExpressions.getConversionService(processingContext.getConfiguration());
+                if (!(conversionService instanceof StandardConversionService) &&
+                        EvaluationUtil.evaluateAsBoolean(conversionService.convert(processingContext, value, String.class)) ==
+                                value.booleanValue()) {
+                    return new BooleanTokenExpression(value);
+                }
+            }
+        }
+
+        return folded;
+
+    }
+
+
+
+
+    /*
+     * Used when the branch that a conditional or default expression will always execute is known. The branch itself
+     * can only replace the original expression if it returns the same (i.e. it is a constant or a variable
+     * expression, which never return text literals that would have been unwrapped by the original expression).
+     */
+    private static Expression pruneTo(
+            final IProcessingContext processingContext, final Expression original, final Expression branch) {
+        if (isConstant(branch)) {
+            return computeConstant(processingContext, original);
+        }
+        if (branch instanceof VariableExpression || branch instanceof SelectionVariableExpression) {
+            return branch;
+        }
+        return original;
+    }
+
+
+
+
+    private static boolean isConstant(final IStandardExpression expression) {
+        return (expression instanceof Token || expression instanceof TextLiteralExpression);
+    }
+
+
+
+
+    private static Expression computeConstant(final IProcessingContext processingContext, final Expression expression) {
+
+        final Object value;
+        try {
+            // Execution with no literal-unwrapping, so that we obtain exactly what parent expressions would
+            final IStandardVariableExpressionEvaluator expressionEvaluator =
+                    StandardExpressions.getVariableExpressionEvaluator(processingContext.getConfiguration());
+            value = Expression.execute(
+                    processingContext, expression, expressionEvaluator, StandardExpressionExecutionContext.NORMAL);
+        } catch (final RuntimeException e) {
+            // The expression will fail at execution time, which is where the error should be reported
+            return expression;
+        }
+
+        if (value == null) {
+            return new NullTokenExpression();
+        }
+        if (value instanceof Boolean) {
+            return new BooleanTokenExpression((Boolean) value);
+        }
+        if (value instanceof BigDecimal) {
+            return new NumberTokenExpression(((BigDecimal) value).toPlainString());
+        }
+        if (value instanceof LiteralValue) {
+            return new TextLiteralExpression(TextLiteralExpression.wrapStringIntoLiteral(((LiteralValue) value).getValue()));
+        }
+        if (value instanceof String) {
+            return new GenericTokenExpression((String) value);
+        }
+        return expression;
+
+    }
+
+
+
+
+    private static Expression createBinaryOperation(
+            final Class<? extends BinaryOperationExpression> operationClass,
+            final IStandardExpression left, final IStandardExpression right) {
+        try {
+            return operationClass.getDeclaredConstructor(IStandardExpression.class, IStandardExpression.class).
+                        newInstance(left, right);
+        } catch (final Exception e) {
+            // Should never happen, but in such case the expression will just not be folded
+            return null;
+        }
+    }
+
+
+
+
+    private ExpressionFoldingUtil() {
+        super();
+    }
+
+
+}
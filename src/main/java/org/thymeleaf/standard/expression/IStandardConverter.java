@@ -0,0 +1,80 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import org.thymeleaf.context.IProcessingContext;
+
+/**
+ * <p>
+ *   Common interface for converters that can be registered at {@link StandardConversionService} in order to
+ *   perform the conversion of objects of a specific class (or any of its subclasses or implementations) into
+ *   objects of a specific target class.
+ * </p>
+ * <p>
+ *   Converters are looked up by the exact source and target classes of each conversion, and the lookup is cached,
+ *   so that most conversions only need a map lookup before calling the converter.
+ * </p>
+ * <p>
+ *   Implementations of this interface should be <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @param <S> the source type
+ * @param <T> the target type
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public interface IStandardConverter<S,T> {
+
+    /**
+     * <p>
+     *   Returns the class of the objects this converter can convert. Objects of any subclass (or implementation,
+     *   if it is an interface) will also be converted by this converter, unless there is a converter registered
+     *   for a more specific class.
+     * </p>
+     *
+     * @return the source class.
+     */
+    public Class<S> getSourceClass();
+
+    /**
+     * <p>
+     *   Returns the class of the objects this converter creates. Converters are only used for conversions
+     *   targeted to exactly this class.
+     * </p>
+     *
+     * @return the target class.
+     */
+    public Class<T> getTargetClass();
+
+    /**
+     * <p>
+     *   Convert the specified object (which will never be null).
+     * </p>
+     *
+     * @param processingContext the processing context object.
+     * @param object the object to be converted.
+     * @return the converted object.
+     */
+    public T convert(final IProcessingContext processingContext, final S object);
+
+}
@@ -68,10 +68,18 @@ public final class LinkExpression extends SimpleExpression {
     
     private static final String URL_PARAM_NO_VALUE = "%%%__NO_VALUE__%%%";
 
+    private static final int DEFAULT_PARAMETER_LENGTH = 24;
+
 
     
     private final IStandardExpression base;
     private final AssignationSequence parameters;
+
+    // All computed at construction time. They are not serialized (they will simply be null after
+    // deserialization), in which case everything will be computed at execution time.
+    private final transient LinkBasePlan basePlan;
+    private final transient String[] constantParameterNames;
+    private final transient String[] constantEscapedParameterNames;
     
     
     
@@ -81,6 +89,9 @@ public LinkExpression(final IStandardExpression base, final AssignationSequence
         Validate.notNull(base, "Base cannot be null");
         this.base = base;
         this.parameters = parameters;
+        this.basePlan = computeConstantBasePlan(base);
+        this.constantParameterNames = computeConstantParameterNames(parameters);
+        this.constantEscapedParameterNames = escapeParameterNames(this.constantParameterNames);
     }
     
     
@@ -251,25 +262,20 @@ static Object executeLink(
             logger.trace("[THYMELEAF][{}] Evaluating link: \"{}\"", TemplateEngine.threadIndex(), expression.getStringRepresentation());
         }
 
-        final IStandardExpression baseExpression = expression.getBase();
-        Object base = baseExpression.execute(processingContext, expContext);
-
-        base = LiteralValue.unwrap(base);
-        if (base != null && !(base instanceof String)) {
-            base = base.toString();
-        }
-        if (base == null || StringUtils.isEmptyOrWhitespace((String) base)) {
-            base = "";
+        /*
+         * Obtain the plan for the link base. If the base is constant, this will have been computed at parse time
+         * and we will not even need to execute the base expression. Else, it has to be computed for this execution.
+         */
+        final LinkBasePlan basePlan;
+        if (expression.basePlan != null) {
+            basePlan = expression.basePlan;
+        } else {
+            basePlan = LinkBasePlan.compute(evaluateBase(processingContext, expression.getBase(), expContext));
         }
 
-        final boolean linkBaseAbsolute = isLinkBaseAbsolute((String)base);
-        final boolean linkBaseContextRelative = !linkBaseAbsolute && isLinkBaseContextRelative((String)base);
-        final boolean linkBaseServerRelative = !linkBaseAbsolute && !linkBaseContextRelative && isLinkBaseServerRelative((String) base);
-        final boolean linkBaseRelative = !linkBaseAbsolute && !linkBaseContextRelative && !linkBaseServerRelative;
-
-        if (!processingContext.isWeb() && linkBaseContextRelative) {
+        if (!processingContext.isWeb() && basePlan.contextRelative) {
             throw new TemplateProcessingException(
-                    "Link base \"" + base + "\" cannot be context relative (/...) unless the context " +
+                    "Link base \"" + basePlan.base + "\" cannot be context relative (/...) unless the context " +
                     "used for executing the engine implements the " + IWebContext.class.getName() + " interface");
         }
 
@@ -281,27 +287,12 @@ static Object executeLink(
         final LinkParameters parameters = resolveParameters(processingContext, expression, expContext);
 
 
-        /*
-         * Compute URL fragments (selectors after '#') so that they can be output at the end of
-         * the URL, after parameters.
-         */
-        final int hashPosition = findCharInSequence((String) base, '#');
-
-
-        /*
-         * Compute whether we might have variable templates (e.g. Spring Path Variables) inside this link base
-         * that we might need to resolve afterwards
-         */
-        final boolean mightHaveVariableTemplates =
-                findCharInSequence((String)base, URL_TEMPLATE_DELIMITER_PREFIX_CHAR) >= 0;
-
-
         /*
          * Precompute the context path, so that it can be afterwards used for determining if it has to be added to the
          * URL (in case it is context-relative) or not
          */
         final String contextPath;
-        if (linkBaseContextRelative) {
+        if (basePlan.contextRelative) {
             // If it is context-relative, it has to be a web context
             final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
             final HttpServletRequest request = webVariablesMap.getRequest();
@@ -313,118 +304,175 @@ static Object executeLink(
 
 
         /*
-         * SHORTCUT - just before starting to work with StringBuilders, and in the case that we know: 1. That the URL is
-         *            absolute, relative or context-relative with no context; 2. That there are no parameters; and
-         *            3. That there are no URL fragments -> then just return the base URL String without further
-         *            processing (except HttpServletResponse-encoding, of course...)
+         * SHORTCUT - if there are no parameters, the base plan already contains the whole URL (once URL fragments
+         *            have been moved to the end and the server-relative '~' removed), so there is no need to
+         *            work with StringBuilders at all.
          */
-        if (contextPathEmpty && !linkBaseServerRelative &&
-                (parameters == null || parameters.size() == 0) && hashPosition < 0 && !mightHaveVariableTemplates) {
+        final String link;
+        if (parameters == null || parameters.size() == 0) {
+
+            link = (basePlan.contextRelative && !contextPathEmpty? contextPath + basePlan.pathAndFragment : basePlan.pathAndFragment);
+
+        } else {
 
-            if (processingContext.isWeb()) {
-                final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
-                final HttpServletResponse response = webVariablesMap.getResponse();
-                return (response != null? response.encodeURL((String) base) : base);
+            /*
+             * Build the StringBuilder that will be used for all URL-related operations from now on: variable
+             * templates, parameters, URL fragments...
+             */
+            StringBuilder linkBase =
+                    new StringBuilder(basePlan.pathAndFragment.length() + (parameters.size() * DEFAULT_PARAMETER_LENGTH));
+            linkBase.append(basePlan.path);
+
+            /*
+             * Replace those variable templates that might appear referenced in the path itself, as for example, Spring
+             * "Path Variables" (e.g. '/something/{variable}/othersomething')
+             */
+            if (basePlan.mightHaveVariableTemplates) {
+                linkBase = replaceTemplateParamsInBase(textRepository, linkBase, parameters);
             }
-            // Processing context is not web, no need to HttpServletResponse-encode
-            return base;
 
-        }
+            /*
+             * Process parameters (those that have not already been processed as a result of replacing template
+             * parameters in base).
+             */
+            if (parameters.size() > 0) {
 
+                // Replacing variable templates could have modified the link base, so we can only trust the
+                // precomputed value if there were no templates to replace
+                final boolean linkBaseHasQuestionMark =
+                        (basePlan.mightHaveVariableTemplates? findCharInSequence(linkBase,'?') >= 0 : basePlan.pathHasQuestionMark);
 
-        /*
-         * Build the StringBuilder that will be used as a base for all URL-related operations from now on: variable
-         * templates, parameters, URL fragments...
-         */
-        StringBuilder linkBase = new StringBuilder((String) base);
+                // If there is no '?' in linkBase, we have to replace with first '&' with '?'
+                if (linkBaseHasQuestionMark) {
+                    linkBase.append('&');
+                } else {
+                    linkBase.append('?');
+                }
 
+                // Build the parameters query. The result will always start with '&'
+                parameters.processAllRemainingParametersAsQueryParams(linkBase);
+
+            }
+
+            /*
+             * Once parameters have been added (if there are parameters), we can add the URL fragment
+             */
+            linkBase.append(basePlan.urlFragment);
+
+            if (basePlan.contextRelative && !contextPathEmpty) {
+                // Add the application's context path at the beginning
+                linkBase.insert(0, contextPath);
+            }
+
+            link = linkBase.toString();
 
-        /*
-         * Compute URL fragments (selectors after '#') so that they can be output at the end of
-         * the URL, after parameters.
-         */
-        String urlFragment = "";
-        // If hash position == 0 we will not consider it as marking an
-        // URL fragment.
-        if (hashPosition > 0) {
-            // URL fragment String will include the # sign
-            urlFragment = linkBase.substring(hashPosition);
-            linkBase.delete(hashPosition, linkBase.length());
         }
 
 
         /*
-         * Replace those variable templates that might appear referenced in the path itself, as for example, Spring
-         * "Path Variables" (e.g. '/something/{variable}/othersomething')
+         * Context is not web: URLs can only be absolute or server-relative and we will not be doing any
+         * HttpServletRespons#encodeURL(...) because there is no response object, of course...
          */
-        if (mightHaveVariableTemplates) {
-            linkBase = replaceTemplateParamsInBase(textRepository, linkBase, parameters);
+        if (!processingContext.isWeb()) {
+            return link;
         }
 
 
         /*
-         * Process parameters (those that have not already been processed as a result of replacing template
-         * parameters in base).
+         * Context is web
          */
-        if (parameters != null && parameters.size() > 0) {
 
-            final boolean linkBaseHasQuestionMark = findCharInSequence(linkBase,'?') >= 0;
+        final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
+        final HttpServletResponse response = webVariablesMap.getResponse();
 
-            // If there is no '?' in linkBase, we have to replace with first '&' with '?'
-            if (linkBaseHasQuestionMark) {
-                linkBase.append('&');
-            } else {
-                linkBase.append('?');
-            }
+        return (response != null? response.encodeURL(link) : link);
+        
+    }
 
-            // Build the parameters query. The result will always start with '&'
-            parameters.processAllRemainingParametersAsQueryParams(linkBase);
+    
 
-        }
 
+    private static String evaluateBase(
+            final IProcessingContext processingContext, final IStandardExpression baseExpression,
+            final StandardExpressionExecutionContext expContext) {
 
-        /*
-         * Once parameters have been added (if there are parameters), we can add the URL fragment
-         */
-        if (urlFragment.length() > 0) {
-            linkBase.append(urlFragment);
+        final Object base = LiteralValue.unwrap(baseExpression.execute(processingContext, expContext));
+        if (base == null) {
+            return "";
         }
+        return normalizeBase(base.toString());
+
+    }
 
 
-        /*
-         * If link base is server relative, we will delete now the leading '~' character so that it starts with '/'
-         */
-        if (linkBaseServerRelative) {
-            linkBase.delete(0,1);
+
+
+    private static String normalizeBase(final String base) {
+        return (StringUtils.isEmptyOrWhitespace(base) ? "" : base);
+    }
+
+
+    /*
+     * Link bases that are text literals or tokens do not depend on the context at all, so their plan can be
+     * computed just once, when the expression is built. Note text literals will already have been folded
+     * into a single literal by the parser if they were made of several constant operands.
+     */
+    private static LinkBasePlan computeConstantBasePlan(final IStandardExpression baseExpression) {
+        if (baseExpression instanceof TextLiteralExpression) {
+            return LinkBasePlan.compute(normalizeBase(((TextLiteralExpression) baseExpression).getValue().getValue()));
+        }
+        if (baseExpression instanceof GenericTokenExpression) {
+            return LinkBasePlan.compute(normalizeBase(((GenericTokenExpression) baseExpression).getValue().toString()));
         }
+        return null;
+    }
 
 
-        /*
-         * Context is not web: URLs can only be absolute or server-relative and we will not be doing any
-         * HttpServletRespons#encodeURL(...) because there is no response object, of course...
-         */
-        if (!processingContext.isWeb()) {
-            return linkBase.toString();
+    /*
+     * Parameter names are very frequently specified as tokens (e.g. "@{/a(id=${x})}"), in which case they do not
+     * need to be evaluated nor URL-escaped at execution time.
+     */
+    private static String[] computeConstantParameterNames(final AssignationSequence parameters) {
+
+        if (parameters == null || parameters.size() == 0) {
+            return null;
         }
-        
 
-        /*
-         * Context is web 
-         */
-        
-        final IWebVariablesMap webVariablesMap = (IWebVariablesMap) processingContext.getVariables();
-        final HttpServletResponse response = webVariablesMap.getResponse();
+        final List<Assignation> assignations = parameters.getAssignations();
+        final int assignationsLen = assignations.size();
 
-        if (linkBaseContextRelative && !contextPathEmpty) {
-            // Add the application's context path at the beginning
-            linkBase.insert(0, contextPath);
+        String[] constantParameterNames = null;
+        for (int i = 0; i < assignationsLen; i++) {
+            final IStandardExpression parameterNameExpr = assignations.get(i).getLeft();
+            if (parameterNameExpr instanceof GenericTokenExpression) {
+                final String parameterName = ((GenericTokenExpression) parameterNameExpr).getValue().toString();
+                if (!StringUtils.isEmptyOrWhitespace(parameterName)) {
+                    if (constantParameterNames == null) {
+                        constantParameterNames = new String[assignationsLen];
+                    }
+                    constantParameterNames[i] = parameterName;
+                }
+            }
         }
+        return constantParameterNames;
 
-        return (response != null? response.encodeURL(linkBase.toString()) : linkBase.toString());
-        
     }
 
-    
+
+    private static String[] escapeParameterNames(final String[] parameterNames) {
+        if (parameterNames == null) {
+            return null;
+        }
+        final String[] escapedParameterNames = new String[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i] != null) {
+                escapedParameterNames[i] = UriEscape.escapeUriQueryParam(parameterNames[i]);
+            }
+        }
+        return escapedParameterNames;
+    }
+
+
 
 
     private static int findCharInSequence(final CharSequence seq, final char character) {
@@ -495,6 +543,7 @@ private static LinkParameters resolveParameters(
         }
 
         final LinkParameters parameters = new LinkParameters();
+        final String[] constantParameterNames = expression.constantParameterNames;
 
         final List<Assignation> assignationValues = expression.getParameters().getAssignations();
         final int assignationValuesLen = assignationValues.size();
@@ -506,9 +555,17 @@ private static LinkParameters resolveParameters(
             final IStandardExpression parameterNameExpr = assignationValue.getLeft();
             final IStandardExpression parameterValueExpr = assignationValue.getRight();
 
-            // We know parameterNameExpr cannot be null (the Assignation class would not allow it)
-            final Object parameterNameValue = parameterNameExpr.execute(processingContext, expContext);
-            final String parameterName = (parameterNameValue == null? null : parameterNameValue.toString());
+            final String parameterName;
+            final String escapedParameterName;
+            if (constantParameterNames != null && constantParameterNames[i] != null) {
+                parameterName = constantParameterNames[i];
+                escapedParameterName = expression.constantEscapedParameterNames[i];
+            } else {
+                escapedParameterName = null;
+                // We know parameterNameExpr cannot be null (the Assignation class would not allow it)
+                final Object parameterNameValue = parameterNameExpr.execute(processingContext, expContext);
+                parameterName = (parameterNameValue == null? null : parameterNameValue.toString());
+            }
 
             if (StringUtils.isEmptyOrWhitespace(parameterName)) {
                 throw new TemplateProcessingException(
@@ -532,7 +589,7 @@ private static LinkParameters resolveParameters(
                 }
             }
 
-            parameters.addSimpleParameter(parameterName, parameterValue);
+            parameters.addSimpleParameter(parameterName, escapedParameterName, parameterValue);
             
         }
         return parameters;
@@ -619,12 +676,77 @@ static StringBuilder replaceTemplateParamsInBase(
 
 
 
+    /*
+     * Contains everything that can be known about a link base without looking at its parameters: its type
+     * (absolute, context-relative, server-relative or relative), the path without URL fragment nor server-relative
+     * '~' prefix, and the URL fragment itself. Constant link bases will have their plan computed just once, at
+     * expression creation.
+     */
+    private static final class LinkBasePlan {
+
+        final String base;
+        final boolean contextRelative;
+        final String path;
+        final String urlFragment;
+        final String pathAndFragment;
+        final boolean pathHasQuestionMark;
+        final boolean mightHaveVariableTemplates;
+
+
+        private LinkBasePlan(
+                final String base, final boolean contextRelative,
+                final String path, final String urlFragment) {
+            super();
+            this.base = base;
+            this.contextRelative = contextRelative;
+            this.path = path;
+            this.urlFragment = urlFragment;
+            this.pathAndFragment = (urlFragment.length() == 0? path : path + urlFragment);
+            this.pathHasQuestionMark = findCharInSequence(path, '?') >= 0;
+            this.mightHaveVariableTemplates = findCharInSequence(path, URL_TEMPLATE_DELIMITER_PREFIX_CHAR) >= 0;
+        }
+
+
+        static LinkBasePlan compute(final String base) {
+
+            final boolean linkBaseAbsolute = isLinkBaseAbsolute(base);
+            final boolean linkBaseContextRelative = !linkBaseAbsolute && isLinkBaseContextRelative(base);
+            final boolean linkBaseServerRelative =
+                    !linkBaseAbsolute && !linkBaseContextRelative && isLinkBaseServerRelative(base);
+
+            /*
+             * Compute URL fragments (selectors after '#') so that they can be output at the end of
+             * the URL, after parameters. If hash position == 0 we will not consider it as marking an
+             * URL fragment. URL fragment String will include the # sign.
+             */
+            final int hashPosition = findCharInSequence(base, '#');
+            String path = (hashPosition > 0? base.substring(0, hashPosition) : base);
+            final String urlFragment = (hashPosition > 0? base.substring(hashPosition) : "");
+
+            /*
+             * If link base is server relative, we will delete the leading '~' character so that it starts with '/'
+             */
+            if (linkBaseServerRelative) {
+                path = path.substring(1);
+            }
+
+            return new LinkBasePlan(base, linkBaseContextRelative, path, urlFragment);
+
+        }
+
+    }
+
+
+
+
     private static final class LinkParameters {
 
         private static final int DEFAULT_PARAMETERS_SIZE = 2;
 
         private int parameterSize = 0;
         private String[] parameterNames = null;
+        // Will contain the already URL-escaped names of those parameters that were constant in the expression
+        private String[] escapedParameterNames = null;
         private Object[] parameterValues = null;
 
 
@@ -652,6 +774,7 @@ String popParameterValueAsUnescapedVariableTemplate(final int pos) {
             // Remove the entry, moving all array positions since this one
             if (pos + 1 < this.parameterSize) {
                 System.arraycopy(this.parameterNames, pos + 1, this.parameterNames, pos, (this.parameterSize - (pos + 1)));
+                System.arraycopy(this.escapedParameterNames, pos + 1, this.escapedParameterNames, pos, (this.parameterSize - (pos + 1)));
                 System.arraycopy(this.parameterValues, pos + 1, this.parameterValues, pos, (this.parameterSize - (pos + 1)));
             }
             this.parameterSize--;
@@ -690,13 +813,16 @@ void processAllRemainingParametersAsQueryParams(final StringBuilder strBuilder)
 
             for (int i = 0; i < this.parameterSize; i++) {
 
+                final String escapedName =
+                        (this.escapedParameterNames[i] != null?
+                                this.escapedParameterNames[i] : UriEscape.escapeUriQueryParam(this.parameterNames[i]));
                 final Object value = this.parameterValues[i];
 
                 if (value == null || URL_PARAM_NO_VALUE.equals(value)) {
                     if (i > 0) {
                         strBuilder.append('&');
                     }
-                    strBuilder.append(UriEscape.escapeUriQueryParam(this.parameterNames[i]));
+                    strBuilder.append(escapedName);
                     continue;
                 }
 
@@ -704,7 +830,7 @@ void processAllRemainingParametersAsQueryParams(final StringBuilder strBuilder)
                     if (i > 0) {
                         strBuilder.append('&');
                     }
-                    strBuilder.append(UriEscape.escapeUriQueryParam(this.parameterNames[i]));
+                    strBuilder.append(escapedName);
                     strBuilder.append('=');
                     strBuilder.append(UriEscape.escapeUriQueryParam(value.toString())); // we know it's not null
                     continue;
@@ -718,7 +844,7 @@ void processAllRemainingParametersAsQueryParams(final StringBuilder strBuilder)
                     if (i > 0 || j > 0) {
                         strBuilder.append('&');
                     }
-                    strBuilder.append(UriEscape.escapeUriQueryParam(this.parameterNames[i]));
+                    strBuilder.append(escapedName);
                     if (!URL_PARAM_NO_VALUE.equals(valueItem)) {
                         strBuilder.append('=');
                         strBuilder.append(valueItem == null ? "" : UriEscape.escapeUriQueryParam(valueItem.toString()));
@@ -730,12 +856,13 @@ void processAllRemainingParametersAsQueryParams(final StringBuilder strBuilder)
         }
 
 
-        void addSimpleParameter(final String parameterName, final Object parameterValue) {
+        void addSimpleParameter(
+                final String parameterName, final String escapedParameterName, final Object parameterValue) {
 
             int n = this.parameterSize;
             while (n-- != 0) {
                 if (this.parameterNames[n].equalsIgnoreCase(parameterName)) {
-                    addSimpleParameter(n, true, parameterName, parameterValue);
+                    addSimpleParameter(n, true, parameterName, escapedParameterName, parameterValue);
                     return;
                 }
             }
@@ -743,26 +870,31 @@ void addSimpleParameter(final String parameterName, final Object parameterValue)
             if (this.parameterNames == null || this.parameterSize == this.parameterNames.length) {
                 // We need to grow the container structures
                 final String[] newParameterNames = new String[this.parameterSize + DEFAULT_PARAMETERS_SIZE];
+                final String[] newEscapedParameterNames = new String[this.parameterSize + DEFAULT_PARAMETERS_SIZE];
                 final Object[] newParameterValues = new Object[this.parameterSize + DEFAULT_PARAMETERS_SIZE];
                 if (this.parameterNames != null) {
                     System.arraycopy(this.parameterNames, 0, newParameterNames, 0, this.parameterSize);
+                    System.arraycopy(this.escapedParameterNames, 0, newEscapedParameterNames, 0, this.parameterSize);
                     System.arraycopy(this.parameterValues, 0, newParameterValues, 0, this.parameterSize);
                 }
                 this.parameterNames = newParameterNames;
+                this.escapedParameterNames = newEscapedParameterNames;
                 this.parameterValues = newParameterValues;
             }
 
-            addSimpleParameter(this.parameterSize, false, parameterName, parameterValue);
+            addSimpleParameter(this.parameterSize, false, parameterName, escapedParameterName, parameterValue);
             this.parameterSize++;
 
         }
 
 
         private void addSimpleParameter(
-                final int pos, final boolean append, final String parameterName, final Object parameterValue) {
+                final int pos, final boolean append,
+                final String parameterName, final String escapedParameterName, final Object parameterValue) {
 
             if (!append) {
                 this.parameterNames[pos] = parameterName;
+                this.escapedParameterNames[pos] = escapedParameterName;
                 this.parameterValues[pos] = processParameterValue(parameterValue); // -> arraylist or plain object
                 return;
             }
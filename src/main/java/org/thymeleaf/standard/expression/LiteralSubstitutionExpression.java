@@ -0,0 +1,238 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.util.Validate;
+
+
+/**
+ * <p>
+ *   Compiled form of an expression consisting exclusively of a literal substitution, like
+ *   <tt>|Hello ${user.name}, you have ${count} items|</tt>.
+ * </p>
+ * <p>
+ *   Literal substitutions are normally rewritten by {@link LiteralSubstitutionUtil} into a chain of additions of
+ *   text literals and simple expressions, which creates an intermediate <tt>String</tt> for each addition at
+ *   execution time. When a literal substitution is the whole expression being parsed, this class is used instead:
+ *   static parts are kept as <tt>char[]</tt> and all parts are appended to a single pre-sized buffer.
+ * </p>
+ * <p>
+ *   The result is exactly the one that the equivalent chain of additions would produce: as literal substitutions
+ *   always include a text literal in their first addition (an empty one between two adjacent expressions), the
+ *   whole chain always acts as a text concatenation, with <tt>null</tt> values output as <tt>"null"</tt>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class LiteralSubstitutionExpression extends ComplexExpression {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiteralSubstitutionExpression.class);
+
+
+    private static final long serialVersionUID = -6216640513934472164L;
+
+
+    private static final char LITERAL_SUBSTITUTION_DELIMITER = '|';
+    // Estimated length of the result of each of the simple expressions, used for pre-sizing the output buffer
+    private static final int ESTIMATED_EXPRESSION_RESULT_LENGTH = 16;
+
+
+    // Each part is either a char[] (static text) or a SimpleExpression
+    private final Object[] parts;
+    private final int bufferLength;
+    private final String stringRepresentation;
+
+
+
+
+    private LiteralSubstitutionExpression(final List<Object> parts, final String stringRepresentation) {
+
+        super();
+
+        Validate.notNull(parts, "Parts cannot be null");
+        Validate.notNull(stringRepresentation, "String representation cannot be null");
+
+        this.parts = parts.toArray(new Object[parts.size()]);
+        this.stringRepresentation = stringRepresentation;
+
+        int bufferLength = 0;
+        for (int i = 0; i < this.parts.length; i++) {
+            bufferLength +=
+                    (this.parts[i] instanceof char[]?
+                            ((char[]) this.parts[i]).length : ESTIMATED_EXPRESSION_RESULT_LENGTH);
+        }
+        this.bufferLength = bufferLength;
+
+    }
+
+
+
+
+    @Override
+    public String getStringRepresentation() {
+        return this.stringRepresentation;
+    }
+
+
+
+
+    /*
+     * Only inputs made entirely of one literal substitution are parsed here (anything else, including literal
+     * substitutions that are part of a larger expression, is left to the standard decomposition of the expression,
+     * which will perform the literal substitution by means of LiteralSubstitutionUtil).
+     *
+     * Scanning of the input mirrors that performed by LiteralSubstitutionUtil#performLiteralSubstitution, and null
+     * is returned whenever the result could differ from that of the equivalent chain of additions.
+     */
+    static LiteralSubstitutionExpression parseLiteralSubstitution(final String input) {
+
+        final int inputLen = input.length();
+        if (inputLen < 2 ||
+                input.charAt(0) != LITERAL_SUBSTITUTION_DELIMITER ||
+                input.charAt(inputLen - 1) != LITERAL_SUBSTITUTION_DELIMITER) {
+            return null;
+        }
+
+        final List<Object> parts = new ArrayList<Object>(6);
+
+        int textStart = 1;
+        int i = 1;
+        while (i < inputLen - 1) {
+
+            final char c = input.charAt(i);
+
+            if (c == LITERAL_SUBSTITUTION_DELIMITER) {
+                // The literal substitution closes before the end of the input, so there is more in this expression
+                return null;
+            }
+
+            if (c == '\\' || c == Expression.PARSING_PLACEHOLDER_CHAR) {
+                // These could be given a special meaning when parsed as a part of a text literal
+                return null;
+            }
+
+            if ((c == VariableExpression.SELECTOR ||
+                    c == SelectionVariableExpression.SELECTOR ||
+                    c == MessageExpression.SELECTOR ||
+                    c == LinkExpression.SELECTOR) &&
+                    input.charAt(i + 1) == SimpleExpression.EXPRESSION_START_CHAR) {
+
+                // Find the end of the expression, taking care of nested braces
+                int expLevel = 1;
+                int j = i + 2;
+                while (j < inputLen && expLevel > 0) {
+                    final char cj = input.charAt(j);
+                    if (cj == SimpleExpression.EXPRESSION_START_CHAR) {
+                        expLevel++;
+                    } else if (cj == SimpleExpression.EXPRESSION_END_CHAR) {
+                        expLevel--;
+                    }
+                    j++;
+                }
+                if (expLevel > 0 || j >= inputLen) {
+                    return null;
+                }
+
+                if (i > textStart) {
+                    parts.add(input.substring(textStart, i).toCharArray());
+                }
+
+                final Expression expression = Expression.parse(input.substring(i, j));
+                if (expression == null || !(expression instanceof SimpleExpression)) {
+                    return null;
+                }
+                parts.add(expression);
+
+                i = j;
+                textStart = j;
+                continue;
+
+            }
+
+            i++;
+
+        }
+
+        if (inputLen - 1 > textStart) {
+            parts.add(input.substring(textStart, inputLen - 1).toCharArray());
+        }
+
+        // A single part would not be a concatenation, but just a text literal or the (non-String) result of
+        // an expression, so we leave it to the standard parsing mechanism
+        if (parts.size() < 2) {
+            return null;
+        }
+
+        return new LiteralSubstitutionExpression(parts, input);
+
+    }
+
+
+
+
+    static Object executeLiteralSubstitution(final IProcessingContext processingContext,
+            final LiteralSubstitutionExpression expression, final StandardExpressionExecutionContext expContext) {
+
+        if (logger.isTraceEnabled()) {
+            logger.trace("[THYMELEAF][{}] Evaluating literal substitution: \"{}\"", TemplateEngine.threadIndex(), expression.getStringRepresentation());
+        }
+
+        final IStandardVariableExpressionEvaluator expressionEvaluator =
+                StandardExpressions.getVariableExpressionEvaluator(processingContext.getConfiguration());
+
+        final Object[] parts = expression.parts;
+        final StringBuilder strBuilder = new StringBuilder(expression.bufferLength);
+
+        for (int i = 0; i < parts.length; i++) {
+
+            final Object part = parts[i];
+
+            if (part instanceof char[]) {
+                strBuilder.append((char[]) part);
+                continue;
+            }
+
+            // Just like AdditionExpression, we avoid literal-unwrap here
+            final Object value =
+                    Expression.execute(processingContext, (Expression) part, expressionEvaluator, expContext);
+            if (value == null) {
+                strBuilder.append("null");
+            } else {
+                strBuilder.append(LiteralValue.unwrap(value).toString());
+            }
+
+        }
+
+        return new LiteralValue(strBuilder.toString());
+
+    }
+
+
+}
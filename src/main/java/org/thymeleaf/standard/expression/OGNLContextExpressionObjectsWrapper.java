@@ -36,49 +36,88 @@
  */
 final class OGNLContextExpressionObjectsWrapper extends HashMap<String, Object> {
 
+    /*
+     * Instances of this class are reused for many evaluations (see OGNLVariableExpressionEvaluator), so both the
+     * expression objects and the request parameter restrictions are set for each evaluation instead of being
+     * entries in the map. Clearing will only remove the entries set by the evaluated expressions themselves.
+     */
 
-    private final IExpressionObjects expressionObjects;
+    private IExpressionObjects expressionObjects = null;
+    private boolean restrictRequestParameters = false;
 
 
-    OGNLContextExpressionObjectsWrapper(final IExpressionObjects expressionObjects) {
+    OGNLContextExpressionObjectsWrapper() {
         super(5);
+    }
+
+
+    void setExpressionObjects(final IExpressionObjects expressionObjects) {
         this.expressionObjects = expressionObjects;
     }
 
 
+    void setRestrictRequestParameters(final boolean restrictRequestParameters) {
+        this.restrictRequestParameters = restrictRequestParameters;
+    }
+
+
+    private boolean isExpressionObject(final Object key) {
+        return this.expressionObjects != null && this.expressionObjects.containsObject(key.toString());
+    }
+
+
+    private static boolean isRestrictRequestParameters(final Object key) {
+        return OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS.equals(key);
+    }
+
+
     @Override
     public int size() {
-        return super.size() + this.expressionObjects.size();
+        return super.size() +
+                (this.expressionObjects == null? 0 : this.expressionObjects.size()) +
+                (this.restrictRequestParameters? 1 : 0);
     }
 
     @Override
     public boolean isEmpty() {
-        return this.expressionObjects.size() == 0 && super.isEmpty();
+        return (this.expressionObjects == null || this.expressionObjects.size() == 0) &&
+                !this.restrictRequestParameters && super.isEmpty();
     }
 
     @Override
     public Object get(final Object key) {
-        if (this.expressionObjects.containsObject(key.toString())) {
+        if (isExpressionObject(key)) {
             return this.expressionObjects.getObject(key.toString());
         }
+        if (isRestrictRequestParameters(key)) {
+            return (this.restrictRequestParameters? OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS : null);
+        }
         return super.get(key);
     }
 
     @Override
     public boolean containsKey(final Object key) {
-        if (this.expressionObjects.containsObject(key.toString())) {
+        if (isExpressionObject(key)) {
             return true;
         }
+        if (isRestrictRequestParameters(key)) {
+            return this.restrictRequestParameters;
+        }
         return super.containsKey(key);
     }
 
     @Override
     public Object put(final String key, final Object value) {
-        if (this.expressionObjects.containsObject(key.toString())) {
+        if (isExpressionObject(key)) {
             throw new IllegalArgumentException(
                     "Cannot put entry with key \"" + key + "\" into Expression Objects wrapper map: key matches the " +
                     "name of one of the expression objects");
         }
+        if (isRestrictRequestParameters(key)) {
+            final Object previous = get(key);
+            this.restrictRequestParameters = true;
+            return previous;
+        }
         return super.put(key, value);
     }
 
@@ -90,17 +129,26 @@ public void putAll(final Map<? extends String, ?> m) {
 
     @Override
     public Object remove(final Object key) {
-        if (this.expressionObjects.containsObject(key.toString())) {
+        if (isExpressionObject(key)) {
             throw new IllegalArgumentException(
                     "Cannot remove entry with key \"" + key + "\" from Expression Objects wrapper map: key matches the " +
                     "name of one of the expression objects");
         }
+        if (isRestrictRequestParameters(key)) {
+            final Object previous = get(key);
+            this.restrictRequestParameters = false;
+            return previous;
+        }
         return super.remove(key);
     }
 
     @Override
     public void clear() {
-        throw new UnsupportedOperationException("Cannot clear Expression Objects wrapper map");
+        // Expression objects cannot be removed, so this only clears the entries that have been put into the map
+        if (!super.isEmpty()) {
+            super.clear();
+        }
+        this.restrictRequestParameters = false;
     }
 
     @Override
@@ -115,10 +163,16 @@ public Object clone() {
 
     @Override
     public Set<String> keySet() {
-        if (super.isEmpty()) {
+        if (super.isEmpty() && !this.restrictRequestParameters && this.expressionObjects != null) {
             return this.expressionObjects.getObjectNames();
         }
-        final Set<String> keys = new LinkedHashSet<String>(this.expressionObjects.getObjectNames());
+        final Set<String> keys = new LinkedHashSet<String>();
+        if (this.expressionObjects != null) {
+            keys.addAll(this.expressionObjects.getObjectNames());
+        }
+        if (this.restrictRequestParameters) {
+            keys.add(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
+        }
         keys.addAll(super.keySet());
         return keys;
     }
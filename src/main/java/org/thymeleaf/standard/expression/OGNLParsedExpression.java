@@ -0,0 +1,87 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import ognl.Ognl;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+
+/**
+ * <p>
+ *   Parsed (non-shortcut) OGNL expression, as stored in the expression cache.
+ * </p>
+ * <p>
+ *   Besides the OGNL tree itself, objects of this class keep information about the expression computed once at
+ *   parse time, so that it does not have to be computed again for each evaluation.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class OGNLParsedExpression {
+
+    private final Object tree;
+    private final boolean needsExpressionObjects;
+
+
+
+
+    OGNLParsedExpression(final String expression) throws OgnlException {
+        super();
+        this.tree = Ognl.parseExpression(expression);
+        this.needsExpressionObjects = mightNeedExpressionObjects(expression);
+    }
+
+
+
+
+    /*
+     * Computed once at parse time so that evaluators know whether expression objects need to be made available
+     * to this expression without having to scan it again for each evaluation.
+     */
+    boolean getNeedsExpressionObjects() {
+        return this.needsExpressionObjects;
+    }
+
+
+
+
+    Object execute(final OgnlContext context, final Object root) throws OgnlException {
+        return Ognl.getValue(this.tree, context, root);
+    }
+
+
+
+
+
+    private static boolean mightNeedExpressionObjects(final String expression) {
+        int n = expression.length();
+        while (n-- != 0) {
+            if (expression.charAt(n) == '#') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+}
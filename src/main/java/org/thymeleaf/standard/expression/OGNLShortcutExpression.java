@@ -43,11 +43,11 @@
 import ognl.PropertyAccessor;
 import ognl.SetPropertyAccessor;
 import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.ExpressionCacheKey;
 import org.thymeleaf.cache.ICache;
 import org.thymeleaf.cache.ICacheManager;
 import org.thymeleaf.context.IProcessingContext;
 import org.thymeleaf.context.IVariablesMap;
-import org.thymeleaf.text.ITextRepository;
 
 /**
  *
@@ -58,7 +58,7 @@
  */
 final class OGNLShortcutExpression {
 
-    private static final String OGNL_SHORTCUT_EXPRESSION_PREFIX = "ognlsc|";
+    private static final String EXPRESSION_CACHE_TYPE_OGNL_SHORTCUT = "ognlsc";
     private static final Object[] NO_PARAMS = new Object[0];
 
     private final String[] expressionLevels;
@@ -73,9 +73,8 @@ final class OGNLShortcutExpression {
     Object evaluate(final IProcessingContext processingContext, final Object root) throws Exception {
 
         final IEngineConfiguration configuration = processingContext.getConfiguration();
-        final ITextRepository textRepository = configuration.getTextRepository();
         final ICacheManager cacheManager = configuration.getCacheManager();
-        final ICache<String, Object> expressionCache = (cacheManager == null? null : cacheManager.getExpressionCache());
+        final ICache<ExpressionCacheKey, Object> expressionCache = (cacheManager == null? null : cacheManager.getExpressionCache());
 
         Object target = root;
         for (final String propertyName : this.expressionLevels) {
@@ -97,7 +96,7 @@ Object evaluate(final IProcessingContext processingContext, final Object root) t
                 // Because of the way OGNL works, the "OgnlRuntime.getTargetClass(...)" of a Class object is the class
                 // object itself, so we might be trying to apply a PropertyAccessor to a Class instead of a real object,
                 // something we avoid by means of this shortcut
-                target = getObjectProperty(textRepository, expressionCache, propertyName, target);
+                target = getObjectProperty(expressionCache, propertyName, target);
 
             } else if (OGNLVariablesMapPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
@@ -105,7 +104,7 @@ Object evaluate(final IProcessingContext processingContext, final Object root) t
 
             } else if (ObjectPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getObjectProperty(textRepository, expressionCache, propertyName, target);
+                target = getObjectProperty(expressionCache, propertyName, target);
 
             } else if (MapPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
@@ -113,23 +112,23 @@ Object evaluate(final IProcessingContext processingContext, final Object root) t
 
             } else if (ListPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getListProperty(textRepository, expressionCache, propertyName, (List<?>) target);
+                target = getListProperty(expressionCache, propertyName, (List<?>) target);
 
             } else if (SetPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getSetProperty(textRepository, expressionCache, propertyName, (Set<?>) target);
+                target = getSetProperty(expressionCache, propertyName, (Set<?>) target);
 
             } else if (IteratorPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getIteratorProperty(textRepository, expressionCache, propertyName, (Iterator<?>) target);
+                target = getIteratorProperty(expressionCache, propertyName, (Iterator<?>) target);
 
             } else if (EnumerationPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getEnumerationProperty(textRepository, expressionCache, propertyName, (Enumeration<?>) target);
+                target = getEnumerationProperty(expressionCache, propertyName, (Enumeration<?>) target);
 
             } else if (ArrayPropertyAccessor.class.equals(ognlPropertyAccessor.getClass())) {
 
-                target = getArrayProperty(textRepository, expressionCache, propertyName, (Object[]) target);
+                target = getArrayProperty(expressionCache, propertyName, (Object[]) target);
 
             } else {
                 // OGNL would like to apply a different property accessor (probably a custom one we do not know). In
@@ -156,11 +155,11 @@ private static Object getVariablesMapProperty(final String propertyName, final O
 
 
     private static Object getObjectProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final Object target) {
 
         final Class<?> currClass = OgnlRuntime.getTargetClass(target);
-        final String cacheKey = computeMethodCacheKey(textRepository, currClass, propertyName);
+        final ExpressionCacheKey cacheKey = computeMethodCacheKey(currClass, propertyName);
 
         Method readMethod = null;
 
@@ -246,7 +245,7 @@ private static Object getMapProperty(final String propertyName, final Map<?,?> m
 
 
     public static Object getListProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final List<?> list) {
 
         /*
@@ -270,14 +269,14 @@ public static Object getListProperty(
         }
 
         // Default to treating the list object as any other object
-        return getObjectProperty(textRepository, expressionCache, propertyName, list);
+        return getObjectProperty(expressionCache, propertyName, list);
 
     }
 
 
 
     public static Object getArrayProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final Object[] array) {
 
         /*
@@ -295,14 +294,14 @@ public static Object getArrayProperty(
         }
 
         // Default to treating the array object as any other object
-        return getObjectProperty(textRepository, expressionCache, propertyName, array);
+        return getObjectProperty(expressionCache, propertyName, array);
 
     }
 
 
 
     public static Object getEnumerationProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final Enumeration enumeration) {
 
         /*
@@ -319,14 +318,14 @@ public static Object getEnumerationProperty(
         }
 
         // Default to treating the enumeration object as any other object
-        return getObjectProperty(textRepository, expressionCache, propertyName, enumeration);
+        return getObjectProperty(expressionCache, propertyName, enumeration);
 
     }
 
 
 
     public static Object getIteratorProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final Iterator<?> iterator) {
 
         /*
@@ -343,14 +342,14 @@ public static Object getIteratorProperty(
         }
 
         // Default to treating the iterator object as any other object
-        return getObjectProperty(textRepository, expressionCache, propertyName, iterator);
+        return getObjectProperty(expressionCache, propertyName, iterator);
 
     }
 
 
 
     public static Object getSetProperty(
-            final ITextRepository textRepository, final ICache<String,Object> expressionCache,
+            final ICache<ExpressionCacheKey,Object> expressionCache,
             final String propertyName, final Set<?> set) {
 
         /*
@@ -370,7 +369,7 @@ public static Object getSetProperty(
         }
 
         // Default to treating the set object as any other object
-        return getObjectProperty(textRepository, expressionCache, propertyName, set);
+        return getObjectProperty(expressionCache, propertyName, set);
 
     }
 
@@ -435,9 +434,8 @@ private static String[] doParseExpr(final String expression, final int level, fi
 
 
 
-    private static String computeMethodCacheKey(
-            final ITextRepository textRepository, final Class<?> targetClass, final String propertyName) {
-        return textRepository.getText(OGNL_SHORTCUT_EXPRESSION_PREFIX, targetClass.getName(), propertyName);
+    private static ExpressionCacheKey computeMethodCacheKey(final Class<?> targetClass, final String propertyName) {
+        return new ExpressionCacheKey(EXPRESSION_CACHE_TYPE_OGNL_SHORTCUT, targetClass.getName(), propertyName);
     }
 
 
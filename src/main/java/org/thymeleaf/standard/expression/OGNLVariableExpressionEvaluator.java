@@ -19,8 +19,7 @@
  */
 package org.thymeleaf.standard.expression;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javassist.ClassPool;
 import javassist.CtClass;
@@ -36,7 +35,6 @@
 import org.thymeleaf.context.IProcessingContext;
 import org.thymeleaf.context.IVariablesMap;
 import org.thymeleaf.exceptions.TemplateProcessingException;
-import org.thymeleaf.expression.IExpressionObjects;
 import org.thymeleaf.util.ClassLoaderUtils;
 import org.thymeleaf.util.EvaluationUtil;
 
@@ -56,13 +54,16 @@
     // The reason we will be using a prefix with the expression cache is in order to separate entries coming
     // from this VariableExpressionEvaluator and those coming from the parsing of assignation sequences,
     // each expressions, fragment selections, etc. See org.thymeleaf.standard.expression.ExpressionCache
-    private static final String OGNL_CACHE_PREFIX = "ognl|";
+    private static final String EXPRESSION_CACHE_TYPE_OGNL = "ognl";
 
 
-    private static Map<String,Object> CONTEXT_VARIABLES_MAP_NOEXPOBJECTS_RESTRICTIONS =
-            (Map<String,Object>) (Map<?,?>)Collections.singletonMap(
-                    OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS,
-                    OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
+    // Evaluation contexts are reused by means of a small shared pool instead of thread-locals, so that they are
+    // never held by threads that outlive the application (e.g. pooled threads in a servlet container), which would
+    // keep its classes reachable after it has been undeployed. Each thread starts looking for a free context at
+    // its own position, so that it normally gets the same context back without contending with other threads.
+    private static final int REUSABLE_CONTEXTS_POOL_SIZE = computeReusableContextsPoolSize();
+    private static final AtomicReferenceArray<ReusableOGNLContext> REUSABLE_CONTEXTS =
+            new AtomicReferenceArray<ReusableOGNLContext>(REUSABLE_CONTEXTS_POOL_SIZE);
 
     private static boolean booleanFixApplied = false;
 
@@ -119,49 +120,14 @@ private static Object evaluate(
 
             final IEngineConfiguration configuration = processingContext.getConfiguration();
             
-            Object parsedExpression = ExpressionCache.getFromCache(configuration, expression, OGNL_CACHE_PREFIX);
+            Object parsedExpression = ExpressionCache.getFromCache(configuration, expression, EXPRESSION_CACHE_TYPE_OGNL);
             if (parsedExpression == null) {
-                // The result of parsing might be an OGNL expression AST or a ShortcutOGNLExpression (for simple cases)
+                // The result of parsing might be an OGNLParsedExpression (containing the OGNL expression AST) or a
+                // ShortcutOGNLExpression (for simple cases)
                 parsedExpression = parseExpression(expression, applyOGNLShortcuts);
-                ExpressionCache.putIntoCache(configuration, expression, parsedExpression, OGNL_CACHE_PREFIX);
+                ExpressionCache.putIntoCache(configuration, expression, parsedExpression, EXPRESSION_CACHE_TYPE_OGNL);
             }
 
-            final Map<String,Object> contextVariablesMap;
-            if (mightNeedExpressionObjects(expression)) {
-
-                // The IExpressionObjects implementation returned by processing contexts that include the Standard
-                // Dialects will be lazy in the creation of expression objects (i.e. they won't be created until really
-                // needed). And in order for this behaviour to be accepted by OGNL, we will be wrapping this object
-                // inside an implementation of Map<String,Object>, which will afterwards be fed to the constructor
-                // of an OgnlContext object.
-
-                // Note this will never happen with shortcut expressions, as the '#' character with which all
-                // expression object names start is not allowed by the OGNLShortcutExpression parser.
-
-                final IExpressionObjects expressionObjects = processingContext.getExpressionObjects();
-                contextVariablesMap = new OGNLContextExpressionObjectsWrapper(expressionObjects);
-
-                // We might need to apply restrictions on the request parameters. In the case of OGNL, the only way we
-                // can actually communicate with the PropertyAccessor, (OGNLVariablesMapPropertyAccessor), which is the
-                // agent in charge of applying such restrictions, is by adding a context variable that the property accessor
-                // can later lookup during evaluation.
-                if (expContext.getForbidRequestParameters()) {
-                    contextVariablesMap.put(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS, OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
-                } else {
-                    contextVariablesMap.remove(OGNLVariablesMapPropertyAccessor.RESTRICT_REQUEST_PARAMETERS);
-                }
-
-            } else {
-
-                if (expContext.getForbidRequestParameters()) {
-                    contextVariablesMap = CONTEXT_VARIABLES_MAP_NOEXPOBJECTS_RESTRICTIONS;
-                } else {
-                    contextVariablesMap = Collections.EMPTY_MAP;
-                }
-
-            }
-
-
             // The root object on which we will evaluate expressions will depend on whether a selection target is
             // active or not...
             final IVariablesMap variablesMap = processingContext.getVariables();
@@ -171,13 +137,13 @@ private static Object evaluate(
             // Execute the expression!
             final Object result;
             try {
-                result = executeExpression(processingContext, parsedExpression, contextVariablesMap, evaluationRoot);
+                result = executeExpression(processingContext, parsedExpression, expContext, evaluationRoot);
             } catch (final OGNLShortcutExpression.OGNLShortcutExpressionNotApplicableException notApplicable) {
                 // We tried to apply shortcuts, but it is not possible for this expression even if it parsed OK,
                 // so we need to empty the cache and try again disabling shortcuts. Once processed for the first time,
                 // an OGNL (non-shortcut) parsed expression will already be cached and this exception will not be
                 // thrown again
-                ExpressionCache.removeFromCache(configuration, expression, OGNL_CACHE_PREFIX);
+                ExpressionCache.removeFromCache(configuration, expression, EXPRESSION_CACHE_TYPE_OGNL);
                 return evaluate(processingContext, expression, expContext, useSelectionAsRoot, false);
             }
 
@@ -306,38 +272,109 @@ private static Object parseExpression(final String expression, final boolean app
                 return new OGNLShortcutExpression(parsedExpression);
             }
         }
-        return ognl.Ognl.parseExpression(expression);
+        return new OGNLParsedExpression(expression);
     }
 
 
 
     private static Object executeExpression(
             final IProcessingContext processingContext, final Object parsedExpression,
-            final Map<String,Object> context, final Object root)
+            final StandardExpressionExecutionContext expContext, final Object root)
             throws Exception {
 
         if (parsedExpression instanceof OGNLShortcutExpression) {
             return ((OGNLShortcutExpression) parsedExpression).evaluate(processingContext, root);
         }
 
-        // We create the OgnlContext here instead of just sending the Map as context because that prevents OGNL from
-        // creating the OgnlContext empty and then setting the context Map variables one by one
-        final OgnlContext ognlContext = new OgnlContext(context);
-        return ognl.Ognl.getValue(parsedExpression, ognlContext, root);
+        final OGNLParsedExpression ognlExpression = (OGNLParsedExpression) parsedExpression;
+
+        // Evaluation contexts are taken from the pool for the duration of the evaluation, so expressions evaluated
+        // from inside the evaluation of another one will simply use a different context.
+        final ReusableOGNLContext reusableContext = acquireReusableContext();
+
+        try {
+
+            // The IExpressionObjects implementation returned by processing contexts that include the Standard
+            // Dialects will be lazy in the creation of expression objects (i.e. they won't be created until really
+            // needed). And in order for this behaviour to be accepted by OGNL, we will be wrapping this object
+            // inside an implementation of Map<String,Object>, which is the one the OgnlContext object wraps.
+
+            // Note this will never happen with shortcut expressions, as the '#' character with which all
+            // expression object names start is not allowed by the OGNLShortcutExpression parser.
+            reusableContext.contextVariablesMap.setExpressionObjects(
+                    ognlExpression.getNeedsExpressionObjects()? processingContext.getExpressionObjects() : null);
+
+            // We might need to apply restrictions on the request parameters. In the case of OGNL, the only way we
+            // can actually communicate with the PropertyAccessor, (OGNLVariablesMapPropertyAccessor), which is the
+            // agent in charge of applying such restrictions, is by means of a context variable that the property
+            // accessor can later lookup during evaluation.
+            reusableContext.contextVariablesMap.setRestrictRequestParameters(expContext.getForbidRequestParameters());
+
+            return ognlExpression.execute(reusableContext.ognlContext, root);
+
+        } finally {
+            // This removes any variables set during evaluation and all references to the evaluated objects
+            reusableContext.ognlContext.clear();
+            reusableContext.contextVariablesMap.setExpressionObjects(null);
+            releaseReusableContext(reusableContext);
+        }
+
+    }
+
+
 
+
+    private static int computeReusableContextsPoolSize() {
+        // Power of 2, so that positions can be computed with a mask
+        final int target = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+        int size = 1;
+        while (size < target) {
+            size <<= 1;
+        }
+        return size;
     }
 
 
+    private static ReusableOGNLContext acquireReusableContext() {
+        final int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < REUSABLE_CONTEXTS_POOL_SIZE; i++) {
+            final int pos = (start + i) & (REUSABLE_CONTEXTS_POOL_SIZE - 1);
+            final ReusableOGNLContext context = REUSABLE_CONTEXTS.get(pos);
+            if (context != null && REUSABLE_CONTEXTS.compareAndSet(pos, context, null)) {
+                return context;
+            }
+        }
+        return new ReusableOGNLContext();
+    }
 
 
-    private static boolean mightNeedExpressionObjects(final String expression) {
-        int n = expression.length();
-        while (n-- != 0) {
-            if (expression.charAt(n) == '#') {
-                return true;
+    private static void releaseReusableContext(final ReusableOGNLContext context) {
+        final int start = (int) Thread.currentThread().getId();
+        for (int i = 0; i < REUSABLE_CONTEXTS_POOL_SIZE; i++) {
+            final int pos = (start + i) & (REUSABLE_CONTEXTS_POOL_SIZE - 1);
+            if (REUSABLE_CONTEXTS.get(pos) == null && REUSABLE_CONTEXTS.compareAndSet(pos, null, context)) {
+                return;
             }
         }
-        return false;
+        // The pool is full: the context is simply discarded
+    }
+
+
+
+
+    private static final class ReusableOGNLContext {
+
+        final OGNLContextExpressionObjectsWrapper contextVariablesMap;
+        final OgnlContext ognlContext;
+
+        ReusableOGNLContext() {
+            super();
+            this.contextVariablesMap = new OGNLContextExpressionObjectsWrapper();
+            // We create the OgnlContext here instead of just sending the Map as context because that prevents OGNL
+            // from creating the OgnlContext empty and then setting the context Map variables one by one
+            this.ognlContext = new OgnlContext(this.contextVariablesMap);
+        }
+
     }
 
 
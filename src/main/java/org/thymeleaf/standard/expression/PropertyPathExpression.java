@@ -0,0 +1,729 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ognl.ArrayPropertyAccessor;
+import ognl.EnumerationPropertyAccessor;
+import ognl.IteratorPropertyAccessor;
+import ognl.ListPropertyAccessor;
+import ognl.MapPropertyAccessor;
+import ognl.ObjectPropertyAccessor;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlRuntime;
+import ognl.PropertyAccessor;
+import ognl.SetPropertyAccessor;
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.context.IVariablesMap;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+
+/**
+ * <p>
+ *   Parsed property path expression, as evaluated by {@link PropertyPathVariableExpressionEvaluator}.
+ * </p>
+ * <p>
+ *   Property paths are made of a variable name followed by any number of steps, each of which can be a property
+ *   (<tt>.name</tt>), a no-arg method call (<tt>.name()</tt>), or an index with a numeric or text literal
+ *   (<tt>[3]</tt>, <tt>['key']</tt>). Properties and method calls can be null-safe (<tt>?.name</tt>), in which case
+ *   a null value before them makes the whole expression evaluate to null.
+ * </p>
+ * <p>
+ *   Each step keeps an inline cache of the accessor used for the last class of object it was applied to. Accessors
+ *   are resolved only once per class and step (by means of bean introspection or reflection) and are kept in the
+ *   expression cache. The way each class of object is accessed mimics OGNL's standard property accessors, and custom
+ *   property accessors registered in OGNL are directly used for the classes they apply to.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class PropertyPathExpression {
+
+    private static final String EXPRESSION_CACHE_TYPE_PROPERTY_PATH_ACCESSOR = "ppacc";
+    private static final Object[] NO_PARAMS = new Object[0];
+    private static final Class<?>[] NO_PARAM_TYPES = new Class<?>[0];
+
+    private static final int STEP_PROPERTY = 0;
+    private static final int STEP_METHOD = 1;
+    private static final int STEP_INDEX = 2;
+
+    private final Step[] steps;
+
+
+
+
+    private PropertyPathExpression(final Step[] steps) {
+        super();
+        this.steps = steps;
+    }
+
+
+
+
+    Object evaluate(final ICache<ExpressionCacheKey,Object> expressionCache, final Object root) throws Exception {
+
+        Object target = root;
+        for (final Step step : this.steps) {
+
+            if (target == null) {
+                if (step.nullSafe) {
+                    return null;
+                }
+                throw new TemplateProcessingException(
+                        "Cannot evaluate " + step + ": source is null");
+            }
+
+            // Inline cache: most steps are always applied to objects of the same class
+            final Class<?> targetClass = target.getClass();
+            CachedAccessor cachedAccessor = step.cachedAccessor;
+            if (cachedAccessor == null || cachedAccessor.targetClass != targetClass) {
+                cachedAccessor = resolveAccessor(expressionCache, step, target);
+                step.cachedAccessor = cachedAccessor;
+            }
+
+            target = cachedAccessor.accessor.get(target);
+
+        }
+
+        return target;
+
+    }
+
+
+
+
+    private static CachedAccessor resolveAccessor(
+            final ICache<ExpressionCacheKey,Object> expressionCache, final Step step, final Object target)
+            throws OgnlException {
+
+        final Class<?> targetClass = target.getClass();
+
+        // Class names might be repeated among class loaders, so the class itself is checked too
+        final ExpressionCacheKey cacheKey =
+                new ExpressionCacheKey(EXPRESSION_CACHE_TYPE_PROPERTY_PATH_ACCESSOR, targetClass.getName(), step.cacheKey);
+        if (expressionCache != null) {
+            final CachedAccessor cachedAccessor = (CachedAccessor) expressionCache.get(cacheKey);
+            if (cachedAccessor != null && cachedAccessor.targetClass == targetClass) {
+                return cachedAccessor;
+            }
+        }
+
+        final StepAccessor accessor;
+        switch (step.type) {
+            case STEP_METHOD:
+                accessor = computeMethodAccessor(step.name, targetClass);
+                break;
+            case STEP_INDEX:
+                accessor = (step.index != null ?
+                                computeIndexAccessor(step.index, target) : computeKeyAccessor(step.name, target));
+                break;
+            default:
+                accessor = computePropertyAccessor(step.name, target);
+                break;
+        }
+
+        final CachedAccessor cachedAccessor = new CachedAccessor(targetClass, accessor);
+        if (expressionCache != null) {
+            expressionCache.put(cacheKey, cachedAccessor);
+        }
+        return cachedAccessor;
+
+    }
+
+
+
+
+    private static StepAccessor computePropertyAccessor(final String propertyName, final Object target)
+            throws OgnlException {
+
+        if (target instanceof IVariablesMap) {
+            return new VariablesMapAccessor(propertyName);
+        }
+
+        // Because of the way OGNL works, the "OgnlRuntime.getTargetClass(...)" of a Class object is the class
+        // object itself, so we would be applying a PropertyAccessor to a Class instead of a real object
+        if (target instanceof Class<?>) {
+            return computeBeanPropertyAccessor(propertyName, target.getClass(), null);
+        }
+
+        // We will ask OGNL which property accessor it would use for this target object, and then depending on the
+        // result apply our equivalent or just use OGNL's if it is a custom property accessor we do not implement.
+        final PropertyAccessor ognlPropertyAccessor = OgnlRuntime.getPropertyAccessor(OgnlRuntime.getTargetClass(target));
+        final Class<?> ognlPropertyAccessorClass = ognlPropertyAccessor.getClass();
+
+        if (MapPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+            if (propertyName.equals("size")) {
+                return SizeAccessor.INSTANCE;
+            }
+            if (propertyName.equals("keys") || propertyName.equals("keySet")) {
+                return MapKeySetAccessor.INSTANCE;
+            }
+            if (propertyName.equals("values")) {
+                return MapValuesAccessor.INSTANCE;
+            }
+            if (propertyName.equals("isEmpty")) {
+                return IsEmptyAccessor.INSTANCE;
+            }
+            return new MapKeyAccessor(propertyName);
+        }
+
+        if (ListPropertyAccessor.class.equals(ognlPropertyAccessorClass) ||
+                SetPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+            if (propertyName.equals("size")) {
+                return SizeAccessor.INSTANCE;
+            }
+            if (propertyName.equals("iterator")) {
+                return IteratorAccessor.INSTANCE;
+            }
+            if (propertyName.equals("isEmpty") || (target instanceof List<?> && propertyName.equals("empty"))) {
+                return IsEmptyAccessor.INSTANCE;
+            }
+            return computeBeanPropertyAccessor(propertyName, target.getClass(), ognlPropertyAccessor);
+        }
+
+        if (ArrayPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+            if (propertyName.equals("length")) {
+                return ArrayLengthAccessor.INSTANCE;
+            }
+            return computeBeanPropertyAccessor(propertyName, target.getClass(), ognlPropertyAccessor);
+        }
+
+        if (IteratorPropertyAccessor.class.equals(ognlPropertyAccessorClass) ||
+                EnumerationPropertyAccessor.class.equals(ognlPropertyAccessorClass) ||
+                ObjectPropertyAccessor.class.equals(ognlPropertyAccessorClass)) {
+            // Iterator and enumeration properties (next, hasNext...) change the state of the target, so they are not
+            // worth specializing: OGNL will take care of them
+            if (!ObjectPropertyAccessor.class.equals(ognlPropertyAccessorClass) &&
+                    (propertyName.equals("next") || propertyName.equals("hasNext") ||
+                     propertyName.equals("nextElement") || propertyName.equals("hasMoreElements"))) {
+                return new OGNLAccessor(ognlPropertyAccessor, propertyName);
+            }
+            return computeBeanPropertyAccessor(propertyName, target.getClass(), ognlPropertyAccessor);
+        }
+
+        // A custom property accessor, so we will just let it do its job
+        return new OGNLAccessor(ognlPropertyAccessor, propertyName);
+
+    }
+
+
+
+
+    private static StepAccessor computeBeanPropertyAccessor(
+            final String propertyName, final Class<?> targetClass, final PropertyAccessor ognlPropertyAccessor)
+            throws OgnlException {
+
+        try {
+            final BeanInfo beanInfo = Introspector.getBeanInfo(targetClass);
+            final PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
+            if (propertyDescriptors != null) {
+                for (final PropertyDescriptor propertyDescriptor : propertyDescriptors) {
+                    if (propertyDescriptor.getName().equals(propertyName) && propertyDescriptor.getReadMethod() != null) {
+                        final Method readMethod = findPublicMethod(targetClass, propertyDescriptor.getReadMethod().getName());
+                        if (readMethod != null) {
+                            return new MethodAccessor(readMethod);
+                        }
+                    }
+                }
+            }
+        } catch (final IntrospectionException ignored) {
+            // Nothing to do here: OGNL will have the final word
+        }
+
+        // No getter was found: fields, etc. will be left to OGNL
+        return new OGNLAccessor(
+                (ognlPropertyAccessor != null ? ognlPropertyAccessor : OgnlRuntime.getPropertyAccessor(targetClass)),
+                propertyName);
+
+    }
+
+
+
+
+    private static StepAccessor computeMethodAccessor(final String methodName, final Class<?> targetClass) {
+        final Method method = findPublicMethod(targetClass, methodName);
+        if (method == null) {
+            throw new TemplateProcessingException(
+                    "Cannot evaluate method call \"" + methodName + "()\": no public no-arg method with that name " +
+                    "exists in class " + targetClass.getName());
+        }
+        return new MethodAccessor(method);
+    }
+
+
+
+
+    private static StepAccessor computeIndexAccessor(final Integer index, final Object target)
+            throws OgnlException {
+        if (target instanceof List<?>) {
+            return new ListIndexAccessor(index.intValue());
+        }
+        if (target.getClass().isArray()) {
+            return new ArrayIndexAccessor(index.intValue());
+        }
+        if (target instanceof Map<?,?>) {
+            return new MapKeyAccessor(index);
+        }
+        return new OGNLAccessor(OgnlRuntime.getPropertyAccessor(OgnlRuntime.getTargetClass(target)), index);
+    }
+
+
+
+
+    private static StepAccessor computeKeyAccessor(final String key, final Object target)
+            throws OgnlException {
+        if (target instanceof IVariablesMap) {
+            return new VariablesMapAccessor(key);
+        }
+        if (target instanceof Map<?,?>) {
+            // Indexed access to maps never applies the special property names (size, keys...)
+            return new MapKeyAccessor(key);
+        }
+        return computePropertyAccessor(key, target);
+    }
+
+
+
+
+    /*
+     * Methods declared at non-public classes cannot be invoked from outside their package even if the methods
+     * themselves are public, so we need to look for the same method at public superclasses or interfaces.
+     */
+    private static Method findPublicMethod(final Class<?> type, final String methodName) {
+
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                final Method method = type.getMethod(methodName, NO_PARAM_TYPES);
+                if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    return method;
+                }
+            } catch (final NoSuchMethodException e) {
+                // If a public type has no such method, none of its supertypes will
+                return null;
+            }
+        }
+
+        for (final Class<?> interfaceType : type.getInterfaces()) {
+            final Method method = findPublicMethod(interfaceType, methodName);
+            if (method != null) {
+                return method;
+            }
+        }
+
+        final Class<?> superclass = type.getSuperclass();
+        return (superclass == null ? null : findPublicMethod(superclass, methodName));
+
+    }
+
+
+
+
+    /*
+     * Returns null if the expression is not a property path that can be evaluated by this class.
+     */
+    static PropertyPathExpression parse(final String expression) {
+
+        final String input = expression.trim();
+        final int len = input.length();
+
+        final List<Step> steps = new ArrayList<Step>(4);
+
+        int i = 0;
+        while (i < len) {
+
+            boolean nullSafe = false;
+
+            if (i > 0) {
+
+                final char c = input.charAt(i);
+
+                if (c == '[') {
+
+                    // Index: only numeric and text literals are allowed
+                    final int end = input.indexOf(']', i + 1);
+                    if (end < 0) {
+                        return null;
+                    }
+                    final Step step = parseIndex(input.substring(i + 1, end).trim());
+                    if (step == null) {
+                        return null;
+                    }
+                    steps.add(step);
+                    i = end + 1;
+                    continue;
+
+                }
+
+                if (c == '.') {
+                    i++;
+                } else if (c == '?' && i + 1 < len && input.charAt(i + 1) == '.') {
+                    nullSafe = true;
+                    i += 2;
+                } else {
+                    return null;
+                }
+
+            }
+
+            final int nameStart = i;
+            if (i >= len || !Character.isJavaIdentifierStart(input.charAt(i))) {
+                return null;
+            }
+            i++;
+            while (i < len && Character.isJavaIdentifierPart(input.charAt(i))) {
+                i++;
+            }
+
+            final String name = input.substring(nameStart, i);
+            if ("true".equalsIgnoreCase(name) || "false".equalsIgnoreCase(name) || "null".equalsIgnoreCase(name)) {
+                return null;
+            }
+
+            if (i + 1 < len && input.charAt(i) == '(' && input.charAt(i + 1) == ')') {
+                if (nameStart == 0) {
+                    // Method calls on the root (the variables map) are not allowed
+                    return null;
+                }
+                steps.add(new Step(STEP_METHOD, name, null, nullSafe));
+                i += 2;
+            } else {
+                steps.add(new Step(STEP_PROPERTY, name, null, nullSafe));
+            }
+
+        }
+
+        if (steps.isEmpty()) {
+            return null;
+        }
+
+        return new PropertyPathExpression(steps.toArray(new Step[steps.size()]));
+
+    }
+
+
+    private static Step parseIndex(final String index) {
+
+        final int len = index.length();
+        if (len == 0) {
+            return null;
+        }
+
+        final char c0 = index.charAt(0);
+        if ((c0 == '\'' || c0 == '"') && len >= 2 && index.charAt(len - 1) == c0) {
+            final String key = index.substring(1, len - 1);
+            if (key.indexOf(c0) >= 0 || key.indexOf('\\') >= 0) {
+                // Escapes are left for OGNL to handle
+                return null;
+            }
+            if (c0 == '\'' && key.length() <= 1) {
+                // OGNL reads single-quoted literals of one char as Character objects, not Strings (e.g. map keys
+                // would not match), so these are also left for OGNL
+                return null;
+            }
+            return new Step(STEP_INDEX, key, null, false);
+        }
+
+        if (len > 9) {
+            return null;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!Character.isDigit(index.charAt(i))) {
+                return null;
+            }
+        }
+        return new Step(STEP_INDEX, null, Integer.valueOf(index), false);
+
+    }
+
+
+
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuilder = new StringBuilder();
+        for (final Step step : this.steps) {
+            if (strBuilder.length() > 0 || step.type == STEP_INDEX) {
+                strBuilder.append(step);
+            } else {
+                strBuilder.append(step.name);
+            }
+        }
+        return strBuilder.toString();
+    }
+
+
+
+
+    private static final class Step {
+
+        final int type;
+        final String name;
+        final Integer index;
+        final boolean nullSafe;
+        final String cacheKey;
+
+        // Inline cache: immutable, so it can be safely replaced while other threads are using it
+        volatile CachedAccessor cachedAccessor = null;
+
+        Step(final int type, final String name, final Integer index, final boolean nullSafe) {
+            super();
+            this.type = type;
+            this.name = name;
+            this.index = index;
+            this.nullSafe = nullSafe;
+            this.cacheKey =
+                    (type == STEP_METHOD ? "m:" + name :
+                     type == STEP_INDEX ? (index != null ? "i:" + index : "k:" + name) :
+                     "p:" + name);
+        }
+
+        @Override
+        public String toString() {
+            if (this.type == STEP_INDEX) {
+                return (this.index != null ? "[" + this.index + "]" : "['" + this.name + "']");
+            }
+            return (this.nullSafe ? "?." : ".") + this.name + (this.type == STEP_METHOD ? "()" : "");
+        }
+
+    }
+
+
+
+
+    private static final class CachedAccessor {
+
+        final Class<?> targetClass;
+        final StepAccessor accessor;
+
+        CachedAccessor(final Class<?> targetClass, final StepAccessor accessor) {
+            super();
+            this.targetClass = targetClass;
+            this.accessor = accessor;
+        }
+
+    }
+
+
+
+
+    private abstract static class StepAccessor {
+
+        abstract Object get(final Object target) throws Exception;
+
+    }
+
+
+    private static final class VariablesMapAccessor extends StepAccessor {
+
+        private final String name;
+
+        VariablesMapAccessor(final String name) {
+            super();
+            this.name = name;
+        }
+
+        Object get(final Object target) {
+            return ((IVariablesMap) target).getVariable(this.name);
+        }
+
+    }
+
+
+    private static final class MethodAccessor extends StepAccessor {
+
+        private final Method method;
+
+        MethodAccessor(final Method method) {
+            super();
+            this.method = method;
+        }
+
+        Object get(final Object target) throws Exception {
+            try {
+                return this.method.invoke(target, NO_PARAMS);
+            } catch (final InvocationTargetException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+    }
+
+
+    private static final class MapKeyAccessor extends StepAccessor {
+
+        private final Object key;
+
+        MapKeyAccessor(final Object key) {
+            super();
+            this.key = key;
+        }
+
+        Object get(final Object target) {
+            return ((Map<?,?>) target).get(this.key);
+        }
+
+    }
+
+
+    private static final class ListIndexAccessor extends StepAccessor {
+
+        private final int index;
+
+        ListIndexAccessor(final int index) {
+            super();
+            this.index = index;
+        }
+
+        Object get(final Object target) {
+            return ((List<?>) target).get(this.index);
+        }
+
+    }
+
+
+    private static final class ArrayIndexAccessor extends StepAccessor {
+
+        private final int index;
+
+        ArrayIndexAccessor(final int index) {
+            super();
+            this.index = index;
+        }
+
+        Object get(final Object target) {
+            return Array.get(target, this.index);
+        }
+
+    }
+
+
+    private static final class OGNLAccessor extends StepAccessor {
+
+        private final PropertyAccessor ognlPropertyAccessor;
+        private final Object name;
+
+        OGNLAccessor(final PropertyAccessor ognlPropertyAccessor, final Object name) {
+            super();
+            this.ognlPropertyAccessor = ognlPropertyAccessor;
+            this.name = name;
+        }
+
+        Object get(final Object target) throws Exception {
+            return this.ognlPropertyAccessor.getProperty(new OgnlContext(Collections.EMPTY_MAP), target, this.name);
+        }
+
+    }
+
+
+    private static final class SizeAccessor extends StepAccessor {
+
+        static final SizeAccessor INSTANCE = new SizeAccessor();
+
+        Object get(final Object target) {
+            if (target instanceof Map<?,?>) {
+                return Integer.valueOf(((Map<?,?>) target).size());
+            }
+            return Integer.valueOf(((java.util.Collection<?>) target).size());
+        }
+
+    }
+
+
+    private static final class IsEmptyAccessor extends StepAccessor {
+
+        static final IsEmptyAccessor INSTANCE = new IsEmptyAccessor();
+
+        Object get(final Object target) {
+            if (target instanceof Map<?,?>) {
+                return Boolean.valueOf(((Map<?,?>) target).isEmpty());
+            }
+            return Boolean.valueOf(((java.util.Collection<?>) target).isEmpty());
+        }
+
+    }
+
+
+    private static final class IteratorAccessor extends StepAccessor {
+
+        static final IteratorAccessor INSTANCE = new IteratorAccessor();
+
+        Object get(final Object target) {
+            return ((java.util.Collection<?>) target).iterator();
+        }
+
+    }
+
+
+    private static final class MapKeySetAccessor extends StepAccessor {
+
+        static final MapKeySetAccessor INSTANCE = new MapKeySetAccessor();
+
+        Object get(final Object target) {
+            return ((Map<?,?>) target).keySet();
+        }
+
+    }
+
+
+    private static final class MapValuesAccessor extends StepAccessor {
+
+        static final MapValuesAccessor INSTANCE = new MapValuesAccessor();
+
+        Object get(final Object target) {
+            return ((Map<?,?>) target).values();
+        }
+
+    }
+
+
+    private static final class ArrayLengthAccessor extends StepAccessor {
+
+        static final ArrayLengthAccessor INSTANCE = new ArrayLengthAccessor();
+
+        Object get(final Object target) {
+            return Integer.valueOf(Array.getLength(target));
+        }
+
+    }
+
+
+}
@@ -0,0 +1,158 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.expression;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.cache.ExpressionCacheKey;
+import org.thymeleaf.cache.ICache;
+import org.thymeleaf.cache.ICacheManager;
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.context.IVariablesMap;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Variable expression evaluator that directly evaluates property paths (like <tt>${user.address.city}</tt>,
+ *   <tt>${order.lines[0].product?.name}</tt> or <tt>${map['key'].size()}</tt>) by means of cached, per-class
+ *   accessors, delegating any other expressions to another {@link IStandardVariableExpressionEvaluator}
+ *   (by default, an {@link OGNLVariableExpressionEvaluator}).
+ * </p>
+ * <p>
+ *   Whether an expression is a property path or not is determined when it is first parsed, and this decision is
+ *   cached along with the parsed path, so that expressions that are not property paths have no further overhead
+ *   than a cache lookup before being delegated.
+ * </p>
+ * <p>
+ *   Besides the syntax supported by OGNL, property paths evaluated by this class allow null-safe navigation
+ *   (<tt>${user?.address?.city}</tt>): if the object before a <tt>?.</tt> is null, the whole expression evaluates
+ *   to null. As this syntax is not supported by OGNL, this evaluator has to be explicitly configured by
+ *   means of {@link org.thymeleaf.standard.StandardDialect#setVariableExpressionEvaluator(IStandardVariableExpressionEvaluator)}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class PropertyPathVariableExpressionEvaluator
+        implements IStandardVariableExpressionEvaluator {
+
+
+    private static final Logger logger = LoggerFactory.getLogger(PropertyPathVariableExpressionEvaluator.class);
+
+    private static final String EXPRESSION_CACHE_TYPE_PROPERTY_PATH = "ppath";
+
+    // Cached for expressions that are not property paths, so that they are not parsed again
+    private static final Object NOT_A_PROPERTY_PATH = new Object();
+
+
+    private final IStandardVariableExpressionEvaluator delegate;
+
+
+
+
+    public PropertyPathVariableExpressionEvaluator() {
+        this(new OGNLVariableExpressionEvaluator(false));
+    }
+
+
+    public PropertyPathVariableExpressionEvaluator(final IStandardVariableExpressionEvaluator delegate) {
+        super();
+        Validate.notNull(delegate, "Delegate variable expression evaluator cannot be null");
+        this.delegate = delegate;
+    }
+
+
+
+
+    public IStandardVariableExpressionEvaluator getDelegate() {
+        return this.delegate;
+    }
+
+
+
+
+    public final Object evaluate(
+            final IProcessingContext processingContext, final String expression,
+            final StandardExpressionExecutionContext expContext, final boolean useSelectionAsRoot) {
+
+        final IEngineConfiguration configuration = processingContext.getConfiguration();
+
+        Object parsedExpression = ExpressionCache.getFromCache(configuration, expression, EXPRESSION_CACHE_TYPE_PROPERTY_PATH);
+        if (parsedExpression == null) {
+            parsedExpression = PropertyPathExpression.parse(expression);
+            if (parsedExpression == null) {
+                parsedExpression = NOT_A_PROPERTY_PATH;
+            }
+            ExpressionCache.putIntoCache(configuration, expression, parsedExpression, EXPRESSION_CACHE_TYPE_PROPERTY_PATH);
+        }
+
+        if (parsedExpression == NOT_A_PROPERTY_PATH) {
+            return this.delegate.evaluate(processingContext, expression, expContext, useSelectionAsRoot);
+        }
+
+        try {
+
+            if (logger.isTraceEnabled()) {
+                logger.trace("[THYMELEAF][{}] Property path expression: evaluating expression \"{}\" on target", TemplateEngine.threadIndex(), expression);
+            }
+
+            // The root object on which we will evaluate expressions will depend on whether a selection target is
+            // active or not...
+            final IVariablesMap variablesMap = processingContext.getVariables();
+            final Object evaluationRoot =
+                    (useSelectionAsRoot && variablesMap.hasSelectionTarget()? variablesMap.getSelectionTarget() : variablesMap);
+
+            final ICacheManager cacheManager = configuration.getCacheManager();
+            final ICache<ExpressionCacheKey,Object> expressionCache =
+                    (cacheManager == null ? null : cacheManager.getExpressionCache());
+
+            final Object result = ((PropertyPathExpression) parsedExpression).evaluate(expressionCache, evaluationRoot);
+
+            if (!expContext.getPerformTypeConversion()) {
+                return result;
+            }
+
+            final IStandardConversionService conversionService =
+                    StandardExpressions.getConversionService(configuration);
+
+            return conversionService.convert(processingContext, result, String.class);
+
+        } catch (final Exception e) {
+            throw new TemplateProcessingException(
+                    "Exception evaluating property path expression: \"" + expression + "\"", e);
+        }
+
+    }
+
+
+
+
+    @Override
+    public String toString() {
+        return "PROPERTYPATH(" + this.delegate + ")";
+    }
+
+
+}
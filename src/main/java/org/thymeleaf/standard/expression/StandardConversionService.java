@@ -19,8 +19,46 @@
  */
 package org.thymeleaf.standard.expression;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.util.EvaluationUtil;
+import org.thymeleaf.util.Validate;
+
 
 /**
+ * <p>
+ *   Standard implementation of {@link IStandardConversionService}.
+ * </p>
+ * <p>
+ *   Conversions are performed by means of converters (implementations of {@link IStandardConverter}) indexed by
+ *   their source and target classes. A set of standard converters is registered by default (conversion of
+ *   <tt>String</tt>s and numbers to numeric and boolean types), and more can be registered by means of
+ *   {@link #addConverter(IStandardConverter)} (see also
+ *   {@link org.thymeleaf.standard.StandardDialect#addConverter(IStandardConverter)}).
+ * </p>
+ * <p>
+ *   The converter to be applied to objects of a specific class is resolved the first time such a conversion
+ *   is requested (looking for converters registered for the class itself, then its superclasses and then its
+ *   interfaces) and cached, so that conversions afterwards only need a map lookup before calling the converter.
+ *   Objects for which no converter exists are converted to <tt>String</tt> by calling their <tt>toString()</tt>
+ *   method, which is done directly (without any lookups) as long as no converters to <tt>String</tt> have
+ *   been registered.
+ * </p>
+ * <p>
+ *   Numeric conversions never lose information silently: conversions to integral types (and to
+ *   <tt>BigDecimal</tt>) must be exact, and conversions to <tt>Double</tt> or <tt>Float</tt> must be within
+ *   range. Otherwise, an {@link IllegalArgumentException} is thrown.
+ * </p>
  * 
  * @author Daniel Fern&aacute;ndez
  * 
@@ -30,10 +68,456 @@
 public final class StandardConversionService extends AbstractStandardConversionService {
 
 
+    // Maximum number of source classes for which the resolved converter will be cached, per target class
+    private static final int MAX_RESOLVED_CONVERTERS = 200;
+
+    private static final List<IStandardConverter<?,?>> STANDARD_CONVERTERS;
+
+
+    // Registered converters, by target class and then by source class. Replaced (never modified) on registration
+    private volatile Map<Class<?>,Map<Class<?>,IStandardConverter<?,?>>> converters;
+
+    // Resolved converters, by target class. Conversions to String are the most common, so they have their own
+    // index, which will be null if no converters to String have been registered
+    private final ConcurrentHashMap<Class<?>,ConverterIndex> converterIndexes;
+    private volatile ConverterIndex toStringConverterIndex;
+
+
+
 
     public StandardConversionService() {
         // Should only be instanced from StandardDialect
         super();
+        this.converters = Collections.emptyMap();
+        this.converterIndexes = new ConcurrentHashMap<Class<?>, ConverterIndex>(4);
+        this.toStringConverterIndex = null;
+        for (final IStandardConverter<?,?> converter : STANDARD_CONVERTERS) {
+            addConverter(converter);
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Registers a converter, which will replace any other converters previously registered for the same
+     *   source and target classes.
+     * </p>
+     * <p>
+     *   Converters can be registered at any moment, and will be applied to all conversions performed
+     *   after registration. Registering them before the Template Engine is initialized is recommended, though.
+     * </p>
+     *
+     * @param converter the converter to be registered.
+     * @since 3.0.0
+     */
+    public synchronized void addConverter(final IStandardConverter<?,?> converter) {
+
+        Validate.notNull(converter, "Converter cannot be null");
+        Validate.notNull(converter.getSourceClass(), "Converter source class cannot be null");
+        Validate.notNull(converter.getTargetClass(), "Converter target class cannot be null");
+
+        final Map<Class<?>,Map<Class<?>,IStandardConverter<?,?>>> newConverters =
+                new HashMap<Class<?>, Map<Class<?>, IStandardConverter<?,?>>>(this.converters);
+        final Map<Class<?>,IStandardConverter<?,?>> targetConverters = newConverters.get(converter.getTargetClass());
+        final Map<Class<?>,IStandardConverter<?,?>> newTargetConverters =
+                (targetConverters == null?
+                        new HashMap<Class<?>, IStandardConverter<?,?>>(4) :
+                        new HashMap<Class<?>, IStandardConverter<?,?>>(targetConverters));
+        newTargetConverters.put(converter.getSourceClass(), converter);
+        newConverters.put(converter.getTargetClass(), newTargetConverters);
+
+        this.converters = newConverters;
+
+        // Any previous resolutions might not be valid anymore
+        this.converterIndexes.clear();
+        final Map<Class<?>,IStandardConverter<?,?>> toStringConverters = newConverters.get(String.class);
+        this.toStringConverterIndex = (toStringConverters == null? null : new ConverterIndex(toStringConverters));
+
+    }
+
+
+
+
+    @Override
+    protected String convertToString(final IProcessingContext processingContext, final Object object) {
+
+        if (object == null) {
+            return null;
+        }
+
+        final ConverterIndex index = this.toStringConverterIndex;
+        if (index != null) {
+            final IStandardConverter<?,?> converter = index.getConverter(object.getClass());
+            if (converter != null) {
+                return (String) applyConverter(converter, processingContext, object);
+            }
+        }
+
+        return object.toString();
+
+    }
+
+
+
+
+    @Override
+    protected <T> T convertOther(final IProcessingContext processingContext, final Object object, final Class<T> targetClass) {
+
+        if (object != null) {
+
+            if (targetClass.isInstance(object)) {
+                return targetClass.cast(object);
+            }
+
+            final IStandardConverter<?,?> converter = getConverterIndex(targetClass).getConverter(object.getClass());
+            if (converter != null) {
+                return targetClass.cast(applyConverter(converter, processingContext, object));
+            }
+
+            if (targetClass.isEnum() && object instanceof String) {
+                return targetClass.cast(toEnum(targetClass, ((String) object).trim()));
+            }
+
+        }
+
+        return super.convertOther(processingContext, object, targetClass);
+
+    }
+
+
+
+
+    private ConverterIndex getConverterIndex(final Class<?> targetClass) {
+        ConverterIndex index = this.converterIndexes.get(targetClass);
+        if (index == null) {
+            final Map<Class<?>,IStandardConverter<?,?>> targetConverters = this.converters.get(targetClass);
+            index = new ConverterIndex(
+                    (targetConverters == null? Collections.<Class<?>,IStandardConverter<?,?>>emptyMap() : targetConverters));
+            if (!isCacheable(targetClass)) {
+                return index;
+            }
+            final ConverterIndex existing = this.converterIndexes.putIfAbsent(targetClass, index);
+            if (existing != null) {
+                index = existing;
+            }
+        }
+        return index;
+    }
+
+
+
+
+    // Converters are resolved by the class of the object, so their source type cannot be checked at compile time
+    @SuppressWarnings("unchecked")
+    private static Object applyConverter(
+            final IStandardConverter<?,?> converter, final IProcessingContext processingContext, final Object object) {
+        return ((IStandardConverter<Object,?>) converter).convert(processingContext, object);
+    }
+
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toEnum(final Class<?> enumClass, final String name) {
+        return Enum.valueOf((Class<? extends Enum>) enumClass, name);
+    }
+
+
+    /*
+     * Classes will only be used as keys in the caches of this service if they have been loaded by the same class
+     * loader as Thymeleaf (or any of its parents), so that caching them cannot prevent them from being unloaded
+     * (e.g. application classes when Thymeleaf is shared among several web applications).
+     */
+    private static boolean isCacheable(final Class<?> type) {
+        final ClassLoader typeClassLoader = type.getClassLoader();
+        if (typeClassLoader == null) {
+            return true;
+        }
+        for (ClassLoader classLoader = StandardConversionService.class.getClassLoader();
+             classLoader != null; classLoader = classLoader.getParent()) {
+            if (classLoader == typeClassLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+    /*
+     * Converters resolved for a specific target class, indexed by the exact class of the objects being converted.
+     * The last resolution is also kept as an inline cache, as conversions usually come in series of objects of the
+     * same class. The amount of resolutions cached is limited, and classes that are not cacheable are resolved
+     * every time.
+     */
+    private static final class ConverterIndex {
+
+        private final Map<Class<?>,IStandardConverter<?,?>> converters;
+        private final ConcurrentHashMap<Class<?>,ResolvedConverter> resolvedConverters;
+        private volatile ResolvedConverter lastResolvedConverter = null;
+
+        ConverterIndex(final Map<Class<?>,IStandardConverter<?,?>> converters) {
+            super();
+            this.converters = converters;
+            this.resolvedConverters = new ConcurrentHashMap<Class<?>, ResolvedConverter>(16);
+        }
+
+        IStandardConverter<?,?> getConverter(final Class<?> sourceClass) {
+
+            ResolvedConverter resolvedConverter = this.lastResolvedConverter;
+            if (resolvedConverter != null && resolvedConverter.sourceClass == sourceClass) {
+                return resolvedConverter.converter;
+            }
+
+            resolvedConverter = this.resolvedConverters.get(sourceClass);
+            if (resolvedConverter == null) {
+                final IStandardConverter<?,?> converter = resolveConverter(sourceClass);
+                if (this.resolvedConverters.size() >= MAX_RESOLVED_CONVERTERS || !isCacheable(sourceClass)) {
+                    return converter;
+                }
+                resolvedConverter = new ResolvedConverter(sourceClass, converter);
+                this.resolvedConverters.put(sourceClass, resolvedConverter);
+            }
+
+            this.lastResolvedConverter = resolvedConverter;
+            return resolvedConverter.converter;
+
+        }
+
+        private IStandardConverter<?,?> resolveConverter(final Class<?> sourceClass) {
+
+            if (this.converters.isEmpty()) {
+                return null;
+            }
+
+            // First the class itself and its superclasses, then all the interfaces they implement
+            final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>(4);
+            for (Class<?> type = sourceClass; type != null; type = type.getSuperclass()) {
+                final IStandardConverter<?,?> converter = this.converters.get(type);
+                if (converter != null) {
+                    return converter;
+                }
+                addInterfaces(type, interfaces);
+            }
+            for (final Class<?> interfaceType : interfaces) {
+                final IStandardConverter<?,?> converter = this.converters.get(interfaceType);
+                if (converter != null) {
+                    return converter;
+                }
+            }
+
+            return null;
+
+        }
+
+        private static void addInterfaces(final Class<?> type, final Set<Class<?>> interfaces) {
+            for (final Class<?> interfaceType : type.getInterfaces()) {
+                if (interfaces.add(interfaceType)) {
+                    addInterfaces(interfaceType, interfaces);
+                }
+            }
+        }
+
+    }
+
+
+    private static final class ResolvedConverter {
+
+        final Class<?> sourceClass;
+        final IStandardConverter<?,?> converter; // null if there is no converter for this source class
+
+        ResolvedConverter(final Class<?> sourceClass, final IStandardConverter<?,?> converter) {
+            super();
+            this.sourceClass = sourceClass;
+            this.converter = converter;
+        }
+
+    }
+
+
+
+
+    /*
+     * STANDARD CONVERTERS
+     */
+
+
+    private abstract static class StandardConverter<S,T> implements IStandardConverter<S,T> {
+
+        private final Class<S> sourceClass;
+        private final Class<T> targetClass;
+
+        StandardConverter(final Class<S> sourceClass, final Class<T> targetClass) {
+            super();
+            this.sourceClass = sourceClass;
+            this.targetClass = targetClass;
+        }
+
+        public final Class<S> getSourceClass() {
+            return this.sourceClass;
+        }
+
+        public final Class<T> getTargetClass() {
+            return this.targetClass;
+        }
+
+    }
+
+
+    private static final class StringToBooleanConverter extends StandardConverter<String,Boolean> {
+
+        StringToBooleanConverter() {
+            super(String.class, Boolean.class);
+        }
+
+        public Boolean convert(final IProcessingContext processingContext, final String object) {
+            // Same criteria as used for evaluating conditions: 'false', 'off' and 'no' are false
+            return Boolean.valueOf(EvaluationUtil.evaluateAsBoolean(object));
+        }
+
+    }
+
+
+    private static final class StringToNumberConverter<T extends Number> extends StandardConverter<String,T> {
+
+        StringToNumberConverter(final Class<T> targetClass) {
+            super(String.class, targetClass);
+        }
+
+        public T convert(final IProcessingContext processingContext, final String object) {
+            final Class<T> targetClass = getTargetClass();
+            final String str = object.trim();
+            if (targetClass == Integer.class) {
+                return targetClass.cast(Integer.valueOf(str));
+            } else if (targetClass == Long.class) {
+                return targetClass.cast(Long.valueOf(str));
+            } else if (targetClass == Short.class) {
+                return targetClass.cast(Short.valueOf(str));
+            } else if (targetClass == Byte.class) {
+                return targetClass.cast(Byte.valueOf(str));
+            } else if (targetClass == Double.class) {
+                return targetClass.cast(Double.valueOf(str));
+            } else if (targetClass == Float.class) {
+                return targetClass.cast(Float.valueOf(str));
+            } else if (targetClass == BigInteger.class) {
+                return targetClass.cast(new BigInteger(str));
+            }
+            return targetClass.cast(new BigDecimal(str));
+        }
+
+    }
+
+
+    private static final class NumberToNumberConverter<T extends Number> extends StandardConverter<Number,T> {
+
+        NumberToNumberConverter(final Class<T> targetClass) {
+            super(Number.class, targetClass);
+        }
+
+        public T convert(final IProcessingContext processingContext, final Number object) {
+
+            final Class<T> targetClass = getTargetClass();
+
+            if (targetClass == Double.class || targetClass == Float.class) {
+                // Floating point conversions can round, but not overflow
+                final double value = object.doubleValue();
+                if (Double.isInfinite(value) && !isInfinite(object)) {
+                    throw lossOfInformation(object, targetClass);
+                }
+                if (targetClass == Double.class) {
+                    return targetClass.cast(Double.valueOf(value));
+                }
+                final float floatValue = (float) value;
+                if (Float.isInfinite(floatValue) && !Double.isInfinite(value)) {
+                    throw lossOfInformation(object, targetClass);
+                }
+                return targetClass.cast(Float.valueOf(floatValue));
+            }
+
+            // Integral (and BigDecimal) conversions must be exact
+            final BigDecimal bigDecimal = toBigDecimal(object, targetClass);
+            try {
+                if (targetClass == Integer.class) {
+                    return targetClass.cast(Integer.valueOf(bigDecimal.intValueExact()));
+                } else if (targetClass == Long.class) {
+                    return targetClass.cast(Long.valueOf(bigDecimal.longValueExact()));
+                } else if (targetClass == Short.class) {
+                    return targetClass.cast(Short.valueOf(bigDecimal.shortValueExact()));
+                } else if (targetClass == Byte.class) {
+                    return targetClass.cast(Byte.valueOf(bigDecimal.byteValueExact()));
+                } else if (targetClass == BigInteger.class) {
+                    return targetClass.cast(bigDecimal.toBigIntegerExact());
+                }
+            } catch (final ArithmeticException e) {
+                throw lossOfInformation(object, targetClass);
+            }
+            return targetClass.cast(bigDecimal);
+
+        }
+
+        private static boolean isInfinite(final Number number) {
+            return (number instanceof Double && ((Double) number).isInfinite()) ||
+                   (number instanceof Float && ((Float) number).isInfinite());
+        }
+
+        private static BigDecimal toBigDecimal(final Number number, final Class<?> targetClass) {
+            if (number instanceof BigDecimal) {
+                return (BigDecimal) number;
+            }
+            if (number instanceof BigInteger) {
+                return new BigDecimal((BigInteger) number);
+            }
+            if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+                return BigDecimal.valueOf(number.longValue());
+            }
+            if (number instanceof Double || number instanceof Float) {
+                final double value = number.doubleValue();
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw lossOfInformation(number, targetClass);
+                }
+            }
+            try {
+                return new BigDecimal(number.toString());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "Cannot convert value \"" + number + "\" of class " + number.getClass().getName() +
+                        " to " + targetClass.getName(), e);
+            }
+        }
+
+        private static IllegalArgumentException lossOfInformation(final Number number, final Class<?> targetClass) {
+            return new IllegalArgumentException(
+                    "Cannot convert value \"" + number + "\" to " + targetClass.getName() + " without loss of information");
+        }
+
+    }
+
+
+    private static <T extends Number> void addNumberConverters(
+            final List<IStandardConverter<?,?>> converters, final Class<T> numberClass) {
+        converters.add(new StringToNumberConverter<T>(numberClass));
+        converters.add(new NumberToNumberConverter<T>(numberClass));
+    }
+
+
+    static {
+
+        final List<IStandardConverter<?,?>> standardConverters = new ArrayList<IStandardConverter<?,?>>(20);
+
+        addNumberConverters(standardConverters, Integer.class);
+        addNumberConverters(standardConverters, Long.class);
+        addNumberConverters(standardConverters, Short.class);
+        addNumberConverters(standardConverters, Byte.class);
+        addNumberConverters(standardConverters, Double.class);
+        addNumberConverters(standardConverters, Float.class);
+        addNumberConverters(standardConverters, BigDecimal.class);
+        addNumberConverters(standardConverters, BigInteger.class);
+
+        standardConverters.add(new StringToBooleanConverter());
+
+        STANDARD_CONVERTERS = Collections.unmodifiableList(standardConverters);
+
     }
 
 
@@ -148,11 +148,14 @@ static IStandardExpression parseExpression(final IProcessingContext processingCo
             return cachedExpression;
         }
 
-        final Expression expression = Expression.parse(preprocessedInput.trim());
+        final Expression parsedExpression = Expression.parse(preprocessedInput.trim());
         
-        if (expression == null) {
+        if (parsedExpression == null) {
             throw new TemplateProcessingException("Could not parse as expression: \"" + input + "\"");
         }
+
+        // Constant sub-trees are folded only once here, so that cached expressions do not execute them again
+        final Expression expression = ExpressionFoldingUtil.fold(processingContext, parsedExpression);
         
         ExpressionCache.putExpressionIntoCache(configuration, preprocessedInput, expression);
 
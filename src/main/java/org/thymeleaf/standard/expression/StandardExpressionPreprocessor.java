@@ -19,9 +19,10 @@
  */
 package org.thymeleaf.standard.expression;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.thymeleaf.IEngineConfiguration;
 import org.thymeleaf.context.IProcessingContext;
 
 
@@ -36,8 +37,10 @@ final class StandardExpressionPreprocessor {
 
 
     private static final char PREPROCESS_DELIMITER = '_';
-    private static final String PREPROCESS_EVAL = "\\_\\_(.*?)\\_\\_";
-    private static final Pattern PREPROCESS_EVAL_PATTERN = Pattern.compile(PREPROCESS_EVAL, Pattern.DOTALL);
+    private static final String PREPROCESS_MARK = "__";
+
+    // Inputs without any preprocessing structures will share this plan (it will be cached for each of them)
+    private static final PreprocessingPlan NO_PREPROCESSING = new PreprocessingPlan(null, null);
 
 
 
@@ -50,57 +53,80 @@ static String preprocess(final IProcessingContext processingContext, final Strin
             return input;
         }
 
-        final IStandardExpressionParser expressionParser = StandardExpressions.getExpressionParser(processingContext.getConfiguration());
+        final IEngineConfiguration configuration = processingContext.getConfiguration();
+
+        final IStandardExpressionParser expressionParser = StandardExpressions.getExpressionParser(configuration);
         if (!(expressionParser instanceof StandardExpressionParser)) {
             // Preprocess will be only available for the StandardExpressionParser, because the preprocessor
             // depends on this specific implementation of the parser.
             return input;
         }
 
-        final Matcher matcher = PREPROCESS_EVAL_PATTERN.matcher(input);
-        
-        if (matcher.find()) {
+        PreprocessingPlan plan = ExpressionCache.getPreprocessingPlanFromCache(configuration, input);
+        if (plan == null) {
+            plan = computePlan(processingContext, input);
+            ExpressionCache.putPreprocessingPlanIntoCache(configuration, input, plan);
+        }
+
+        return plan.execute(processingContext, input);
+
+    }
+
+
+
+    /*
+     * Scans the input for __...__ structures (each one ending at the first '__' found after its start, the same
+     * as the '\_\_(.*?)\_\_' regular expression would), parsing the inner expressions. The resulting plan can
+     * then be cached, so that further executions only need to evaluate the inner expressions.
+     */
+    private static PreprocessingPlan computePlan(final IProcessingContext processingContext, final String input) {
+
+        List<String> literals = null;
+        List<IStandardExpression> expressions = null;
+
+        int curr = 0;
+        int start;
+        while ((start = input.indexOf(PREPROCESS_MARK, curr)) != -1) {
+
+            final int end = input.indexOf(PREPROCESS_MARK, start + PREPROCESS_MARK.length());
+            if (end == -1) {
+                // No closing mark for this one, so there cannot be any other structures after it either
+                break;
+            }
+
+            if (literals == null) {
+                literals = new ArrayList<String>(3);
+                expressions = new ArrayList<IStandardExpression>(2);
+            }
+
+            final String expressionText =
+                    checkPreprocessingMarkUnescaping(input.substring(start + PREPROCESS_MARK.length(), end));
+
+            literals.add(checkPreprocessingMarkUnescaping(input.substring(curr, start)));
+            expressions.add(StandardExpressionParser.parseExpression(processingContext, expressionText, false));
+
+            curr = end + PREPROCESS_MARK.length();
 
-            final StringBuilder strBuilder = new StringBuilder(input.length() + 24);
-            int curr = 0;
-            
-            do {
-                
-                final String previousText = 
-                        checkPreprocessingMarkUnescaping(input.substring(curr,matcher.start(0)));
-                final String expressionText = 
-                        checkPreprocessingMarkUnescaping(matcher.group(1));
-                        
-                strBuilder.append(previousText);
-                
-                final IStandardExpression expression =
-                        StandardExpressionParser.parseExpression(processingContext, expressionText, false);
-                if (expression == null) {
-                    return null;
-                }
-                
-                final Object result = expression.execute(processingContext, StandardExpressionExecutionContext.PREPROCESSING);
-                
-                strBuilder.append(result);
-                
-                curr = matcher.end(0);
-                
-            } while (matcher.find());
-            
-            final String remaining = checkPreprocessingMarkUnescaping(input.substring(curr));
-            
-            strBuilder.append(remaining);
-            
-            return strBuilder.toString().trim();
-            
         }
-        
-        return checkPreprocessingMarkUnescaping(input);
-        
+
+        if (literals == null) {
+            final String unescapedInput = checkPreprocessingMarkUnescaping(input);
+            if (unescapedInput == input) {
+                return NO_PREPROCESSING;
+            }
+            return new PreprocessingPlan(new String[] { unescapedInput }, null);
+        }
+
+        literals.add(checkPreprocessingMarkUnescaping(input.substring(curr)));
+
+        return new PreprocessingPlan(
+                literals.toArray(new String[literals.size()]),
+                expressions.toArray(new IStandardExpression[expressions.size()]));
+
     }
 
-    
-    
+
+
     private static String checkPreprocessingMarkUnescaping(final String input) {
         
         boolean structureFound = false; // for fast failing
@@ -163,4 +189,47 @@ private StandardExpressionPreprocessor() {
     }
 
     
+
+
+
+    /*
+     * Result of scanning an input for preprocessing structures: literal segments surrounding the (already parsed)
+     * expressions to be evaluated. Plans are immutable and are stored in the expression cache.
+     */
+    static final class PreprocessingPlan {
+
+        private final String[] literals; // one more than expressions (unless there are no expressions)
+        private final IStandardExpression[] expressions;
+
+        PreprocessingPlan(final String[] literals, final IStandardExpression[] expressions) {
+            super();
+            this.literals = literals;
+            this.expressions = expressions;
+        }
+
+        String execute(final IProcessingContext processingContext, final String input) {
+
+            if (this.literals == null) {
+                return input;
+            }
+            if (this.expressions == null) {
+                return this.literals[0];
+            }
+
+            final StringBuilder strBuilder = new StringBuilder(input.length() + 24);
+            for (int i = 0; i < this.expressions.length; i++) {
+                strBuilder.append(this.literals[i]);
+                final Object result =
+                        this.expressions[i].execute(processingContext, StandardExpressionExecutionContext.PREPROCESSING);
+                strBuilder.append(result);
+            }
+            strBuilder.append(this.literals[this.expressions.length]);
+
+            return strBuilder.toString().trim();
+
+        }
+
+    }
+
+
 }
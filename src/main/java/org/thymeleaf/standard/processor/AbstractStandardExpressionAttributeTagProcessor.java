@@ -23,12 +23,20 @@
 import org.thymeleaf.context.ITemplateProcessingContext;
 import org.thymeleaf.engine.AttributeName;
 import org.thymeleaf.engine.IElementStructureHandler;
+import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.model.IProcessableElementTag;
 import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.standard.expression.GenericTokenExpression;
 import org.thymeleaf.standard.expression.IStandardExpression;
 import org.thymeleaf.standard.expression.IStandardExpressionParser;
+import org.thymeleaf.standard.expression.LiteralValue;
+import org.thymeleaf.standard.expression.MessageExpression;
 import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.standard.expression.TextLiteralExpression;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.util.MessageResolutionUtils;
+import org.thymeleaf.util.StringUtils;
+import org.unbescape.html.HtmlEscape;
 
 /**
  *
@@ -39,6 +47,8 @@
  */
 public abstract class AbstractStandardExpressionAttributeTagProcessor extends AbstractAttributeTagProcessor {
 
+    private static final Object[] NO_MESSAGE_PARAMETERS = new Object[0];
+
 
 
     protected AbstractStandardExpressionAttributeTagProcessor(
@@ -76,4 +86,73 @@ protected abstract void doProcess(
             final IElementStructureHandler structureHandler);
 
 
+
+
+    /*
+     * Meant to be used by processors that can specialize their results for a locale. Returns the resolved message
+     * if the attribute's expression is a message expression with a constant key and no parameters (e.g. "#{key}"),
+     * and null if it is any other kind of expression or the message cannot be resolved (in which case the normal
+     * execution of the processor will take care of the absent message).
+     */
+    protected final String resolveLocaleConstantMessage(
+            final ITemplateProcessingContext processingContext, final IProcessableElementTag tag) {
+
+        final AttributeName attributeName = getMatchingAttributeName().getMatchingAttributeName();
+        final String attributeValue = HtmlEscape.unescapeHtml(tag.getAttributes().getValue(attributeName));
+
+        // Expressions containing preprocessing fragments could evaluate to something different in each execution
+        if (attributeValue == null || attributeValue.indexOf('#') < 0 || attributeValue.contains("__")) {
+            return null;
+        }
+
+        final IStandardExpression expression;
+        try {
+            expression =
+                    StandardExpressions.getExpressionParser(processingContext.getConfiguration()).parseExpression(
+                            processingContext, attributeValue);
+        } catch (final TemplateProcessingException e) {
+            // We let the normal execution of the processor report this
+            return null;
+        }
+
+        if (!(expression instanceof MessageExpression)) {
+            return null;
+        }
+
+        final MessageExpression messageExpression = (MessageExpression) expression;
+        final IStandardExpression baseExpression = messageExpression.getBase();
+        if (messageExpression.hasParameters() ||
+                !(baseExpression instanceof TextLiteralExpression || baseExpression instanceof GenericTokenExpression)) {
+            return null;
+        }
+
+        final Object messageKey = LiteralValue.unwrap(baseExpression.execute(processingContext));
+        if (messageKey == null || StringUtils.isEmptyOrWhitespace(messageKey.toString())) {
+            return null;
+        }
+
+        return MessageResolutionUtils.resolveMessageForTemplate(
+                processingContext, messageKey.toString(), NO_MESSAGE_PARAMETERS, false);
+
+    }
+
+
+    /*
+     * Specialized bodies are output as normal (processable) text, so we should avoid any texts that an inliner
+     * active at some container element could find interesting.
+     */
+    protected static boolean mightContainInlinedExpressions(final String text) {
+        final int textLen = text.length();
+        for (int i = 0; i < textLen - 1; i++) {
+            if (text.charAt(i) == '[') {
+                final char c1 = text.charAt(i + 1);
+                if (c1 == '[' || c1 == '(') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
 }
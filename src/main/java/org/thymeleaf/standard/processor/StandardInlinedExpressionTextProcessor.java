@@ -0,0 +1,88 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.processor;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.engine.ITextStructureHandler;
+import org.thymeleaf.model.IText;
+import org.thymeleaf.processor.text.AbstractTextProcessor;
+import org.thymeleaf.standard.expression.IStandardExpression;
+import org.thymeleaf.standard.expression.IStandardExpressionParser;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * <p>
+ *   Evaluates inlined expressions in TEXT-mode templates.
+ * </p>
+ * <p>
+ *   The TEXT-mode parser reports each inlined expression (<tt>[[...]]</tt> or <tt>[(...)]</tt>) as a text
+ *   event of its own, so this processor only needs to check the delimiters at both ends of the text in order to
+ *   determine whether it has anything to do. There is no escaping in TEXT mode, so both forms output the
+ *   result of the expression as is.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class StandardInlinedExpressionTextProcessor extends AbstractTextProcessor {
+
+    public static final int PRECEDENCE = 1000;
+
+    public StandardInlinedExpressionTextProcessor(final TemplateMode templateMode) {
+        super(templateMode, PRECEDENCE);
+    }
+
+
+    @Override
+    protected void doProcess(final ITemplateProcessingContext processingContext, final IText text,
+                        final ITextStructureHandler structureHandler) {
+
+        if (!isInlinedExpression(text)) {
+            return;
+        }
+
+        final String expressionValue = text.subSequence(2, text.length() - 2).toString();
+
+        final IEngineConfiguration configuration = processingContext.getConfiguration();
+        final IStandardExpressionParser expressionParser = StandardExpressions.getExpressionParser(configuration);
+
+        final IStandardExpression expression = expressionParser.parseExpression(processingContext, expressionValue);
+        final Object expressionResult = expression.execute(processingContext);
+
+        text.setText(expressionResult == null ? "" : expressionResult.toString());
+
+    }
+
+
+    private static boolean isInlinedExpression(final CharSequence text) {
+        final int len = text.length();
+        if (len < 4 || text.charAt(0) != '[' || text.charAt(len - 1) != ']') {
+            return false;
+        }
+        final char c1 = text.charAt(1);
+        final char cn = text.charAt(len - 2);
+        return (c1 == '[' && cn == ']') || (c1 == '(' && cn == ')');
+    }
+
+}
@@ -23,6 +23,7 @@
 import org.thymeleaf.engine.AttributeName;
 import org.thymeleaf.engine.IElementStructureHandler;
 import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.ILocaleSpecializableTagProcessor;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.unbescape.html.HtmlEscape;
 
@@ -33,7 +34,8 @@
  * @since 3.0.0
  *
  */
-public final class StandardTextTagProcessor extends AbstractStandardExpressionAttributeTagProcessor {
+public final class StandardTextTagProcessor
+        extends AbstractStandardExpressionAttributeTagProcessor implements ILocaleSpecializableTagProcessor {
 
     public static final int PRECEDENCE = 1300;
     public static final String ATTR_NAME = "text";
@@ -59,4 +61,23 @@ protected void doProcess(
     }
 
 
+
+    public String specializeBody(final ITemplateProcessingContext processingContext, final IProcessableElementTag tag) {
+
+        final String message = resolveLocaleConstantMessage(processingContext, tag);
+        if (message == null) {
+            return null;
+        }
+
+        final String body = HtmlEscape.escapeHtml4Xml(message);
+        if (mightContainInlinedExpressions(body)) {
+            return null;
+        }
+
+        tag.getAttributes().removeAttribute(getMatchingAttributeName().getMatchingAttributeName());
+        return body;
+
+    }
+
+
 }
@@ -24,6 +24,7 @@
 import org.thymeleaf.engine.IElementStructureHandler;
 import org.thymeleaf.engine.ParsedFragmentMarkup;
 import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.ILocaleSpecializableTagProcessor;
 import org.thymeleaf.templatemode.TemplateMode;
 
 /**
@@ -33,7 +34,8 @@
  * @since 3.0.0
  *
  */
-public final class StandardUtextTagProcessor extends AbstractStandardExpressionAttributeTagProcessor {
+public final class StandardUtextTagProcessor
+        extends AbstractStandardExpressionAttributeTagProcessor implements ILocaleSpecializableTagProcessor {
 
     public static final int PRECEDENCE = 1400;
     public static final String ATTR_NAME = "utext";
@@ -97,6 +99,24 @@ protected void doProcess(
     }
 
 
+    public String specializeBody(final ITemplateProcessingContext processingContext, final IProcessableElementTag tag) {
+
+        // If there are post-processors, the result might need to be parsed as markup (see above)
+        if (processingContext.getConfiguration().hasPostProcessors()) {
+            return null;
+        }
+
+        final String message = resolveLocaleConstantMessage(processingContext, tag);
+        if (message == null || mightContainInlinedExpressions(message)) {
+            return null;
+        }
+
+        tag.getAttributes().removeAttribute(getMatchingAttributeName().getMatchingAttributeName());
+        return message;
+
+    }
+
+
     /*
      * This method will be used for determining if we actually need to apply a parser to the unescaped text that we
      * are going to use a a result of this th:utext execution. If there is no '>' character in it, then it is
@@ -0,0 +1,144 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.standard.util;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.thymeleaf.util.StringUtils;
+
+
+/**
+ * <p>
+ *   Readable properties of a bean class, as printed by {@link StandardJavaScriptUtils} and
+ *   {@link StandardDartUtils} when serializing objects to literals. Instances are cached per class, so that
+ *   introspection is only performed once and not for every serialized object.
+ * </p>
+ * <p>
+ *   Besides the read methods, the already-printed <tt>'name':</tt> prefix of each property is kept, which is the
+ *   same for both JavaScript and Dart.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+final class ScriptInliningBeanProperties {
+
+    // Classes are cached up to this limit. Once it is reached, other classes are introspected every time. Classes
+    // that are not cacheable (see isCacheable()) are introspected every time too.
+    private static final int MAX_CACHED_CLASSES = 1000;
+
+    private static final ConcurrentHashMap<Class<?>,ScriptInliningBeanProperties> CACHE =
+            new ConcurrentHashMap<Class<?>, ScriptInliningBeanProperties>(32);
+
+
+    private final String[] keyPrefixes;
+    private final Method[] readMethods;
+
+
+
+
+    static ScriptInliningBeanProperties forClass(final Class<?> beanClass) throws IntrospectionException {
+
+        ScriptInliningBeanProperties properties = CACHE.get(beanClass);
+        if (properties == null) {
+            properties = new ScriptInliningBeanProperties(beanClass);
+            if (CACHE.size() < MAX_CACHED_CLASSES && isCacheable(beanClass)) {
+                CACHE.putIfAbsent(beanClass, properties);
+            }
+        }
+        return properties;
+
+    }
+
+
+    /*
+     * Classes will only be cached if they have been loaded by the same class loader as Thymeleaf (or any of its
+     * parents), so that caching them cannot prevent them from being unloaded (e.g. application classes when
+     * Thymeleaf is shared among several web applications).
+     */
+    private static boolean isCacheable(final Class<?> beanClass) {
+        final ClassLoader beanClassLoader = beanClass.getClassLoader();
+        if (beanClassLoader == null) {
+            return true;
+        }
+        for (ClassLoader classLoader = ScriptInliningBeanProperties.class.getClassLoader();
+             classLoader != null; classLoader = classLoader.getParent()) {
+            if (classLoader == beanClassLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+
+
+    private ScriptInliningBeanProperties(final Class<?> beanClass) throws IntrospectionException {
+
+        super();
+
+        final PropertyDescriptor[] descriptors = Introspector.getBeanInfo(beanClass).getPropertyDescriptors();
+
+        final List<String> keyPrefixList = new ArrayList<String>(descriptors.length);
+        final List<Method> readMethodList = new ArrayList<Method>(descriptors.length);
+        for (final PropertyDescriptor descriptor : descriptors) {
+            final Method readMethod =  descriptor.getReadMethod();
+            if (readMethod != null) {
+                final String name = descriptor.getName();
+                if (!"class".equals(name.toLowerCase())) {
+                    keyPrefixList.add("'" + StringUtils.escapeJavaScript(name) + "':");
+                    readMethodList.add(readMethod);
+                }
+            }
+        }
+
+        this.keyPrefixes = keyPrefixList.toArray(new String[keyPrefixList.size()]);
+        this.readMethods = readMethodList.toArray(new Method[readMethodList.size()]);
+
+    }
+
+
+
+
+    int size() {
+        return this.readMethods.length;
+    }
+
+
+    String getKeyPrefix(final int index) {
+        return this.keyPrefixes[index];
+    }
+
+
+    Object readValue(final int index, final Object bean) throws IllegalAccessException, InvocationTargetException {
+        return this.readMethods[index].invoke(bean);
+    }
+
+
+}
@@ -20,14 +20,10 @@
 package org.thymeleaf.standard.util;
 
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.thymeleaf.util.DateUtils;
@@ -139,7 +135,17 @@ public static String printObject(final Object object) {
 
 
 
-    private static void print(final StringBuilder output, final Object object) {
+    /**
+     * <p>
+     *   Prints the specified object as a JavaScript literal directly into an already existing output buffer,
+     *   avoiding the creation of an intermediate <tt>String</tt> for the whole literal.
+     * </p>
+     *
+     * @param output the buffer the literal will be appended to.
+     * @param object the object to be printed.
+     * @since 3.0.0
+     */
+    public static void print(final StringBuilder output, final Object object) {
         if (object == null) {
             printNull(output);
             return;
@@ -353,20 +359,18 @@ private static void printKeyValue(final StringBuilder output, final Object key,
 
     private static void printObject(final StringBuilder output, final Object object) {
         try {
-            final PropertyDescriptor[] descriptors =
-                    Introspector.getBeanInfo(object.getClass()).getPropertyDescriptors();
-            final Map<String,Object> properties = new LinkedHashMap<String, Object>(descriptors.length + 1, 1.0f);
-            for (final PropertyDescriptor descriptor : descriptors) {
-                final Method readMethod =  descriptor.getReadMethod();
-                if (readMethod != null) {
-                    final String name = descriptor.getName();
-                    if (!"class".equals(name.toLowerCase())) {
-                        final Object value = readMethod.invoke(object);
-                        properties.put(name, value);
-                    }
+            // Bean properties are introspected only once per class
+            final ScriptInliningBeanProperties properties = ScriptInliningBeanProperties.forClass(object.getClass());
+            output.append('{');
+            final int propertiesSize = properties.size();
+            for (int i = 0; i < propertiesSize; i++) {
+                if (i > 0) {
+                    output.append(',');
                 }
+                output.append(properties.getKeyPrefix(i));
+                print(output, properties.readValue(i, object));
             }
-            printMap(output, properties);
+            output.append('}');
         } catch (final IllegalAccessException e) {
             throw new IllegalArgumentException("Could not perform introspection on object of class " + object.getClass().getName(), e);
         } catch (final InvocationTargetException e) {
@@ -382,12 +386,12 @@ private static void printEnum(final StringBuilder output, final Object object) {
         
         final Enum<?> enumObject = (Enum<?>) object;
         final Class<?> enumClass = object.getClass();
-        
-        final Map<String,Object> properties = new LinkedHashMap<String, Object>(3, 1.0f);
-        properties.put("$type", enumClass.getSimpleName());
-        properties.put("$name", enumObject.name());
 
-        printMap(output, properties);
+        output.append('{');
+        printKeyValue(output, "$type", enumClass.getSimpleName());
+        output.append(',');
+        printKeyValue(output, "$name", enumObject.name());
+        output.append('}');
         
     }
 
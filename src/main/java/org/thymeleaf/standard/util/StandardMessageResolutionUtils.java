@@ -30,6 +30,7 @@
 import org.thymeleaf.cache.ICache;
 import org.thymeleaf.cache.ICacheManager;
 import org.thymeleaf.context.ITemplateProcessingContext;
+import org.thymeleaf.message.resolver.MessageBundle;
 import org.thymeleaf.resourceresolver.IResourceResolver;
 import org.thymeleaf.text.ITextRepository;
 import org.thymeleaf.util.MessageResolutionUtils;
@@ -57,8 +58,6 @@ public final class StandardMessageResolutionUtils {
     private static final String HTML_SUFFIX = ".html";
     private static final String HTM_SUFFIX = ".htm";
     private static final String JSP_SUFFIX = ".jsp";
-    
-    private static final String TEMPLATE_CACHE_PREFIX = "tmsg|";
 
     
     
@@ -72,32 +71,31 @@ public static String resolveMessageForTemplate(
         Validate.notNull(key, "Message key cannot be null");
 
         final IEngineConfiguration configuration = processingContext.getConfiguration();
-        final ITextRepository textRepository = configuration.getTextRepository();
         final Locale locale = processingContext.getLocale();
 
         final String templateName = processingContext.getTemplateResolution().getTemplateName();
         final String cacheKey =
-                configuration.getTextRepository().getText(
-                        TEMPLATE_CACHE_PREFIX, templateName, "_", computeLocaleToString(textRepository, locale));
+                MessageResolutionUtils.computeTemplateMessagesCacheKey(
+                        configuration.getTextRepository(), templateName, locale);
 
-        Properties properties = null;
-        ICache<String,Properties> messagesCache = null;
+        MessageBundle messages = null;
+        ICache<String,MessageBundle> messagesCache = null;
         
         final ICacheManager cacheManager = configuration.getCacheManager();
         if (cacheManager != null) {
             messagesCache = cacheManager.getMessageCache();
             if (messagesCache != null) {
-                properties = messagesCache.get(cacheKey);
+                messages = messagesCache.get(cacheKey);
             }
         }
         
-        if (properties == null) {
+        if (messages == null) {
             if (logger.isDebugEnabled()) {
                 logger.debug("[THYMELEAF][{}] Resolving uncached messages for template \"{}\" and locale \"{}\". Messages will be retrieved from files", new Object[] {TemplateEngine.threadIndex(), templateName, locale});
             }
-            properties = loadMessagesForTemplate(processingContext, defaultMessages);
+            messages = new MessageBundle(locale, loadMessagesForTemplate(processingContext));
             if (messagesCache != null) {
-                messagesCache.put(cacheKey, properties);
+                messagesCache.put(cacheKey, messages);
             }
         } else {
             if (logger.isTraceEnabled()) {
@@ -105,7 +103,14 @@ public static String resolveMessageForTemplate(
             }
         }
 
-        final String messageValue = properties.getProperty(key);
+        // Messages in the bundle are already parsed, so there is no need to create MessageFormat objects for them
+        final String message = messages.formatMessage(key, messageParameters);
+        if (message != null) {
+            return message;
+        }
+
+        // Default messages are not part of the (cached) bundle because they can be modified at any moment
+        final String messageValue = (defaultMessages == null? null : defaultMessages.getProperty(key));
 
         if (messageValue == null) {
             return null;
@@ -138,35 +143,9 @@ private static boolean isFormatCandidate(final String message) {
     }
 
 
-    // Calling locale.toString is surprisingly expensive, so we will try to us some shortcuts
-    // NOTE there is one like this at MessageResolutionUtils. It's private and duplicated because it is
-    //      a low-level implementation detail
-    private static String computeLocaleToString(final ITextRepository textRepository, final Locale locale) {
-        String localeStr = locale.getLanguage();
-        final String country = locale.getCountry();
-        final String variant = locale.getVariant();
-        if (country.length() > 0) {
-            if (localeStr.length() > 0) {
-                localeStr = textRepository.getText(localeStr, "_", country);
-            } else {
-                localeStr = country;
-            }
-        }
-        if (variant.length() > 0) {
-            if (localeStr.length() > 0) {
-                localeStr = textRepository.getText(localeStr, "_", variant);
-            } else {
-                localeStr = variant;
-            }
-        }
-        return localeStr;
-    }
-
-
     
     
-    private static Properties loadMessagesForTemplate(
-            final ITemplateProcessingContext processingContext, final Properties defaultMessages) {
+    private static Properties loadMessagesForTemplate(final ITemplateProcessingContext processingContext) {
 
         final String resourceName = processingContext.getTemplateResolution().getResourceName();
         final IResourceResolver resourceResolver = processingContext.getTemplateResolution().getResourceResolver();
@@ -177,7 +156,7 @@ private static Properties loadMessagesForTemplate(
         
         return MessageResolutionUtils.loadCombinedMessagesFilesFromBaseName(
                 processingContext.getConfiguration(), processingContext.getVariables(),
-                resourceResolver, templateBaseName, locale, defaultMessages);
+                resourceResolver, templateBaseName, locale, null);
         
     }
     
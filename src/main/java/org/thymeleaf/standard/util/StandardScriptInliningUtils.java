@@ -299,7 +299,8 @@ private static String processScriptingVariableInline(
                 if (expression != null) {
                     // If an exception raises during execution, we should let it through
                     final Object result = expression.execute(processingContext);
-                    strBuilder.append(formatEvaluationResult(lang, result));
+                    // The result is printed straight into the output, without creating an intermediate String
+                    printEvaluationResult(strBuilder, lang, result);
                 }
 
                 curr = matcher.end(0);
@@ -318,10 +319,11 @@ private static String processScriptingVariableInline(
 
 
 
-    private static String formatEvaluationResult(final StandardScriptInliningLanguage lang, final Object input) {
+    private static void printEvaluationResult(
+            final StringBuilder output, final StandardScriptInliningLanguage lang, final Object input) {
         switch (lang) {
-            case JAVASCRIPT: return StandardJavaScriptUtils.print(input);
-            case DART: return StandardDartUtils.print(input);
+            case JAVASCRIPT: StandardJavaScriptUtils.print(output, input); return;
+            case DART: StandardDartUtils.print(output, input); return;
         }
         throw new TemplateProcessingException("Unrecognized inlined language: " + lang);
     }
@@ -0,0 +1,285 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Pool of <tt>char[]</tt> buffers used by template parsers and readers, meant to keep the amount of
+ *   large buffer objects created during parsing to a minimum.
+ * </p>
+ * <p>
+ *   Buffers are organized in <em>size classes</em> (powers of 2 between a minimum and a maximum size), and
+ *   requests are served with a buffer of the smallest class that can hold the requested size. Each size class
+ *   is kept at two levels:
+ * </p>
+ * <ul>
+ *   <li>A per-thread <em>magazine</em> (only for the smaller classes), which serves most requests without any
+ *       kind of synchronization.</li>
+ *   <li>A global set of slots shared by all threads, from which buffers are taken and to which they are returned
+ *       by means of <em>compare-and-set</em> operations (no locks).</li>
+ * </ul>
+ * <p>
+ *   This pool never blocks: if no pooled buffer is available, a new one is created. Requests larger than the
+ *   maximum size class are served with new (unpooled) buffers of the exact requested size.
+ * </p>
+ * <p>
+ *   Hit, miss and oversize allocation counts are kept so that the pool can be sized for a specific
+ *   template mix.
+ * </p>
+ * <p>
+ *   Instances of this class are <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+public final class CharBufferPool {
+
+    /**
+     * Default minimum buffer size: 2048 chars
+     */
+    public static final int DEFAULT_MIN_BUFFER_SIZE = 2048;
+
+    /**
+     * Default maximum (pooled) buffer size: 16384 chars. Larger buffers are never retained by the pool.
+     */
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 16384;
+
+    /**
+     * Default maximum size of buffers kept at per-thread magazines: 16384 chars
+     */
+    public static final int DEFAULT_MAX_MAGAZINE_BUFFER_SIZE = 16384;
+
+    /**
+     * Default number of global slots per size class: 8
+     */
+    public static final int DEFAULT_GLOBAL_SLOTS_PER_CLASS = 8;
+
+
+    /**
+     * <p>
+     *   Shared instance, used by all template parsers. As it lives as long as the Thymeleaf classes themselves,
+     *   it only retains buffers up to the magazine size, which limits the memory it can keep after a peak of
+     *   large templates to 240K chars (in global slots) plus 30K chars per thread (in magazines).
+     * </p>
+     */
+    public static final CharBufferPool INSTANCE =
+            new CharBufferPool(
+                    DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE,
+                    DEFAULT_MAX_MAGAZINE_BUFFER_SIZE, DEFAULT_GLOBAL_SLOTS_PER_CLASS);
+
+
+    private final int minBufferSize;
+    private final int minBufferSizeShift;
+    private final int maxBufferSize;
+    private final int sizeClasses;
+    private final int magazineSizeClasses;
+
+    private final ThreadLocal<char[][]> magazines;
+    private final AtomicReferenceArray<char[]>[] globalSlots;
+
+    private final AtomicLong magazineHitCount;
+    private final AtomicLong globalHitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong oversizeAllocationCount;
+
+
+
+
+    public CharBufferPool(
+            final int minBufferSize, final int maxBufferSize,
+            final int maxMagazineBufferSize, final int globalSlotsPerClass) {
+
+        super();
+
+        Validate.isTrue(minBufferSize > 0 && Integer.bitCount(minBufferSize) == 1, "Min buffer size must be a power of 2");
+        Validate.isTrue(maxBufferSize >= minBufferSize && Integer.bitCount(maxBufferSize) == 1, "Max buffer size must be a power of 2 >= min buffer size");
+        Validate.isTrue(maxMagazineBufferSize >= 0, "Max magazine buffer size must be >= 0");
+        Validate.isTrue(globalSlotsPerClass >= 0, "Global slots per class must be >= 0");
+
+        this.minBufferSize = minBufferSize;
+        this.minBufferSizeShift = Integer.numberOfTrailingZeros(minBufferSize);
+        this.maxBufferSize = maxBufferSize;
+        this.sizeClasses = Integer.numberOfTrailingZeros(maxBufferSize) - this.minBufferSizeShift + 1;
+
+        int magazineClasses = 0;
+        while (magazineClasses < this.sizeClasses && (minBufferSize << magazineClasses) <= maxMagazineBufferSize) {
+            magazineClasses++;
+        }
+        this.magazineSizeClasses = magazineClasses;
+
+        this.magazines = new ThreadLocal<char[][]>();
+        // Generic array creation is not allowed, but this array will only ever contain AtomicReferenceArray<char[]>
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final AtomicReferenceArray<char[]>[] slots = new AtomicReferenceArray[this.sizeClasses];
+        for (int i = 0; i < this.sizeClasses; i++) {
+            slots[i] = new AtomicReferenceArray<char[]>(globalSlotsPerClass);
+        }
+        this.globalSlots = slots;
+
+        this.magazineHitCount = new AtomicLong(0L);
+        this.globalHitCount = new AtomicLong(0L);
+        this.missCount = new AtomicLong(0L);
+        this.oversizeAllocationCount = new AtomicLong(0L);
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Obtain a buffer of at least the specified size. The returned buffer might be bigger than requested.
+     * </p>
+     *
+     * @param minSize the minimum size of the buffer.
+     * @return the buffer.
+     */
+    public char[] allocate(final int minSize) {
+
+        if (minSize > this.maxBufferSize) {
+            this.oversizeAllocationCount.incrementAndGet();
+            return new char[minSize];
+        }
+
+        final int sizeClass = computeSizeClass(minSize);
+
+        if (sizeClass < this.magazineSizeClasses) {
+            final char[][] magazine = this.magazines.get();
+            if (magazine != null && magazine[sizeClass] != null) {
+                final char[] buffer = magazine[sizeClass];
+                magazine[sizeClass] = null;
+                this.magazineHitCount.incrementAndGet();
+                return buffer;
+            }
+        }
+
+        final AtomicReferenceArray<char[]> slots = this.globalSlots[sizeClass];
+        final int slotsLen = slots.length();
+        for (int i = 0; i < slotsLen; i++) {
+            final char[] buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                this.globalHitCount.incrementAndGet();
+                return buffer;
+            }
+        }
+
+        this.missCount.incrementAndGet();
+        return new char[this.minBufferSize << sizeClass];
+
+    }
+
+
+    /**
+     * <p>
+     *   Return a buffer to the pool. Buffers not obtained from this pool (i.e. not belonging to any of its
+     *   size classes) will be simply ignored.
+     * </p>
+     *
+     * @param buffer the buffer to be returned (can be null).
+     */
+    public void release(final char[] buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        final int len = buffer.length;
+        if (len < this.minBufferSize || len > this.maxBufferSize || Integer.bitCount(len) != 1) {
+            // Not one of our size classes (e.g. an oversize buffer), so just let the GC take care of it
+            return;
+        }
+
+        final int sizeClass = Integer.numberOfTrailingZeros(len) - this.minBufferSizeShift;
+
+        if (sizeClass < this.magazineSizeClasses) {
+            char[][] magazine = this.magazines.get();
+            if (magazine == null) {
+                magazine = new char[this.magazineSizeClasses][];
+                this.magazines.set(magazine);
+            }
+            if (magazine[sizeClass] == null) {
+                magazine[sizeClass] = buffer;
+                return;
+            }
+        }
+
+        final AtomicReferenceArray<char[]> slots = this.globalSlots[sizeClass];
+        final int slotsLen = slots.length();
+        for (int i = 0; i < slotsLen; i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+
+        // Pool is full for this size class: the buffer will be simply discarded
+
+    }
+
+
+
+
+    private int computeSizeClass(final int minSize) {
+        if (minSize <= this.minBufferSize) {
+            return 0;
+        }
+        // Smallest power of 2 >= minSize, expressed as a class index
+        return (32 - Integer.numberOfLeadingZeros(minSize - 1)) - this.minBufferSizeShift;
+    }
+
+
+
+
+    public int getMinBufferSize() {
+        return this.minBufferSize;
+    }
+
+    public int getMaxBufferSize() {
+        return this.maxBufferSize;
+    }
+
+    public long getMagazineHitCount() {
+        return this.magazineHitCount.get();
+    }
+
+    public long getGlobalHitCount() {
+        return this.globalHitCount.get();
+    }
+
+    public long getHitCount() {
+        return this.magazineHitCount.get() + this.globalHitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    public long getOversizeAllocationCount() {
+        return this.oversizeAllocationCount.get();
+    }
+
+
+}
@@ -19,10 +19,7 @@
  */
 package org.thymeleaf.templateparser.markup;
 
-import java.io.BufferedReader;
-import java.io.CharArrayReader;
 import java.io.Reader;
-import java.io.StringReader;
 
 import org.attoparser.IMarkupHandler;
 import org.attoparser.IMarkupParser;
@@ -39,9 +36,9 @@
 import org.thymeleaf.resource.ReaderResource;
 import org.thymeleaf.resource.StringResource;
 import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateparser.CharBufferPool;
 import org.thymeleaf.templateparser.ITemplateParser;
-import org.thymeleaf.templateparser.reader.ParserLevelCommentMarkupReader;
-import org.thymeleaf.templateparser.reader.PrototypeOnlyCommentMarkupReader;
+import org.thymeleaf.templateparser.reader.CommentBlockProcessor;
 import org.thymeleaf.util.Validate;
 
 /**
@@ -58,6 +55,12 @@ public abstract class AbstractMarkupTemplateParser implements ITemplateParser {
 
 
 
+    /*
+     * Templates already in memory (String and char[] resources) are processed for comment blocks in place on a
+     * buffer obtained from the shared CharBufferPool and parsed directly from it. Templates obtained from readers
+     * are processed and parsed as they are read, using AttoParser's own buffer pool (configured by the
+     * bufferPoolSize and bufferSize arguments), so that they never need to be completely loaded in memory.
+     */
     protected AbstractMarkupTemplateParser(final ParseConfiguration parseConfiguration, final int bufferPoolSize, final int bufferSize) {
         super();
         Validate.notNull(parseConfiguration, "Parse configuration cannot be null");
@@ -126,6 +129,8 @@ private void parse(
         try {
 
             // The final step of the handler chain will be the adapter that will convert attoparser's handler chain to thymeleaf's.
+            // Attributes of elements without processable attributes can be kept raw unless a block selector is
+            // going to sit between the parser and the adapter.
             IMarkupHandler handler =
                         new TemplateHandlerAdapterMarkupHandler(
                                 templateResourceName,
@@ -134,7 +139,8 @@ private void parse(
                                 configuration.getTextRepository(),
                                 configuration.getElementDefinitions(),
                                 configuration.getAttributeDefinitions(),
-                                templateMode);
+                                templateMode,
+                                (selectors == null));
 
             // If we need to select blocks, we will need a block selector here. Note this will get executed in the
             // handler chain AFTER thymeleaf's own TemplateHandlerAdapterMarkupHandler, so that we will be able to
@@ -149,33 +155,61 @@ private void parse(
                 handler = new BlockSelectorMarkupHandler(handler, selectors, referenceResolver);
             }
 
-            // Each type of resource will require a different parser method to be called.
-            final Reader templateReader;
-            if (templateResource instanceof ReaderResource) {
+            // Each type of resource will require a different way of obtaining its contents. For those already in
+            // memory, comment blocks (prototype-only and parser-level) are processed in place and in a single pass
+            // on a char[], and the resulting contents are directly fed to the parser.
+            char[] buffer = null;
+            try {
 
-                final Reader resourceReader = ((ReaderResource)templateResource).getContent();
-                templateReader = new ParserLevelCommentMarkupReader(new PrototypeOnlyCommentMarkupReader(new BufferedReader(resourceReader)));
+                final int len;
+                if (templateResource instanceof CharArrayResource) {
 
-            } else if (templateResource instanceof StringResource) {
+                    final CharArrayResource charArrayResource = (CharArrayResource) templateResource;
+                    final char[] content = charArrayResource.getContent();
+                    final int contentOffset = charArrayResource.getOffset();
+                    final int contentLen = charArrayResource.getLen();
 
-                final Reader resourceReader = new StringReader(((StringResource)templateResource).getContent());
-                templateReader = new ParserLevelCommentMarkupReader(new PrototypeOnlyCommentMarkupReader(resourceReader));
+                    if (CommentBlockProcessor.MARKUP.findFirstBlock(content, contentOffset, contentLen) < 0) {
+                        // Nothing to be processed, so we can parse the original array without copying it. Note
+                        // the handler chain will not keep any references to the array once parsing finishes.
+                        this.parser.parse(content, contentOffset, contentLen, handler);
+                        return;
+                    }
 
-            } else if (templateResource instanceof CharArrayResource) {
+                    // We cannot modify the resource's array, so processing will be performed on a copy
+                    buffer = CharBufferPool.INSTANCE.allocate(contentLen);
+                    System.arraycopy(content, contentOffset, buffer, 0, contentLen);
+                    len = contentLen;
 
-                final CharArrayResource charArrayResource = (CharArrayResource) templateResource;
-                final CharArrayReader charArrayReader =
-                        new CharArrayReader(charArrayResource.getContent(), charArrayResource.getOffset(), charArrayResource.getLen());
-                templateReader = new ParserLevelCommentMarkupReader(new PrototypeOnlyCommentMarkupReader(charArrayReader));
+                } else if (templateResource instanceof StringResource) {
 
-            } else {
+                    final String content = ((StringResource)templateResource).getContent();
+                    len = content.length();
+                    buffer = CharBufferPool.INSTANCE.allocate(len);
+                    content.getChars(0, len, buffer, 0);
 
-                throw new IllegalArgumentException(
-                        "Cannot parse: unrecognized " + IResource.class.getSimpleName() + " implementation: " + templateResource.getClass().getName());
+                } else if (templateResource instanceof ReaderResource) {
 
-            }
+                    // Contents are processed and parsed as they are read (the parser will close the reader)
+                    final Reader reader = ((ReaderResource)templateResource).getContent();
+                    this.parser.parse(CommentBlockProcessor.MARKUP.createReader(reader), handler);
+                    return;
+
+                } else {
+
+                    throw new IllegalArgumentException(
+                            "Cannot parse: unrecognized " + IResource.class.getSimpleName() + " implementation: " + templateResource.getClass().getName());
 
-            this.parser.parse(templateReader, handler);
+                }
+
+                final int processedLen = CommentBlockProcessor.MARKUP.process(buffer, 0, len);
+
+                // Handler chain will not keep any references to the buffer once parsing finishes
+                this.parser.parse(buffer, 0, processedLen, handler);
+
+            } finally {
+                CharBufferPool.INSTANCE.release(buffer);
+            }
 
 
         } catch (final ParseException e) {
@@ -0,0 +1,257 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser.reader;
+
+import java.io.Reader;
+
+/**
+ * <p>
+ *   Single-pass, in-place processor for <em>prototype-only</em> and <em>parser-level</em> comment blocks,
+ *   equivalent to (and meant to replace) chaining a <em>parser-level comment reader</em> on top of a
+ *   <em>prototype-only comment reader</em>, but operating directly on <tt>char[]</tt> buffers.
+ * </p>
+ * <p>
+ *   Prototype-only comment blocks will have their prefix and suffix removed (keeping their contents), and
+ *   parser-level comment blocks will be completely removed. Both kinds of blocks are detected in the same scan,
+ *   and contents are compacted in the same array, so no additional buffers are needed.
+ * </p>
+ * <p>
+ *   Contents that are not available as a <tt>char[]</tt> can be processed as they are read by means of
+ *   {@link #createReader(Reader)}, which produces the same results without keeping the whole contents in memory.
+ * </p>
+ * <p>
+ *   Objects of this class are immutable, and therefore <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+public final class CommentBlockProcessor {
+
+
+    /**
+     * <p>
+     *   Processor for markup (HTML, XML) templates: <tt>&lt;!--/&#42;/ ... /&#42;/--&gt;</tt> for
+     *   prototype-only comments and <tt>&lt;!--/&#42; ... &#42;/--&gt;</tt> for parser-level comments.
+     * </p>
+     */
+    public static final CommentBlockProcessor MARKUP =
+            new CommentBlockProcessor("<!--/*/", "/*/-->", "<!--/*", "*/-->");
+
+
+    private final char[] prototypeOnlyPrefix;
+    private final char[] prototypeOnlySuffix;
+    private final char[] parserLevelPrefix;
+    private final char[] parserLevelSuffix;
+
+
+
+
+    public CommentBlockProcessor(
+            final String prototypeOnlyPrefix, final String prototypeOnlySuffix,
+            final String parserLevelPrefix, final String parserLevelSuffix) {
+        super();
+        this.prototypeOnlyPrefix = prototypeOnlyPrefix.toCharArray();
+        this.prototypeOnlySuffix = prototypeOnlySuffix.toCharArray();
+        this.parserLevelPrefix = parserLevelPrefix.toCharArray();
+        this.parserLevelSuffix = parserLevelSuffix.toCharArray();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the position of the first comment block (of any kind) in the specified buffer fragment, or
+     *   <tt>-1</tt> if there are none (and therefore the fragment does not need any processing).
+     * </p>
+     *
+     * @param buffer the buffer.
+     * @param offset the offset of the fragment.
+     * @param len the length of the fragment.
+     * @return the position of the first block, or -1 if none.
+     */
+    public int findFirstBlock(final char[] buffer, final int offset, final int len) {
+
+        final int maxi = offset + len;
+        final char pp0 = this.prototypeOnlyPrefix[0];
+        final char lp0 = this.parserLevelPrefix[0];
+
+        char c;
+        for (int i = offset; i < maxi; i++) {
+            c = buffer[i];
+            if (c != pp0 && c != lp0) {
+                // Shortcut for most characters in a template: no further tests to be done
+                continue;
+            }
+            if ((c == pp0 && startsWith(buffer, i, maxi, this.prototypeOnlyPrefix)) ||
+                    (c == lp0 && startsWith(buffer, i, maxi, this.parserLevelPrefix))) {
+                return i;
+            }
+        }
+
+        return -1;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Processes the comment blocks in the specified buffer fragment, compacting the resulting contents in place
+     *   starting at <tt>offset</tt>.
+     * </p>
+     * <p>
+     *   Unclosed parser-level comment blocks remove everything until the end of the fragment. Unclosed
+     *   prototype-only comment blocks just have their prefix removed.
+     * </p>
+     *
+     * @param buffer the buffer, which will be modified.
+     * @param offset the offset of the fragment.
+     * @param len the length of the fragment.
+     * @return the length of the resulting (processed) contents.
+     */
+    public int process(final char[] buffer, final int offset, final int len) {
+
+        final int first = findFirstBlock(buffer, offset, len);
+        if (first < 0) {
+            return len;
+        }
+
+        final int maxi = offset + len;
+
+        final char[] pPrefix = this.prototypeOnlyPrefix;
+        final char[] pSuffix = this.prototypeOnlySuffix;
+        final char[] lPrefix = this.parserLevelPrefix;
+        final char[] lSuffix = this.parserLevelSuffix;
+        final char pp0 = pPrefix[0];
+        final char ps0 = pSuffix[0];
+        final char lpLast = lPrefix[lPrefix.length - 1];
+        final char lsLast = lSuffix[lSuffix.length - 1];
+
+        boolean insidePrototypeOnly = false;
+        int parserLevelStart = -1; // Output position at which the current parser-level block starts (if any)
+
+        // Prototype-only blocks are detected on the input (looking ahead at the read position), and their prefixes
+        // and suffixes are never written to output. Parser-level blocks are detected on the already-written output
+        // (looking back from the write position), which is exactly what a parser-level reader chained on top of a
+        // prototype-only reader would see. As the write position can never be ahead of the read position, all of
+        // this can be done in place.
+
+        int r = first;
+        int w = first;
+        char c;
+        while (r < maxi) {
+
+            c = buffer[r];
+
+            if (!insidePrototypeOnly) {
+                if (c == pp0 && startsWith(buffer, r, maxi, pPrefix)) {
+                    insidePrototypeOnly = true;
+                    r += pPrefix.length;
+                    continue;
+                }
+            } else {
+                if (c == ps0 && startsWith(buffer, r, maxi, pSuffix)) {
+                    insidePrototypeOnly = false;
+                    r += pSuffix.length;
+                    continue;
+                }
+            }
+
+            buffer[w++] = c;
+            r++;
+
+            if (parserLevelStart < 0) {
+                if (c == lpLast && endsWith(buffer, offset, w, lPrefix)) {
+                    parserLevelStart = w - lPrefix.length;
+                }
+            } else {
+                if (c == lsLast && endsWith(buffer, parserLevelStart + lPrefix.length, w, lSuffix)) {
+                    // Whole block (including prefix and suffix) is discarded by rewinding the output
+                    w = parserLevelStart;
+                    parserLevelStart = -1;
+                }
+            }
+
+        }
+
+        if (parserLevelStart >= 0) {
+            // Unclosed parser-level block: discard everything until the end
+            w = parserLevelStart;
+        }
+
+        return w - offset;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Creates a reader that processes comment blocks on the fly while reading from the specified reader,
+     *   producing the same results as {@link #process(char[], int, int)} would produce on the whole contents.
+     * </p>
+     *
+     * @param reader the reader to be wrapped.
+     * @return the processing reader.
+     */
+    public Reader createReader(final Reader reader) {
+        return new CommentBlockReader(
+                reader,
+                this.prototypeOnlyPrefix, this.prototypeOnlySuffix, this.parserLevelPrefix, this.parserLevelSuffix);
+    }
+
+
+
+
+    private static boolean startsWith(final char[] buffer, final int pos, final int maxi, final char[] structure) {
+        final int structureLen = structure.length;
+        if (maxi - pos < structureLen) {
+            return false;
+        }
+        for (int i = 1; i < structureLen; i++) { // first char has always already been checked
+            if (buffer[pos + i] != structure[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean endsWith(final char[] buffer, final int mini, final int pos, final char[] structure) {
+        final int structureLen = structure.length;
+        if (pos - mini < structureLen) {
+            return false;
+        }
+        final int start = pos - structureLen;
+        for (int i = 0; i < structureLen - 1; i++) { // last char has always already been checked
+            if (buffer[start + i] != structure[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+}
@@ -0,0 +1,263 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser.reader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>
+ *   Streaming counterpart of {@link CommentBlockProcessor#process(char[], int, int)}: a reader that processes
+ *   prototype-only and parser-level comment blocks on the fly, producing exactly the same results but without
+ *   needing the whole contents in memory.
+ * </p>
+ * <p>
+ *   Prototype-only blocks are detected on the input (for which a small lookahead is kept), and parser-level
+ *   blocks on the output. In order to be able to detect parser-level prefixes formed after a block has been
+ *   removed, the last few output chars are kept until they cannot be part of a prefix anymore. Contents of
+ *   parser-level blocks are never kept, as they will be discarded anyway.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ *
+ */
+final class CommentBlockReader extends Reader {
+
+    private static final int INPUT_BUFFER_SIZE = 4096;
+    private static final int OUTPUT_BUFFER_SIZE = 4096;
+
+
+    private final Reader reader;
+
+    private final char[] pPrefix;
+    private final char[] pSuffix;
+    private final char[] lPrefix;
+    private final char[] lSuffix;
+
+    // Output chars that need to be kept in order to detect parser-level prefixes, in both states
+    private final int heldOutside;
+    private final int heldInside;
+
+    private final char[] input;
+    private int inputPos = 0;
+    private int inputLen = 0;
+    private boolean inputEnd = false;
+
+    private final char[] output;
+    private int outputLen = 0;
+
+    private final char[] blockTail; // last chars written inside the current parser-level block (circular)
+    private int blockLen = 0;
+
+    private boolean insidePrototypeOnly = false;
+    private boolean insideParserLevel = false;
+
+
+
+
+    CommentBlockReader(
+            final Reader reader,
+            final char[] prototypeOnlyPrefix, final char[] prototypeOnlySuffix,
+            final char[] parserLevelPrefix, final char[] parserLevelSuffix) {
+        super();
+        this.reader = reader;
+        this.pPrefix = prototypeOnlyPrefix;
+        this.pSuffix = prototypeOnlySuffix;
+        this.lPrefix = parserLevelPrefix;
+        this.lSuffix = parserLevelSuffix;
+        this.heldInside = this.lPrefix.length - 1;
+        this.heldOutside = 2 * this.lPrefix.length - 1;
+        this.input = new char[Math.max(INPUT_BUFFER_SIZE, 2 * Math.max(this.pPrefix.length, this.pSuffix.length))];
+        this.output = new char[OUTPUT_BUFFER_SIZE + this.heldOutside];
+        this.blockTail = new char[this.lSuffix.length];
+    }
+
+
+
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+
+            final boolean end = (this.inputEnd && this.inputPos == this.inputLen);
+            final int deliverable =
+                    (end? this.outputLen : this.outputLen - (this.insideParserLevel? this.heldInside : this.heldOutside));
+
+            if (deliverable > 0) {
+                final int n = Math.min(deliverable, len);
+                System.arraycopy(this.output, 0, cbuf, off, n);
+                this.outputLen -= n;
+                if (this.outputLen > 0) {
+                    System.arraycopy(this.output, n, this.output, 0, this.outputLen);
+                }
+                return n;
+            }
+
+            if (end) {
+                return -1;
+            }
+
+            processInput();
+
+        }
+
+    }
+
+
+
+
+    private void processInput() throws IOException {
+
+        final char pp0 = this.pPrefix[0];
+        final char ps0 = this.pSuffix[0];
+        final char lpLast = this.lPrefix[this.lPrefix.length - 1];
+        final char lsLast = this.lSuffix[this.lSuffix.length - 1];
+        final int lookahead = Math.max(this.pPrefix.length, this.pSuffix.length);
+
+        char c;
+        while (this.outputLen < this.output.length) {
+
+            if (!this.inputEnd && this.inputLen - this.inputPos < lookahead) {
+                fillInput();
+            }
+            if (this.inputPos == this.inputLen) {
+                // Input end. Unclosed parser-level blocks are discarded, which means simply not outputting them
+                return;
+            }
+
+            c = this.input[this.inputPos];
+
+            if (!this.insidePrototypeOnly) {
+                if (c == pp0 && startsWith(this.input, this.inputPos, this.inputLen, this.pPrefix)) {
+                    this.insidePrototypeOnly = true;
+                    this.inputPos += this.pPrefix.length;
+                    continue;
+                }
+            } else {
+                if (c == ps0 && startsWith(this.input, this.inputPos, this.inputLen, this.pSuffix)) {
+                    this.insidePrototypeOnly = false;
+                    this.inputPos += this.pSuffix.length;
+                    continue;
+                }
+            }
+
+            this.inputPos++;
+
+            if (!this.insideParserLevel) {
+                this.output[this.outputLen++] = c;
+                if (c == lpLast && endsWith(this.output, this.outputLen, this.lPrefix)) {
+                    // The prefix is removed from output along with the rest of the block
+                    this.outputLen -= this.lPrefix.length;
+                    this.insideParserLevel = true;
+                    this.blockLen = 0;
+                }
+            } else {
+                this.blockTail[this.blockLen % this.blockTail.length] = c;
+                this.blockLen++;
+                if (c == lsLast && blockEndsWithSuffix()) {
+                    this.insideParserLevel = false;
+                }
+                if (this.outputLen > this.heldInside) {
+                    // Nothing more will be written until the block closes, so allow delivery of what we have
+                    return;
+                }
+            }
+
+        }
+
+    }
+
+
+    private void fillInput() throws IOException {
+        final int remaining = this.inputLen - this.inputPos;
+        if (remaining > 0) {
+            System.arraycopy(this.input, this.inputPos, this.input, 0, remaining);
+        }
+        this.inputPos = 0;
+        this.inputLen = remaining;
+        while (this.inputLen < this.input.length) {
+            final int read = this.reader.read(this.input, this.inputLen, this.input.length - this.inputLen);
+            if (read < 0) {
+                this.inputEnd = true;
+                return;
+            }
+            this.inputLen += read;
+        }
+    }
+
+
+    private boolean blockEndsWithSuffix() {
+        final int suffixLen = this.lSuffix.length;
+        if (this.blockLen < suffixLen) {
+            return false;
+        }
+        for (int i = 0; i < suffixLen; i++) {
+            if (this.blockTail[(this.blockLen - suffixLen + i) % suffixLen] != this.lSuffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean startsWith(final char[] buffer, final int pos, final int maxi, final char[] structure) {
+        final int structureLen = structure.length;
+        if (maxi - pos < structureLen) {
+            return false;
+        }
+        for (int i = 1; i < structureLen; i++) { // first char has always already been checked
+            if (buffer[pos + i] != structure[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean endsWith(final char[] buffer, final int pos, final char[] structure) {
+        final int structureLen = structure.length;
+        if (pos < structureLen) {
+            return false;
+        }
+        final int start = pos - structureLen;
+        for (int i = 0; i < structureLen - 1; i++) { // last char has always already been checked
+            if (buffer[start + i] != structure[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+
+}
@@ -21,12 +21,12 @@
 
 import java.io.Reader;
 import java.io.StringReader;
-import java.util.Arrays;
 
 import org.attoparser.IMarkupHandler;
 import org.attoparser.IMarkupParser;
 import org.attoparser.ParseException;
 import org.attoparser.config.ParseConfiguration;
+import org.thymeleaf.templateparser.CharBufferPool;
 
 /**
  * <p>
@@ -59,18 +59,6 @@ final class TextMarkupParser implements IMarkupParser {
      */
     private static final int DEFAULT_BUFFER_SIZE = 4096;
 
-    /**
-     * <p>
-     *   Default pool size to be used. Buffers will be kept in a pool and
-     *   reused in order to increase performance. Pool will be non-exclusive
-     *   so that if pool size = 2 and a 3rd request arrives, it is assigned
-     *   a new buffer object (not linked to the pool, and therefore GC-ed
-     *   at the end). Value: 2.
-     * </p>
-     */
-    private static final int DEFAULT_POOL_SIZE = 2;
-
-
     /**
      * <p>
      *   This parsing configuration is basically used to instruct the AttoParser event processor
@@ -83,7 +71,7 @@ final class TextMarkupParser implements IMarkupParser {
 
 
     private final ParseConfiguration configuration;
-    private final BufferPool pool;
+    private final int bufferSize;
 
 
 
@@ -111,10 +99,10 @@ final class TextMarkupParser implements IMarkupParser {
 
 
 
-    TextMarkupParser(final ParseConfiguration configuration, final int poolSize, final int bufferSize) {
+    TextMarkupParser(final ParseConfiguration configuration, final int bufferSize) {
         super();
         this.configuration = configuration;
-        this.pool = new BufferPool(poolSize, bufferSize);
+        this.bufferSize = bufferSize;
     }
 
 
@@ -173,9 +161,9 @@ public void parse(
         // charge of applying the required markup logic and rules, according to the specified configuration
         final MarkupEventProcessor eventProcessor = new MarkupEventProcessor(handler);
 
-        // We don't already have a suitable char[] buffer, so we specify null for it and expect the parser
-        // to use one of its pooled buffers.
-        parseDocument(reader, this.pool.poolBufferSize, eventProcessor, status);
+        // Buffers will be obtained from the shared (lock-free) buffer pool, which might return a buffer
+        // bigger than the suggested size.
+        parseDocument(reader, this.bufferSize, eventProcessor, status);
 
     }
 
@@ -201,8 +189,8 @@ void parseDocument(
 
             eventProcessor.processDocumentStart(parsingStartTimeNanos, 1, 1);
 
-            int bufferSize = suggestedBufferSize;
-            buffer = this.pool.allocateBuffer(bufferSize);
+            buffer = CharBufferPool.INSTANCE.allocate(suggestedBufferSize);
+            int bufferSize = buffer.length;
 
             int bufferContentSize = reader.read(buffer);
 
@@ -228,17 +216,16 @@ void parseDocument(
                         char[] newBuffer = null;
                         try {
 
-                            bufferSize *= 2;
-
-                            newBuffer = this.pool.allocateBuffer(bufferSize);
+                            newBuffer = CharBufferPool.INSTANCE.allocate(bufferSize * 2);
                             System.arraycopy(buffer, 0, newBuffer, 0, bufferContentSize);
 
-                            this.pool.releaseBuffer(buffer);
+                            CharBufferPool.INSTANCE.release(buffer);
 
                             buffer = newBuffer;
+                            bufferSize = buffer.length;
 
                         } catch (final Exception ignored) {
-                            this.pool.releaseBuffer(newBuffer);
+                            CharBufferPool.INSTANCE.release(newBuffer);
                         }
 
                     }
@@ -309,7 +296,7 @@ void parseDocument(
         } catch (final Exception e) {
             throw new ParseException(e);
         } finally {
-            this.pool.releaseBuffer(buffer);
+            CharBufferPool.INSTANCE.release(buffer);
             try {
                 reader.close();
             } catch (final Throwable ignored) {
@@ -494,75 +481,4 @@ private void parseBuffer(
     }
 
 
-
-
-
-
-
-    /*
-     * This class models a pool of buffers, used to keep the amount of
-     * large char[] buffer objects required to operate to a minimum.
-     *
-     * Note this pool never blocks, so if a new buffer is needed and all
-     * are currently allocated, a new char[] object is created and returned.
-     *
-     */
-    private static final class BufferPool {
-
-        private final char[][] pool;
-        private final boolean[] allocated;
-        private final int poolBufferSize;
-
-        private BufferPool(final int poolSize, final int poolBufferSize) {
-
-            super();
-
-            this.pool = new char[poolSize][];
-            this.allocated = new boolean[poolSize];
-            this.poolBufferSize = poolBufferSize;
-
-            for (int i = 0; i < this.pool.length; i++) {
-                this.pool[i] = new char[this.poolBufferSize];
-            }
-            Arrays.fill(this.allocated, false);
-
-        }
-
-        private synchronized char[] allocateBuffer(final int bufferSize) {
-            if (bufferSize != this.poolBufferSize) {
-                // We will only pool buffers of the default size. If a different size is required, we just
-                // create it without pooling.
-                return new char[bufferSize];
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (!this.allocated[i]) {
-                    this.allocated[i] = true;
-                    return this.pool[i];
-                }
-            }
-            return new char[bufferSize];
-        }
-
-        private synchronized void releaseBuffer(final char[] buffer) {
-            if (buffer == null) {
-                return;
-            }
-            if (buffer.length != this.poolBufferSize) {
-                // This buffer cannot be part of the pool - only buffers with a specific size are contained
-                return;
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (this.pool[i] == buffer) {
-                    // Found it. Mark it as non-allocated
-                    this.allocated[i] = false;
-                    return;
-                }
-            }
-            // The buffer wasn't part of our pool. Just return.
-        }
-
-
-    }
-
-
 }
@@ -0,0 +1,393 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.templateparser.text;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.attoparser.IMarkupHandler;
+import org.attoparser.ParseException;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.engine.ITemplateHandler;
+import org.thymeleaf.engine.TemplateHandlerAdapterMarkupHandler;
+import org.thymeleaf.exceptions.TemplateInputException;
+import org.thymeleaf.resource.CharArrayResource;
+import org.thymeleaf.resource.IResource;
+import org.thymeleaf.resource.ReaderResource;
+import org.thymeleaf.resource.StringResource;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateparser.CharBufferPool;
+import org.thymeleaf.templateparser.ITemplateParser;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *   Template parser for TEXT-mode templates.
+ * </p>
+ * <p>
+ *   Contents are scanned as a stream: literal text is reported to the handler chain as soon as it has been read,
+ *   inlined expressions (<tt>[[...]]</tt> and <tt>[(...)]</tt>) are reported as separate text events so that
+ *   text processors can evaluate them without having to search through the surrounding text, and parser-level
+ *   comments (<tt>[[-...-]]</tt>) are discarded. Only the contents of a not-yet-closed structure need to be kept
+ *   between reads, so memory usage depends on the length of the longest such structure and not on the size of
+ *   the template. Inlined expressions are limited to {@link #MAX_INLINED_EXPRESSION_LEN} chars: an opening
+ *   <tt>[[</tt> or <tt>[(</tt> not closed within that limit is considered literal text. Parser-level comments
+ *   have no such limit, so an unclosed comment is kept in memory until the end of the template (where it is
+ *   output as literal text).
+ * </p>
+ * <p>
+ *   There is no markup in TEXT templates, so markup selectors cannot be applied to them.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ * @since 3.0.0
+ * 
+ */
+public final class TextTemplateParser implements ITemplateParser {
+
+    /**
+     * Maximum length (in chars, including delimiters) of inlined expressions: 8192. Openers not closed within
+     * this length are considered literal text, so that an unclosed one does not make the parser buffer (and
+     * delay the output of) the rest of the template.
+     */
+    public static final int MAX_INLINED_EXPRESSION_LEN = 8192;
+
+
+    private final int bufferSize;
+
+
+
+    public TextTemplateParser(final int bufferSize) {
+        super();
+        Validate.isTrue(bufferSize > 0, "Buffer size must be > 0");
+        this.bufferSize = bufferSize;
+    }
+
+
+
+
+    /*
+     * -------------------
+     * PARSE METHODS
+     * -------------------
+     */
+
+
+
+    public void parseTemplate(
+            final IEngineConfiguration configuration,
+            final TemplateMode templateMode,
+            final IResource templateResource,
+            final String[] selectors,
+            final ITemplateHandler templateHandler) {
+        parse(configuration, templateMode, templateResource, true, selectors, templateHandler);
+    }
+
+
+    public void parseFragment(
+            final IEngineConfiguration configuration,
+            final TemplateMode templateMode,
+            final IResource templateResource,
+            final String[] selectors,
+            final ITemplateHandler templateHandler) {
+        parse(configuration, templateMode, templateResource, false, selectors, templateHandler);
+    }
+
+
+
+    private void parse(
+            final IEngineConfiguration configuration,
+            final TemplateMode templateMode,
+            final IResource templateResource,
+            final boolean topLevel,
+            final String[] selectors,
+            final ITemplateHandler templateHandler) {
+
+        Validate.notNull(configuration, "Engine Configuration cannot be null");
+        Validate.notNull(templateMode, "Template Mode cannot be null");
+        Validate.notNull(templateResource, "Template Resource cannot be null");
+        Validate.notNull(templateHandler, "Template Handler cannot be null");
+        Validate.isTrue(templateMode.isText(), "Parser is configured as TEXT, but " + templateMode + "-mode template parsing is being requested");
+
+        final String templateResourceName = templateResource.getName();
+
+        if (selectors != null) {
+            throw new TemplateInputException(
+                    "Cannot parse \"" + templateResourceName + "\": template selectors cannot be applied to " +
+                    "TEXT-mode templates");
+        }
+
+        try {
+
+            final IMarkupHandler handler =
+                    new TemplateHandlerAdapterMarkupHandler(
+                            templateResourceName,
+                            topLevel,
+                            templateHandler,
+                            configuration.getTextRepository(),
+                            configuration.getElementDefinitions(),
+                            configuration.getAttributeDefinitions(),
+                            templateMode);
+
+            final TextScanner scanner = new TextScanner(handler);
+
+            final long startTimeNanos = System.nanoTime();
+            handler.handleDocumentStart(startTimeNanos, 1, 1);
+
+            if (templateResource instanceof CharArrayResource) {
+
+                // The whole contents are already available, and scanning never modifies them
+                final CharArrayResource charArrayResource = (CharArrayResource) templateResource;
+                scanner.scan(charArrayResource.getContent(), charArrayResource.getOffset(), charArrayResource.getLen(), true);
+
+            } else if (templateResource instanceof StringResource) {
+
+                final String content = ((StringResource)templateResource).getContent();
+                final int len = content.length();
+                final char[] buffer = CharBufferPool.INSTANCE.allocate(len);
+                try {
+                    content.getChars(0, len, buffer, 0);
+                    scanner.scan(buffer, 0, len, true);
+                } finally {
+                    CharBufferPool.INSTANCE.release(buffer);
+                }
+
+            } else if (templateResource instanceof ReaderResource) {
+
+                scanStream(((ReaderResource)templateResource).getContent(), scanner, templateResourceName);
+
+            } else {
+
+                throw new IllegalArgumentException(
+                        "Cannot parse: unrecognized " + IResource.class.getSimpleName() + " implementation: " + templateResource.getClass().getName());
+
+            }
+
+            final long endTimeNanos = System.nanoTime();
+            handler.handleDocumentEnd(endTimeNanos, (endTimeNanos - startTimeNanos), scanner.line, scanner.col);
+
+        } catch (final ParseException e) {
+            final String message = "An error happened during template parsing";
+            if (e.getLine() != null && e.getCol() != null) {
+                throw new TemplateInputException(message, templateResourceName, e.getLine().intValue(), e.getCol().intValue(), e);
+            }
+            throw new TemplateInputException(message, templateResourceName, e);
+        }
+
+    }
+
+
+
+
+    private void scanStream(final Reader reader, final TextScanner scanner, final String templateResourceName)
+            throws ParseException {
+
+        char[] buffer = null;
+        try {
+
+            buffer = CharBufferPool.INSTANCE.allocate(this.bufferSize);
+
+            int bufferLen = 0;
+            boolean eof = false;
+            while (!eof) {
+
+                final int read = reader.read(buffer, bufferLen, buffer.length - bufferLen);
+                if (read == -1) {
+                    eof = true;
+                } else {
+                    bufferLen += read;
+                }
+
+                final int consumed = scanner.scan(buffer, 0, bufferLen, eof);
+
+                if (consumed == 0 && bufferLen == buffer.length) {
+                    // A structure is bigger than the whole buffer, so we need a bigger one
+                    final char[] newBuffer = CharBufferPool.INSTANCE.allocate(buffer.length * 2);
+                    System.arraycopy(buffer, 0, newBuffer, 0, bufferLen);
+                    CharBufferPool.INSTANCE.release(buffer);
+                    buffer = newBuffer;
+                } else if (consumed > 0 && consumed < bufferLen) {
+                    // Keep the not-yet-closed structure at the beginning of the buffer and read after it
+                    System.arraycopy(buffer, consumed, buffer, 0, bufferLen - consumed);
+                }
+                bufferLen -= consumed;
+
+            }
+
+        } catch (final IOException e) {
+            throw new TemplateInputException("An error happened while reading template", templateResourceName, e);
+        } finally {
+            CharBufferPool.INSTANCE.release(buffer);
+            try {
+                reader.close();
+            } catch (final Throwable ignored) {
+                // This exception can be safely ignored
+            }
+        }
+
+    }
+
+
+
+
+    /*
+     * Scans buffers for literal text, inlined expressions and parser-level comments, reporting text events to the
+     * handler. Structures that are not closed inside the scanned fragment are left unconsumed unless the end of the
+     * template has been reached, in which case they are reported as literal text. Handlers never keep references
+     * to the buffers once each event has been handled, so these can be reused after each call.
+     */
+    static final class TextScanner {
+
+        private final IMarkupHandler handler;
+        int line = 1;
+        int col = 1;
+
+
+        TextScanner(final IMarkupHandler handler) {
+            super();
+            this.handler = handler;
+        }
+
+
+        /*
+         * Returns the number of chars consumed from the beginning of the fragment
+         */
+        int scan(final char[] buffer, final int offset, final int len, final boolean eof) throws ParseException {
+
+            final int max = offset + len;
+
+            int textStart = offset;
+            int i = offset;
+
+            while (i < max) {
+
+                if (buffer[i] != '[') {
+                    i++;
+                    continue;
+                }
+
+                if (i + 1 >= max || (buffer[i + 1] == '[' && i + 2 >= max)) {
+                    if (eof) {
+                        i++;
+                        continue;
+                    }
+                    break;
+                }
+
+                final char c1 = buffer[i + 1];
+
+                if (c1 == '[' && buffer[i + 2] == '-') {
+
+                    final int end = find(buffer, i + 3, max, '-', ']', ']');
+                    if (end < 0) {
+                        if (eof) {
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    reportText(buffer, textStart, i);
+                    advance(buffer, i, end); // Parser-level comment: discarded
+                    i = textStart = end;
+
+                } else if (c1 == '[' || c1 == '(') {
+
+                    // Lookahead is capped, in the same way whether the whole template is available or not
+                    final boolean capped = (max - i > MAX_INLINED_EXPRESSION_LEN);
+                    final int searchMax = (capped ? i + MAX_INLINED_EXPRESSION_LEN : max);
+                    final int end =
+                            (c1 == '[' ? find(buffer, i + 2, searchMax, ']', ']') : find(buffer, i + 2, searchMax, ')', ']'));
+                    if (end < 0) {
+                        if (eof || capped) {
+                            // Never closed (or too long): the opener is just text
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    reportText(buffer, textStart, i);
+                    reportText(buffer, i, end);
+                    i = textStart = end;
+
+                } else {
+                    i++;
+                }
+
+            }
+
+            if (i >= max) {
+                i = max;
+            }
+            reportText(buffer, textStart, i);
+
+            return i - offset;
+
+        }
+
+
+        private void reportText(final char[] buffer, final int start, final int end) throws ParseException {
+            if (end > start) {
+                this.handler.handleText(buffer, start, end - start, this.line, this.col);
+                advance(buffer, start, end);
+            }
+        }
+
+
+        private void advance(final char[] buffer, final int start, final int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    this.line++;
+                    this.col = 1;
+                } else {
+                    this.col++;
+                }
+            }
+        }
+
+
+        /*
+         * Returns the position right after the first occurrence of the two-char sequence, or -1 if not found
+         */
+        private static int find(final char[] buffer, final int from, final int max, final char c0, final char c1) {
+            for (int i = from; i + 1 < max; i++) {
+                if (buffer[i] == c0 && buffer[i + 1] == c1) {
+                    return i + 2;
+                }
+            }
+            return -1;
+        }
+
+
+        /*
+         * Returns the position right after the first occurrence of the three-char sequence, or -1 if not found
+         */
+        private static int find(final char[] buffer, final int from, final int max, final char c0, final char c1, final char c2) {
+            for (int i = from; i + 2 < max; i++) {
+                if (buffer[i] == c0 && buffer[i + 1] == c1 && buffer[i + 2] == c2) {
+                    return i + 3;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+
+}
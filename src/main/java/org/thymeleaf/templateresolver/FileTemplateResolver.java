@@ -19,6 +19,12 @@
  */
 package org.thymeleaf.templateresolver;
 
+import java.io.File;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.FileModificationCacheEntryValidity;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.context.IContext;
 import org.thymeleaf.exceptions.ConfigurationException;
 import org.thymeleaf.resourceresolver.FileResourceResolver;
 import org.thymeleaf.resourceresolver.IResourceResolver;
@@ -28,6 +34,18 @@
  *   Implementation of {@link ITemplateResolver} that extends {@link TemplateResolver}
  *   and uses a {@link FileResourceResolver} for resource resolution.
  * </p>
+ * <p>
+ *   If <i>file modification checks</i> are enabled (see {@link #setCheckFileModifications(boolean)}),
+ *   cacheable template resolutions will be considered valid only for as long as their template
+ *   file is not modified, by means of a {@link FileModificationCacheEntryValidity}. This allows
+ *   caching templates without a TTL and still have them reloaded as soon as they change.
+ * </p>
+ * <p>
+ *   Template files can also be read by means of memory mapping and bulk decoding (see
+ *   {@link #setUseMemoryMappedFiles(boolean)}), and their decoded contents can be cached so that
+ *   reparsing a template after eviction from the template cache does not require any disk reads
+ *   (see {@link #setCacheDecodedFileContents(boolean)}).
+ * </p>
  * 
  * @author Daniel Fern&aacute;ndez
  * 
@@ -37,6 +55,41 @@
 public class FileTemplateResolver
         extends TemplateResolver {
 
+
+    /**
+     * <p>
+     *   Default value for the <i>check file modifications</i> flag: false.
+     * </p>
+     */
+    public static final boolean DEFAULT_CHECK_FILE_MODIFICATIONS = false;
+
+    /**
+     * <p>
+     *   Default value for the file modification check interval: 500 ms.
+     * </p>
+     */
+    public static final long DEFAULT_FILE_MODIFICATION_CHECK_INTERVAL_MS = 500L;
+
+    /**
+     * <p>
+     *   Default value for the <i>use memory-mapped files</i> flag: false.
+     * </p>
+     */
+    public static final boolean DEFAULT_USE_MEMORY_MAPPED_FILES = false;
+
+    /**
+     * <p>
+     *   Default value for the <i>cache decoded file contents</i> flag: false.
+     * </p>
+     */
+    public static final boolean DEFAULT_CACHE_DECODED_FILE_CONTENTS = false;
+
+
+    private boolean checkFileModifications = DEFAULT_CHECK_FILE_MODIFICATIONS;
+    private long fileModificationCheckIntervalMs = DEFAULT_FILE_MODIFICATION_CHECK_INTERVAL_MS;
+    private boolean useMemoryMappedFiles = DEFAULT_USE_MEMORY_MAPPED_FILES;
+    private boolean cacheDecodedFileContents = DEFAULT_CACHE_DECODED_FILE_CONTENTS;
+
     
     
     
@@ -44,6 +97,126 @@ public FileTemplateResolver() {
         super();
         super.setResourceResolver(new FileResourceResolver());
     }
+
+
+
+
+    /**
+     * <p>
+     *   Returns whether cacheable template resolutions should be invalidated when
+     *   their template files are modified.
+     * </p>
+     *
+     * @return whether file modifications are checked or not.
+     * @since 3.0.0
+     */
+    public final boolean getCheckFileModifications() {
+        return this.checkFileModifications;
+    }
+
+
+    /**
+     * <p>
+     *   Sets whether cacheable template resolutions should be invalidated when
+     *   their template files are modified.
+     * </p>
+     * <p>
+     *   If a cache TTL is also set, entries will be invalidated when either
+     *   the TTL expires or the file is modified.
+     * </p>
+     *
+     * @param checkFileModifications whether file modifications should be checked or not.
+     * @since 3.0.0
+     */
+    public void setCheckFileModifications(final boolean checkFileModifications) {
+        this.checkFileModifications = checkFileModifications;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the minimum time (in milliseconds) between two checks on the
+     *   modification date of a template file.
+     * </p>
+     *
+     * @return the file modification check interval.
+     * @since 3.0.0
+     */
+    public final long getFileModificationCheckIntervalMs() {
+        return this.fileModificationCheckIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Sets the minimum time (in milliseconds) between two checks on the
+     *   modification date of a template file. A value of <tt>0</tt> means
+     *   the file will be checked every time its cache entry is used.
+     * </p>
+     *
+     * @param fileModificationCheckIntervalMs the new file modification check interval.
+     * @since 3.0.0
+     */
+    public void setFileModificationCheckIntervalMs(final long fileModificationCheckIntervalMs) {
+        this.fileModificationCheckIntervalMs = fileModificationCheckIntervalMs;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether template files are memory-mapped and decoded in bulk.
+     * </p>
+     *
+     * @return whether memory-mapped files are used or not.
+     * @since 3.0.0
+     */
+    public final boolean getUseMemoryMappedFiles() {
+        return this.useMemoryMappedFiles;
+    }
+
+
+    /**
+     * <p>
+     *   Sets whether template files should be memory-mapped (if big enough) and decoded in bulk
+     *   instead of being read through a {@link java.io.Reader}.
+     * </p>
+     *
+     * @param useMemoryMappedFiles whether memory-mapped files should be used or not.
+     * @since 3.0.0
+     */
+    public void setUseMemoryMappedFiles(final boolean useMemoryMappedFiles) {
+        this.useMemoryMappedFiles = useMemoryMappedFiles;
+        super.setResourceResolver(new FileResourceResolver(this.useMemoryMappedFiles, this.cacheDecodedFileContents));
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether the decoded contents of template files are cached.
+     * </p>
+     *
+     * @return whether decoded file contents are cached or not.
+     * @since 3.0.0
+     */
+    public final boolean getCacheDecodedFileContents() {
+        return this.cacheDecodedFileContents;
+    }
+
+
+    /**
+     * <p>
+     *   Sets whether the decoded contents of template files should be cached (using soft references)
+     *   and reused for as long as the files are not modified. Enabling this implies bulk decoding of
+     *   template files.
+     * </p>
+     *
+     * @param cacheDecodedFileContents whether decoded file contents should be cached or not.
+     * @since 3.0.0
+     */
+    public void setCacheDecodedFileContents(final boolean cacheDecodedFileContents) {
+        this.cacheDecodedFileContents = cacheDecodedFileContents;
+        super.setResourceResolver(new FileResourceResolver(this.useMemoryMappedFiles, this.cacheDecodedFileContents));
+    }
     
     
     
@@ -70,6 +243,23 @@ public void setResourceResolver(final IResourceResolver resourceResolver) {
                 "instead");
     }
 
+
+
+
+    @Override
+    protected ICacheEntryValidity computeValidity(
+            final IEngineConfiguration configuration, final IContext context, final String template) {
+
+        final ICacheEntryValidity validity = super.computeValidity(configuration, context, template);
+        if (!this.checkFileModifications || !validity.isCacheable()) {
+            return validity;
+        }
+
+        final File templateFile = new File(computeResourceName(configuration, context, template));
+        return new FileModificationCacheEntryValidity(templateFile, this.fileModificationCheckIntervalMs, validity);
+
+    }
+
     
     
 }
@@ -0,0 +1,398 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.text;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.thymeleaf.util.TextUtil;
+
+/**
+ * <p>
+ *     Repository of text (<tt>String</tt>) instances created by the markup parser or document model,
+ *     optimized for highly concurrent environments.
+ * </p>
+ * <p>
+ *     This repository works in the same way as {@link LimitedSizeCacheTextRepository} (like a
+ *     {@link String#intern()} which does not need a previous <tt>String</tt> instance and has a
+ *     limited size in chars), but <strong>no locks are used</strong>: retrieving an already-stored
+ *     text only involves volatile reads, and storing a new one is done by means of
+ *     <em>compare-and-set</em> operations.
+ * </p>
+ * <p>
+ *     Texts are stored in a series of <em>stripes</em> (selected by hash code), each of them being an
+ *     open-addressing hash table in which a text can only live in a small <em>probe window</em> of slots
+ *     starting at the index computed from its hash code. When a stripe reaches its maximum size (or the
+ *     probe window for a new text is full), one of the texts in the window will be replaced by the new
+ *     one, in a round-robin fashion. This means eviction is performed one text at a time and never
+ *     requires blocking or reorganizing the entire repository.
+ * </p>
+ * <p>
+ *     Texts specified as <em>unremovable</em> (through a constructor argument) will never be replaced.
+ * </p>
+ * <p>
+ *     Note that, in the rare case that two threads store the same text at the same time while a stripe
+ *     is being evicted, two different (but equal) <tt>String</tt> instances might be returned for the same
+ *     text. Results are always equal to the text being asked for.
+ * </p>
+ * <p>
+ *     Instances of this class are <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class ConcurrentTextRepository implements ITextRepository {
+
+    // Number of stripes (must be a power of 2)
+    private static final int STRIPES = 16;
+    private static final int STRIPE_SHIFT = 4;
+
+    // Size of the window of slots in which a text can be stored (must be a power of 2)
+    private static final int PROBE_WINDOW = 8;
+
+    // Estimated average length of texts, used for computing the number of slots of each stripe
+    private static final int ESTIMATED_AVERAGE_TEXT_LEN = 16;
+    private static final int MIN_STRIPE_SLOTS = 256;
+
+    private final Stripe[] stripes;
+    private final IdentityHashMap<String,String> unremovableTexts;
+
+
+
+    public ConcurrentTextRepository(final int maxSizeInChars, final String[] unremovableTexts) {
+
+        super();
+
+        if (maxSizeInChars <= 0) {
+            throw new IllegalArgumentException("Max size in chars must be greater than zero");
+        }
+
+        final int maxStripeSizeInChars = Math.max(1, maxSizeInChars / STRIPES);
+
+        int stripeSlots = MIN_STRIPE_SLOTS;
+        while (stripeSlots < (maxStripeSizeInChars / ESTIMATED_AVERAGE_TEXT_LEN) && stripeSlots < (1 << 24)) {
+            stripeSlots <<= 1;
+        }
+
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(stripeSlots, maxStripeSizeInChars);
+        }
+
+        // This map is never modified after construction, so it can be safely read without synchronization
+        this.unremovableTexts = new IdentityHashMap<String, String>(unremovableTexts.length + 1);
+        for (final String unremovableText : unremovableTexts) {
+            final String stored = storeText(unremovableText, spread(unremovableText.hashCode()));
+            this.unremovableTexts.put(stored, stored);
+        }
+
+    }
+
+
+
+
+
+
+    public String getText(final char[] text, final int offset, final int len) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final int h = spread(TextUtil.hashCode(text, offset, len));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text, offset, len, candidate)) {
+                return candidate;
+            }
+        }
+
+        return storeText(new String(text, offset, len), h);
+
+    }
+
+
+    public String getText(final CharSequence text) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final int h = spread(TextUtil.hashCode(text));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text, candidate)) {
+                // We will return the stored instance, maybe allowing the 'text' arg to be eaten by the GC
+                return candidate;
+            }
+        }
+
+        return storeText(text.toString(), h);
+
+    }
+
+
+    public String getText(final CharSequence text, final int beginIndex, final int endIndex) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final int h = spread(TextUtil.hashCode(text, beginIndex, endIndex));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text, beginIndex, endIndex, candidate)) {
+                // We will return the stored instance, maybe allowing the 'text' arg to be eaten by the GC
+                return candidate;
+            }
+        }
+
+        return storeText(text.subSequence(beginIndex, endIndex).toString(), h);
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1) {
+
+        if (text0 == null) {
+            return getText(text1);
+        }
+        if (text1 == null) {
+            return getText(text0);
+        }
+
+        final int h = spread(TextUtil.hashCode(text0, text1));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text0, text1, candidate)) {
+                // We will return the stored instance, maybe allowing the 'text' arg to be eaten by the GC
+                return candidate;
+            }
+        }
+
+        return storeText(text0.toString() + text1.toString(), h);
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1, final CharSequence text2) {
+
+        if (text0 == null) {
+            return getText(text1, text2);
+        }
+        if (text1 == null) {
+            return getText(text0, text2);
+        }
+        if (text2 == null) {
+            return getText(text0, text1);
+        }
+
+        final int h = spread(TextUtil.hashCode(text0, text1, text2));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text0, text1, text2, candidate)) {
+                // We will return the stored instance, maybe allowing the 'text' arg to be eaten by the GC
+                return candidate;
+            }
+        }
+
+        return storeText(text0.toString() + text1.toString() + text2.toString(), h);
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1, final CharSequence text2, final CharSequence text3) {
+
+        if (text0 == null) {
+            return getText(text1, text2, text3);
+        }
+        if (text1 == null) {
+            return getText(text0, text2, text3);
+        }
+        if (text2 == null) {
+            return getText(text0, text1, text3);
+        }
+        if (text3 == null) {
+            return getText(text0, text1, text2);
+        }
+
+        final int h = spread(TextUtil.hashCode(text0, text1, text2, text3));
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+
+        int index = (h >>> STRIPE_SHIFT);
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+            final String candidate = table.get(index++ & stripe.mask);
+            if (candidate == null) {
+                break;
+            }
+            if (LimitedSizeCacheTextRepository.checkResult(text0, text1, text2, text3, candidate)) {
+                // We will return the stored instance, maybe allowing the 'text' arg to be eaten by the GC
+                return candidate;
+            }
+        }
+
+        return storeText(text0.toString() + text1.toString() + text2.toString() + text3.toString(), h);
+
+    }
+
+
+
+
+    private String storeText(final String text, final int h) {
+
+        final Stripe stripe = this.stripes[h & (STRIPES - 1)];
+        final AtomicReferenceArray<String> table = stripe.table;
+        final int textLen = text.length();
+
+        if (textLen > stripe.maxSizeInChars) {
+            // Text simply doesn't fit. Return it WITHOUT STORING
+            return text;
+        }
+
+        final boolean full = (stripe.sizeInChars.get() + textLen > stripe.maxSizeInChars);
+
+        /*
+         * Look for a free slot in the probe window, checking along the way whether the text has been
+         * stored by another thread in the meantime. Slots are never set back to null (texts are only
+         * ever replaced), so the first null slot marks the end of the texts stored in this window.
+         */
+        final int startIndex = (h >>> STRIPE_SHIFT);
+        int index = startIndex;
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+
+            final int slot = index++ & stripe.mask;
+            String candidate = table.get(slot);
+
+            if (candidate == null) {
+                if (full) {
+                    break;
+                }
+                if (table.compareAndSet(slot, null, text)) {
+                    stripe.sizeInChars.addAndGet(textLen);
+                    return text;
+                }
+                // Another thread stored a text in this same slot - it might be ours
+                candidate = table.get(slot);
+            }
+
+            if (text.equals(candidate)) {
+                return candidate;
+            }
+
+        }
+
+        /*
+         * No room available, so we need to replace (evict) one of the texts in the window. Victims are
+         * selected in a round-robin fashion, skipping unremovable texts.
+         */
+        final int clock = stripe.clock.getAndIncrement();
+        for (int i = 0; i < PROBE_WINDOW; i++) {
+
+            final int slot = (startIndex + ((clock + i) & (PROBE_WINDOW - 1))) & stripe.mask;
+            final String victim = table.get(slot);
+
+            if (victim == null || this.unremovableTexts.containsKey(victim)) {
+                // Free slots are not used when full (and texts cannot be placed after a null slot anyway)
+                continue;
+            }
+            if (table.compareAndSet(slot, victim, text)) {
+                stripe.sizeInChars.addAndGet(textLen - victim.length());
+                return text;
+            }
+
+        }
+
+        // We weren't able to make room for the text. Return it WITHOUT STORING
+        return text;
+
+    }
+
+
+
+
+    private static int spread(final int hashCode) {
+        // Mixes the higher bits into the lower ones, so that both stripe and slot selection are well distributed
+        final int h = hashCode ^ (hashCode >>> 16);
+        return h ^ (h >>> 7);
+    }
+
+
+
+
+    private static final class Stripe {
+
+        final AtomicReferenceArray<String> table;
+        final int mask;
+        final int maxSizeInChars;
+        final AtomicInteger sizeInChars;
+        final AtomicInteger clock;
+
+        Stripe(final int slots, final int maxSizeInChars) {
+            super();
+            this.table = new AtomicReferenceArray<String>(slots);
+            this.mask = slots - 1;
+            this.maxSizeInChars = maxSizeInChars;
+            this.sizeInChars = new AtomicInteger(0);
+            this.clock = new AtomicInteger(0);
+        }
+
+    }
+
+}
@@ -399,7 +399,7 @@ public String getText(final CharSequence text0, final CharSequence text1, final
 
 
 
-    private static boolean checkResult(final char[] input, final int offset, final int len, final String result) {
+    static boolean checkResult(final char[] input, final int offset, final int len, final String result) {
         if (result.length() != len) {
             return false;
         }
@@ -413,7 +413,7 @@ private static boolean checkResult(final char[] input, final int offset, final i
     }
 
 
-    private static boolean checkResult(final CharSequence input, final String result) {
+    static boolean checkResult(final CharSequence input, final String result) {
 
         if (input == result) {
             return true;
@@ -435,7 +435,7 @@ private static boolean checkResult(final CharSequence input, final String result
     }
 
 
-    private static boolean checkResult(final CharSequence input, final int beginIndex, final int endIndex, final String result) {
+    static boolean checkResult(final CharSequence input, final int beginIndex, final int endIndex, final String result) {
 
         if (beginIndex == 0 && endIndex == result.length()) {
             if (input == result) {
@@ -459,7 +459,7 @@ private static boolean checkResult(final CharSequence input, final int beginInde
     }
 
 
-    private static boolean checkResult(final CharSequence input0, final CharSequence input1, final String result) {
+    static boolean checkResult(final CharSequence input0, final CharSequence input1, final String result) {
 
         if (input0 == null) {
             return checkResult(input1, result);
@@ -468,12 +468,13 @@ private static boolean checkResult(final CharSequence input0, final CharSequence
             return checkResult(input0, result);
         }
 
-        return checkResultPart(checkResultPart(0, input0, result), input1, result) != -1;
+        // All parts must match, and they must also cover the entire result
+        return checkResultPart(checkResultPart(0, input0, result), input1, result) == result.length();
 
     }
 
 
-    private static boolean checkResult(final CharSequence input0, final CharSequence input1, final CharSequence input2, final String result) {
+    static boolean checkResult(final CharSequence input0, final CharSequence input1, final CharSequence input2, final String result) {
 
         if (input0 == null) {
             return checkResult(input1, input2, result);
@@ -485,12 +486,13 @@ private static boolean checkResult(final CharSequence input0, final CharSequence
             return checkResult(input0, input1, result);
         }
 
-        return checkResultPart(checkResultPart(checkResultPart(0, input0, result), input1, result), input2, result) != -1;
+        // All parts must match, and they must also cover the entire result
+        return checkResultPart(checkResultPart(checkResultPart(0, input0, result), input1, result), input2, result) == result.length();
 
     }
 
 
-    private static boolean checkResult(final CharSequence input0, final CharSequence input1, final CharSequence input2, final CharSequence input3, final String result) {
+    static boolean checkResult(final CharSequence input0, final CharSequence input1, final CharSequence input2, final CharSequence input3, final String result) {
 
         if (input0 == null) {
             return checkResult(input1, input2, input3, result);
@@ -505,14 +507,15 @@ private static boolean checkResult(final CharSequence input0, final CharSequence
             return checkResult(input0, input1, input2, result);
         }
 
-        return checkResultPart(checkResultPart(checkResultPart(checkResultPart(0, input0, result), input1, result), input2, result), input3, result) != -1;
+        // All parts must match, and they must also cover the entire result
+        return checkResultPart(checkResultPart(checkResultPart(checkResultPart(0, input0, result), input1, result), input2, result), input3, result) == result.length();
 
     }
 
 
 
 
-    private static int checkResultPart(final int i, final CharSequence input, final String result) {
+    static int checkResultPart(final int i, final CharSequence input, final String result) {
 
         if (i == -1) {
             return i;
@@ -56,6 +56,49 @@ public static ITextRepository createLimitedSizeCacheRepository(final int cacheSi
             throw new IllegalArgumentException("Cache size in bytes must be greater than zero");
         }
 
+        // (1 char = 2 bytes), thus we divide by 2 the default size in bytes
+        final ITextRepository textRepository =
+                new LimitedSizeCacheTextRepository(cacheSizeBytes / 2, computeUnremovableTexts());
+
+        return textRepository;
+
+    }
+
+
+    public static ITextRepository createConcurrentCacheRepository() {
+        return createConcurrentCacheRepository(DEFAULT_TEXT_REPOSITORY_CACHE_SIZE_BYTES);
+    }
+
+
+    public static ITextRepository createConcurrentCacheRepository(final int cacheSizeBytes) {
+
+        if (cacheSizeBytes <= 0) {
+            throw new IllegalArgumentException("Cache size in bytes must be greater than zero");
+        }
+
+        // (1 char = 2 bytes), thus we divide by 2 the default size in bytes
+        final ITextRepository textRepository =
+                new ConcurrentTextRepository(cacheSizeBytes / 2, computeUnremovableTexts());
+
+        return textRepository;
+
+    }
+
+
+
+    public static ITextRepository createThreadLocalCachedRepository(final ITextRepository delegate) {
+        return new ThreadLocalCachedTextRepository(delegate);
+    }
+
+
+    public static ITextRepository createThreadLocalCachedRepository(final ITextRepository delegate, final int frontCacheSize) {
+        return new ThreadLocalCachedTextRepository(delegate, frontCacheSize);
+    }
+
+
+
+    private static String[] computeUnremovableTexts() {
+
         final List<String> unremovableTexts  = new ArrayList<String>();
 
         unremovableTexts.addAll(ElementDefinitions.ALL_STANDARD_HTML_ELEMENT_NAMES);
@@ -76,11 +119,7 @@ public static ITextRepository createLimitedSizeCacheRepository(final int cacheSi
         unremovableTexts.add("\n\t\t\t");
         unremovableTexts.add("\n\t\t\t\t");
 
-        // (1 char = 2 bytes), thus we divide by 2 the default size in bytes
-        final ITextRepository textRepository =
-                new LimitedSizeCacheTextRepository(cacheSizeBytes / 2, unremovableTexts.toArray(new String[unremovableTexts.size()]));
-
-        return textRepository;
+        return unremovableTexts.toArray(new String[unremovableTexts.size()]);
 
     }
 
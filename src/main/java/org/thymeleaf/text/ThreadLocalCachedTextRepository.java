@@ -0,0 +1,328 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2011-2014, The THYMELEAF team (http://www.thymeleaf.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.thymeleaf.text;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.thymeleaf.util.TextUtil;
+import org.thymeleaf.util.Validate;
+
+/**
+ * <p>
+ *     Implementation of {@link ITextRepository} that adds a small, per-thread, direct-mapped cache in front of
+ *     another (delegate) text repository.
+ * </p>
+ * <p>
+ *     Most texts asked for during parsing and processing (element and attribute names, whitespace, etc.) belong
+ *     to a small set that is asked for again and again, so they will normally be found in the calling thread's
+ *     front cache without the need to access the shared structures (and synchronization mechanisms) of the
+ *     delegate repository.
+ * </p>
+ * <p>
+ *     Each thread's cache is an array of texts indexed by the (spread) hash code of the text being asked for.
+ *     When a text is not found (<em>miss</em>), it is obtained from the delegate repository and stored at its
+ *     slot, replacing whatever text was there before.
+ * </p>
+ * <p>
+ *     Hit and miss counts are kept (per-thread, without synchronization) so that the size of the front caches
+ *     can be tuned. Note these counts are approximate: counts of threads that have died are discarded, and reading
+ *     them does not synchronize with the threads updating them.
+ * </p>
+ * <p>
+ *     Front caches only contain JDK objects (arrays of texts and counts), so that threads that outlive the
+ *     application (e.g. pooled threads in a servlet container) do not keep its classes reachable after it
+ *     has been undeployed.
+ * </p>
+ * <p>
+ *     Instances of this class are <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 3.0.0
+ *
+ */
+public final class ThreadLocalCachedTextRepository implements ITextRepository {
+
+    public static final int DEFAULT_FRONT_CACHE_SIZE = 256;
+
+    // Each front cache is an array: { String[] texts, long[] { hitCount, missCount } }
+    private static final int FRONT_CACHE_TEXTS = 0;
+    private static final int FRONT_CACHE_COUNTS = 1;
+    private static final int HIT_COUNT = 0;
+    private static final int MISS_COUNT = 1;
+
+    private final ITextRepository delegate;
+    private final int frontCacheSize;
+    private final int frontCacheMask;
+    private final ThreadLocal<Object[]> frontCaches;
+    private final List<WeakReference<long[]>> allFrontCacheCounts;
+
+
+
+    public ThreadLocalCachedTextRepository(final ITextRepository delegate) {
+        this(delegate, DEFAULT_FRONT_CACHE_SIZE);
+    }
+
+
+    public ThreadLocalCachedTextRepository(final ITextRepository delegate, final int frontCacheSize) {
+
+        super();
+
+        Validate.notNull(delegate, "Delegate text repository cannot be null");
+        Validate.isTrue(frontCacheSize > 0, "Front cache size must be greater than zero");
+
+        this.delegate = delegate;
+
+        // Size will be rounded up to a power of 2, so that indexes can be computed with a mask
+        int size = 1;
+        while (size < frontCacheSize) {
+            size <<= 1;
+        }
+        this.frontCacheSize = size;
+        this.frontCacheMask = size - 1;
+
+        this.frontCaches = new ThreadLocal<Object[]>();
+        this.allFrontCacheCounts = new CopyOnWriteArrayList<WeakReference<long[]>>();
+
+    }
+
+
+
+
+    public ITextRepository getDelegate() {
+        return this.delegate;
+    }
+
+
+    public int getFrontCacheSize() {
+        return this.frontCacheSize;
+    }
+
+
+    public long getHitCount() {
+        long hitCount = 0L;
+        for (final WeakReference<long[]> countsReference : this.allFrontCacheCounts) {
+            final long[] counts = countsReference.get();
+            if (counts != null) {
+                hitCount += counts[HIT_COUNT];
+            }
+        }
+        return hitCount;
+    }
+
+
+    public long getMissCount() {
+        long missCount = 0L;
+        for (final WeakReference<long[]> countsReference : this.allFrontCacheCounts) {
+            final long[] counts = countsReference.get();
+            if (counts != null) {
+                missCount += counts[MISS_COUNT];
+            }
+        }
+        return missCount;
+    }
+
+
+
+
+    public String getText(final char[] text, final int offset, final int len) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text, offset, len));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text, offset, len, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text, offset, len));
+
+    }
+
+
+    public String getText(final CharSequence text) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text));
+
+    }
+
+
+    public String getText(final CharSequence text, final int beginIndex, final int endIndex) {
+
+        if (text == null) {
+            return null;
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text, beginIndex, endIndex));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text, beginIndex, endIndex, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text, beginIndex, endIndex));
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1) {
+
+        if (text0 == null) {
+            return getText(text1);
+        }
+        if (text1 == null) {
+            return getText(text0);
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text0, text1));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text0, text1, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text0, text1));
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1, final CharSequence text2) {
+
+        if (text0 == null) {
+            return getText(text1, text2);
+        }
+        if (text1 == null) {
+            return getText(text0, text2);
+        }
+        if (text2 == null) {
+            return getText(text0, text1);
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text0, text1, text2));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text0, text1, text2, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text0, text1, text2));
+
+    }
+
+
+    public String getText(final CharSequence text0, final CharSequence text1, final CharSequence text2, final CharSequence text3) {
+
+        if (text0 == null) {
+            return getText(text1, text2, text3);
+        }
+        if (text1 == null) {
+            return getText(text0, text2, text3);
+        }
+        if (text2 == null) {
+            return getText(text0, text1, text3);
+        }
+        if (text3 == null) {
+            return getText(text0, text1, text2);
+        }
+
+        final Object[] frontCache = getFrontCache();
+        final String[] texts = (String[]) frontCache[FRONT_CACHE_TEXTS];
+        final int slot = slot(TextUtil.hashCode(text0, text1, text2, text3));
+
+        final String candidate = texts[slot];
+        if (candidate != null && LimitedSizeCacheTextRepository.checkResult(text0, text1, text2, text3, candidate)) {
+            ((long[]) frontCache[FRONT_CACHE_COUNTS])[HIT_COUNT]++;
+            return candidate;
+        }
+
+        ((long[]) frontCache[FRONT_CACHE_COUNTS])[MISS_COUNT]++;
+        return (texts[slot] = this.delegate.getText(text0, text1, text2, text3));
+
+    }
+
+
+
+
+    private Object[] getFrontCache() {
+
+        Object[] frontCache = this.frontCaches.get();
+        if (frontCache != null) {
+            return frontCache;
+        }
+
+        final long[] counts = new long[2];
+        frontCache = new Object[] { new String[this.frontCacheSize], counts };
+        this.frontCaches.set(frontCache);
+
+        // Counts of threads that have died are discarded at this point (not a frequent operation)
+        for (final WeakReference<long[]> countsReference : this.allFrontCacheCounts) {
+            if (countsReference.get() == null) {
+                this.allFrontCacheCounts.remove(countsReference);
+            }
+        }
+        this.allFrontCacheCounts.add(new WeakReference<long[]>(counts));
+
+        return frontCache;
+
+    }
+
+
+    private int slot(final int hashCode) {
+        return (hashCode ^ (hashCode >>> 16)) & this.frontCacheMask;
+    }
+
+}
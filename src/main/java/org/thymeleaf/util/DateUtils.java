@@ -22,7 +22,11 @@
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
@@ -39,7 +43,25 @@
 public final class DateUtils {
     
     
-    private static final Map<DateFormatKey,DateFormat> dateFormats = new ConcurrentHashMap<DateFormatKey, DateFormat>();
+    /*
+     * DateFormat objects are not thread-safe, so instead of sharing (and synchronizing on) them, each thread keeps
+     * its own bounded set of formatters. These are created by cloning shared prototypes, which are never used
+     * for formatting themselves (so that cloning them is safe) and avoid re-compiling patterns for each thread.
+     *
+     * Per-thread formatters are kept across template processing operations. Only JDK objects (JDK maps, lists
+     * and formatters) are bound to threads, so that pooled threads do not keep the application's classes alive
+     * after it has been undeployed.
+     */
+    private static final int MAX_DATE_FORMAT_PROTOTYPES = 256;
+    private static final int MAX_THREAD_DATE_FORMATS = 32;
+
+    private static final Map<List<Object>,DateFormat> dateFormatPrototypes =
+            new ConcurrentHashMap<List<Object>, DateFormat>();
+
+    private static final ThreadLocal<Map<List<Object>,DateFormat>> threadDateFormats =
+            new ThreadLocal<Map<List<Object>,DateFormat>>();
+
+    private static final ThreadLocal<DateFormat> threadISO8601DateFormat = new ThreadLocal<DateFormat>();
 
     /*
      * This SimpleDateFormat defines an almost-ISO8601 formatter.
@@ -48,7 +70,8 @@ public final class DateUtils {
      * timezone as "+02:00" or "Z" instead of "+0200") was not added until Java SE 7. So the use of this
      * SimpleDateFormat object requires additional post-processing.
      *
-     * Note SimpleDateFormat objects are NOT thread-safe, so use of this object must be synchronized.
+     * Note SimpleDateFormat objects are NOT thread-safe, so this object is never used directly: it is cloned for
+     * each thread that needs it.
      */
     private static final SimpleDateFormat ISO8601_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZZZ");
 
@@ -472,34 +495,71 @@ private static String formatDate(final Object target, final String pattern, fina
         Validate.notNull(locale, "Locale cannot be null");
         
 
-        final DateFormatKey key = new DateFormatKey(target, pattern, locale);
+        final java.util.Date targetDate;
+        if (target instanceof Calendar) {
+            targetDate = ((Calendar) target).getTime();
+        } else if (target instanceof java.util.Date) {
+            targetDate = (java.util.Date)target;
+        } else {
+            throw new IllegalArgumentException(
+                    "Cannot format object of class \"" + target.getClass().getName() + "\" as a date");
+        }
+
+        final TimeZone timeZone = (target instanceof Calendar? ((Calendar) target).getTimeZone() : null);
+
+        return getDateFormat(pattern, timeZone, locale).format(targetDate);
         
+    }
+
+
+
+    private static DateFormat getDateFormat(final String pattern, final TimeZone timeZone, final Locale locale) {
+
+        Map<List<Object>,DateFormat> dateFormats = threadDateFormats.get();
+        if (dateFormats == null) {
+            // Access-ordered, so that the least recently used formats are the ones evicted
+            dateFormats = new LinkedHashMap<List<Object>,DateFormat>(MAX_THREAD_DATE_FORMATS + 1, 1.0f, true);
+            threadDateFormats.set(dateFormats);
+        }
+
+        final List<Object> key = Arrays.asList(new Object[] {pattern, timeZone, locale});
         DateFormat dateFormat = dateFormats.get(key);
         if (dateFormat == null) {
-            if (StringUtils.isEmptyOrWhitespace(pattern)) {
-                dateFormat = DateFormat.getDateTimeInstance(DateFormat.LONG, DateFormat.LONG, locale);
-            } else {
-                dateFormat = new SimpleDateFormat(pattern, locale);
-            }
-            if (key.timeZone != null) {
-                dateFormat.setTimeZone(key.timeZone);
+            if (dateFormats.size() >= MAX_THREAD_DATE_FORMATS) {
+                final Iterator<List<Object>> keysIterator = dateFormats.keySet().iterator();
+                keysIterator.next();
+                keysIterator.remove();
             }
+            dateFormat = createDateFormat(key, pattern, timeZone, locale);
             dateFormats.put(key, dateFormat);
         }
-        
-        if (target instanceof Calendar) {
-            synchronized (dateFormat) {
-                return dateFormat.format(((Calendar) target).getTime());
+        return dateFormat;
+
+    }
+
+
+
+    private static DateFormat createDateFormat(
+            final List<Object> key, final String pattern, final TimeZone timeZone, final Locale locale) {
+
+        DateFormat prototype = dateFormatPrototypes.get(key);
+        if (prototype == null) {
+            if (StringUtils.isEmptyOrWhitespace(pattern)) {
+                prototype = DateFormat.getDateTimeInstance(DateFormat.LONG, DateFormat.LONG, locale);
+            } else {
+                prototype = new SimpleDateFormat(pattern, locale);
             }
-        } else if (target instanceof java.util.Date) {
-            synchronized (dateFormat) {
-                return dateFormat.format((java.util.Date)target);
+            if (timeZone != null) {
+                prototype.setTimeZone(timeZone);
+            }
+            // Prototypes are bounded: once the limit is reached, new formats are simply not shared among threads
+            if (dateFormatPrototypes.size() < MAX_DATE_FORMAT_PROTOTYPES) {
+                dateFormatPrototypes.put(key, prototype);
             }
-        } else {
-            throw new IllegalArgumentException(
-                    "Cannot format object of class \"" + target.getClass().getName() + "\" as a date");
         }
-        
+
+        return (DateFormat) prototype.clone();
+
     }
 
 
@@ -526,11 +586,14 @@ public static String formatISO(final Object target) {
                     "Cannot format object of class \"" + target.getClass().getName() + "\" as a date");
         }
 
-        final String formatted;
-        synchronized (ISO8601_DATE_FORMAT) {
-            formatted = ISO8601_DATE_FORMAT.format(targetDate);
+        DateFormat iso8601DateFormat = threadISO8601DateFormat.get();
+        if (iso8601DateFormat == null) {
+            iso8601DateFormat = (DateFormat) ISO8601_DATE_FORMAT.clone();
+            threadISO8601DateFormat.set(iso8601DateFormat);
         }
 
+        final String formatted = iso8601DateFormat.format(targetDate);
+
         final StringBuilder strBuilder = new StringBuilder();
         strBuilder.append(formatted, 0, 23);
 
@@ -548,77 +611,10 @@ public static String formatISO(final Object target) {
     }
 
 
-    
+
     private DateUtils() {
         super();
     }
- 
-    
-    
-    
-    
-    
-    
-    
-    
-    private static final class DateFormatKey {
-        
-        final String format;
-        final TimeZone timeZone;
-        final Locale locale;
-        
-        DateFormatKey(final Object target, final String format, final Locale locale) {
-            super();
-            Validate.notNull(locale, "Locale cannot be null");
-            this.format = format;
-            this.locale = locale;
-            if (target != null && target instanceof Calendar) {
-                this.timeZone = ((Calendar)target).getTimeZone();
-            } else {
-                this.timeZone = null;
-            }
-        }
-
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((this.format == null) ? 0 : this.format.hashCode());
-            result = prime * result + this.locale.hashCode();
-            result = prime * result + ((this.timeZone == null) ? 0 : this.timeZone.hashCode());
-            return result;
-        }
-
-        @Override
-        public boolean equals(final Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            final DateFormatKey other = (DateFormatKey) obj;
-            if (this.format == null) {
-                if (other.format != null) {
-                    return false;
-                }
-            } else if (!this.format.equals(other.format)) {
-                return false;
-            }
-            if (this.timeZone == null) {
-                if (other.timeZone != null) {
-                    return false;
-                }
-            } else if (!this.timeZone.equals(other.timeZone)) {
-                return false;
-            }
-            return this.locale.equals(other.locale);
-        }
-        
-    }
 
 
     
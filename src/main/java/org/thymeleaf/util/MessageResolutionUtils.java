@@ -20,7 +20,6 @@
 package org.thymeleaf.util;
 
 import java.io.ByteArrayInputStream;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -41,6 +40,7 @@
 import org.thymeleaf.exceptions.TemplateProcessingException;
 import org.thymeleaf.message.absent.IAbsentMessageFormatter;
 import org.thymeleaf.message.resolver.IMessageResolver;
+import org.thymeleaf.message.resolver.MessageBundle;
 import org.thymeleaf.message.resolver.MessageResolution;
 import org.thymeleaf.resource.IResource;
 import org.thymeleaf.resourceresolver.ClassLoaderResourceResolver;
@@ -66,6 +66,7 @@ public final class MessageResolutionUtils {
     private static final Pattern CLASS_NAME_SEPARATOR_PATTERN = Pattern.compile("\\.");
 
     private static final String CLASS_CACHE_PREFIX = "cmsg|";
+    private static final String TEMPLATE_CACHE_PREFIX = "tmsg|";
 
     
     public static String resolveMessageForTemplate(
@@ -136,24 +137,24 @@ public static String resolveMessageForClass(
                 configuration.getTextRepository().getText(
                         CLASS_CACHE_PREFIX, className, "_", computeLocaleToString(textRepository,locale));
         
-        ICache<String,Properties> messagesCache = null;
-        Properties properties = null;
+        ICache<String,MessageBundle> messagesCache = null;
+        MessageBundle messages = null;
         
         final ICacheManager cacheManager = configuration.getCacheManager();
         if (cacheManager != null) {
             messagesCache = cacheManager.getMessageCache();
             if (messagesCache != null) {
-                properties = messagesCache.get(cacheKey);
+                messages = messagesCache.get(cacheKey);
             }
         }
         
-        if (properties == null) {
+        if (messages == null) {
             if (logger.isDebugEnabled()) {
                 logger.debug("[THYMELEAF][{}] Resolving uncached messages for class \"{}\" and locale \"{}\". Messages will be retrieved from files", new Object[] {TemplateEngine.threadIndex(), targetClass.getName(), locale});
             }
-            properties = loadMessagesForClass(targetClass, locale);
+            messages = new MessageBundle(locale, loadMessagesForClass(targetClass, locale));
             if (messagesCache != null) {
-                messagesCache.put(cacheKey, properties);
+                messagesCache.put(cacheKey, messages);
             }
         } else {
             if (logger.isTraceEnabled()) {
@@ -161,9 +162,11 @@ public static String resolveMessageForClass(
             }
         }
 
-        final String messageValue = properties.getProperty(messageKey);
+        final String message =
+                (messageParameters == null || messageParameters.length == 0?
+                        messages.getMessage(messageKey) : messages.formatMessage(messageKey, messageParameters));
 
-        if (messageValue == null) {
+        if (message == null) {
 
             if (returnStringAlways) {
                 final IAbsentMessageFormatter absentMessageFormatter = configuration.getAbsentMessageFormatter();
@@ -174,18 +177,33 @@ public static String resolveMessageForClass(
 
         }
 
-        if (messageParameters == null || messageParameters.length == 0) {
-            return messageValue;
-        }
-
-        final MessageFormat messageFormat = new MessageFormat(messageValue, locale);
-        return messageFormat.format(messageParameters);
+        return message;
 
     }
 
     
     
     
+    /**
+     * <p>
+     *   Computes the key used at the message cache for the messages of a specific template and locale.
+     * </p>
+     *
+     * @param textRepository the text repository
+     * @param templateName the name of the template
+     * @param locale the locale
+     * @return the message cache key
+     * @since 3.0.0
+     */
+    public static String computeTemplateMessagesCacheKey(
+            final ITextRepository textRepository, final String templateName, final Locale locale) {
+        return textRepository.getText(
+                TEMPLATE_CACHE_PREFIX, templateName, "_", computeLocaleToString(textRepository, locale));
+    }
+
+
+
+
     private static Properties loadMessagesForClass(
             final Class<?> targetClass, final Locale locale) {
         
@@ -372,8 +390,6 @@ private static String getSuffixForLanguage(final Locale locale) {
 
 
     // Calling locale.toString is surprisingly expensive, so we will try to us some shortcuts
-    // NOTE there is one like this at StandardMessageResolutionUtils. It's private and duplicated because it is
-    //      a low-level implementation detail
     private static String computeLocaleToString(final ITextRepository textRepository, final Locale locale) {
         String localeStr = locale.getLanguage();
         final String country = locale.getCountry();
@@ -25,8 +25,12 @@
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 
 /**
@@ -38,6 +42,18 @@
  */
 public final class NumberUtils {
 
+
+    /*
+     * DecimalFormat objects are not thread-safe and relatively expensive to configure, so each thread keeps its
+     * own bounded set of already-configured formats, kept across template processing operations. Only JDK objects
+     * (JDK maps, lists and formats) are bound to threads, so that pooled threads do not keep the application's
+     * classes alive after it has been undeployed.
+     */
+    private static final int MAX_THREAD_NUMBER_FORMATS = 32;
+
+    private static final ThreadLocal<Map<List<Object>,DecimalFormat>> threadNumberFormats =
+            new ThreadLocal<Map<List<Object>,DecimalFormat>>();
+
     
     
     public static String format(final Number target, final Integer minIntegerDigits, final Locale locale) {
@@ -180,29 +196,74 @@ private static String formatNumber(
         Validate.notNull(thousandsPointType, "Thousands point type cannot be null");
         Validate.notNull(locale, "Locale cannot be null");
 
-        DecimalFormat format = null;
-        
         if (target instanceof Double || target instanceof Float || target instanceof BigDecimal ||
             target instanceof Integer || target instanceof Long || target instanceof Byte || target instanceof Short || target instanceof BigInteger) {
 
-            format = (DecimalFormat) NumberFormat.getNumberInstance();
-            format.setMinimumFractionDigits(fractionDigits.intValue());
-            format.setMaximumFractionDigits(fractionDigits.intValue());
-            if (minIntegerDigits != null) {
-                format.setMinimumIntegerDigits(minIntegerDigits.intValue());
-            }
-            format.setDecimalSeparatorAlwaysShown(decimalPointType != NumberPointType.NONE && fractionDigits.intValue() > 0);
-            format.setGroupingUsed(thousandsPointType != NumberPointType.NONE);
-            format.setDecimalFormatSymbols(computeDecimalFormatSymbols(decimalPointType, thousandsPointType, locale));
-                
-        } else {
-            throw new IllegalArgumentException(
-                    "Cannot format object of class \"" + target.getClass().getName() + "\" as a decimal number");
+            final DecimalFormat format =
+                    getNumberFormat(minIntegerDigits, thousandsPointType, fractionDigits, decimalPointType, locale);
+            return format.format(target);
+
         }
-        
-        return format.format(target);
+
+        throw new IllegalArgumentException(
+                "Cannot format object of class \"" + target.getClass().getName() + "\" as a decimal number");
         
     }
+
+
+
+    private static DecimalFormat getNumberFormat(
+            final Integer minIntegerDigits, final NumberPointType thousandsPointType,
+            final Integer fractionDigits, final NumberPointType decimalPointType, final Locale locale) {
+
+        Map<List<Object>,DecimalFormat> formats = threadNumberFormats.get();
+        if (formats == null) {
+            // Access-ordered, so that the least recently used formats are the ones evicted
+            formats = new LinkedHashMap<List<Object>,DecimalFormat>(MAX_THREAD_NUMBER_FORMATS + 1, 1.0f, true);
+            threadNumberFormats.set(formats);
+        }
+
+        // Point types are keyed by their ordinal, so that keys are made of JDK objects only. Note the default locale
+        // is a part of the key too (see createNumberFormat()).
+        final List<Object> key =
+                Arrays.asList(new Object[] {
+                        minIntegerDigits, Integer.valueOf(thousandsPointType.ordinal()), fractionDigits,
+                        Integer.valueOf(decimalPointType.ordinal()), locale, Locale.getDefault()});
+        DecimalFormat format = formats.get(key);
+        if (format == null) {
+            if (formats.size() >= MAX_THREAD_NUMBER_FORMATS) {
+                final Iterator<List<Object>> keysIterator = formats.keySet().iterator();
+                keysIterator.next();
+                keysIterator.remove();
+            }
+            format = createNumberFormat(
+                    minIntegerDigits, thousandsPointType, fractionDigits.intValue(), decimalPointType, locale);
+            formats.put(key, format);
+        }
+        return format;
+
+    }
+
+
+
+    private static DecimalFormat createNumberFormat(
+            final Integer minIntegerDigits, final NumberPointType thousandsPointType,
+            final int fractionDigits, final NumberPointType decimalPointType, final Locale locale) {
+
+        // Note the default locale is used here (that is why it is a part of the key), being the format symbols the
+        // only ones taken from the specified locale
+        final DecimalFormat format = (DecimalFormat) NumberFormat.getNumberInstance();
+        format.setMinimumFractionDigits(fractionDigits);
+        format.setMaximumFractionDigits(fractionDigits);
+        if (minIntegerDigits != null) {
+            format.setMinimumIntegerDigits(minIntegerDigits.intValue());
+        }
+        format.setDecimalSeparatorAlwaysShown(decimalPointType != NumberPointType.NONE && fractionDigits > 0);
+        format.setGroupingUsed(thousandsPointType != NumberPointType.NONE);
+        format.setDecimalFormatSymbols(computeDecimalFormatSymbols(decimalPointType, thousandsPointType, locale));
+        return format;
+
+    }
     
 
     
@@ -268,7 +329,7 @@ private static DecimalFormatSymbols computeDecimalFormatSymbols(
     private NumberUtils() {
         super();
     }
-    
-    
-    
+
+
+
 }